@@ -31,4 +31,6 @@ public interface Stage extends PrettyPrintable {
 
   public String getName();
 
+  public StageLatencyStats getLatencyStats();
+
 }
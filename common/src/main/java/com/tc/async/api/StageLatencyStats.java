@@ -0,0 +1,43 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.async.api;
+
+import com.tc.stats.LatencyHistogram;
+
+/**
+ * Always on timing of a stage. One in {@link #getSampleRate()} contexts is timed, from being added to the stage until a
+ * worker polls it, and one in as many handler calls, so the cost stays small however busy the stage is.
+ */
+public interface StageLatencyStats {
+
+  String getName();
+
+  /**
+   * @return one in how many contexts is timed, 0 if timing is off
+   */
+  int getSampleRate();
+
+  /**
+   * @return nanoseconds the sampled contexts waited between being added and being polled
+   */
+  LatencyHistogram getWaitHistogram();
+
+  /**
+   * @return nanoseconds the stage's handler took on the sampled contexts
+   */
+  LatencyHistogram getServiceHistogram();
+}
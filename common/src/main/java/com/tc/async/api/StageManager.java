@@ -33,6 +33,13 @@ public interface StageManager extends PrettyPrintable, ClearableCallback {
 
   public Stage createStage(String name, EventHandler handler, int threads, int queueRatio, int maxSize);
 
+  /**
+   * Creates a stage whose workers steal key groups from each other or not as told, whatever the work stealing
+   * properties say, for stages whose handler depends on it.
+   */
+  public Stage createStage(String name, EventHandler handler, int threads, int queueRatio, int maxSize,
+                           boolean workStealing);
+
   public void startStage(Stage stage, ConfigurationContext context);
 
   public void startAll(ConfigurationContext context, List<PostInit> toInit);
@@ -16,6 +16,7 @@
  */
 package com.tc.async.api;
 
+import com.tc.stats.LatencyHistogram;
 import com.tc.stats.Stats;
 
 public interface StageQueueStats extends Stats {
@@ -23,4 +24,21 @@ public interface StageQueueStats extends Stats {
   String getName();
 
   int getDepth();
+
+  /**
+   * @return number of internal queues of the stage, the queue index range for the methods below
+   */
+  int getQueueCount();
+
+  int getDepth(int queue);
+
+  /**
+   * @return the depths seen by each context added to the given queue
+   */
+  LatencyHistogram getDepthHistogram(int queue);
+
+  /**
+   * @return nanoseconds contexts of the given queue waited between being added and being polled
+   */
+  LatencyHistogram getLatencyHistogram(int queue);
 }
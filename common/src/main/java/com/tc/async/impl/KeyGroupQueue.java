@@ -0,0 +1,343 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.async.impl;
+
+import com.tc.async.api.EventContext;
+import com.tc.async.api.Source;
+import com.tc.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The work stealing queue behind a {@link StageQueueImpl}. Contexts are hashed on their key into a fixed number of key
+ * groups, each a FIFO drained by at most one worker at a time, so contexts with the same key are handled in order just
+ * like with one queue per worker. A group with pending contexts sits in the ready deque of its home worker. A worker
+ * that finds its own deque empty takes the longest waiting group of the most loaded other worker and becomes that
+ * group's new home, so keys hashed next to a hot key drift away from the worker busy with it.
+ * <p>
+ * There is no lock over the whole queue: a group is guarded by its own monitor and a ready deque by the lock of its
+ * worker, so a put only contends with the puts to the same group and with the worker the group is scheduled on, and a
+ * steal only locks the deque it steals from.
+ */
+class KeyGroupQueue {
+  private static final int    GROUPS_PER_WORKER = 16;
+  // contexts a worker drains from one group before putting it back behind the worker's other ready groups
+  private static final int    MAX_BATCH         = 64;
+
+  private static final int    IDLE              = 0;
+  // in the ready deque of its home worker
+  private static final int    SCHEDULED         = 1;
+  // owned by a worker between two of its polls
+  private static final int    RUNNING           = 2;
+
+  // one permit per context the queue still has room for
+  private final Semaphore     room;
+  // the last group takes all contexts that are not multi-threaded
+  private final KeyGroup[]    groups;
+  private final Worker[]      workers;
+  private final int           capacity;
+
+  KeyGroupQueue(int workerCount, int capacity) {
+    Assert.eval(workerCount > 0);
+    Assert.eval(capacity > 0);
+    this.capacity = capacity;
+    this.room = new Semaphore(capacity);
+    this.workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Worker(i);
+    }
+    this.groups = new KeyGroup[workerCount * GROUPS_PER_WORKER + 1];
+    for (int i = 0; i < groups.length; i++) {
+      groups[i] = new KeyGroup(i % workerCount);
+    }
+  }
+
+  Source getSource(int worker) {
+    return workers[worker];
+  }
+
+  int groupFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return (h & Integer.MAX_VALUE) % (groups.length - 1);
+  }
+
+  int unkeyedGroup() {
+    return groups.length - 1;
+  }
+
+  /**
+   * @return the worker currently owning the group, only a hint since groups move between workers
+   */
+  int homeOf(int group) {
+    return groups[group].home;
+  }
+
+  void put(Object context, int group) throws InterruptedException {
+    room.acquire();
+    KeyGroup g = groups[group];
+    boolean schedule;
+    synchronized (g) {
+      g.contexts.addLast(context);
+      schedule = g.state == IDLE;
+      if (schedule) {
+        g.state = SCHEDULED;
+      }
+    }
+    if (schedule) {
+      schedule(g);
+    }
+  }
+
+  boolean isEmpty(int group) {
+    KeyGroup g = groups[group];
+    synchronized (g) {
+      return g.contexts.isEmpty();
+    }
+  }
+
+  int size() {
+    return capacity - room.availablePermits();
+  }
+
+  int clear() {
+    for (Worker w : workers) {
+      w.clearReady();
+    }
+    int cleared = 0;
+    for (KeyGroup g : groups) {
+      synchronized (g) {
+        for (Object context : g.contexts) {
+          StageQueueImpl.removed(context);
+          cleared++;
+        }
+        g.contexts.clear();
+        // a group scheduled again after its worker's deque was cleared may be left in it, poll() skips it
+        if (g.state == SCHEDULED) {
+          g.state = IDLE;
+        }
+      }
+    }
+    room.release(cleared);
+    return cleared;
+  }
+
+  private void schedule(KeyGroup g) {
+    Worker home = workers[g.home];
+    home.addReady(g);
+    if (!home.wakeUp()) {
+      // the home worker is busy, let an idle one steal the group
+      for (Worker w : workers) {
+        if (w != home && w.wakeUp()) {
+          return;
+        }
+      }
+    }
+  }
+
+  private KeyGroup steal(Worker thief) {
+    // the ready counts are read without the locks, a deque found empty once locked only costs another round
+    for (int round = 0; round < workers.length; round++) {
+      Worker victim = null;
+      for (Worker w : workers) {
+        if (w != thief && w.readyCount > 0 && (victim == null || w.readyCount > victim.readyCount)) {
+          victim = w;
+        }
+      }
+      if (victim == null) { return null; }
+      KeyGroup g = victim.pollReady();
+      if (g != null) { return g; }
+    }
+    return null;
+  }
+
+  private boolean anyReady() {
+    for (Worker w : workers) {
+      if (w.readyCount > 0) { return true; }
+    }
+    return false;
+  }
+
+  private Object poll(Worker w, long timeout) throws InterruptedException {
+    if (Thread.interrupted()) { throw new InterruptedException(); }
+    KeyGroup g = w.current;
+    if (g != null) {
+      boolean reschedule;
+      synchronized (g) {
+        if (!g.contexts.isEmpty() && w.drained < MAX_BATCH) { return take(w, g); }
+        reschedule = !g.contexts.isEmpty();
+        g.state = reschedule ? SCHEDULED : IDLE;
+      }
+      w.current = null;
+      if (reschedule) {
+        schedule(g);
+      }
+    }
+    long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+    while (true) {
+      g = w.pollReady();
+      if (g == null) {
+        g = steal(w);
+      }
+      if (g != null) {
+        synchronized (g) {
+          // a group may be left twice in the deques by clear(), only the first taker gets it
+          if (g.state == SCHEDULED) {
+            if (g.contexts.isEmpty()) {
+              g.state = IDLE;
+            } else {
+              g.state = RUNNING;
+              g.home = w.index;
+              w.current = g;
+              w.drained = 0;
+              return take(w, g);
+            }
+          }
+        }
+        continue;
+      }
+      if (nanos <= 0) { return null; }
+      nanos = w.await(nanos);
+    }
+  }
+
+  // called holding the group's monitor
+  private Object take(Worker w, KeyGroup g) {
+    Object context = g.contexts.pollFirst();
+    room.release();
+    w.drained++;
+    return context;
+  }
+
+  private static final class KeyGroup {
+    // guarded by the group's monitor
+    private final ArrayDeque<Object> contexts = new ArrayDeque<Object>();
+    private int                      state    = IDLE;
+    // written under the group's monitor, read without it when scheduling and as a hint for stats
+    private volatile int             home;
+
+    private KeyGroup(int home) {
+      this.home = home;
+    }
+  }
+
+  private final class Worker implements Source {
+    private final int                  index;
+    private final ReentrantLock        lock      = new ReentrantLock();
+    private final Condition            available = lock.newCondition();
+    // guarded by the lock
+    private final ArrayDeque<KeyGroup> ready     = new ArrayDeque<KeyGroup>();
+    // the size of the ready deque, for thieves that pick a victim without taking its lock
+    private volatile int               readyCount;
+    private volatile boolean           waiting;
+    // only touched by the worker's own thread
+    private KeyGroup                   current;
+    private int                        drained;
+
+    private Worker(int index) {
+      this.index = index;
+    }
+
+    private void addReady(KeyGroup g) {
+      lock.lock();
+      try {
+        ready.addLast(g);
+        readyCount = ready.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private KeyGroup pollReady() {
+      if (readyCount == 0) { return null; }
+      lock.lock();
+      try {
+        KeyGroup g = ready.pollFirst();
+        readyCount = ready.size();
+        return g;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void clearReady() {
+      lock.lock();
+      try {
+        ready.clear();
+        readyCount = 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * @return false if the worker was not waiting
+     */
+    private boolean wakeUp() {
+      if (!waiting) { return false; }
+      lock.lock();
+      try {
+        if (!waiting) { return false; }
+        // cleared here so the next schedule() picks another idle worker
+        waiting = false;
+        available.signal();
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Waits for a group to be scheduled on this worker or for a wake up to steal one.
+     *
+     * @return the nanoseconds left to wait
+     */
+    private long await(long nanos) throws InterruptedException {
+      waiting = true;
+      // a group scheduled after the last look at the deques either is seen here or finds this worker waiting
+      if (anyReady()) {
+        waiting = false;
+        return nanos;
+      }
+      lock.lockInterruptibly();
+      try {
+        while (waiting && ready.isEmpty() && nanos > 0) {
+          nanos = available.awaitNanos(nanos);
+        }
+        return nanos;
+      } finally {
+        waiting = false;
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public EventContext poll(long timeout) throws InterruptedException {
+      Object context = KeyGroupQueue.this.poll(this, timeout);
+      return context == null ? null : StageQueueImpl.removed(context);
+    }
+
+    @Override
+    public String getSourceName() {
+      return String.valueOf(index);
+    }
+  }
+}
@@ -24,11 +24,14 @@ import com.tc.async.api.Sink;
 import com.tc.async.api.Source;
 import com.tc.async.api.SpecializedEventContext;
 import com.tc.async.api.Stage;
+import com.tc.async.api.StageLatencyStats;
 import com.tc.exception.PlatformRejoinException;
 import com.tc.exception.TCNotRunningException;
 import com.tc.exception.TCRuntimeException;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLoggerProvider;
+import com.tc.properties.TCProperties;
+import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.text.PrettyPrinter;
 import com.tc.util.concurrent.QueueFactory;
@@ -43,11 +46,13 @@ public class StageImpl implements Stage {
   private final String         name;
   private final EventHandler   handler;
   private final StageQueueImpl stageQueue;
-  private final WorkerThread[] threads;
+  private final Worker[]       workers;
+  private final Thread[]       threads;
   private final ThreadGroup    group;
   private final TCLogger       logger;
   private final int            sleepMs;
   private final boolean        pausable;
+  private final boolean        virtualThreads;
 
   /**
    * The Constructor.
@@ -61,21 +66,52 @@ public class StageImpl implements Stage {
    *        used internally and all thread are working on the same queue (which doesn't guarantee order in processing)
    *        or set it to 1 where each thread gets its own queue but the (multithreaded) event contexts are distributed
    *        based on the key they return.
-   * @param group : The thread group to be used
+   * @param group : The thread group to be used, on virtual threads only its uncaught exception handling is used
    * @param queueFactory : Factory used to create the queues
    * @param queueSize : Max queue Size allowed
    */
   public StageImpl(TCLoggerProvider loggerProvider, String name, EventHandler handler, int threadCount,
                    int threadsToQueueRatio, ThreadGroup group, QueueFactory queueFactory, int queueSize) {
+    this(loggerProvider, name, handler, threadCount, threadsToQueueRatio, group, queueFactory, queueSize,
+         workStealingFor(name));
+  }
+
+  /**
+   * @param workStealing : Whether idle workers steal key groups from busy ones, in place of what the
+   *        seda.&lt;stage name&gt;.workStealing and tc.stage.workStealing.enabled properties say. For stages whose
+   *        handler has to know which mode it runs in.
+   * @see #StageImpl(TCLoggerProvider, String, EventHandler, int, int, ThreadGroup, QueueFactory, int)
+   */
+  public StageImpl(TCLoggerProvider loggerProvider, String name, EventHandler handler, int threadCount,
+                   int threadsToQueueRatio, ThreadGroup group, QueueFactory queueFactory, int queueSize,
+                   boolean workStealing) {
     this.logger = loggerProvider.getLogger(Stage.class.getName() + ": " + name);
     this.name = name;
     this.handler = handler;
-    this.threads = new WorkerThread[threadCount];
+    TCProperties properties = TCPropertiesImpl.getProperties();
+    boolean virtual = properties.getBoolean("seda." + name + ".virtualThreads",
+                                            properties.getBoolean(TCPropertiesConsts.TC_STAGE_VIRTUAL_THREADS_ENABLED,
+                                                                  false));
+    if (virtual && !VirtualThreads.isSupported()) {
+      logger.warn("Virtual threads are not supported by this JVM, stage " + name + " uses platform threads");
+      virtual = false;
+    }
+    if (virtual) {
+      // workers parked on a blocking handler cost next to nothing, so a stage may run many more of them
+      threadCount = properties.getInt("seda." + name + ".virtualThreads.workers", threadCount);
+      logger.info("Stage " + name + " runs " + threadCount + " workers on virtual threads");
+    }
+    this.virtualThreads = virtual;
+    this.workers = new Worker[threadCount];
+    this.threads = new Thread[threadCount];
     if (threadsToQueueRatio > threadCount) {
       logger.warn("Thread to Queue Ratio " + threadsToQueueRatio + " > Worker Threads " + threadCount);
     }
+    if (workStealing && threadCount > 1) {
+      logger.info("Work stealing enabled for stage " + name);
+    }
     this.stageQueue = new StageQueueImpl(threadCount, threadsToQueueRatio, queueFactory, loggerProvider, name,
-                                         queueSize);
+                                         queueSize, workStealing);
     this.group = group;
     this.sleepMs = TCPropertiesImpl.getProperties().getInt("seda." + name + ".sleepMs", 0);
     if (this.sleepMs > 0) {
@@ -87,6 +123,12 @@ public class StageImpl implements Stage {
     }
   }
 
+  static boolean workStealingFor(String name) {
+    TCProperties properties = TCPropertiesImpl.getProperties();
+    return properties.getBoolean("seda." + name + ".workStealing",
+                                 properties.getBoolean(TCPropertiesConsts.TC_STAGE_WORK_STEALING_ENABLED, false));
+  }
+
   @Override
   public void destroy() {
     stopThreads();
@@ -111,16 +153,22 @@ public class StageImpl implements Stage {
       } else {
         threadName = threadName + ")";
       }
-      threads[i] = new WorkerThread(threadName, this.stageQueue.getSource(i), handler, group, logger, sleepMs,
-                                    pausable, name);
+      workers[i] = new Worker(this.stageQueue.getSource(i), handler, logger, sleepMs, pausable, name,
+                              this.stageQueue.getLatencyStats());
+      if (virtualThreads) {
+        threads[i] = VirtualThreads.newThread(workers[i], threadName, group);
+      } else {
+        threads[i] = new Thread(group, workers[i], threadName);
+        threads[i].setDaemon(true);
+      }
       threads[i].start();
     }
   }
 
   private void stopThreads() {
-    for (WorkerThread thread : threads) {
-      thread.shutdown();
-      thread.interrupt();
+    for (int i = 0; i < threads.length; i++) {
+      workers[i].shutdown();
+      threads[i].interrupt();
     }
     handler.destroy();
   }
@@ -130,30 +178,35 @@ public class StageImpl implements Stage {
     return name;
   }
 
+  @Override
+  public StageLatencyStats getLatencyStats() {
+    return stageQueue.getLatencyStats();
+  }
+
   @Override
   public String toString() {
     return "StageImpl(" + name + ")";
   }
 
-  private static class WorkerThread extends Thread {
-    private final Source       source;
-    private final EventHandler handler;
-    private volatile boolean   shutdownRequested = false;
-    private final TCLogger     tcLogger;
-    private final int          sleepMs;
-    private final boolean      pausable;
-    private final String       stageName;
-
-    public WorkerThread(String name, Source source, EventHandler handler, ThreadGroup group, TCLogger logger,
-                        int sleepMs, boolean pausable, String stageName) {
-      super(group, name);
+  private static class Worker implements Runnable {
+    private final Source                source;
+    private final EventHandler          handler;
+    private volatile boolean            shutdownRequested = false;
+    private final TCLogger              tcLogger;
+    private final int                   sleepMs;
+    private final boolean               pausable;
+    private final String                stageName;
+    private final StageLatencyStatsImpl latencyStats;
+
+    public Worker(Source source, EventHandler handler, TCLogger logger, int sleepMs, boolean pausable,
+                  String stageName, StageLatencyStatsImpl latencyStats) {
       tcLogger = logger;
-      setDaemon(true);
       this.source = source;
       this.handler = handler;
       this.sleepMs = sleepMs;
       this.pausable = pausable;
       this.stageName = stageName;
+      this.latencyStats = latencyStats;
     }
 
     public void shutdown() {
@@ -174,6 +227,14 @@ public class StageImpl implements Stage {
       }
     }
 
+    private void handle(EventContext ctxt) throws EventHandlerException {
+      if (ctxt instanceof SpecializedEventContext) {
+        ((SpecializedEventContext) ctxt).execute();
+      } else {
+        handler.handleEvent(ctxt);
+      }
+    }
+
     @Override
     public void run() {
       while (!shutdownRequested()) {
@@ -182,10 +243,12 @@ public class StageImpl implements Stage {
           ctxt = source.poll(pollTime);
           if (ctxt != null) {
             handleStageDebugPauses();
-            if (ctxt instanceof SpecializedEventContext) {
-              ((SpecializedEventContext) ctxt).execute();
+            if (latencyStats.sample()) {
+              long start = System.nanoTime();
+              handle(ctxt);
+              latencyStats.recordService(System.nanoTime() - start);
             } else {
-              handler.handleEvent(ctxt);
+              handle(ctxt);
             }
           }
         } catch (InterruptedException ie) {
@@ -240,7 +303,7 @@ public class StageImpl implements Stage {
 
   @Override
   public PrettyPrinter prettyPrint(PrettyPrinter out) {
-    out.print("Queue depth: " + getSink().size() + " " + this.name).flush();
+    out.print("Queue depth: " + getSink().size() + " " + this.name + " " + stageQueue.getLatencyStats()).flush();
     return out;
   }
 
@@ -0,0 +1,94 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.async.impl;
+
+import com.tc.async.api.StageLatencyStats;
+import com.tc.properties.TCProperties;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
+import com.tc.stats.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The sample rate is rounded up to a power of two, so deciding whether to sample is a mask of a thread local random.
+ */
+final class StageLatencyStatsImpl implements StageLatencyStats {
+
+  private final String           name;
+  private final int              sampleRate;
+  // one less than the sample rate, or -1 when nothing is sampled
+  private final int              sampleMask;
+  private final LatencyHistogram waits    = new LatencyHistogram();
+  private final LatencyHistogram services = new LatencyHistogram();
+
+  StageLatencyStatsImpl(String name, int sampleRate) {
+    this.name = name;
+    this.sampleRate = sampleRate <= 1 ? Math.max(sampleRate, 0) : Integer.highestOneBit(sampleRate - 1) << 1;
+    this.sampleMask = this.sampleRate - 1;
+  }
+
+  /**
+   * @return the sample rate configured for the stage, seda.&lt;stage name&gt;.latency.sampleRate or else
+   *         tc.stage.latency.sampleRate
+   */
+  static int sampleRateFor(String stageName) {
+    TCProperties properties = TCPropertiesImpl.getProperties();
+    return properties.getInt("seda." + stageName + ".latency.sampleRate",
+                             properties.getInt(TCPropertiesConsts.TC_STAGE_LATENCY_SAMPLE_RATE, 16));
+  }
+
+  /**
+   * Decides, without touching anything shared, whether the caller should time what it is about to do.
+   */
+  boolean sample() {
+    return sampleMask >= 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+  }
+
+  void recordWait(long nanos) {
+    waits.record(nanos);
+  }
+
+  void recordService(long nanos) {
+    services.record(nanos);
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  @Override
+  public LatencyHistogram getWaitHistogram() {
+    return waits;
+  }
+
+  @Override
+  public LatencyHistogram getServiceHistogram() {
+    return services;
+  }
+
+  @Override
+  public String toString() {
+    return "wait ns [" + waits + "] service ns [" + services + "]";
+  }
+}
@@ -112,13 +112,19 @@ public class StageManagerImpl implements StageManager {
   @Override
   public synchronized Stage createStage(String name, EventHandler handler, int threads, int threadsToQueueRatio,
                                         int maxSize) {
+    return createStage(name, handler, threads, threadsToQueueRatio, maxSize, StageImpl.workStealingFor(name));
+  }
+
+  @Override
+  public synchronized Stage createStage(String name, EventHandler handler, int threads, int threadsToQueueRatio,
+                                        int maxSize, boolean workStealing) {
     if (started) {
       throw new IllegalStateException("A new stage cannot be created, because StageManager is already started.");
     }
 
     int capacity = maxSize > 0 ? maxSize : Integer.MAX_VALUE;
     Stage s = new StageImpl(loggerProvider, name, handler, threads, threadsToQueueRatio, group, this.queueFactory,
-                            capacity);
+                            capacity, workStealing);
     addStage(name, s);
     return s;
   }
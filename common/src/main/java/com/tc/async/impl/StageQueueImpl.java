@@ -25,6 +25,7 @@ import com.tc.async.api.StageQueueStats;
 import com.tc.exception.TCRuntimeException;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLoggerProvider;
+import com.tc.stats.LatencyHistogram;
 import com.tc.stats.Stats;
 import com.tc.util.Assert;
 import com.tc.util.concurrent.QueueFactory;
@@ -32,7 +33,7 @@ import com.tc.util.concurrent.TCQueue;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * This StageQueueImpl represents the sink and gives a handle to the source. We are internally justun using a queue
@@ -41,10 +42,14 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class StageQueueImpl implements Sink {
 
-  private final String            stageName;
-  private final TCLogger          logger;
-  private volatile AddPredicate   predicate = DefaultAddPredicate.getInstance();
-  private final SourceQueueImpl[] sourceQueues;
+  private final String                      stageName;
+  private final TCLogger                    logger;
+  private volatile AddPredicate             predicate = DefaultAddPredicate.getInstance();
+  private final SourceQueueImpl[]           sourceQueues;
+  private final KeyGroupQueue               keyGroupQueue;
+  private final int                         queueCount;
+  private volatile StageQueueStatsCollector statsCollector;
+  private final StageLatencyStatsImpl       latencyStats;
 
   /**
    * The Constructor.
@@ -62,16 +67,34 @@ public class StageQueueImpl implements Sink {
    */
   public StageQueueImpl(int threadCount, int threadsToQueueRatio, QueueFactory queueFactory,
                         TCLoggerProvider loggerProvider, String stageName, int queueSize) {
+    this(threadCount, threadsToQueueRatio, queueFactory, loggerProvider, stageName, queueSize, false);
+  }
+
+  /**
+   * @param workStealing : When true and there is more than one thread, threadsToQueueRatio and queueFactory are ignored
+   *        and the (multithreaded) event contexts are kept in order per key in a {@link KeyGroupQueue}, where idle
+   *        threads take over the keys queued for busy ones.
+   * @see #StageQueueImpl(int, int, QueueFactory, TCLoggerProvider, String, int)
+   */
+  public StageQueueImpl(int threadCount, int threadsToQueueRatio, QueueFactory queueFactory,
+                        TCLoggerProvider loggerProvider, String stageName, int queueSize, boolean workStealing) {
     Assert.eval(threadCount > 0);
     this.logger = loggerProvider.getLogger(Sink.class.getName() + ": " + stageName);
     this.stageName = stageName;
-    this.sourceQueues = new SourceQueueImpl[threadCount];
-    createWorkerQueues(threadCount, threadsToQueueRatio, queueFactory, queueSize, loggerProvider, stageName);
+    if (workStealing && threadCount > 1) {
+      this.sourceQueues = null;
+      this.keyGroupQueue = new KeyGroupQueue(threadCount, queueSize);
+      this.queueCount = threadCount;
+    } else {
+      this.sourceQueues = new SourceQueueImpl[threadCount];
+      this.keyGroupQueue = null;
+      this.queueCount = createWorkerQueues(threadCount, threadsToQueueRatio, queueFactory, queueSize);
+    }
+    this.statsCollector = new NullStageQueueStatsCollector(stageName, this.queueCount);
+    this.latencyStats = new StageLatencyStatsImpl(stageName, StageLatencyStatsImpl.sampleRateFor(stageName));
   }
 
-  private void createWorkerQueues(int threads, int threadsToQueueRatio, QueueFactory queueFactory, int queueSize,
-                                  TCLoggerProvider loggerProvider, String stage) {
-    StageQueueStatsCollector statsCollector = new NullStageQueueStatsCollector(stage);
+  private int createWorkerQueues(int threads, int threadsToQueueRatio, QueueFactory queueFactory, int queueSize) {
     TCQueue q = null;
     int queueCount = -1;
 
@@ -95,11 +118,17 @@ public class StageQueueImpl implements Sink {
         q = queueFactory.createInstance(queueSize);
         queueCount++;
       }
-      this.sourceQueues[i] = new SourceQueueImpl(q, String.valueOf(queueCount), statsCollector);
+      this.sourceQueues[i] = new SourceQueueImpl(q, queueCount);
     }
+    return queueCount + 1;
+  }
+
+  StageLatencyStatsImpl getLatencyStats() {
+    return this.latencyStats;
   }
 
   public Source getSource(int index) {
+    if (this.keyGroupQueue != null) { return this.keyGroupQueue.getSource(index); }
     return this.sourceQueues[index];
   }
 
@@ -110,14 +139,14 @@ public class StageQueueImpl implements Sink {
    */
   @Override
   public boolean addLossy(EventContext context) {
-    SourceQueueImpl sourceQueue;
-    if (context instanceof MultiThreadedEventContext) {
-      sourceQueue = getSourceQueueFor((MultiThreadedEventContext) context);
+    boolean empty;
+    if (this.keyGroupQueue != null) {
+      empty = this.keyGroupQueue.isEmpty(getKeyGroupFor(context));
     } else {
-      sourceQueue = this.sourceQueues[0];
+      empty = getSourceQueueFor(context).isEmpty();
     }
 
-    if (sourceQueue.isEmpty()) {
+    if (empty) {
       add(context);
       return true;
     } else {
@@ -152,11 +181,12 @@ public class StageQueueImpl implements Sink {
     try {
       while (true) {
         try {
-          if (context instanceof MultiThreadedEventContext) {
-            SourceQueueImpl sourceQueue = getSourceQueueFor((MultiThreadedEventContext) context);
-            sourceQueue.put(context);
+          if (this.keyGroupQueue != null) {
+            int group = getKeyGroupFor(context);
+            this.keyGroupQueue.put(queued(context, this.keyGroupQueue.homeOf(group)), group);
           } else {
-            this.sourceQueues[0].put(context);
+            SourceQueueImpl sourceQueue = getSourceQueueFor(context);
+            sourceQueue.put(queued(context, sourceQueue.getIndex()));
           }
           break;
         } catch (InterruptedException e) {
@@ -171,19 +201,48 @@ public class StageQueueImpl implements Sink {
     }
   }
 
-  private SourceQueueImpl getSourceQueueFor(MultiThreadedEventContext context) {
-    Object o = context.getKey();
+  private Object queued(EventContext context, int queue) {
+    return this.statsCollector.contextAdded(context, queue, this.latencyStats.sample() ? this.latencyStats : null);
+  }
+
+  private SourceQueueImpl getSourceQueueFor(EventContext context) {
+    if (!(context instanceof MultiThreadedEventContext)) { return this.sourceQueues[0]; }
+    Object o = ((MultiThreadedEventContext) context).getKey();
     int index = hashCodeToArrayIndex(o.hashCode(), this.sourceQueues.length);
     return this.sourceQueues[index];
   }
 
+  private int getKeyGroupFor(EventContext context) {
+    if (!(context instanceof MultiThreadedEventContext)) { return this.keyGroupQueue.unkeyedGroup(); }
+    return this.keyGroupQueue.groupFor(((MultiThreadedEventContext) context).getKey());
+  }
+
   private int hashCodeToArrayIndex(int hashcode, int arrayLength) {
     return Math.abs(hashcode % arrayLength);
   }
 
+  /**
+   * Undoes the wrapping a stats collector or latency sampling may have done when the context was added.
+   */
+  static EventContext removed(Object queued) {
+    if (queued instanceof QueuedContext) {
+      QueuedContext q = (QueuedContext) queued;
+      long waited = System.nanoTime() - q.addedNanos;
+      if (q.collector != null) {
+        q.collector.contextRemoved(q, waited);
+      }
+      if (q.latencyStats != null) {
+        q.latencyStats.recordWait(waited);
+      }
+      return q.context;
+    }
+    return (EventContext) queued;
+  }
+
   // Used for testing
   @Override
   public int size() {
+    if (this.keyGroupQueue != null) { return this.keyGroupQueue.size(); }
     int totalQueueSize = 0;
     for (SourceQueueImpl sourceQueue : this.sourceQueues) {
       totalQueueSize += sourceQueue.size();
@@ -210,8 +269,12 @@ public class StageQueueImpl implements Sink {
   @Override
   public void clear() {
     int clearCount = 0;
-    for (SourceQueueImpl sourceQueue : this.sourceQueues) {
-      clearCount += sourceQueue.clear();
+    if (this.keyGroupQueue != null) {
+      clearCount = this.keyGroupQueue.clear();
+    } else {
+      for (SourceQueueImpl sourceQueue : this.sourceQueues) {
+        clearCount += sourceQueue.clear();
+      }
     }
     this.logger.info("Cleared " + clearCount);
   }
@@ -222,21 +285,16 @@ public class StageQueueImpl implements Sink {
 
   @Override
   public void enableStatsCollection(boolean enable) {
-    StageQueueStatsCollector statsCollector;
     if (enable) {
-      statsCollector = new StageQueueStatsCollectorImpl(this.stageName);
+      this.statsCollector = new StageQueueStatsCollectorImpl(this.stageName, this.queueCount);
     } else {
-      statsCollector = new NullStageQueueStatsCollector(this.stageName);
-    }
-    for (SourceQueueImpl sourceQueue : this.sourceQueues) {
-      sourceQueue.setStatesCollector(statsCollector);
+      this.statsCollector = new NullStageQueueStatsCollector(this.stageName, this.queueCount);
     }
   }
 
   @Override
   public Stats getStats(long frequency) {
-    // Since all source queues have the same collector, the first reference is passed.
-    return this.sourceQueues[0].getStatsCollector();
+    return this.statsCollector;
   }
 
   @Override
@@ -246,34 +304,26 @@ public class StageQueueImpl implements Sink {
 
   @Override
   public boolean isStatsCollectionEnabled() {
-    // Since all source queues have the same collector, the first reference is used.
-    return this.sourceQueues[0].getStatsCollector() instanceof StageQueueStatsCollectorImpl;
+    return this.statsCollector instanceof StageQueueStatsCollectorImpl;
   }
 
   @Override
   public void resetStats() {
-    // Since all source queues have the same collector, the first reference is used.
-    this.sourceQueues[0].getStatsCollector().reset();
+    this.statsCollector.reset();
   }
 
   private static final class SourceQueueImpl implements Source {
 
-    private final TCQueue                     queue;
-    private final String                      sourceName;
-    private volatile StageQueueStatsCollector statsCollector;
+    private final TCQueue queue;
+    private final int     index;
 
-    public SourceQueueImpl(TCQueue queue, String sourceName, StageQueueStatsCollector statsCollector) {
+    public SourceQueueImpl(TCQueue queue, int index) {
       this.queue = queue;
-      this.sourceName = sourceName;
-      this.statsCollector = statsCollector;
-    }
-
-    public StageQueueStatsCollector getStatsCollector() {
-      return this.statsCollector;
+      this.index = index;
     }
 
-    public void setStatesCollector(StageQueueStatsCollector collector) {
-      this.statsCollector = collector;
+    public int getIndex() {
+      return this.index;
     }
 
     // XXX: poor man's clear.
@@ -295,16 +345,12 @@ public class StageQueueImpl implements Sink {
 
     @Override
     public EventContext poll(long timeout) throws InterruptedException {
-      EventContext rv = (EventContext) this.queue.poll(timeout);
-      if (rv != null) {
-        this.statsCollector.contextRemoved();
-      }
-      return rv;
+      Object rv = this.queue.poll(timeout);
+      return rv == null ? null : removed(rv);
     }
 
     public void put(Object obj) throws InterruptedException {
       this.queue.put(obj);
-      this.statsCollector.contextAdded();
     }
 
     public int size() {
@@ -313,7 +359,28 @@ public class StageQueueImpl implements Sink {
 
     @Override
     public String getSourceName() {
-      return this.sourceName;
+      return String.valueOf(this.index);
+    }
+  }
+
+  /**
+   * What gets queued in place of a context while stats are collected or when its latency is sampled, so the wait can
+   * be measured when it is polled.
+   */
+  private static final class QueuedContext {
+    private final EventContext                 context;
+    private final int                          queue;
+    private final long                         addedNanos;
+    private final StageQueueStatsCollectorImpl collector;
+    private final StageLatencyStatsImpl        latencyStats;
+
+    private QueuedContext(EventContext context, int queue, StageQueueStatsCollectorImpl collector,
+                          StageLatencyStatsImpl latencyStats) {
+      this.context = context;
+      this.queue = queue;
+      this.addedNanos = System.nanoTime();
+      this.collector = collector;
+      this.latencyStats = latencyStats;
     }
   }
 
@@ -324,12 +391,14 @@ public class StageQueueImpl implements Sink {
       statsLogger.info(getDetails());
     }
 
-    public abstract void contextAdded();
+    /**
+     * @param sampled where to record the wait of the context, null if it is not sampled
+     * @return what to queue for the context
+     */
+    public abstract Object contextAdded(EventContext context, int queue, StageLatencyStatsImpl sampled);
 
     public abstract void reset();
 
-    public abstract void contextRemoved();
-
     protected String makeWidth(String name, int width) {
       final int len = name.length();
       if (len == width) { return name; }
@@ -347,10 +416,12 @@ public class StageQueueImpl implements Sink {
 
     private final String name;
     private final String trimmedName;
+    private final int    queueCount;
 
-    public NullStageQueueStatsCollector(String stage) {
+    public NullStageQueueStatsCollector(String stage, int queueCount) {
       this.trimmedName = stage.trim();
       this.name = makeWidth(stage, 40);
+      this.queueCount = queueCount;
     }
 
     @Override
@@ -359,13 +430,8 @@ public class StageQueueImpl implements Sink {
     }
 
     @Override
-    public void contextAdded() {
-      // NO-OP
-    }
-
-    @Override
-    public void contextRemoved() {
-      // NO-OP
+    public Object contextAdded(EventContext context, int queue, StageLatencyStatsImpl sampled) {
+      return sampled == null ? context : new QueuedContext(context, queue, null, sampled);
     }
 
     @Override
@@ -382,37 +448,80 @@ public class StageQueueImpl implements Sink {
     public int getDepth() {
       return -1;
     }
+
+    @Override
+    public int getQueueCount() {
+      return this.queueCount;
+    }
+
+    @Override
+    public int getDepth(int queue) {
+      return -1;
+    }
+
+    @Override
+    public LatencyHistogram getDepthHistogram(int queue) {
+      return new LatencyHistogram();
+    }
+
+    @Override
+    public LatencyHistogram getLatencyHistogram(int queue) {
+      return new LatencyHistogram();
+    }
   }
 
   private static class StageQueueStatsCollectorImpl extends StageQueueStatsCollector {
 
-    private final AtomicInteger count = new AtomicInteger(0);
-    private final String        name;
-    private final String        trimmedName;
+    private final AtomicIntegerArray depths;
+    private final LatencyHistogram[] depthHistograms;
+    private final LatencyHistogram[] latencyHistograms;
+    private final String             name;
+    private final String             trimmedName;
 
-    public StageQueueStatsCollectorImpl(String stage) {
+    public StageQueueStatsCollectorImpl(String stage, int queueCount) {
       this.trimmedName = stage.trim();
       this.name = makeWidth(stage, 40);
+      this.depths = new AtomicIntegerArray(queueCount);
+      this.depthHistograms = new LatencyHistogram[queueCount];
+      this.latencyHistograms = new LatencyHistogram[queueCount];
+      for (int i = 0; i < queueCount; i++) {
+        this.depthHistograms[i] = new LatencyHistogram();
+        this.latencyHistograms[i] = new LatencyHistogram();
+      }
     }
 
     @Override
     public String getDetails() {
-      return this.name + " : " + this.count;
+      StringBuilder details = new StringBuilder(this.name).append(" : ").append(getDepth());
+      if (getQueueCount() > 1) {
+        for (int i = 0; i < getQueueCount(); i++) {
+          details.append("\n    queue ").append(i).append(" : ").append(this.depths.get(i)).append(" depth [")
+              .append(this.depthHistograms[i]).append("] wait ns [").append(this.latencyHistograms[i]).append("]");
+        }
+      } else {
+        details.append(" wait ns [").append(this.latencyHistograms[0]).append("]");
+      }
+      return details.toString();
     }
 
     @Override
-    public void contextAdded() {
-      this.count.incrementAndGet();
+    public Object contextAdded(EventContext context, int queue, StageLatencyStatsImpl sampled) {
+      this.depthHistograms[queue].record(this.depths.incrementAndGet(queue));
+      return new QueuedContext(context, queue, this, sampled);
     }
 
-    @Override
-    public void contextRemoved() {
-      this.count.decrementAndGet();
+    void contextRemoved(QueuedContext queued, long waited) {
+      this.depths.decrementAndGet(queued.queue);
+      this.latencyHistograms[queued.queue].record(waited);
     }
 
     @Override
     public void reset() {
-      this.count.set(0);
+      for (int i = 0; i < getQueueCount(); i++) {
+        this.depths.set(i, 0);
+        this.depthHistograms[i].reset();
+        this.latencyHistograms[i].reset();
+      }
     }
 
     @Override
@@ -422,7 +531,31 @@ public class StageQueueImpl implements Sink {
 
     @Override
     public int getDepth() {
-      return this.count.get();
+      int depth = 0;
+      for (int i = 0; i < getQueueCount(); i++) {
+        depth += this.depths.get(i);
+      }
+      return depth;
+    }
+
+    @Override
+    public int getQueueCount() {
+      return this.depths.length();
+    }
+
+    @Override
+    public int getDepth(int queue) {
+      return this.depths.get(queue);
+    }
+
+    @Override
+    public LatencyHistogram getDepthHistogram(int queue) {
+      return this.depthHistograms[queue];
+    }
+
+    @Override
+    public LatencyHistogram getLatencyHistogram(int queue) {
+      return this.latencyHistograms[queue];
     }
   }
 }
@@ -0,0 +1,59 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.async.impl;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads on JVMs that have them. Looked up reflectively so the code still compiles and runs on older
+ * JVMs, where {@link #isSupported()} is false.
+ */
+final class VirtualThreads {
+  private static final ThreadFactory FACTORY = lookupFactory();
+
+  private VirtualThreads() {
+    //
+  }
+
+  static boolean isSupported() {
+    return FACTORY != null;
+  }
+
+  /**
+   * Virtual threads have no thread group of their own, so uncaught exceptions are handed to the given one to keep the
+   * same failure handling as platform threads created in it.
+   */
+  static Thread newThread(Runnable runnable, String name, ThreadGroup group) {
+    if (FACTORY == null) { throw new UnsupportedOperationException("Virtual threads are not supported by this JVM"); }
+    Thread thread = FACTORY.newThread(runnable);
+    thread.setName(name);
+    if (group != null) {
+      thread.setUncaughtExceptionHandler(group);
+    }
+    return thread;
+  }
+
+  private static ThreadFactory lookupFactory() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+    } catch (Exception e) {
+      // older JVM, or a preview JVM without preview features enabled
+      return null;
+    }
+  }
+}
@@ -139,7 +139,9 @@ public interface TCPropertiesConsts {
    * passive.sync.batch.size        - Number of objects in each message that is sent from
    *                                  active to passive while synching
    * passive.sync.throttle.timeInMillis - Time to wait before sending the next batch of
-   *                                  objects to the passive
+   *                                  objects to the passive, across all of its sync lanes
+   * passive.sync.lanes             - Number of batches of objects prepared in parallel for each
+   *                                  passive while synching
    * dgc.throttle.timeInMillis     - Throttle time for dgc for each cycle for every requestsPerThrottle
    *                                 requests for references from object manager
    * dgc.throttle.requestsPerThrottle - Number of objects for which object references are requested
@@ -148,7 +150,15 @@ public interface TCPropertiesConsts {
    * dgc.inline.intervalInSeconds   - Interval in seconds at which to delete objects selected by inline dgc.
    * dgc.inline.maxObjects          - Maximum inline dgc batch size
    * dgc.inline.cleanup.delaySeconds - Seconds to delay the start of inline dgc cleanup after a server becomes active
+   * dgc.mark.parallelism          - Number of threads fetching object references during the dgc mark,
+   *                                 0 to use one per available processor
+   * dgc.mark.batchSize            - Number of objects whose references are fetched by one mark task
+   * dgc.mark.incremental.enabled  - Enables/disables pausing the dgc mark at regular intervals
+   * dgc.mark.incremental.stepMillis - Time the dgc mark runs before it pauses, when incremental
+   * dgc.mark.incremental.pauseMillis - Time the dgc mark pauses for, when incremental
    * l2.objectmanager.invalidate.strong.cache.enabled - Enable/disable invalidations for strong cache
+   * oidset.type                   - Set holding the ids of all objects: BITSET_BASED_SET,
+   *                                 EXPANDING_BITSET_BASED_SET (default) or COMPRESSED_SET
    * </code>
    ********************************************************************************************************************/
 
@@ -162,12 +172,18 @@ public interface TCPropertiesConsts {
   public static final String L2_OBJECTMANAGER_PASSIVE_SYNC_MESSAGE_MAXSIZE_MB               = "l2.objectmanager.passive.sync.message.maxSizeInMegaBytes";
   public static final String L2_OBJECTMANAGER_PASSIVE_SYNC_THROTTLE_TIME                    = "l2.objectmanager.passive.sync.throttle.timeInMillis";
   public static final String L2_OBJECTMANAGER_PASSIVE_SYNC_THROTTLE_PENDING_MSGS            = "l2.objectmanager.passive.sync.throttle.maxPendingMessages";
+  public static final String L2_OBJECTMANAGER_PASSIVE_SYNC_LANES                            = "l2.objectmanager.passive.sync.lanes";
   public static final String L2_OBJECTMANAGER_DGC_THROTTLE_TIME                             = "l2.objectmanager.dgc.throttle.timeInMillis";
   public static final String L2_OBJECTMANAGER_DGC_REQUEST_PER_THROTTLE                      = "l2.objectmanager.dgc.throttle.requestsPerThrottle";
   public static final String L2_OBJECTMANAGER_DGC_INLINE_ENABLED                            = "l2.objectmanager.dgc.inline.enabled";
   public static final String L2_OBJECTMANAGER_DGC_INLINE_INTERVAL_SECONDS                   = "l2.objectmanager.dgc.inline.intervalInSeconds";
   public static final String L2_OBJECTMANAGER_DGC_INLINE_MAX_OBJECTS                        = "l2.objectmanager.dgc.inline.maxObjects";
   public static final String L2_OBJECTMANAGER_DGC_INLINE_CLEANUP_DELAY_SECONDS              = "l2.objectmanager.dgc.inline.cleanup.delaySeconds";
+  public static final String L2_OBJECTMANAGER_DGC_MARK_PARALLELISM                          = "l2.objectmanager.dgc.mark.parallelism";
+  public static final String L2_OBJECTMANAGER_DGC_MARK_BATCH_SIZE                           = "l2.objectmanager.dgc.mark.batchSize";
+  public static final String L2_OBJECTMANAGER_DGC_MARK_INCREMENTAL_ENABLED                  = "l2.objectmanager.dgc.mark.incremental.enabled";
+  public static final String L2_OBJECTMANAGER_DGC_MARK_INCREMENTAL_STEP_MILLIS              = "l2.objectmanager.dgc.mark.incremental.stepMillis";
+  public static final String L2_OBJECTMANAGER_DGC_MARK_INCREMENTAL_PAUSE_MILLIS             = "l2.objectmanager.dgc.mark.incremental.pauseMillis";
   public static final String L2_OBJECTMANAGER_INVALIDATE_STRONG_CACHE_ENABLED               = "l2.objectmanager.invalidateStrongCache.enabled";
   public static final String L2_OBJECTMANAGER_OIDSET_TYPE                                   = "l2.objectmanager.oidset.type";
   public static final String L2_OBJECTMANAGER_CLIENT_STATE_VERBOSE_THRESHOLD                = "l2.objectmanager.client.state.verbose.threshold";
@@ -197,11 +213,30 @@ public interface TCPropertiesConsts {
   public static final String L2_FRS_COMPACTOR_SIZEBASED_AMOUNT                              = L2_FRS_PREFIX
                                                                                               + ".compactor.sizeBased.amount";
 
+  /*********************************************************************************************************************
+   * <code>
+   * Section : L2 Mapped Storage Properties
+   * Description : Restartable storage backed by an append-only log of memory-mapped segment files
+   * segment.size             : Size of each memory-mapped log segment file
+   * sync.on.commit           : Force the active segment to disk on every persistence transaction commit
+   * compaction.ratio         : Compact the log once it grew to this multiple of its size after the last compaction
+   * compaction.minSize       : The log is never compacted below this size
+   * </code>
+   ********************************************************************************************************************/
+  public static final String L2_PERSISTENCE_MAPPED_SEGMENT_SIZE                             = "l2.persistence.mapped.segment.size";
+  public static final String L2_PERSISTENCE_MAPPED_SYNC_ON_COMMIT                           = "l2.persistence.mapped.sync.on.commit";
+  public static final String L2_PERSISTENCE_MAPPED_COMPACTION_RATIO                         = "l2.persistence.mapped.compaction.ratio";
+  public static final String L2_PERSISTENCE_MAPPED_COMPACTION_MIN_SIZE                      = "l2.persistence.mapped.compaction.minSize";
+
   /*********************************************************************************************************************
    * <code>
    * Section : L2 Seda stage properties
    * Description : This section contains configuration for SEDA stages for L2
    * apply.stage.threads                : Number of threads for the transaction apply stage
+   * apply.stage.workStealing           : &lt;true/false&gt;    - Let idle apply threads take over transaction groupings
+   *                                                          queued for busy ones, each transaction is then
+   *                                                          committed on its own. Defaults to true unless the
+   *                                                          server persists to disk
    * faultstage.threads                 : Number of seda fault stage thread
    * managedobjectrequeststage.threads  : Number of threads for object request seda stage
    *                                      (experimental, do not change)
@@ -213,6 +248,7 @@ public interface TCPropertiesConsts {
    * </code>
    ********************************************************************************************************************/
   public static final String L2_SEDA_APPLY_STAGE_THREADS                                    = "l2.seda.apply.stage.threads";
+  public static final String L2_SEDA_APPLY_STAGE_WORK_STEALING                              = "l2.seda.apply.stage.workStealing";
   public static final String L2_SEDA_MANAGEDOBJECTRESPONSESTAGE_THREADS                     = "l2.seda.managedobjectresponsestage.threads";
   public static final String L2_SEDA_MANAGEDOBJECTREQUESTSTAGE_THREADS                      = "l2.seda.managedobjectrequeststage.threads";
   public static final String L2_SEDA_STAGE_SINK_CAPACITY                                    = "l2.seda.stage.sink.capacity";
@@ -363,6 +399,13 @@ public interface TCPropertiesConsts {
    *                                 care -- This will cause *lots* of logging to occur
    *    timeoutForAckOnExit        - Max wait time in seconds to wait for ACKs before exit.
    *                                 value 0 for infinite wait.
+   *    adaptive.enabled           - If true, batch size and pending batches are tuned from batch ack
+   *                                 round trip times and server throttling, between the minimums
+   *                                 below and maxBatchSizeInKiloBytes and maxPendingBatches
+   *    adaptive.minBatchSizeInKiloBytes - The smallest batch size the adaptive tuning goes down to,
+   *                                 also the step it grows by. The units is in Kilobytes
+   *    adaptive.minPendingBatches - The smallest number of pending batches the adaptive tuning
+   *                                 goes down to
    * </code>
    ********************************************************************************************************************/
   public static final String L1_TRANSACTIONMANAGER_LOGGING_ENABLED                          = "l1.transactionmanager.logging.enabled";
@@ -379,6 +422,9 @@ public interface TCPropertiesConsts {
   public static final String L1_TRANSACTIONMANAGER_FOLDING_LOCK_LIMIT                       = "l1.transactionmanager.folding.lock.limit";
   public static final String L1_TRANSACTIONMANAGER_FOLDING_DEBUG                            = "l1.transactionmanager.folding.debug";
   public static final String L1_TRANSACTIONMANAGER_TIMEOUTFORACK_ONEXIT                     = "l1.transactionmanager.timeoutForAckOnExit";
+  public static final String L1_TRANSACTIONMANAGER_ADAPTIVE_ENABLED                         = "l1.transactionmanager.adaptive.enabled";
+  public static final String L1_TRANSACTIONMANAGER_ADAPTIVE_MINBATCHSIZE_INKILOBYTES        = "l1.transactionmanager.adaptive.minBatchSizeInKiloBytes";
+  public static final String L1_TRANSACTIONMANAGER_ADAPTIVE_MINPENDING_BATCHES              = "l1.transactionmanager.adaptive.minPendingBatches";
 
   public static final String TC_TRANSPORT_HANDSHAKE_TIMEOUT                                 = "tc.transport.handshake.timeout";
   public static final String TC_CONFIG_SOURCEGET_TIMEOUT                                    = "tc.config.getFromSource.timeout";
@@ -496,19 +542,41 @@ public interface TCPropertiesConsts {
    * Description : Stage monitoring can be enabled or disabled for debugging.
    * stage.monitor.enabled                : &lt;true/false&gt;    - Enable or Disable Monitoring
    * stage.monitor.delay                  : long            - frequency in milliseconds
+   * stage.workStealing.enabled           : &lt;true/false&gt;    - Default for multi-threaded stages to let idle workers
+   *                                                          steal key groups from busy ones, overridable per stage
+   *                                                          with seda.&lt;stage name&gt;.workStealing
+   * stage.virtualThreads.enabled         : &lt;true/false&gt;    - Default for stages to run their workers on virtual
+   *                                                          threads when the JVM has them, overridable per stage
+   *                                                          with seda.&lt;stage name&gt;.virtualThreads, the number
+   *                                                          of workers with
+   *                                                          seda.&lt;stage name&gt;.virtualThreads.workers
+   * stage.latency.sampleRate             : int             - One in how many contexts of each stage have their queue
+   *                                                          wait and handler time recorded, rounded up to a power of
+   *                                                          two, 0 to turn it off, overridable per stage with
+   *                                                          seda.&lt;stage name&gt;.latency.sampleRate
    * bytebuffer.pooling.enabled           : Enable/disable tc byte buffer pooling
    * bytebuffer.common.pool.maxcount      : Max size of pool for tc byte buffer
    * bytebuffer.threadlocal.pool.maxcount : Thread pool size
+   * messages.grouping.adaptive.enabled   : Size message groups from the observed socket drain rate instead of
+   *                                        messages.grouping.maxSizeKiloBytes alone
+   * messages.grouping.adaptive.minSizeKiloBytes    : Smallest group size the adaptive sizing goes down to
+   * messages.grouping.adaptive.targetLatencyMillis : Time a group should take to drain from the socket
    * </code>
    ********************************************************************************************************************/
   public static final String TC_STAGE_MONITOR_ENABLED                                       = "tc.stage.monitor.enabled";
   public static final String TC_STAGE_MONITOR_DELAY                                         = "tc.stage.monitor.delay";
+  public static final String TC_STAGE_WORK_STEALING_ENABLED                                 = "tc.stage.workStealing.enabled";
+  public static final String TC_STAGE_VIRTUAL_THREADS_ENABLED                               = "tc.stage.virtualThreads.enabled";
+  public static final String TC_STAGE_LATENCY_SAMPLE_RATE                                   = "tc.stage.latency.sampleRate";
   public static final String TC_BYTEBUFFER_POOLING_ENABLED                                  = "tc.bytebuffer.pooling.enabled";
   public static final String TC_BYTEBUFFER_COMMON_POOL_MAXCOUNT                             = "tc.bytebuffer.common.pool.maxcount";
   public static final String TC_BYTEBUFFER_THREADLOCAL_POOL_MAXCOUNT                        = "tc.bytebuffer.threadlocal.pool.maxcount";
   public static final String TC_MESSAGE_GROUPING_ENABLED                                    = "tc.messages.grouping.enabled";
   public static final String TC_MESSAGE_GROUPING_MAXSIZE_KB                                 = "tc.messages.grouping.maxSizeKiloBytes";
   public static final String TC_MESSAGE_PACKUP_ENABLED                                      = "tc.messages.packup.enabled";
+  public static final String TC_MESSAGE_GROUPING_ADAPTIVE_ENABLED                           = "tc.messages.grouping.adaptive.enabled";
+  public static final String TC_MESSAGE_GROUPING_ADAPTIVE_MINSIZE_KB                        = "tc.messages.grouping.adaptive.minSizeKiloBytes";
+  public static final String TC_MESSAGE_GROUPING_ADAPTIVE_TARGET_LATENCY_MILLIS             = "tc.messages.grouping.adaptive.targetLatencyMillis";
 
   /*********************************************************************************************************************
    * <code>
@@ -654,10 +722,17 @@ public interface TCPropertiesConsts {
    * Section : TCP Settings
    * tcpnodelay : Enable/disable tcp packet batching
    * keepalive  : Enable/disable tcp probe for running/broken connections
+   * directBuffers.enabled       : Enable/disable socket buffers taken from a shared pool of direct buffers and
+   *                               gathering writes straight from message buffers (clear text connections only)
+   * directBuffers.sizeKB        : Size of each pooled direct buffer
+   * directBuffers.pool.maxcount : Max number of idle direct buffers kept in the pool
    * </code>
    ********************************************************************************************************************/
   public static final String NET_CORE_KEEPALIVE                                             = "net.core.keepalive";
   public static final String NET_CORE_TCP_NO_DELAY                                          = "net.core.tcpnodelay";
+  public static final String NET_CORE_DIRECT_BUFFERS_ENABLED                                = "net.core.directBuffers.enabled";
+  public static final String NET_CORE_DIRECT_BUFFERS_SIZE_KB                                = "net.core.directBuffers.sizeKB";
+  public static final String NET_CORE_DIRECT_BUFFERS_POOL_MAXCOUNT                          = "net.core.directBuffers.pool.maxcount";
 
   /*********************************************************************************************************************
    * <code>
@@ -881,10 +956,13 @@ public interface TCPropertiesConsts {
   /*********************************************************************************************************************
    * <code>
    * Section :  Server Event settings
+   * l2.serverEvent.coalesce.enabled - Deliver only the last event of a key among the events of one transaction and of
+   *                                   the later transactions applied before it is broadcast
    * </code>
    ********************************************************************************************************************/
   String                     L2_SERVER_EVENT_BATCHER_INTERVAL_MS                            = "l2.serverEvent.batcher.intervalInMillis";
   String                     L2_SERVER_EVENT_BATCHER_QUEUE_SIZE                             = "l2.serverEvent.batcher.queueSize";
+  String                     L2_SERVER_EVENT_COALESCE_ENABLED                               = "l2.serverEvent.coalesce.enabled";
   String                     L1_SERVER_EVENT_DELIVERY_THREADS                               = "l1.serverEvent.delivery.threads";
   String                     L1_SERVER_EVENT_DELIVERY_QUEUE_SIZE                            = "l1.serverEvent.delivery.queueSize";
   String                     L1_SERVER_EVENT_DELIVERY_TIMEOUT_INTERVAL                      = "l1.serverEvent.delivery.timeout.intervalInSec";
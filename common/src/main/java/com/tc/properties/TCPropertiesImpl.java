@@ -263,7 +263,7 @@ public class TCPropertiesImpl implements TCProperties {
   }
 
   /*
-   * Used only in test
+   * Used only in test, a null value removes the property
    */
   @Override
   public void setProperty(String key, String value) {
@@ -0,0 +1,136 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe histogram of non-negative long values, usually latencies in nanoseconds, with log-linear buckets in the
+ * manner of HdrHistogram: values below 64 have a bucket each, and every power of two above that is split into 32 equal
+ * buckets, so a value is known to within about 3% whatever its magnitude. Recording is a single atomic increment.
+ * <p>
+ * The bucket counts can be drained into a caller's array, so a sampler can turn each interval's values into percentiles
+ * without allocating.
+ */
+public class LatencyHistogram {
+  private static final int      SUB_BUCKET_BITS = 5;
+  private static final int      SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+  public static final int       BUCKETS         = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts          = new AtomicLongArray(BUCKETS);
+
+  public void record(long value) {
+    counts.incrementAndGet(bucketOf(value));
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+  }
+
+  /**
+   * Copies the bucket counts into the given array, which must have {@link #BUCKETS} elements.
+   *
+   * @param reset true to take the counts out of this histogram, so that each value recorded is copied out exactly
+   *        once
+   * @return the number of values copied
+   */
+  public long copyInto(long[] buckets, boolean reset) {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = reset ? counts.getAndSet(i, 0) : counts.get(i);
+      total += buckets[i];
+    }
+    return total;
+  }
+
+  public long getCount() {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    return total;
+  }
+
+  public long getPercentile(double fraction) {
+    long[] buckets = new long[BUCKETS];
+    return percentile(buckets, copyInto(buckets, false), fraction);
+  }
+
+  public long getMean() {
+    long[] buckets = new long[BUCKETS];
+    return mean(buckets, copyInto(buckets, false));
+  }
+
+  /**
+   * @param buckets bucket counts as filled in by {@link #copyInto(long[], boolean)}
+   * @param total the sum of the bucket counts
+   * @param fraction between 0 and 1, e.g. 0.99
+   * @return upper bound of the bucket holding that fraction of the values, 0 if there are none
+   */
+  public static long percentile(long[] buckets, long total, double fraction) {
+    if (total == 0) { return 0; }
+    long rank = Math.max(1, (long) Math.ceil(total * fraction));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i];
+      if (seen >= rank) { return upperBound(i); }
+    }
+    return upperBound(BUCKETS - 1);
+  }
+
+  /**
+   * @return the mean of the values, each taken as the middle of its bucket, 0 if there are none
+   */
+  public static long mean(long[] buckets, long total) {
+    if (total == 0) { return 0; }
+    double sum = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      if (buckets[i] != 0) {
+        sum += buckets[i] * ((lowerBound(i) / 2.0) + (upperBound(i) / 2.0));
+      }
+    }
+    return (long) (sum / total);
+  }
+
+  static int bucketOf(long value) {
+    if (value < 2 * SUB_BUCKETS) { return value <= 0 ? 0 : (int) value; }
+    int shift = 64 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS + 1);
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  static long lowerBound(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) { return bucket; }
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    return ((long) (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+  }
+
+  static long upperBound(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) { return bucket; }
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    return lowerBound(bucket) + (1L << shift) - 1;
+  }
+
+  @Override
+  public String toString() {
+    long[] buckets = new long[BUCKETS];
+    long total = copyInto(buckets, false);
+    return "count=" + total + " mean~" + mean(buckets, total) + " p50<=" + percentile(buckets, total, 0.5) + " p99<="
+           + percentile(buckets, total, 0.99) + " max<=" + percentile(buckets, total, 1.0);
+  }
+}
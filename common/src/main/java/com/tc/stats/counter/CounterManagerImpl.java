@@ -16,24 +16,59 @@
  */
 package com.tc.stats.counter;
 
+import com.tc.logging.TCLogger;
+import com.tc.logging.TCLogging;
 import com.tc.stats.counter.sampled.SampledCounter;
 import com.tc.stats.counter.sampled.SampledCounterImpl;
 
-import java.util.Timer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Samples all the sampled counters it creates from one thread. Every second the sampler walks the counters whose
+ * interval is up, stamping them all with the same time, rather than each counter having a timer task of its own.
+ * Ticks are scheduled at a fixed rate, so they do not drift however many counters there are.
+ */
 public class CounterManagerImpl implements CounterManager {
-  private final Timer timer    = new Timer("SampledCounterManager Timer", true);
-  private boolean     shutdown = false;
+  private static final TCLogger                                 logger   = TCLogging
+                                                                             .getLogger(CounterManagerImpl.class);
+
+  private final ConcurrentMap<Integer, Queue<SampledCounterImpl>> counters = new ConcurrentHashMap<Integer, Queue<SampledCounterImpl>>();
+  private final ScheduledExecutorService                        sampler;
+  private long                                                  ticks;
+  private boolean                                               shutdown = false;
 
   public CounterManagerImpl() {
     super();
+    this.sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "SampledCounterManager Sampler");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.sampler.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        tick();
+      }
+    }, 1, 1, TimeUnit.SECONDS);
   }
 
   @Override
   public synchronized void shutdown() {
     if (shutdown) { return; }
     try {
-      timer.cancel();
+      sampler.shutdownNow();
     } finally {
       shutdown = true;
     }
@@ -47,8 +82,12 @@ public class CounterManagerImpl implements CounterManager {
     Counter counter = config.createCounter();
     if (counter instanceof SampledCounterImpl) {
       SampledCounterImpl sampledCounter = (SampledCounterImpl) counter;
-      timer.schedule(sampledCounter.getTimerTask(), sampledCounter.getIntervalMillis(), sampledCounter
-          .getIntervalMillis());
+      Queue<SampledCounterImpl> sameInterval = counters.get(sampledCounter.getIntervalSecs());
+      if (sameInterval == null) {
+        sameInterval = new ConcurrentLinkedQueue<SampledCounterImpl>();
+        counters.put(sampledCounter.getIntervalSecs(), sameInterval);
+      }
+      sameInterval.add(sampledCounter);
     }
     return counter;
 
@@ -62,4 +101,28 @@ public class CounterManagerImpl implements CounterManager {
     }
   }
 
+  // only ever run on the sampler thread
+  private void tick() {
+    final long tick = ++ticks;
+    final long now = System.currentTimeMillis();
+    for (Map.Entry<Integer, Queue<SampledCounterImpl>> e : counters.entrySet()) {
+      if (tick % e.getKey() != 0) {
+        continue;
+      }
+      for (Iterator<SampledCounterImpl> i = e.getValue().iterator(); i.hasNext();) {
+        SampledCounterImpl counter = i.next();
+        if (counter.isShutdown()) {
+          i.remove();
+          continue;
+        }
+        try {
+          counter.recordSample(now);
+        } catch (RuntimeException re) {
+          // an exception would cancel the tick for every counter from here on
+          logger.error("Error sampling " + counter, re);
+        }
+      }
+    }
+  }
+
 }
@@ -0,0 +1,111 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.stats.counter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A long that many threads can add to without fighting over one cache line. Adds go to a single base value until two
+ * threads collide on it, after which each thread adds to one of a set of cells, each on its own cache line, picked by
+ * its thread id. The value is the base plus all the cells.
+ * <p>
+ * Unlike {@link java.util.concurrent.atomic.LongAdder#sumThenReset()}, {@link #getAndSet(long)} swaps the base and
+ * every cell atomically, so an add racing with it is never lost: it is either in the value returned or in the value
+ * left behind.
+ */
+public final class StripedLong {
+
+  private static final int        STRIPES = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+  // longs per cache line, cells are this far apart and the first one is a line away from the array header
+  private static final int        PADDING = 8;
+
+  private static final AtomicReferenceFieldUpdater<StripedLong, AtomicLongArray> CELLS = AtomicReferenceFieldUpdater
+      .newUpdater(StripedLong.class, AtomicLongArray.class, "cells");
+
+  private final AtomicLong        base;
+  private volatile AtomicLongArray cells;
+
+  public StripedLong() {
+    this(0L);
+  }
+
+  public StripedLong(long initialValue) {
+    this.base = new AtomicLong(initialValue);
+  }
+
+  public void add(long x) {
+    AtomicLongArray cs = cells;
+    if (cs == null) {
+      long b = base.get();
+      if (base.compareAndSet(b, b + x)) { return; }
+      cs = inflate();
+    }
+    cs.getAndAdd(cellIndex(), x);
+  }
+
+  public long sum() {
+    long sum = base.get();
+    AtomicLongArray cs = cells;
+    if (cs != null) {
+      for (int i = PADDING; i < cs.length() - PADDING; i += PADDING) {
+        sum += cs.get(i);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Sets the value to newValue and returns what it was. The base and each cell are swapped on their own, so the
+   * result is not a snapshot of one instant, but every add lands either in it or in what is left behind.
+   */
+  public long getAndSet(long newValue) {
+    long previous = base.getAndSet(newValue);
+    AtomicLongArray cs = cells;
+    if (cs != null) {
+      for (int i = PADDING; i < cs.length() - PADDING; i += PADDING) {
+        previous += cs.getAndSet(i, 0L);
+      }
+    }
+    return previous;
+  }
+
+  public void set(long newValue) {
+    getAndSet(newValue);
+  }
+
+  private AtomicLongArray inflate() {
+    CELLS.compareAndSet(this, null, new AtomicLongArray((STRIPES + 2) * PADDING));
+    return cells;
+  }
+
+  private static int cellIndex() {
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+    return (((hash >>> 16) ^ hash) & (STRIPES - 1)) * PADDING + PADDING;
+  }
+
+  private static int ceilingPowerOfTwo(int x) {
+    return x <= 1 ? 1 : 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+}
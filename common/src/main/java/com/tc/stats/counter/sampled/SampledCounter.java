@@ -18,7 +18,11 @@ package com.tc.stats.counter.sampled;
 
 import com.tc.stats.counter.Counter;
 
-
+/**
+ * A counter whose value is sampled at a fixed interval by the {@link com.tc.stats.counter.CounterManager} that created
+ * it. Sampled counters are bumped far more often than they are read, so their increment and decrement methods return
+ * 0 rather than the new value; use {@link #getValue()} to read it.
+ */
 public interface SampledCounter extends Counter {
   
   void shutdown();
@@ -16,56 +16,68 @@
  */
 package com.tc.stats.counter.sampled;
 
-import com.tc.stats.counter.CounterImpl;
-
-import java.util.TimerTask;
+import com.tc.stats.counter.StripedLong;
 
 /**
- * A counter that keeps sampled values
+ * A counter that keeps sampled values. The value is striped so that hot paths do not contend on it, and the most
+ * recent sample is kept in plain fields written by the sampler, so taking a sample allocates nothing.
+ * <p>
+ * The increment and decrement methods return the value summed right after the add, which may include adds other threads
+ * made at the same time.
  */
-public class SampledCounterImpl extends CounterImpl implements SampledCounter {
-  protected final boolean                                     resetOnSample;
-  private final TimerTask                                     samplerTask;
-  private final long                                          intervalMillis;
-  private volatile TimeStampedCounterValue                    mostRecentSample;
-  
-  public SampledCounterImpl(SampledCounterConfig config) {
-    super(config.getInitialValue());
+public class SampledCounterImpl implements SampledCounter {
+  protected final boolean     resetOnSample;
+  private final int           intervalSecs;
+  private final StripedLong   value;
+  private volatile boolean    shutdown;
 
-    this.intervalMillis = config.getIntervalSecs() * 1000;
+  // the most recent sample: odd sequence while the sampler is writing it
+  private volatile int        sampleSequence;
+  private volatile long       sampleTimestamp;
+  private volatile long       sampleValue;
+
+  public SampledCounterImpl(SampledCounterConfig config) {
+    this.value = new StripedLong(config.getInitialValue());
+    this.intervalSecs = config.getIntervalSecs();
     this.resetOnSample = config.isResetOnSample();
 
-    this.samplerTask = new TimerTask() {
-      @Override
-      public void run() {
-        recordSample();
-      }
-    };
-    
-    recordSample();
+    recordSample(System.currentTimeMillis());
   }
 
   @Override
   public TimeStampedCounterValue getMostRecentSample() {
-    return mostRecentSample;
+    while (true) {
+      int sequence = sampleSequence;
+      if ((sequence & 1) == 0) {
+        long timestamp = sampleTimestamp;
+        long sample = sampleValue;
+        if (sequence == sampleSequence) { return new TimeStampedCounterValue(timestamp, sample); }
+      }
+      Thread.yield();
+    }
   }
 
   @Override
   public void shutdown() {
-    if (samplerTask != null) {
-      samplerTask.cancel();
-    }
+    shutdown = true;
   }
 
-  public TimerTask getTimerTask() {
-    return this.samplerTask;
+  public boolean isShutdown() {
+    return shutdown;
+  }
+
+  public int getIntervalSecs() {
+    return intervalSecs;
   }
 
   public long getIntervalMillis() {
-    return intervalMillis;
+    return intervalSecs * 1000L;
   }
 
-  void recordSample() {
+  /**
+   * Takes a sample stamped with the given time. Only one thread, the counter manager's sampler, may call this.
+   */
+  public void recordSample(long now) {
     final long sample;
     if (resetOnSample) {
       sample = getAndReset();
@@ -73,12 +85,54 @@ public class SampledCounterImpl extends CounterImpl implements SampledCounter {
       sample = getValue();
     }
 
-    final long now = System.currentTimeMillis();
-    mostRecentSample = new TimeStampedCounterValue(now, sample);
+    final int sequence = sampleSequence + 1;
+    sampleSequence = sequence;
+    sampleTimestamp = now;
+    sampleValue = sample;
+    sampleSequence = sequence + 1;
   }
 
   @Override
   public long getAndReset() {
     return getAndSet(0L);
   }
+
+  @Override
+  public long increment() {
+    value.add(1L);
+    return value.sum();
+  }
+
+  @Override
+  public long decrement() {
+    value.add(-1L);
+    return value.sum();
+  }
+
+  @Override
+  public long increment(long amount) {
+    value.add(amount);
+    return value.sum();
+  }
+
+  @Override
+  public long decrement(long amount) {
+    value.add(-amount);
+    return value.sum();
+  }
+
+  @Override
+  public long getAndSet(long newValue) {
+    return value.getAndSet(newValue);
+  }
+
+  @Override
+  public long getValue() {
+    return value.sum();
+  }
+
+  @Override
+  public void setValue(long newValue) {
+    value.set(newValue);
+  }
 }
@@ -0,0 +1,37 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.stats.counter.sampled.derived;
+
+import com.tc.stats.counter.sampled.SampledCounter;
+
+/**
+ * A sampled counter of latencies. Each sample is the mean latency recorded during its interval, and the median, 99th
+ * percentile and maximum of the same interval are kept alongside it.
+ */
+public interface SampledLatencyCounter extends SampledCounter {
+
+  public void record(long latencyNanos);
+
+  public long getMostRecentCount();
+
+  public long getMostRecentMedian();
+
+  public long getMostRecent99thPercentile();
+
+  public long getMostRecentMax();
+
+}
@@ -0,0 +1,124 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.stats.counter.sampled.derived;
+
+import com.tc.stats.LatencyHistogram;
+import com.tc.stats.counter.sampled.SampledCounterImpl;
+
+public class SampledLatencyCounterImpl extends SampledCounterImpl implements SampledLatencyCounter {
+
+  private static final String    OPERATION_NOT_SUPPORTED_MSG = "This operation is not supported. Use record(long) instead";
+
+  private final LatencyHistogram histogram                   = new LatencyHistogram();
+  // reused by every sample, only touched by the sampler thread
+  private final long[]           interval                    = new long[LatencyHistogram.BUCKETS];
+
+  private volatile long          count;
+  private volatile long          median;
+  private volatile long          percentile99;
+  private volatile long          max;
+
+  public SampledLatencyCounterImpl(SampledLatencyCounterConfig config) {
+    super(config);
+  }
+
+  @Override
+  public void record(long latencyNanos) {
+    histogram.record(latencyNanos);
+  }
+
+  /**
+   * @return the mean latency recorded since the last sample
+   */
+  @Override
+  public long getValue() {
+    return histogram.getMean();
+  }
+
+  /**
+   * Drains the latencies of the interval just ended, keeping their percentiles, and returns their mean.
+   */
+  @Override
+  public long getAndReset() {
+    // the first sample is taken by the super constructor, before there is anything to drain
+    if (histogram == null) { return 0; }
+    long total = histogram.copyInto(interval, true);
+    count = total;
+    median = LatencyHistogram.percentile(interval, total, 0.5);
+    percentile99 = LatencyHistogram.percentile(interval, total, 0.99);
+    max = LatencyHistogram.percentile(interval, total, 1.0);
+    return LatencyHistogram.mean(interval, total);
+  }
+
+  @Override
+  public long getMostRecentCount() {
+    return count;
+  }
+
+  @Override
+  public long getMostRecentMedian() {
+    return median;
+  }
+
+  @Override
+  public long getMostRecent99thPercentile() {
+    return percentile99;
+  }
+
+  @Override
+  public long getMostRecentMax() {
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return "latency ns [" + histogram + "]";
+  }
+
+  // ====== unsupported operations. Latencies are recorded, not counted
+
+  @Override
+  public long getAndSet(long newValue) {
+    throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
+  }
+
+  @Override
+  public void setValue(long newValue) {
+    throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
+  }
+
+  @Override
+  public long increment() {
+    throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
+  }
+
+  @Override
+  public long increment(long amount) {
+    throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
+  }
+
+  @Override
+  public long decrement() {
+    throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
+  }
+
+  @Override
+  public long decrement(long amount) {
+    throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
+  }
+
+}
@@ -16,57 +16,68 @@
  */
 package com.tc.stats.counter.sampled.derived;
 
+import com.tc.stats.counter.StripedLong;
 import com.tc.stats.counter.sampled.SampledCounterImpl;
 
+/**
+ * The numerator and the denominator are striped like the value of {@link SampledCounterImpl}, so adding to them does
+ * not contend. They are read and reset one after the other, so an increment racing with a sample can have its numerator
+ * counted in one sample and its denominator in the next.
+ */
 public class SampledRateCounterImpl extends SampledCounterImpl implements SampledRateCounter {
 
   private static final String OPERATION_NOT_SUPPORTED_MSG = "This operation is not supported. Use SampledCounter Or Counter instead";
 
-  private long                numeratorValue;
-  private long                denominatorValue;
+  private final StripedLong   numerator                   = new StripedLong();
+  private final StripedLong   denominator                 = new StripedLong();
 
   public SampledRateCounterImpl(SampledRateCounterConfig config) {
     super(config);
   }
 
   @Override
-  public synchronized void setValue(long numerator, long denominator) {
-    this.numeratorValue = numerator;
-    this.denominatorValue = denominator;
+  public void setValue(long numeratorValue, long denominatorValue) {
+    this.numerator.set(numeratorValue);
+    this.denominator.set(denominatorValue);
   }
 
   @Override
-  public synchronized void increment(long numerator, long denominator) {
-    this.numeratorValue += numerator;
-    this.denominatorValue += denominator;
+  public void increment(long numeratorValue, long denominatorValue) {
+    this.numerator.add(numeratorValue);
+    this.denominator.add(denominatorValue);
   }
 
   @Override
-  public synchronized void decrement(long numerator, long denominator) {
-    this.numeratorValue -= numerator;
-    this.denominatorValue -= denominator;
+  public void decrement(long numeratorValue, long denominatorValue) {
+    this.numerator.add(-numeratorValue);
+    this.denominator.add(-denominatorValue);
   }
 
   @Override
-  public synchronized void setDenominatorValue(long newValue) {
-    this.denominatorValue = newValue;
+  public void setDenominatorValue(long newValue) {
+    this.denominator.set(newValue);
   }
 
   @Override
-  public synchronized void setNumeratorValue(long newValue) {
-    this.numeratorValue = newValue;
+  public void setNumeratorValue(long newValue) {
+    this.numerator.set(newValue);
   }
 
   @Override
-  public synchronized long getValue() {
-    return denominatorValue == 0 ? 0 : (numeratorValue / denominatorValue);
+  public long getValue() {
+    // the super constructor takes a first sample before the fields are set
+    if (numerator == null) { return 0L; }
+    return rate(numerator.sum(), denominator.sum());
   }
 
   @Override
-  public synchronized long getAndReset() {
-    long prevVal = getValue();
-    setValue(0, 0);
-    return prevVal;
+  public long getAndReset() {
+    if (numerator == null) { return 0L; }
+    return rate(numerator.getAndSet(0L), denominator.getAndSet(0L));
+  }
+
+  private static long rate(long numeratorValue, long denominatorValue) {
+    return denominatorValue == 0 ? 0 : (numeratorValue / denominatorValue);
   }
 
   // ====== unsupported operations. These operations need multiple params for this class
@@ -77,7 +88,7 @@ public class SampledRateCounterImpl extends SampledCounterImpl implements Sample
   }
 
   @Override
-  public synchronized void setValue(long newValue) {
+  public void setValue(long newValue) {
     throw new UnsupportedOperationException(OPERATION_NOT_SUPPORTED_MSG);
   }
 
@@ -34,7 +34,9 @@ public class TCPropertyStore {
 
     // do put and remove so that a replaced mapping will retain the new Key object
     props.remove(k);
-    props.put(k, value.trim());
+    if (value != null) {
+      props.put(k, value.trim());
+    }
   }
 
   public synchronized String getProperty(String key) {
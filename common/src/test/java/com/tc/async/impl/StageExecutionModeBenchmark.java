@@ -0,0 +1,171 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.async.impl;
+
+import com.tc.async.api.AbstractEventHandler;
+import com.tc.async.api.EventContext;
+import com.tc.async.api.MultiThreadedEventContext;
+import com.tc.logging.NullLoggerProvider;
+import com.tc.properties.TCPropertiesImpl;
+import com.tc.stats.LatencyHistogram;
+import com.tc.util.concurrent.QueueFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares throughput and tail latency of stages running their workers on platform threads and on virtual threads.
+ * The handlers model the work of the L2 stages that block the most: the transaction stage (ordered per client, a bit
+ * of compute then a wait for the commit), the lookup stage (most lookups wait on the object store) and the lock stage
+ * (short critical sections on a few hot locks). Run with
+ * {@code java -cp <test classpath> com.tc.async.impl.StageExecutionModeBenchmark [events] [platform threads] [virtual workers]}
+ * on a JVM with virtual threads, otherwise only the platform thread numbers are printed.
+ */
+public class StageExecutionModeBenchmark {
+
+  enum Profile {
+    TRANSACTION, LOOKUP, LOCK
+  }
+
+  private static final int             QUEUE_SIZE = 10000;
+  private static final ReentrantLock[] HOT_LOCKS  = new ReentrantLock[4];
+  static {
+    for (int i = 0; i < HOT_LOCKS.length; i++) {
+      HOT_LOCKS[i] = new ReentrantLock();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int events = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    int platformThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int virtualWorkers = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+    System.out.println(String.format("%-12s %-8s %8s %12s %10s %10s %10s", "stage", "threads", "workers",
+                                     "events/s", "p50 us", "p99 us", "max us"));
+    for (Profile profile : Profile.values()) {
+      // a first run to warm up, not reported
+      run(profile, false, platformThreads, platformThreads, events / 10);
+      run(profile, false, platformThreads, platformThreads, events).print(profile, "platform", platformThreads);
+      if (VirtualThreads.isSupported()) {
+        run(profile, true, platformThreads, virtualWorkers, events).print(profile, "virtual", virtualWorkers);
+      }
+    }
+  }
+
+  private static Result run(final Profile profile, boolean virtual, int threads, int virtualWorkers, int events)
+      throws Exception {
+    String name = "benchmark_" + profile.name().toLowerCase() + (virtual ? "_virtual" : "_platform");
+    TCPropertiesImpl.getProperties().setProperty("seda." + name + ".virtualThreads", String.valueOf(virtual));
+    TCPropertiesImpl.getProperties().setProperty("seda." + name + ".virtualThreads.workers",
+                                                 String.valueOf(virtualWorkers));
+
+    final LatencyHistogram latencies = new LatencyHistogram();
+    final CountDownLatch done = new CountDownLatch(events);
+    StageImpl stage = new StageImpl(new NullLoggerProvider(), name, new AbstractEventHandler() {
+      @Override
+      public void handleEvent(EventContext context) {
+        TimedContext timed = (TimedContext) context;
+        work(profile, timed.key);
+        latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - timed.created));
+        done.countDown();
+      }
+    }, threads, 1, new ThreadGroup(name), new QueueFactory(), QUEUE_SIZE);
+    stage.start(new ConfigurationContextImpl(null));
+
+    long start = System.nanoTime();
+    for (int i = 0; i < events; i++) {
+      stage.getSink().add(new TimedContext(keyFor(profile, i)));
+    }
+    done.await();
+    long elapsed = System.nanoTime() - start;
+    stage.destroy();
+    return new Result(events * TimeUnit.SECONDS.toNanos(1) / elapsed, latencies);
+  }
+
+  private static int keyFor(Profile profile, int i) {
+    switch (profile) {
+      case TRANSACTION:
+        return i % 32; // clients
+      case LOOKUP:
+        return i % 1024; // objects
+      default:
+        return i % 256; // lock ids
+    }
+  }
+
+  private static void work(Profile profile, int key) {
+    switch (profile) {
+      case TRANSACTION:
+        spin(20);
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(500));
+        break;
+      case LOOKUP:
+        if (key % 5 != 0) {
+          LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        break;
+      case LOCK:
+        ReentrantLock lock = HOT_LOCKS[key % HOT_LOCKS.length];
+        lock.lock();
+        try {
+          spin(20);
+        } finally {
+          lock.unlock();
+        }
+        break;
+    }
+  }
+
+  private static void spin(long micros) {
+    long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+    while (System.nanoTime() < end) {
+      // busy
+    }
+  }
+
+  private static final class TimedContext implements MultiThreadedEventContext {
+    private final int  key;
+    private final long created = System.nanoTime();
+
+    private TimedContext(int key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object getKey() {
+      return key;
+    }
+  }
+
+  private static final class Result {
+    private final long      throughput;
+    private final LatencyHistogram latencies;
+
+    private Result(long throughput, LatencyHistogram latencies) {
+      this.throughput = throughput;
+      this.latencies = latencies;
+    }
+
+    private void print(Profile profile, String threads, int workers) {
+      System.out.println(String.format("%-12s %-8s %8d %12d %10d %10d %10d", profile.name().toLowerCase(), threads,
+                                       workers, throughput, latencies.getPercentile(0.5),
+                                       latencies.getPercentile(0.99), latencies.getPercentile(1.0)));
+    }
+  }
+}
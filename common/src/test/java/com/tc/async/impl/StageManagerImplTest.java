@@ -21,12 +21,18 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import com.tc.async.api.EventContext;
 import com.tc.async.api.MultiThreadedEventContext;
 import com.tc.async.api.Stage;
+import com.tc.async.api.StageLatencyStats;
 import com.tc.lang.TCThreadGroup;
 import com.tc.lang.ThrowableHandlerImpl;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLogging;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.concurrent.QueueFactory;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import junit.framework.TestCase;
 
 /**
@@ -40,6 +46,7 @@ public class StageManagerImplTest extends TestCase {
 
   private StageManagerImpl      stageManager;
   private TestEventHandler      testEventHandler;
+  private final Map<String, String> savedProperties = new HashMap<String, String>();
 
   /**
    * Constructor for StageManagerImplTest.
@@ -166,14 +173,79 @@ public class StageManagerImplTest extends TestCase {
     stageManager.stopAll();
   }
 
+  public void testVirtualThreadStage() throws Exception {
+    // falls back to platform threads on JVMs without virtual threads, the ordering per key must hold either way
+    setProperty("seda.virtualStage.virtualThreads", "true");
+    setProperty("seda.virtualStage.virtualThreads.workers", "16");
+    stageManager.createStage("virtualStage", testEventHandler, 2, 1, 100);
+    Stage s = stageManager.getStage("virtualStage");
+    s.start(new ConfigurationContextImpl(null));
+    for (int i = 0; i < 500; i++) {
+      s.getSink().add(new SequencedEventContext("key-" + (i % 5), i / 5));
+    }
+    testEventHandler.waitForEventContextCount(500, 60, SECONDS);
+    List<EventContext> handled = testEventHandler.getContexts();
+    assertEquals(500, handled.size());
+    // the handler records contexts in the order it runs them
+    Map<Object, Integer> lastSequence = new HashMap<Object, Integer>();
+    for (EventContext context : handled) {
+      SequencedEventContext sequenced = (SequencedEventContext) context;
+      Integer last = lastSequence.put(sequenced.getKey(), sequenced.sequence);
+      assertEquals(sequenced.getKey() + " out of order", last == null ? 0 : last + 1, sequenced.sequence);
+    }
+    assertEquals(5, lastSequence.size());
+    stageManager.stopAll();
+  }
+
+  public void testStageLatenciesAreSampled() throws Exception {
+    setProperty("seda.timedStage.latency.sampleRate", "1");
+    setProperty("seda.untimedStage.latency.sampleRate", "0");
+    stageManager.createStage("timedStage", testEventHandler, 1, 100);
+    stageManager.createStage("untimedStage", testEventHandler, 1, 100);
+    Stage timed = stageManager.getStage("timedStage");
+    Stage untimed = stageManager.getStage("untimedStage");
+    for (int i = 0; i < 10; i++) {
+      timed.getSink().add(new TestEventContext());
+      untimed.getSink().add(new TestEventContext());
+    }
+    timed.start(new ConfigurationContextImpl(null));
+    untimed.start(new ConfigurationContextImpl(null));
+    testEventHandler.waitForEventContextCount(20, 60, SECONDS);
+
+    StageLatencyStats stats = timed.getLatencyStats();
+    assertEquals(1, stats.getSampleRate());
+    assertEquals(10, stats.getWaitHistogram().getCount());
+    // the handler records the context before the worker stops its clock
+    while (stats.getServiceHistogram().getCount() < 10) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, untimed.getLatencyStats().getWaitHistogram().getCount());
+    assertEquals(0, untimed.getLatencyStats().getServiceHistogram().getCount());
+    stageManager.stopAll();
+  }
+
   /*
    * @see TestCase#tearDown()
    */
   @Override
   protected void tearDown() throws Exception {
+    for (Map.Entry<String, String> e : savedProperties.entrySet()) {
+      TCPropertiesImpl.getProperties().setProperty(e.getKey(), e.getValue());
+    }
+    savedProperties.clear();
     super.tearDown();
   }
 
+  /**
+   * Sets a tc property for this test only, tearDown puts back the value it had before.
+   */
+  private void setProperty(String key, String value) {
+    if (!savedProperties.containsKey(key)) {
+      savedProperties.put(key, TCPropertiesImpl.getProperties().getProperty(key, true));
+    }
+    TCPropertiesImpl.getProperties().setProperty(key, value);
+  }
+
   private static class TestEventContext implements EventContext {
     public TestEventContext() {
       //
@@ -198,4 +270,14 @@ public class StageManagerImplTest extends TestCase {
     }
 
   }
+
+  private static class SequencedEventContext extends TestMultiThreadedEventContext {
+    final int sequence;
+
+    public SequencedEventContext(String key, int sequence) {
+      super(key);
+      this.sequence = sequence;
+    }
+
+  }
 }
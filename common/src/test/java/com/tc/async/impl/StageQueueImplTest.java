@@ -0,0 +1,140 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.async.impl;
+
+import com.tc.async.api.MultiThreadedEventContext;
+import com.tc.async.api.Source;
+import com.tc.async.api.StageQueueStats;
+import com.tc.logging.NullLoggerProvider;
+import com.tc.util.concurrent.QueueFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class StageQueueImplTest extends TestCase {
+
+  public void testIdleWorkerStealsFromBusyWorker() throws Exception {
+    StageQueueImpl queue = new StageQueueImpl(2, 1, new QueueFactory(), new NullLoggerProvider(), "test", 1000, true);
+    for (int i = 0; i < 100; i++) {
+      queue.add(new KeyedContext(i % 10, i / 10));
+    }
+    assertEquals(100, queue.size());
+
+    // worker 0 never polls, worker 1 has to take over every key group
+    Source source = queue.getSource(1);
+    Map<Object, Integer> lastSeen = new HashMap<Object, Integer>();
+    for (int i = 0; i < 100; i++) {
+      KeyedContext context = (KeyedContext) source.poll(0);
+      assertNotNull(context);
+      assertInOrder(lastSeen, context);
+    }
+    assertNull(source.poll(0));
+    assertNull(queue.getSource(0).poll(0));
+    assertEquals(0, queue.size());
+  }
+
+  public void testPerKeyOrderWithConcurrentWorkers() throws Exception {
+    final int threads = 4;
+    final int perKey = 2000;
+    final StageQueueImpl queue = new StageQueueImpl(threads, 1, new QueueFactory(), new NullLoggerProvider(), "test",
+                                                    500, true);
+    final Map<Object, Integer> lastSeen = new HashMap<Object, Integer>();
+    final Throwable[] failure = new Throwable[1];
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final Source source = queue.getSource(t);
+      workers[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            KeyedContext context;
+            while ((context = (KeyedContext) source.poll(1000)) != null) {
+              synchronized (lastSeen) {
+                assertInOrder(lastSeen, context);
+              }
+            }
+          } catch (Throwable e) {
+            failure[0] = e;
+          }
+        }
+      };
+      workers[t].start();
+    }
+    // one hot key among a few cold ones
+    for (int i = 0; i < perKey; i++) {
+      queue.add(new KeyedContext(0, i));
+      queue.add(new KeyedContext(1 + (i % 7), i / 7));
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    if (failure[0] != null) {
+      throw new AssertionError(failure[0]);
+    }
+    assertEquals(Integer.valueOf(perKey - 1), lastSeen.get(0));
+    assertEquals(0, queue.size());
+  }
+
+  public void testQueueStats() throws Exception {
+    StageQueueImpl queue = new StageQueueImpl(2, 1, new QueueFactory(), new NullLoggerProvider(), "test", 1000);
+    assertEquals(-1, ((StageQueueStats) queue.getStats(0)).getDepth());
+
+    queue.enableStatsCollection(true);
+    StageQueueStats stats = (StageQueueStats) queue.getStats(0);
+    assertEquals(2, stats.getQueueCount());
+    queue.add(new KeyedContext(0, 0));
+    queue.add(new KeyedContext(0, 1));
+    queue.add(new KeyedContext(1, 0));
+    assertEquals(3, stats.getDepth());
+    assertEquals(2, stats.getDepth(0));
+    assertEquals(1, stats.getDepth(1));
+    assertEquals(2, stats.getDepthHistogram(0).getCount());
+    assertEquals(3, stats.getDepthHistogram(0).getPercentile(1.0));
+
+    assertEquals(0, ((KeyedContext) queue.getSource(0).poll(0)).sequence);
+    assertEquals(1, stats.getDepth(0));
+    assertEquals(1, stats.getLatencyHistogram(0).getCount());
+    assertEquals(0, stats.getLatencyHistogram(1).getCount());
+
+    queue.enableStatsCollection(false);
+    assertNotNull(queue.getSource(0).poll(0));
+    assertNotNull(queue.getSource(1).poll(0));
+    assertEquals(0, queue.size());
+  }
+
+  private static void assertInOrder(Map<Object, Integer> lastSeen, KeyedContext context) {
+    Integer last = lastSeen.put(context.getKey(), context.sequence);
+    assertEquals(last == null ? 0 : last + 1, context.sequence);
+  }
+
+  private static class KeyedContext implements MultiThreadedEventContext {
+    private final Integer key;
+    private final int     sequence;
+
+    KeyedContext(int key, int sequence) {
+      this.key = key;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public Object getKey() {
+      return key;
+    }
+  }
+}
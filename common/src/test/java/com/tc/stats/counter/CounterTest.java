@@ -16,6 +16,9 @@
  */
 package com.tc.stats.counter;
 
+import com.tc.stats.counter.sampled.SampledCounterConfig;
+import com.tc.stats.counter.sampled.SampledCounterImpl;
+
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -32,6 +35,14 @@ public class CounterTest extends TestCase {
     assertEquals(42L, counter.getValue());
   }
 
+  public void testSampledCounterReturnsNewValue() {
+    Counter counter = new SampledCounterImpl(new SampledCounterConfig(1, 300, false, 10L));
+    assertEquals(11L, counter.increment());
+    assertEquals(16L, counter.increment(5L));
+    assertEquals(15L, counter.decrement());
+    assertEquals(12L, counter.decrement(3L));
+  }
+
   public void testConcurrency() throws InterruptedException {
     final Counter counter = new CounterImpl();
     final AtomicLong local = new AtomicLong(0L);
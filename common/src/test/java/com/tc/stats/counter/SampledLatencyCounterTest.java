@@ -0,0 +1,93 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.stats.counter;
+
+import com.tc.stats.LatencyHistogram;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounter;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounterConfig;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounterImpl;
+
+import junit.framework.TestCase;
+
+public class SampledLatencyCounterTest extends TestCase {
+
+  public void testHistogramIsWithinThreePercent() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 1000000; value++) {
+      histogram.record(value);
+    }
+    assertEquals(1000000, histogram.getCount());
+    assertWithin(500000, histogram.getPercentile(0.5));
+    assertWithin(990000, histogram.getPercentile(0.99));
+    assertWithin(1000000, histogram.getPercentile(1.0));
+    assertWithin(500000, histogram.getMean());
+  }
+
+  public void testSmallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(0);
+    histogram.record(7);
+    histogram.record(63);
+    assertEquals(7, histogram.getPercentile(0.5));
+    assertEquals(63, histogram.getPercentile(1.0));
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.getPercentile(1.0));
+  }
+
+  public void testEachSampleCoversItsOwnInterval() {
+    SampledLatencyCounterImpl counter = (SampledLatencyCounterImpl) new SampledLatencyCounterConfig(1, 300)
+        .createCounter();
+    assertEquals(0, counter.getMostRecentSample().getCounterValue());
+
+    for (int i = 0; i < 99; i++) {
+      counter.record(1000);
+    }
+    counter.record(100000);
+    counter.recordSample(System.currentTimeMillis());
+    assertEquals(100, counter.getMostRecentCount());
+    assertWithin(1000, counter.getMostRecentMedian());
+    assertWithin(1000, counter.getMostRecent99thPercentile());
+    assertWithin(100000, counter.getMostRecentMax());
+    assertWithin(1990, counter.getMostRecentSample().getCounterValue());
+
+    counter.record(5000);
+    counter.recordSample(System.currentTimeMillis());
+    assertEquals(1, counter.getMostRecentCount());
+    assertWithin(5000, counter.getMostRecentMax());
+    assertWithin(5000, counter.getMostRecentSample().getCounterValue());
+  }
+
+  public void testUnsupportedOperations() {
+    SampledLatencyCounter counter = (SampledLatencyCounter) new SampledLatencyCounterConfig(1, 300).createCounter();
+    try {
+      counter.increment();
+      fail("Should be unsupported");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      counter.setValue(1);
+      fail("Should be unsupported");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.03);
+  }
+}
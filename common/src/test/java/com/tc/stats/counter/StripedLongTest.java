@@ -0,0 +1,90 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.stats.counter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+public class StripedLongTest extends TestCase {
+
+  private static final int THREADS = 8;
+  private static final int ADDS    = 100000;
+
+  public void testSingleThread() {
+    StripedLong value = new StripedLong(5);
+    value.add(3);
+    value.add(-1);
+    assertEquals(7, value.sum());
+    assertEquals(7, value.getAndSet(2));
+    assertEquals(2, value.sum());
+    value.set(0);
+    assertEquals(0, value.sum());
+  }
+
+  public void testConcurrentAdds() throws Exception {
+    final StripedLong value = new StripedLong();
+    runAdders(value, new AtomicBoolean());
+    assertEquals(THREADS * ADDS, value.sum());
+  }
+
+  public void testGetAndSetLosesNoAdds() throws Exception {
+    final StripedLong value = new StripedLong();
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicLong drained = new AtomicLong();
+    Thread drainer = new Thread() {
+      @Override
+      public void run() {
+        while (!done.get()) {
+          drained.addAndGet(value.getAndSet(0));
+        }
+      }
+    };
+    drainer.start();
+    runAdders(value, done);
+    drainer.join();
+    assertEquals(THREADS * ADDS, drained.get() + value.sum());
+  }
+
+  private static void runAdders(final StripedLong value, AtomicBoolean done) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] adders = new Thread[THREADS];
+    for (int i = 0; i < THREADS; i++) {
+      adders[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            throw new AssertionError(e);
+          }
+          for (int j = 0; j < ADDS; j++) {
+            value.add(1);
+          }
+        }
+      };
+      adders[i].start();
+    }
+    start.countDown();
+    for (Thread adder : adders) {
+      adder.join();
+    }
+    done.set(true);
+  }
+}
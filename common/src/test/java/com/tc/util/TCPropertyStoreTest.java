@@ -104,6 +104,9 @@ public class TCPropertyStoreTest extends TestCase {
     Assert.assertEquals("abc", propertyStore.getProperty("xYZ"));
     propertyStore.setProperty("abc", "def");
     Assert.assertEquals("def", propertyStore.getProperty("AbC"));
+    propertyStore.setProperty("ABC", null);
+    Assert.assertNull(propertyStore.getProperty("abc"));
+    Assert.assertFalse(propertyStore.containsKey("abc"));
   }
 
   public void testPutAll() {
@@ -17,12 +17,17 @@
 package com.tc.net.core;
 
 import com.tc.net.core.security.TCSecurityManager;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 
 /**
  * Created by alsu on 27/01/16.
  */
 public class BufferManagerFactoryProviderImpl implements BufferManagerFactoryProvider {
-  
+
+  private static final boolean    DIRECT_BUFFERS_ENABLED = TCPropertiesImpl.getProperties()
+                                                             .getBoolean(TCPropertiesConsts.NET_CORE_DIRECT_BUFFERS_ENABLED);
+
   private final TCSecurityManager securityManager;
 
   public BufferManagerFactoryProviderImpl(final TCSecurityManager securityManager) {
@@ -34,6 +39,8 @@ public class BufferManagerFactoryProviderImpl implements BufferManagerFactoryPro
   public BufferManagerFactory getBufferManagerFactory() {
     if (securityManager != null) {
       return securityManager.getBufferManagerFactory();
+    } else if (DIRECT_BUFFERS_ENABLED) {
+      return new PooledDirectBufferManagerFactory();
     } else {
       return new ClearTextBufferManagerFactory();
     }
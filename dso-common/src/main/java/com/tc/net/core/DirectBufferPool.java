@@ -0,0 +1,61 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of equally sized direct buffers shared by connections. It never runs dry: when it is empty a new buffer is
+ * allocated, and buffers released beyond the max idle count are left to the garbage collector.
+ */
+class DirectBufferPool {
+  private final int                               bufferSize;
+  private final int                               maxIdle;
+  private final ConcurrentLinkedQueue<ByteBuffer> idle      = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger                     idleCount = new AtomicInteger();
+
+  DirectBufferPool(int bufferSize, int maxIdle) {
+    this.bufferSize = bufferSize;
+    this.maxIdle = maxIdle;
+  }
+
+  ByteBuffer acquire() {
+    ByteBuffer buffer = idle.poll();
+    if (buffer == null) { return ByteBuffer.allocateDirect(bufferSize); }
+    idleCount.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  void release(ByteBuffer buffer) {
+    if (idleCount.incrementAndGet() <= maxIdle) {
+      idle.offer(buffer);
+    } else {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  int getIdleCount() {
+    return idleCount.get();
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+}
@@ -0,0 +1,34 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link BufferManager} that can also write message buffers to the socket as they are, with a single gathering write
+ * instead of copying them into its send buffer first.
+ */
+public interface GatheringBufferManager extends BufferManager {
+
+  /**
+   * Writes anything still held in the send buffer first, then as much of the given buffers as the socket takes.
+   *
+   * @return the number of bytes of the given buffers written
+   */
+  long sendFrom(ByteBuffer[] srcs, int offset, int length) throws IOException;
+}
@@ -0,0 +1,79 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+/**
+ * Adaptive upper bound for the size of a wire protocol message group on one connection. While the socket cannot keep
+ * up, groups are sized to what it drains in the target latency, estimated from the bytes written between write
+ * passes. Once the socket keeps up, or a group takes longer than twice the target to go out, the bound moves
+ * back up or down. Only used by the connection's writer, so it is not thread safe.
+ */
+class MessageGroupSizer {
+  // weight of a new drain rate sample
+  private static final double ALPHA = 0.2;
+
+  private final int           minBytes;
+  private final int           maxBytes;
+  private final long          targetLatencyNanos;
+  private int                 maxGroupBytes;
+  // bytes per nanosecond, 0 until the socket was seen backlogged
+  private double              drainRate;
+  private long                lastPassNanos;
+  private boolean             lastPassBacklogged;
+
+  MessageGroupSizer(int minBytes, int maxBytes, long targetLatencyNanos) {
+    this.minBytes = Math.min(minBytes, maxBytes);
+    this.maxBytes = maxBytes;
+    this.targetLatencyNanos = targetLatencyNanos;
+    this.maxGroupBytes = maxBytes;
+  }
+
+  int getMaxGroupBytes() {
+    return maxGroupBytes;
+  }
+
+  double getDrainRate() {
+    return drainRate;
+  }
+
+  /**
+   * @param bytes written to the socket in this pass
+   * @param backlogged whether data was left to write after the pass
+   */
+  void writePass(long bytes, boolean backlogged, long nowNanos) {
+    if (lastPassBacklogged && bytes > 0 && nowNanos > lastPassNanos) {
+      // the socket was busy for the whole interval, so this is what it drains
+      double sample = (double) bytes / (nowNanos - lastPassNanos);
+      drainRate = drainRate == 0 ? sample : drainRate + ALPHA * (sample - drainRate);
+      maxGroupBytes = clamp((long) (drainRate * targetLatencyNanos));
+    } else if (!backlogged) {
+      maxGroupBytes = clamp(2L * maxGroupBytes);
+    }
+    lastPassNanos = nowNanos;
+    lastPassBacklogged = backlogged;
+  }
+
+  void groupSent(long latencyNanos) {
+    if (latencyNanos > 2 * targetLatencyNanos) {
+      maxGroupBytes = clamp(maxGroupBytes / 2);
+    }
+  }
+
+  private int clamp(long bytes) {
+    return (int) Math.max(minBytes, Math.min(maxBytes, bytes));
+  }
+}
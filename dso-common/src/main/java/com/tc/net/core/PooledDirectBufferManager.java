@@ -0,0 +1,179 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A clear text {@link BufferManager} whose send and receive buffers are direct buffers borrowed from a
+ * {@link DirectBufferPool}. A buffer is only held while it has data in it and goes back to the pool as soon as it is
+ * drained, so idle connections hold no buffers at all. A connection closed with data still buffered just drops its
+ * buffers. Reads and writes are each called under their own connection lock, so each buffer is only ever touched by
+ * one thread at a time.
+ */
+class PooledDirectBufferManager implements GatheringBufferManager {
+  private final SocketChannel    channel;
+  private final DirectBufferPool pool;
+  private ByteBuffer             recvBuffer;
+  // volatile as remainingToSend() is called without the writer lock
+  private volatile ByteBuffer    sendBuffer;
+
+  PooledDirectBufferManager(SocketChannel channel, DirectBufferPool pool) {
+    this.channel = channel;
+    this.pool = pool;
+  }
+
+  @Override
+  public boolean remainingToSend() {
+    ByteBuffer buffer = sendBuffer;
+    return buffer != null && buffer.position() != 0;
+  }
+
+  @Override
+  public int sendFromBuffer() throws IOException {
+    ByteBuffer buffer = sendBuffer;
+    if (buffer == null) { return 0; }
+    buffer.flip();
+    int written;
+    try {
+      written = this.channel.write(buffer);
+    } finally {
+      buffer.compact();
+      releaseSendBufferIfEmpty();
+    }
+    if (written == -1) { throw new EOFException(); }
+    return written;
+  }
+
+  @Override
+  public long sendFrom(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    if (remainingToSend()) {
+      sendFromBuffer();
+      if (remainingToSend()) { return 0; }
+    }
+    long written = this.channel.write(srcs, offset, length);
+    if (written == -1) { throw new EOFException(); }
+    return written;
+  }
+
+  @Override
+  public int recvToBuffer() throws IOException {
+    if (recvBuffer == null) {
+      recvBuffer = pool.acquire();
+    }
+    int read;
+    try {
+      read = this.channel.read(recvBuffer);
+    } finally {
+      releaseRecvBufferIfEmpty();
+    }
+    if (read == -1) { throw new EOFException(); }
+    return read;
+  }
+
+  @Override
+  public void close() {
+    // drained buffers are already back in the pool, buffers still holding data may be in use by a reader or writer
+  }
+
+  @Override
+  public int forwardFromReadBuffer(ByteBuffer dest) {
+    if (recvBuffer == null) { return 0; }
+    recvBuffer.flip();
+    int forwarded = forwardBuffer(recvBuffer, dest);
+    recvBuffer.compact();
+    releaseRecvBufferIfEmpty();
+    return forwarded;
+  }
+
+  @Override
+  public int forwardFromReadBuffer(GatheringByteChannel gbc) throws IOException {
+    if (recvBuffer == null) { return 0; }
+    recvBuffer.flip();
+    int forwarded;
+    try {
+      forwarded = gbc.write(recvBuffer);
+    } finally {
+      recvBuffer.compact();
+      releaseRecvBufferIfEmpty();
+    }
+    if (forwarded == -1) { throw new EOFException(); }
+    return forwarded;
+  }
+
+  @Override
+  public int forwardToWriteBuffer(ByteBuffer src) {
+    if (!src.hasRemaining()) { return 0; }
+    ByteBuffer buffer = acquireSendBuffer();
+    int forwarded = forwardBuffer(src, buffer);
+    releaseSendBufferIfEmpty();
+    return forwarded;
+  }
+
+  @Override
+  public int forwardToWriteBuffer(ScatteringByteChannel sbc) throws IOException {
+    ByteBuffer buffer = acquireSendBuffer();
+    int read;
+    try {
+      read = sbc.read(buffer);
+    } finally {
+      releaseSendBufferIfEmpty();
+    }
+    if (read == -1) { throw new EOFException(); }
+    return read;
+  }
+
+  private ByteBuffer acquireSendBuffer() {
+    ByteBuffer buffer = sendBuffer;
+    if (buffer == null) {
+      buffer = pool.acquire();
+      sendBuffer = buffer;
+    }
+    return buffer;
+  }
+
+  private void releaseSendBufferIfEmpty() {
+    ByteBuffer buffer = sendBuffer;
+    if (buffer != null && buffer.position() == 0) {
+      sendBuffer = null;
+      pool.release(buffer);
+    }
+  }
+
+  private void releaseRecvBufferIfEmpty() {
+    if (recvBuffer != null && recvBuffer.position() == 0) {
+      pool.release(recvBuffer);
+      recvBuffer = null;
+    }
+  }
+
+  private static int forwardBuffer(final ByteBuffer source, final ByteBuffer dest) {
+    int size = Math.min(dest.remaining(), source.remaining());
+    if (size > 0) {
+      ByteBuffer tmpBuf = source.duplicate();
+      tmpBuf.limit(tmpBuf.position() + size);
+      dest.put(tmpBuf);
+      source.position(source.position() + size);
+    }
+    return size;
+  }
+}
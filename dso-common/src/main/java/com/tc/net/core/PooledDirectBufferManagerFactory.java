@@ -0,0 +1,48 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
+
+import java.nio.channels.SocketChannel;
+
+/**
+ * Creates {@link PooledDirectBufferManager}s, all sharing one pool of direct buffers unless given their own.
+ */
+public class PooledDirectBufferManagerFactory implements BufferManagerFactory {
+  private static final int              BUFFER_SIZE = TCPropertiesImpl.getProperties()
+                                                        .getInt(TCPropertiesConsts.NET_CORE_DIRECT_BUFFERS_SIZE_KB) * 1024;
+  private static final int              MAX_IDLE    = TCPropertiesImpl.getProperties()
+                                                        .getInt(TCPropertiesConsts.NET_CORE_DIRECT_BUFFERS_POOL_MAXCOUNT);
+  private static final DirectBufferPool SHARED_POOL = new DirectBufferPool(BUFFER_SIZE, MAX_IDLE);
+
+  private final DirectBufferPool        pool;
+
+  public PooledDirectBufferManagerFactory() {
+    this(SHARED_POOL);
+  }
+
+  PooledDirectBufferManagerFactory(DirectBufferPool pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public BufferManager createBufferManager(SocketChannel socketChannel, boolean client) {
+    return new PooledDirectBufferManager(socketChannel, pool);
+  }
+}
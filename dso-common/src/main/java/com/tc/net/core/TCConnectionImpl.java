@@ -34,6 +34,7 @@ import com.tc.net.protocol.transport.WireProtocolMessage;
 import com.tc.net.protocol.transport.WireProtocolMessageImpl;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.stats.LatencyHistogram;
 import com.tc.util.Assert;
 import com.tc.util.TCTimeoutException;
 import com.tc.util.concurrent.SetOnceFlag;
@@ -52,13 +53,16 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLException;
@@ -83,7 +87,10 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
 
   private final BufferManagerFactory         bufferManagerFactory;
   private final AtomicBoolean                transportEstablished        = new AtomicBoolean(false);
-  private final LinkedList<TCNetworkMessage> writeMessages               = new LinkedList<TCNetworkMessage>();
+  // many application threads add, only the writer polls
+  private final Queue<TCNetworkMessage>      writeMessages               = new ConcurrentLinkedQueue<TCNetworkMessage>();
+  // counts a message before it is queued, the writer keeps write interest while it is not zero
+  private final AtomicInteger                queuedMessages              = new AtomicInteger();
   private final TCConnectionManagerImpl      parent;
   private final TCConnectionEventCaller      eventCaller                 = new TCConnectionEventCaller(logger);
   private final AtomicLong                   lastDataWriteTime           = new AtomicLong(System.currentTimeMillis());
@@ -115,15 +122,38 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
       .getProperties()
       .getBoolean(TCPropertiesConsts.TC_MESSAGE_PACKUP_ENABLED,
           true);
+  private static final boolean               MSG_GROUPING_ADAPTIVE       = TCPropertiesImpl
+      .getProperties()
+      .getBoolean(TCPropertiesConsts.TC_MESSAGE_GROUPING_ADAPTIVE_ENABLED, false);
+  private static final int                   MSG_GROUPING_MIN_SIZE_BYTES = TCPropertiesImpl
+      .getProperties()
+      .getInt(TCPropertiesConsts.TC_MESSAGE_GROUPING_ADAPTIVE_MINSIZE_KB, 16) * 1024;
+  private static final long                  MSG_GROUPING_TARGET_NANOS   = TimeUnit.MILLISECONDS
+      .toNanos(TCPropertiesImpl.getProperties()
+          .getLong(TCPropertiesConsts.TC_MESSAGE_GROUPING_ADAPTIVE_TARGET_LATENCY_MILLIS, 2));
+  // bounds for a single gathering write, so the JDK's temporary direct buffer stays small for heap message buffers
+  private static final int                   MAX_GATHER_BUFFERS          = 128;
+  private static final int                   MAX_GATHER_BYTES            = 256 * 1024;
   private final Object                       readerLock                  = new Object();
   private final Object                       writerLock                  = new Object();
+  // guarded by writerLock, only used with a GatheringBufferManager
+  private ByteBuffer[]                       gatherBuffers;
+  // guarded by writerLock, null unless adaptive grouping is enabled
+  private final MessageGroupSizer            groupSizer                  = MSG_GROUPING_ADAPTIVE ? new MessageGroupSizer(
+                                                                             MSG_GROUPING_MIN_SIZE_BYTES,
+                                                                             MSG_GROUPING_MAX_SIZE_BYTES,
+                                                                             MSG_GROUPING_TARGET_NANOS) : null;
+  private final LatencyHistogram             messagesPerGroup            = new LatencyHistogram();
+  private final LatencyHistogram             bytesPerWrite               = new LatencyHistogram();
+  private final TCConnectionStats            stats                       = new ConnectionStats();
 
   static {
     logger.info("Comms Message Batching " + (MSG_GROUPING_ENABLED ? "enabled" : "disabled"));
   }
 
-  // having this variable at instance level helps reducing memory pressure at VM;
+  // having these variables at instance level helps reducing memory pressure at VM;
   private final ArrayList<TCNetworkMessage>  messagesToBatch             = new ArrayList<TCNetworkMessage>();
+  private final ArrayList<TCNetworkMessage>  messagesToWrite             = new ArrayList<TCNetworkMessage>();
 
   // for creating unconnected client connections
   TCConnectionImpl(final TCConnectionEventListener listener, final TCProtocolAdaptor adaptor,
@@ -192,9 +222,7 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
         callback.run();
       }
     } finally {
-      synchronized (this.writeMessages) {
-        this.writeMessages.clear();
-      }
+      this.writeMessages.clear();
     }
     try {
       if (pipeSocket != null) {
@@ -352,6 +380,8 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
   }
 
   private int doWriteInternal() throws IOException {
+    if (pipeSocket == null && bufferManager instanceof GatheringBufferManager) { return doGatheringWriteInternal(); }
+
     int written;
     try {
       written = doWriteToBuffer();
@@ -379,11 +409,89 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
         break;
       }
       channelWritten += sent;
+      this.bytesPerWrite.record(sent);
     }
     this.totalWrite.addAndGet(channelWritten);
+    writePassDone(channelWritten);
     return channelWritten;
   }
 
+  /**
+   * Writes the pending messages' buffers to the socket as they are, a bounded batch per gathering write, instead of
+   * copying them into the buffer manager's send buffer first.
+   */
+  private int doGatheringWriteInternal() {
+    final boolean debug = logger.isDebugEnabled();
+    final GatheringBufferManager gatheringBufferManager = (GatheringBufferManager) bufferManager;
+    if (this.gatherBuffers == null) {
+      this.gatherBuffers = new ByteBuffer[MAX_GATHER_BUFFERS];
+    }
+
+    long totalBytesWritten = 0;
+    try {
+      while (true) {
+        if (this.writeContexts.isEmpty()) {
+          buildWriteContextsFromMessages();
+          if (this.writeContexts.isEmpty()) {
+            break;
+          }
+        }
+        long bytesToWrite = 0;
+        int count = 0;
+        gather: for (WriteContext context : this.writeContexts) {
+          context.started();
+          for (int i = context.index; i < context.entireMessageData.length; i++) {
+            ByteBuffer buf = extractNioBuffer(context.entireMessageData[i]);
+            if (buf.hasRemaining()) {
+              this.gatherBuffers[count++] = buf;
+              bytesToWrite += buf.remaining();
+              if (count == MAX_GATHER_BUFFERS || bytesToWrite >= MAX_GATHER_BYTES) {
+                break gather;
+              }
+            }
+          }
+        }
+
+        long written;
+        try {
+          written = gatheringBufferManager.sendFrom(this.gatherBuffers, 0, count);
+        } finally {
+          Arrays.fill(this.gatherBuffers, 0, count, null);
+        }
+        totalBytesWritten += written;
+        this.bytesPerWrite.record(written);
+        if (debug) {
+          logger.debug("Wrote " + written + " bytes on connection " + this.channel.toString());
+        }
+
+        while (!this.writeContexts.isEmpty()) {
+          WriteContext context = this.writeContexts.get(0);
+          while (context.index < context.entireMessageData.length
+                 && !context.entireMessageData[context.index].hasRemaining()) {
+            context.incrementIndexAndCleanOld();
+          }
+          if (!context.done()) {
+            break;
+          }
+          writeComplete(context);
+          this.writeContexts.remove(0);
+        }
+
+        if (written < bytesToWrite) {
+          // the socket is full, carry on at the next write interest
+          break;
+        }
+      }
+    } catch (IOException ioe) {
+      closeWriteOnException(ioe);
+    }
+
+    this.totalWrite.addAndGet(totalBytesWritten);
+    writePassDone(totalBytesWritten);
+    removeWriteInterestIfIdle();
+    return (int) totalBytesWritten;
+  }
+
   private int doWriteToBuffer() throws IOException {
     if (pipeSocket != null) {
       synchronized (pipeSocketWriteInterestLock) {
@@ -402,29 +510,31 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
   }
 
   private void buildWriteContextsFromMessages() {
-    TCNetworkMessage messagesToWrite[];
-    synchronized (this.writeMessages) {
-      if (this.closed.isSet()) { return; }
-      messagesToWrite = this.writeMessages.toArray(new TCNetworkMessage[this.writeMessages.size()]);
-      this.writeMessages.clear();
+    if (this.closed.isSet()) { return; }
+    TCNetworkMessage queued;
+    while ((queued = this.writeMessages.poll()) != null) {
+      this.messagesToWrite.add(queued);
     }
+    this.queuedMessages.addAndGet(-this.messagesToWrite.size());
 
     int batchSize = 0;
     int batchMsgCount = 0;
     TCNetworkMessage msg = null;
-    for (final TCNetworkMessage element : messagesToWrite) {
+    for (final TCNetworkMessage element : this.messagesToWrite) {
       msg = element;
 
       // we don't want to group already constructed Transport Handshake WireProtocolMessages
       if (msg instanceof WireProtocolMessage) {
         final TCNetworkMessage ms = finalizeWireProtocolMessage((WireProtocolMessage) msg, 1);
         this.writeContexts.add(new WriteContext(ms));
+        this.messagesPerGroup.record(1);
         continue;
       }
 
       // GenericNetwork messages are used for testing
       if (WireProtocolHeader.PROTOCOL_UNKNOWN == WireProtocolHeader.getProtocolForMessageClass(msg)) {
         this.writeContexts.add(new WriteContext(msg));
+        this.messagesPerGroup.record(1);
         continue;
       }
 
@@ -432,6 +542,7 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
         if (!canBatch(msg, batchSize, batchMsgCount)) {
           if (batchMsgCount > 0) {
             this.writeContexts.add(new WriteContext(buildWireProtocolMessageGroup(this.messagesToBatch)));
+            this.messagesPerGroup.record(batchMsgCount);
             batchSize = 0;
             batchMsgCount = 0;
             this.messagesToBatch.clear();
@@ -444,6 +555,7 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
         this.messagesToBatch.add(msg);
       } else {
         this.writeContexts.add(new WriteContext(buildWireProtocolMessage(msg)));
+        this.messagesPerGroup.record(1);
       }
       msg = null;
     }
@@ -451,14 +563,17 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     if (MSG_GROUPING_ENABLED && batchMsgCount > 0) {
       final TCNetworkMessage ms = buildWireProtocolMessageGroup(this.messagesToBatch);
       this.writeContexts.add(new WriteContext(ms));
+      this.messagesPerGroup.record(batchMsgCount);
     }
 
-    messagesToWrite = null;
+    this.messagesToWrite.clear();
     this.messagesToBatch.clear();
   }
 
   private boolean canBatch(final TCNetworkMessage newMessage, final int currentBatchSize, final int currentBatchMsgCount) {
-    if ((currentBatchSize + getRealMessgeSize(newMessage.getTotalLength())) <= MSG_GROUPING_MAX_SIZE_BYTES
+    final int maxGroupBytes = this.groupSizer != null ? this.groupSizer.getMaxGroupBytes()
+        : MSG_GROUPING_MAX_SIZE_BYTES;
+    if ((currentBatchSize + getRealMessgeSize(newMessage.getTotalLength())) <= maxGroupBytes
         && (currentBatchMsgCount + 1 <= WireProtocolHeader.MAX_MESSAGE_COUNT)) { return true; }
     return false;
   }
@@ -516,6 +631,7 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     WriteContext context;
     while (this.writeContexts.size() > 0) {
       context = this.writeContexts.get(0);
+      context.started();
       final TCByteBuffer[] buffers = context.entireMessageData;
 
       long bytesWritten = 0;
@@ -545,7 +661,7 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
         if (debug) {
           logger.debug("Complete message sent on connection " + this.channel.toString());
         }
-        context.writeComplete();
+        writeComplete(context);
         this.writeContexts.remove(context);
       } else {
         if (debug) {
@@ -555,14 +671,38 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
       }
     }
 
-    synchronized (this.writeMessages) {
-      if (this.closed.isSet()) { return totalBytesWritten; }
+    removeWriteInterestIfIdle();
+    return totalBytesWritten;
+  }
+
+  private void writeComplete(final WriteContext context) {
+    if (this.groupSizer != null) {
+      this.groupSizer.groupSent(System.nanoTime() - context.startedNanos);
+    }
+    context.writeComplete();
+  }
+
+  private void writePassDone(final long bytesWritten) {
+    if (this.groupSizer != null) {
+      final boolean backlogged = !this.writeContexts.isEmpty() || this.queuedMessages.get() != 0;
+      this.groupSizer.writePass(bytesWritten, backlogged, System.nanoTime());
+    }
+  }
+
+  private void removeWriteInterestIfIdle() {
+    if (this.closed.isSet()) { return; }
 
-      if (this.writeMessages.isEmpty() && this.writeContexts.isEmpty()) {
-        this.commWorker.removeWriteInterest(this, this.channel);
+    if (this.queuedMessages.get() == 0 && this.writeContexts.isEmpty()) {
+      this.commWorker.removeWriteInterest(this, this.channel);
+      // a message counted after the check above did not see a zero count and relies on the interest we just removed
+      if (this.queuedMessages.get() != 0) {
+        this.commWorker.requestWriteInterest(this, this.channel);
       }
     }
-    return totalBytesWritten;
+  }
+
+  TCConnectionStats getStats() {
+    return this.stats;
   }
 
   static private ByteBuffer extractNioBuffer(final TCByteBuffer buffer) {
@@ -581,15 +721,11 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     }
 
     // TODO: outgoing queue should not be unbounded size!
-    final boolean newData;
-    final int msgCount;
-
-    synchronized (this.writeMessages) {
-      if (this.closed.isSet()) { return; }
-      this.writeMessages.addLast(message);
-      msgCount = this.writeMessages.size();
-      newData = (msgCount == 1);
-    }
+    if (this.closed.isSet()) { return; }
+    // counted before it is queued so the writer cannot drop write interest while it is on its way
+    final int msgCount = this.queuedMessages.incrementAndGet();
+    this.writeMessages.offer(message);
+    final boolean newData = (msgCount == 1);
 
     if (debug) {
       logger.debug("Connection (" + this.channel.toString() + ") has " + msgCount + " messages queued");
@@ -709,6 +845,8 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     buf.append(" idle=").append(getIdleTime()).append("ms");
 
     buf.append(" [").append(this.totalRead.get()).append(" read, ").append(this.totalWrite.get()).append(" write]");
+    buf.append(" messages per group [").append(this.messagesPerGroup).append("]");
+    buf.append(" bytes per write [").append(this.bytesPerWrite).append("]");
 
     return buf.toString();
   }
@@ -960,10 +1098,39 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     }
   }
 
+  private final class ConnectionStats implements TCConnectionStats {
+
+    @Override
+    public LatencyHistogram getMessagesPerGroup() {
+      return messagesPerGroup;
+    }
+
+    @Override
+    public LatencyHistogram getBytesPerWrite() {
+      return bytesPerWrite;
+    }
+
+    @Override
+    public String getDetails() {
+      return stringFormOf(localSocketAddress) + " -> " + stringFormOf(remoteSocketAddress) + " : messages per group ["
+             + messagesPerGroup + "] bytes per write [" + bytesPerWrite + "]";
+    }
+
+    private String stringFormOf(SetOnceRef<TCSocketAddress> address) {
+      return address.isSet() ? address.get().getStringForm() : "[unknown]";
+    }
+
+    @Override
+    public void logDetails(TCLogger statsLogger) {
+      statsLogger.info(getDetails());
+    }
+  }
+
   protected static class WriteContext {
     private final TCNetworkMessage message;
     private int                    index = 0;
     private final TCByteBuffer[]   entireMessageData;
+    private long                   startedNanos;
 
     WriteContext(final TCNetworkMessage message) {
       // either WireProtocolMessage or WireProtocolMessageGroup
@@ -994,6 +1161,12 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
       this.index++;
     }
 
+    void started() {
+      if (this.startedNanos == 0) {
+        this.startedNanos = System.nanoTime();
+      }
+    }
+
     void writeComplete() {
       this.message.wasSent();
     }
@@ -86,6 +86,11 @@ public interface TCConnectionManager {
    */
   public TCConnection[] getAllActiveConnections();
 
+  /**
+   * Get the message grouping and socket write stats of all non-closed connections created by this manager
+   */
+  public TCConnectionStats[] getConnectionStats();
+
   /**
    * Get all active listener instances created by this manager
    */
@@ -31,6 +31,9 @@ import com.tc.net.protocol.TCProtocolException;
 import com.tc.net.protocol.transport.ConnectionHealthCheckerUtil;
 import com.tc.net.protocol.transport.HealthCheckerConfig;
 import com.tc.net.protocol.transport.HealthCheckerConfigImpl;
+import com.tc.properties.TCProperties;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.concurrent.SetOnceFlag;
 
 import java.io.IOException;
@@ -40,7 +43,10 @@ import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 
 /**
  * The {@link TCConnectionManager} implementation.
@@ -63,6 +69,8 @@ public class TCConnectionManagerImpl implements TCConnectionManager {
   private final SocketParams            socketParams;
   private final TCSecurityManager       securityManager;
   private final BufferManagerFactoryProvider bufferManagerFactoryProvider;
+  // null unless tcm.monitor.enabled
+  private final Timer                   statsTimer;
 
   public TCConnectionManagerImpl() {
     this("ConnectionMgr", 0, new HealthCheckerConfigImpl("DefaultConfigForActiveConnections"), null);
@@ -82,6 +90,23 @@ public class TCConnectionManagerImpl implements TCConnectionManager {
     this.healthCheckerConfig = healthCheckerConfig;
     this.comm = new TCCommImpl(name, workerCommCount, socketParams);
     this.comm.start();
+    this.statsTimer = startStatsLogging(name);
+  }
+
+  private Timer startStatsLogging(String name) {
+    TCProperties tcProps = TCPropertiesImpl.getProperties();
+    if (!tcProps.getBoolean(TCPropertiesConsts.TCM_MONITOR_ENABLED, false)) { return null; }
+    Timer timer = new Timer(name + " connection stats logger", true);
+    long interval = tcProps.getInt(TCPropertiesConsts.TCM_MONITOR_DELAY) * 1000L;
+    timer.scheduleAtFixedRate(new TimerTask() {
+      @Override
+      public void run() {
+        for (TCConnectionStats stats : getConnectionStats()) {
+          stats.logDetails(logger);
+        }
+      }
+    }, interval, interval);
+    return timer;
   }
 
   protected TCConnection createConnectionImpl(TCProtocolAdaptor adaptor, TCConnectionEventListener listener) {
@@ -124,6 +149,19 @@ public class TCConnectionManagerImpl implements TCConnectionManager {
     }
   }
 
+  @Override
+  public TCConnectionStats[] getConnectionStats() {
+    List<TCConnectionStats> stats = new ArrayList<TCConnectionStats>();
+    synchronized (connections) {
+      for (Object conn : connections) {
+        if (conn instanceof TCConnectionImpl) {
+          stats.add(((TCConnectionImpl) conn).getStats());
+        }
+      }
+    }
+    return stats.toArray(new TCConnectionStats[stats.size()]);
+  }
+
   /**
    * Connection is active if and only if it is Transport Established and the idle time is less than the HC max idle
    * time.
@@ -240,6 +278,9 @@ public class TCConnectionManagerImpl implements TCConnectionManager {
   @Override
   public final synchronized void shutdown() {
     if (shutdown.attemptSet()) {
+      if (statsTimer != null) {
+        statsTimer.cancel();
+      }
       closeAllListeners();
       asynchCloseAllConnections();
       comm.stop();
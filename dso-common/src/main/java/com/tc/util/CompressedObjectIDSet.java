@@ -0,0 +1,963 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.util;
+
+import com.tc.object.ObjectID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits every id into its high 48 bits, kept in a sorted array of chunk keys, and its low 16 bits, kept in a
+ * container for that chunk. A container is a sorted array while it holds at most 4096 values, a 65536 bit bitmap when
+ * it holds more, or a list of runs of consecutive values when that is smaller than either. Objects are mostly
+ * allocated in sequence, so large sets mostly end up as a few runs per chunk.
+ * <p>
+ * Union, intersection and difference with another CompressedObjectIDSet go a chunk at a time instead of an id at a
+ * time. Containers built in bulk, by copying, deserializing or a bulk operation, get the smallest representation;
+ * single adds and removes only switch between array and bitmap.
+ */
+public class CompressedObjectIDSet extends ObjectIDSet {
+
+  private static final long[]      NO_KEYS       = new long[0];
+  private static final Container[] NO_CONTAINERS = new Container[0];
+
+  private long[]                   keys          = NO_KEYS;
+  private Container[]              containers    = NO_CONTAINERS;
+  private int                      chunks;
+  private int                      size;
+  private volatile int             modCount;
+
+  public CompressedObjectIDSet() {
+    super();
+  }
+
+  public CompressedObjectIDSet(final Collection c) {
+    if (c instanceof CompressedObjectIDSet) {
+      CompressedObjectIDSet other = (CompressedObjectIDSet) c;
+      keys = Arrays.copyOf(other.keys, other.chunks);
+      containers = new Container[other.chunks];
+      for (int i = 0; i < other.chunks; i++) {
+        containers[i] = Container.fromWords(other.containers[i].toWords());
+      }
+      chunks = other.chunks;
+      size = other.size;
+    } else if (c instanceof ObjectIDSet) {
+      for (Range range : ((ObjectIDSet) c).ranges()) {
+        insertRange(range);
+      }
+    } else {
+      addAll(c);
+    }
+  }
+
+  /**
+   * ignore find bug warning for non thread safe increment of a volatile variable The volatile varibale is being used
+   * only for validation of no concurrent modification while iterating the set
+   */
+  @FindbugsSuppressWarnings("VO_VOLATILE_INCREMENT")
+  @Override
+  public boolean add(final ObjectID id) {
+    final long lid = id.toLong();
+    final long key = key(lid);
+    int index = indexOf(key);
+    if (index < 0) {
+      index = -index - 1;
+      insertChunk(index, key, new ArrayContainer());
+    }
+    final Container current = containers[index];
+    final int before = current.cardinality();
+    containers[index] = current.add(low(lid));
+    if (containers[index].cardinality() == before) { return false; }
+    size++;
+    modCount++;
+    return true;
+  }
+
+  /**
+   * ignore find bug warning for non thread safe increment of a volatile variable The volatile varibale is being used
+   * only for validation of no concurrent modification while iterating the set
+   */
+  @FindbugsSuppressWarnings("VO_VOLATILE_INCREMENT")
+  @Override
+  public boolean remove(final Object o) {
+    if (!(o instanceof ObjectID)) { return false; }
+    final long lid = ((ObjectID) o).toLong();
+    final int index = indexOf(key(lid));
+    if (index < 0) { return false; }
+    final Container current = containers[index];
+    final int before = current.cardinality();
+    final Container removed = current.remove(low(lid));
+    if (removed.cardinality() == before) { return false; }
+    if (removed.cardinality() == 0) {
+      removeChunk(index);
+    } else {
+      containers[index] = removed;
+    }
+    size--;
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public boolean contains(final Object o) {
+    if (!(o instanceof ObjectID)) { return false; }
+    final long lid = ((ObjectID) o).toLong();
+    final int index = indexOf(key(lid));
+    return index >= 0 && containers[index].contains(low(lid));
+  }
+
+  /**
+   * Adds a chunk at a time if the other collection is an ObjectIDSet.
+   */
+  @Override
+  public boolean addAll(final Collection<? extends ObjectID> c) {
+    if (c == this) { return false; }
+    if (c instanceof CompressedObjectIDSet) { return or((CompressedObjectIDSet) c); }
+    if (c instanceof ObjectIDSet) {
+      final int oldSize = size;
+      for (Range range : ((ObjectIDSet) c).ranges()) {
+        insertRange(range);
+      }
+      return oldSize < size;
+    }
+    return super.addAll(c);
+  }
+
+  /**
+   * Intersects a chunk at a time if the other collection is a CompressedObjectIDSet.
+   */
+  @Override
+  public boolean retainAll(final Collection<?> c) {
+    if (c == this) { return false; }
+    if (!(c instanceof CompressedObjectIDSet)) { return super.retainAll(c); }
+    final CompressedObjectIDSet other = (CompressedObjectIDSet) c;
+    final int oldSize = size;
+    int kept = 0;
+    for (int i = 0, j = 0; i < chunks; i++) {
+      while (j < other.chunks && other.keys[j] < keys[i]) {
+        j++;
+      }
+      if (j == other.chunks || other.keys[j] != keys[i]) {
+        continue;
+      }
+      final Container intersection = containers[i].and(other.containers[j]);
+      if (intersection.cardinality() > 0) {
+        keys[kept] = keys[i];
+        containers[kept++] = intersection;
+      }
+    }
+    truncate(kept);
+    return changed(oldSize);
+  }
+
+  /**
+   * Subtracts a chunk at a time if the other collection is a CompressedObjectIDSet.
+   */
+  @Override
+  public boolean removeAll(final Collection<?> c) {
+    if (c == this) {
+      final boolean changed = size > 0;
+      clear();
+      return changed;
+    }
+    if (!(c instanceof CompressedObjectIDSet)) { return super.removeAll(c); }
+    final CompressedObjectIDSet other = (CompressedObjectIDSet) c;
+    final int oldSize = size;
+    int kept = 0;
+    for (int i = 0, j = 0; i < chunks; i++) {
+      while (j < other.chunks && other.keys[j] < keys[i]) {
+        j++;
+      }
+      Container difference = containers[i];
+      if (j < other.chunks && other.keys[j] == keys[i]) {
+        difference = difference.andNot(other.containers[j]);
+      }
+      if (difference.cardinality() > 0) {
+        keys[kept] = keys[i];
+        containers[kept++] = difference;
+      }
+    }
+    truncate(kept);
+    return changed(oldSize);
+  }
+
+  private boolean or(final CompressedObjectIDSet other) {
+    final int oldSize = size;
+    final long[] newKeys = new long[chunks + other.chunks];
+    final Container[] newContainers = new Container[chunks + other.chunks];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < chunks || j < other.chunks) {
+      if (j == other.chunks || (i < chunks && keys[i] < other.keys[j])) {
+        newKeys[n] = keys[i];
+        newContainers[n++] = containers[i++];
+      } else if (i == chunks || other.keys[j] < keys[i]) {
+        newKeys[n] = other.keys[j];
+        newContainers[n++] = other.containers[j++].copy();
+      } else {
+        newKeys[n] = keys[i];
+        newContainers[n++] = containers[i++].or(other.containers[j++]);
+      }
+    }
+    keys = newKeys;
+    containers = newContainers;
+    truncate(n);
+    return changed(oldSize);
+  }
+
+  @FindbugsSuppressWarnings("VO_VOLATILE_INCREMENT")
+  private boolean changed(final int oldSize) {
+    if (size == oldSize) { return false; }
+    modCount++;
+    return true;
+  }
+
+  // drops the chunks from count on and recounts the size
+  private void truncate(final int count) {
+    if (count < chunks) {
+      Arrays.fill(containers, count, chunks, null);
+    }
+    chunks = count;
+    size = 0;
+    for (int i = 0; i < chunks; i++) {
+      size += containers[i].cardinality();
+    }
+  }
+
+  @Override
+  public Iterator<ObjectID> iterator() {
+    return new CompressedObjectIDSetIterator();
+  }
+
+  @Override
+  public ObjectID first() {
+    if (this.size == 0) { throw new NoSuchElementException(); }
+    return new ObjectID(id(keys[0], containers[0].first()));
+  }
+
+  @Override
+  public ObjectID last() {
+    if (this.size == 0) { throw new NoSuchElementException(); }
+    return new ObjectID(id(keys[chunks - 1], containers[chunks - 1].last()));
+  }
+
+  @Override
+  public void clear() {
+    this.keys = NO_KEYS;
+    this.containers = NO_CONTAINERS;
+    this.chunks = 0;
+    this.size = 0;
+    this.modCount++;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  protected void insertRange(final Range range) {
+    final long start = range.getStart();
+    final long[] bitmap = range.getBitmap();
+    if ((start & (Long.SIZE - 1)) != 0) {
+      // not word aligned, so the words straddle our words
+      for (int i = 0; i < bitmap.length; i++) {
+        for (long bits = bitmap[i]; bits != 0; bits &= bits - 1) {
+          add(new ObjectID(start + i * (long) Long.SIZE + Long.numberOfTrailingZeros(bits)));
+        }
+      }
+      return;
+    }
+    long[] words = null;
+    long key = 0;
+    for (int i = 0; i < bitmap.length; i++) {
+      if (bitmap[i] == 0) {
+        continue;
+      }
+      final long base = start + i * (long) Long.SIZE;
+      if (words == null || key(base) != key) {
+        if (words != null) {
+          insertWords(key, words);
+        }
+        key = key(base);
+        words = new long[Container.WORDS];
+      }
+      words[low(base) >>> 6] |= bitmap[i];
+    }
+    if (words != null) {
+      insertWords(key, words);
+    }
+  }
+
+  @FindbugsSuppressWarnings("VO_VOLATILE_INCREMENT")
+  private void insertWords(final long key, final long[] words) {
+    final Container inserted = Container.fromWords(words);
+    final int index = indexOf(key);
+    if (index < 0) {
+      insertChunk(-index - 1, key, inserted);
+      size += inserted.cardinality();
+    } else {
+      final int before = containers[index].cardinality();
+      containers[index] = containers[index].or(inserted);
+      size += containers[index].cardinality() - before;
+    }
+    modCount++;
+  }
+
+  /**
+   * One range for every stretch of non empty words, so sparse chunks don't turn into 8KB bitmaps.
+   */
+  @Override
+  protected Collection<? extends Range> ranges() {
+    final List<Range> ranges = new ArrayList<Range>();
+    for (int i = 0; i < chunks; i++) {
+      final long[] words = containers[i].toWords();
+      int from = 0;
+      while (from < words.length) {
+        while (from < words.length && words[from] == 0) {
+          from++;
+        }
+        int to = from;
+        while (to < words.length && words[to] != 0) {
+          to++;
+        }
+        if (from < to) {
+          ranges.add(new WordRange(id(keys[i], from << 6), Arrays.copyOfRange(words, from, to)));
+        }
+        from = to;
+      }
+    }
+    return ranges;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("CompressedObjectIDSet{");
+    sb.append("size=").append(size);
+    sb.append(", chunks=").append(chunks);
+    sb.append(", modCount=").append(modCount);
+    sb.append('}');
+    return sb.toString();
+  }
+
+  private int indexOf(final long key) {
+    return Arrays.binarySearch(keys, 0, chunks, key);
+  }
+
+  private void insertChunk(final int index, final long key, final Container container) {
+    if (chunks == keys.length) {
+      final int capacity = Math.max(4, chunks * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+    }
+    System.arraycopy(keys, index, keys, index + 1, chunks - index);
+    System.arraycopy(containers, index, containers, index + 1, chunks - index);
+    keys[index] = key;
+    containers[index] = container;
+    chunks++;
+  }
+
+  private void removeChunk(final int index) {
+    System.arraycopy(keys, index + 1, keys, index, chunks - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+    containers[--chunks] = null;
+  }
+
+  // the arithmetic shift keeps the chunks of negative ids before the others
+  private static long key(final long lid) {
+    return lid >> 16;
+  }
+
+  private static int low(final long lid) {
+    return (int) lid & 0xFFFF;
+  }
+
+  private static long id(final long key, final int low) {
+    return (key << 16) | low;
+  }
+
+  private class CompressedObjectIDSetIterator implements Iterator<ObjectID> {
+
+    private int     chunk;
+    // low bits of the next id in the current chunk, -1 once there are no more
+    private int     next;
+    private long    lastReturned;
+    private boolean canRemove;
+    private int     expectedModCount;
+
+    CompressedObjectIDSetIterator() {
+      this.expectedModCount = CompressedObjectIDSet.this.modCount;
+      this.next = chunks > 0 ? containers[0].first() : -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public ObjectID next() {
+      checkModCount();
+      if (next < 0) { throw new NoSuchElementException(); }
+      lastReturned = id(keys[chunk], next);
+      canRemove = true;
+      next = next < Container.MAX_VALUE ? containers[chunk].nextValue(next + 1) : -1;
+      if (next < 0 && ++chunk < chunks) {
+        next = containers[chunk].first();
+      }
+      return new ObjectID(lastReturned);
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) { throw new IllegalStateException(); }
+      checkModCount();
+      final boolean more = next >= 0;
+      final long upcoming = more ? id(keys[chunk], next) : 0;
+      CompressedObjectIDSet.this.remove(new ObjectID(lastReturned));
+      // removing the last id of a chunk shifts the chunks after it
+      if (more) {
+        chunk = indexOf(key(upcoming));
+      }
+      canRemove = false;
+      expectedModCount = CompressedObjectIDSet.this.modCount;
+    }
+
+    private void checkModCount() {
+      if (this.expectedModCount != CompressedObjectIDSet.this.modCount) { throw new ConcurrentModificationException(); }
+    }
+  }
+
+  private static final class WordRange implements Range {
+    private final long   start;
+    private final long[] bitmap;
+
+    WordRange(final long start, final long[] bitmap) {
+      this.start = start;
+      this.bitmap = bitmap;
+    }
+
+    @Override
+    public long getStart() {
+      return start;
+    }
+
+    @Override
+    public long[] getBitmap() {
+      return bitmap;
+    }
+  }
+
+  /**
+   * The low 16 bits of the ids of one chunk. Mutators return the container that holds the result, which is this one
+   * unless the representation had to change.
+   */
+  abstract static class Container {
+    static final int MAX_VALUE = 0xFFFF;
+    static final int WORDS     = (MAX_VALUE + 1) / Long.SIZE;
+
+    abstract int cardinality();
+
+    abstract boolean contains(int value);
+
+    abstract Container add(int value);
+
+    abstract Container remove(int value);
+
+    abstract int first();
+
+    abstract int last();
+
+    /**
+     * @return the smallest value at least from, or -1 if there is none
+     */
+    abstract int nextValue(int from);
+
+    /**
+     * Sets the bits of the values of this container in a bitmap of {@link #WORDS} words.
+     */
+    abstract void fill(long[] words);
+
+    abstract Container copy();
+
+    long[] toWords() {
+      final long[] words = new long[WORDS];
+      fill(words);
+      return words;
+    }
+
+    Container or(final Container other) {
+      if (this instanceof ArrayContainer && other instanceof ArrayContainer
+          && cardinality() + other.cardinality() <= ArrayContainer.MAX_CARDINALITY) {
+        return ((ArrayContainer) this).merge((ArrayContainer) other);
+      }
+      final long[] words = toWords();
+      other.fill(words);
+      return fromWords(words);
+    }
+
+    Container and(final Container other) {
+      if (this instanceof ArrayContainer) { return ((ArrayContainer) this).filter(other, true); }
+      if (other instanceof ArrayContainer) { return ((ArrayContainer) other).filter(this, true); }
+      final long[] words = toWords();
+      final long[] otherWords = other.toWords();
+      for (int i = 0; i < WORDS; i++) {
+        words[i] &= otherWords[i];
+      }
+      return fromWords(words);
+    }
+
+    Container andNot(final Container other) {
+      if (this instanceof ArrayContainer) { return ((ArrayContainer) this).filter(other, false); }
+      final long[] words = toWords();
+      final long[] otherWords = other.toWords();
+      for (int i = 0; i < WORDS; i++) {
+        words[i] &= ~otherWords[i];
+      }
+      return fromWords(words);
+    }
+
+    /**
+     * @return the smallest of the three containers that can hold the bits set in the words
+     */
+    static Container fromWords(final long[] words) {
+      int cardinality = 0;
+      int runs = 0;
+      long carry = 0;
+      for (final long word : words) {
+        cardinality += Long.bitCount(word);
+        // a run starts at every set bit whose lower neighbour is clear
+        runs += Long.bitCount(word & ~((word << 1) | carry));
+        carry = word >>> 63;
+      }
+      if (RunContainer.bytes(runs) < Math.min(ArrayContainer.bytes(cardinality), BitmapContainer.BYTES)) {
+        return RunContainer.fromWords(words, runs, cardinality);
+      } else if (cardinality <= ArrayContainer.MAX_CARDINALITY) {
+        return ArrayContainer.fromWords(words, cardinality);
+      } else {
+        return new BitmapContainer(words, cardinality);
+      }
+    }
+
+    static int nextSetBit(final long[] words, final int from) {
+      if (from > MAX_VALUE) { return -1; }
+      int index = from >>> 6;
+      long word = words[index] & (-1L << from);
+      while (word == 0) {
+        if (++index == WORDS) { return -1; }
+        word = words[index];
+      }
+      return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    static int nextClearBit(final long[] words, final int from) {
+      if (from > MAX_VALUE) { return MAX_VALUE + 1; }
+      int index = from >>> 6;
+      long word = ~words[index] & (-1L << from);
+      while (word == 0) {
+        if (++index == WORDS) { return MAX_VALUE + 1; }
+        word = ~words[index];
+      }
+      return (index << 6) + Long.numberOfTrailingZeros(word);
+    }
+  }
+
+  static final class ArrayContainer extends Container {
+    static final int MAX_CARDINALITY = 4096;
+
+    private char[]   values;
+    private int      cardinality;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    private ArrayContainer(final char[] values, final int cardinality) {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    static int bytes(final int cardinality) {
+      return cardinality * 2;
+    }
+
+    static ArrayContainer fromWords(final long[] words, final int cardinality) {
+      final char[] values = new char[Math.max(4, cardinality)];
+      int n = 0;
+      for (int i = 0; i < WORDS; i++) {
+        for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+          values[n++] = (char) ((i << 6) + Long.numberOfTrailingZeros(bits));
+        }
+      }
+      return new ArrayContainer(values, n);
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final int value) {
+      return Arrays.binarySearch(values, 0, cardinality, (char) value) >= 0;
+    }
+
+    @Override
+    Container add(final int value) {
+      int index = Arrays.binarySearch(values, 0, cardinality, (char) value);
+      if (index >= 0) { return this; }
+      if (cardinality == MAX_CARDINALITY) { return new BitmapContainer(toWords(), cardinality).add(value); }
+      index = -index - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(MAX_CARDINALITY, cardinality * 2));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = (char) value;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(final int value) {
+      final int index = Arrays.binarySearch(values, 0, cardinality, (char) value);
+      if (index < 0) { return this; }
+      System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    int first() {
+      return values[0];
+    }
+
+    @Override
+    int last() {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    int nextValue(final int from) {
+      int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < cardinality ? values[index] : -1;
+    }
+
+    @Override
+    void fill(final long[] words) {
+      for (int i = 0; i < cardinality; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+    }
+
+    ArrayContainer merge(final ArrayContainer other) {
+      final char[] merged = new char[Math.max(4, cardinality + other.cardinality)];
+      int i = 0;
+      int j = 0;
+      int n = 0;
+      while (i < cardinality && j < other.cardinality) {
+        if (values[i] < other.values[j]) {
+          merged[n++] = values[i++];
+        } else if (values[i] > other.values[j]) {
+          merged[n++] = other.values[j++];
+        } else {
+          merged[n++] = values[i++];
+          j++;
+        }
+      }
+      while (i < cardinality) {
+        merged[n++] = values[i++];
+      }
+      while (j < other.cardinality) {
+        merged[n++] = other.values[j++];
+      }
+      return new ArrayContainer(merged, n);
+    }
+
+    /**
+     * @return the values that the other container does, or does not, contain
+     */
+    ArrayContainer filter(final Container other, final boolean contained) {
+      final char[] filtered = new char[Math.max(4, cardinality)];
+      int n = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (other.contains(values[i]) == contained) {
+          filtered[n++] = values[i];
+        }
+      }
+      return new ArrayContainer(filtered, n);
+    }
+  }
+
+  static final class BitmapContainer extends Container {
+    static final int     BYTES = WORDS * 8;
+
+    private final long[] words;
+    private int          cardinality;
+
+    BitmapContainer(final long[] words, final int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final int value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    Container add(final int value) {
+      final long bit = 1L << value;
+      if ((words[value >>> 6] & bit) != 0) { return this; }
+      words[value >>> 6] |= bit;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(final int value) {
+      final long bit = 1L << value;
+      if ((words[value >>> 6] & bit) == 0) { return this; }
+      words[value >>> 6] &= ~bit;
+      cardinality--;
+      if (cardinality <= ArrayContainer.MAX_CARDINALITY) { return ArrayContainer.fromWords(words, cardinality); }
+      return this;
+    }
+
+    @Override
+    int first() {
+      return nextSetBit(words, 0);
+    }
+
+    @Override
+    int last() {
+      for (int i = WORDS - 1; i >= 0; i--) {
+        if (words[i] != 0) { return (i << 6) + Long.SIZE - 1 - Long.numberOfLeadingZeros(words[i]); }
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    int nextValue(final int from) {
+      return nextSetBit(words, from);
+    }
+
+    @Override
+    void fill(final long[] target) {
+      for (int i = 0; i < WORDS; i++) {
+        target[i] |= words[i];
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(Arrays.copyOf(words, WORDS), cardinality);
+    }
+  }
+
+  /**
+   * Runs of consecutive values as pairs of the first value and the length less one, sorted and never adjacent.
+   */
+  static final class RunContainer extends Container {
+    private char[] runs;
+    private int    count;
+    private int    cardinality;
+
+    private RunContainer(final char[] runs, final int count, final int cardinality) {
+      this.runs = runs;
+      this.count = count;
+      this.cardinality = cardinality;
+    }
+
+    static int bytes(final int runs) {
+      return runs * 4;
+    }
+
+    static RunContainer fromWords(final long[] words, final int runCount, final int cardinality) {
+      final char[] runs = new char[runCount * 2];
+      int n = 0;
+      for (int start = nextSetBit(words, 0); start >= 0;) {
+        final int end = nextClearBit(words, start);
+        runs[n++] = (char) start;
+        runs[n++] = (char) (end - start - 1);
+        start = nextSetBit(words, end);
+      }
+      return new RunContainer(runs, runCount, cardinality);
+    }
+
+    private int start(final int run) {
+      return runs[run * 2];
+    }
+
+    private int end(final int run) {
+      return runs[run * 2] + runs[run * 2 + 1];
+    }
+
+    private void set(final int run, final int start, final int end) {
+      runs[run * 2] = (char) start;
+      runs[run * 2 + 1] = (char) (end - start);
+    }
+
+    // the last run starting at or before the value, -1 if there is none
+    private int runAtOrBefore(final int value) {
+      int low = 0;
+      int high = count - 1;
+      while (low <= high) {
+        final int mid = (low + high) >>> 1;
+        if (start(mid) <= value) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high;
+    }
+
+    private void insertRun(final int run, final int start, final int end) {
+      if (count * 2 == runs.length) {
+        runs = Arrays.copyOf(runs, Math.max(4, runs.length * 2));
+      }
+      System.arraycopy(runs, run * 2, runs, run * 2 + 2, (count - run) * 2);
+      count++;
+      set(run, start, end);
+    }
+
+    private void removeRun(final int run) {
+      System.arraycopy(runs, run * 2 + 2, runs, run * 2, (count - run - 1) * 2);
+      count--;
+    }
+
+    // runs that got fragmented by single adds and removes can be smaller as an array or a bitmap
+    private Container shrink() {
+      if (bytes(count) < Math.min(ArrayContainer.bytes(cardinality), BitmapContainer.BYTES)) { return this; }
+      return fromWords(toWords());
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    boolean contains(final int value) {
+      final int run = runAtOrBefore(value);
+      return run >= 0 && value <= end(run);
+    }
+
+    @Override
+    Container add(final int value) {
+      final int run = runAtOrBefore(value);
+      if (run >= 0 && value <= end(run)) { return this; }
+      final boolean joinsLeft = run >= 0 && end(run) + 1 == value;
+      final boolean joinsRight = run + 1 < count && start(run + 1) == value + 1;
+      if (joinsLeft && joinsRight) {
+        set(run, start(run), end(run + 1));
+        removeRun(run + 1);
+      } else if (joinsLeft) {
+        set(run, start(run), value);
+      } else if (joinsRight) {
+        set(run + 1, value, end(run + 1));
+      } else {
+        insertRun(run + 1, value, value);
+      }
+      cardinality++;
+      return shrink();
+    }
+
+    @Override
+    Container remove(final int value) {
+      final int run = runAtOrBefore(value);
+      if (run < 0 || value > end(run)) { return this; }
+      final int start = start(run);
+      final int end = end(run);
+      if (start == end) {
+        removeRun(run);
+      } else if (value == start) {
+        set(run, start + 1, end);
+      } else if (value == end) {
+        set(run, start, end - 1);
+      } else {
+        set(run, start, value - 1);
+        insertRun(run + 1, value + 1, end);
+      }
+      cardinality--;
+      return cardinality == 0 ? this : shrink();
+    }
+
+    @Override
+    int first() {
+      return start(0);
+    }
+
+    @Override
+    int last() {
+      return end(count - 1);
+    }
+
+    @Override
+    int nextValue(final int from) {
+      final int run = runAtOrBefore(from);
+      if (run >= 0 && from <= end(run)) { return from; }
+      return run + 1 < count ? start(run + 1) : -1;
+    }
+
+    @Override
+    void fill(final long[] words) {
+      for (int run = 0; run < count; run++) {
+        final int start = start(run);
+        final int end = end(run);
+        final int firstWord = start >>> 6;
+        final int lastWord = end >>> 6;
+        final long firstMask = -1L << start;
+        final long lastMask = -1L >>> (Long.SIZE - 1 - (end & (Long.SIZE - 1)));
+        if (firstWord == lastWord) {
+          words[firstWord] |= firstMask & lastMask;
+        } else {
+          words[firstWord] |= firstMask;
+          for (int i = firstWord + 1; i < lastWord; i++) {
+            words[i] = -1L;
+          }
+          words[lastWord] |= lastMask;
+        }
+      }
+    }
+
+    @Override
+    Container copy() {
+      return new RunContainer(Arrays.copyOf(runs, count * 2), count, cardinality);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+import com.tc.test.TCTestCase;
+
+public class MessageGroupSizerTest extends TCTestCase {
+  private static final long MILLI = 1000000L;
+
+  public void testStartsAtMaxAndFollowsDrainRateWhileBacklogged() {
+    MessageGroupSizer sizer = new MessageGroupSizer(1024, 1024 * 1024, 2 * MILLI);
+    assertEquals(1024 * 1024, sizer.getMaxGroupBytes());
+
+    sizer.writePass(0, true, 0);
+    // 64KB drained in 1ms while backlogged, so a 2ms group is 128KB
+    sizer.writePass(64 * 1024, true, MILLI);
+    assertEquals(128 * 1024, sizer.getMaxGroupBytes());
+  }
+
+  public void testGrowsBackOnceTheSocketKeepsUp() {
+    MessageGroupSizer sizer = new MessageGroupSizer(1024, 1024 * 1024, 2 * MILLI);
+    sizer.writePass(0, true, 0);
+    sizer.writePass(64 * 1024, true, MILLI);
+    sizer.writePass(1024, false, 2 * MILLI);
+    int grown = sizer.getMaxGroupBytes();
+    sizer.writePass(1024, false, 3 * MILLI);
+    assertEquals(Math.min(1024 * 1024, 2 * grown), sizer.getMaxGroupBytes());
+  }
+
+  public void testSlowGroupsShrinkTheBoundDownToMin() {
+    MessageGroupSizer sizer = new MessageGroupSizer(16 * 1024, 1024 * 1024, 2 * MILLI);
+    sizer.groupSent(MILLI);
+    assertEquals(1024 * 1024, sizer.getMaxGroupBytes());
+    for (int i = 0; i < 20; i++) {
+      sizer.groupSent(10 * MILLI);
+    }
+    assertEquals(16 * 1024, sizer.getMaxGroupBytes());
+  }
+}
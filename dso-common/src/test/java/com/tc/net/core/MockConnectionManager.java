@@ -114,6 +114,11 @@ public class MockConnectionManager implements TCConnectionManager {
     throw new ImplementMe();
   }
 
+  @Override
+  public TCConnectionStats[] getConnectionStats() {
+    throw new ImplementMe();
+  }
+
   @Override
   public TCListener[] getAllListeners() {
     throw new ImplementMe();
@@ -0,0 +1,112 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.net.core;
+
+import com.tc.test.TCTestCase;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+public class PooledDirectBufferManagerTest extends TCTestCase {
+  private ServerSocketChannel server;
+  private SocketChannel       sender;
+  private SocketChannel       receiver;
+  private DirectBufferPool    pool;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = ServerSocketChannel.open();
+    server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+    sender = SocketChannel.open(server.socket().getLocalSocketAddress());
+    receiver = server.accept();
+    pool = new DirectBufferPool(1024, 4);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    sender.close();
+    receiver.close();
+    server.close();
+    super.tearDown();
+  }
+
+  public void testGatheringWriteAndPooledReceive() throws Exception {
+    PooledDirectBufferManagerFactory factory = new PooledDirectBufferManagerFactory(pool);
+    GatheringBufferManager out = (GatheringBufferManager) factory.createBufferManager(sender, true);
+    BufferManager in = factory.createBufferManager(receiver, false);
+
+    ByteBuffer[] message = new ByteBuffer[] { bytes(0, 300), bytes(300, 700), ByteBuffer.allocate(0), bytes(1000, 500) };
+    long written = 0;
+    while (written < 1500) {
+      written += out.sendFrom(message, 0, message.length);
+    }
+    assertFalse(out.remainingToSend());
+
+    ByteBuffer received = ByteBuffer.allocate(1500);
+    while (received.hasRemaining()) {
+      in.recvToBuffer();
+      in.forwardFromReadBuffer(received);
+    }
+    received.flip();
+    for (int i = 0; i < 1500; i++) {
+      assertEquals((byte) i, received.get(i));
+    }
+    // the receive buffer went back to the pool once drained
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  public void testSendBufferIsHeldOnlyWhileItHasData() throws Exception {
+    BufferManager out = new PooledDirectBufferManagerFactory(pool).createBufferManager(sender, true);
+    assertFalse(out.remainingToSend());
+    assertEquals(0, out.sendFromBuffer());
+
+    assertEquals(100, out.forwardToWriteBuffer(bytes(0, 100)));
+    assertTrue(out.remainingToSend());
+    assertEquals(0, pool.getIdleCount());
+
+    assertEquals(100, out.sendFromBuffer());
+    assertFalse(out.remainingToSend());
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  public void testPoolKeepsAtMostMaxIdleBuffers() {
+    ByteBuffer[] buffers = new ByteBuffer[6];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = pool.acquire();
+      assertTrue(buffers[i].isDirect());
+      assertEquals(1024, buffers[i].capacity());
+    }
+    for (ByteBuffer buffer : buffers) {
+      pool.release(buffer);
+    }
+    assertEquals(4, pool.getIdleCount());
+    assertSame(buffers[0], pool.acquire());
+    assertEquals(3, pool.getIdleCount());
+  }
+
+  private static ByteBuffer bytes(int from, int length) {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    for (int i = 0; i < length; i++) {
+      buffer.put((byte) (from + i));
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
@@ -87,6 +87,19 @@ public class TCConnectionManagerTest extends TestCase {
     assertEquals(0, clientConnMgr.getAllConnections().length);
   }
 
+  public void testConnectionStats() throws Exception {
+    assertEquals(0, clientConnMgr.getConnectionStats().length);
+
+    TCConnection conn = clientConnMgr.createConnection(new NullProtocolAdaptor());
+    TCConnectionStats[] stats = clientConnMgr.getConnectionStats();
+    assertEquals(1, stats.length);
+    assertEquals(0, stats[0].getMessagesPerGroup().getCount());
+    assertEquals(0, stats[0].getBytesPerWrite().getCount());
+
+    conn.close(5000);
+    assertEquals(0, clientConnMgr.getConnectionStats().length);
+  }
+
   public void testShutdown() {
     assertEquals(1, serverConnMgr.getAllListeners().length);
     assertEquals(0, clientConnMgr.getAllConnections().length);
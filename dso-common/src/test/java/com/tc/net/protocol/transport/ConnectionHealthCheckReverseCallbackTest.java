@@ -26,6 +26,7 @@ import com.tc.net.core.TCComm;
 import com.tc.net.core.TCConnection;
 import com.tc.net.core.TCConnectionManager;
 import com.tc.net.core.TCConnectionManagerImpl;
+import com.tc.net.core.TCConnectionStats;
 import com.tc.net.core.TCListener;
 import com.tc.net.protocol.PlainNetworkStackHarnessFactory;
 import com.tc.net.protocol.ProtocolAdaptorFactory;
@@ -211,6 +212,11 @@ public class ConnectionHealthCheckReverseCallbackTest extends TCTestCase {
       return delegate.getAllConnections();
     }
 
+    @Override
+    public TCConnectionStats[] getConnectionStats() {
+      return delegate.getConnectionStats();
+    }
+
     @Override
     public TCListener[] getAllListeners() {
       return delegate.getAllListeners();
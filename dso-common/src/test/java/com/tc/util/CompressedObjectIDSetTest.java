@@ -0,0 +1,130 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.util;
+
+import org.junit.Test;
+
+import com.tc.object.ObjectID;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedObjectIDSetTest extends ObjectIDSetTestBase {
+  @Override
+  protected ObjectIDSet create() {
+    return new CompressedObjectIDSet();
+  }
+
+  @Override
+  protected ObjectIDSet create(final Collection<ObjectID> copy) {
+    return new CompressedObjectIDSet(copy);
+  }
+
+  @Test
+  public void testBulkOperationsMatchTreeSet() {
+    Random r = new Random(42);
+    TreeSet<ObjectID> left = new TreeSet<ObjectID>();
+    TreeSet<ObjectID> right = new TreeSet<ObjectID>();
+    // a dense stretch spanning chunks, so the sets hold run, bitmap and array containers
+    for (long i = 50000; i < 200000; i++) {
+      left.add(new ObjectID(i));
+    }
+    for (int i = 0; i < 20000; i++) {
+      left.add(new ObjectID(r.nextInt(1000000) - 500000));
+      right.add(new ObjectID(r.nextInt(1000000) - 500000));
+    }
+    for (long i = 120000; i < 140000; i += 2) {
+      right.add(new ObjectID(i));
+    }
+
+    TreeSet<ObjectID> expected = new TreeSet<ObjectID>(left);
+    expected.addAll(right);
+    ObjectIDSet actual = create(left);
+    assertTrue(actual.addAll(create(right)));
+    assertEquals(expected, new TreeSet<ObjectID>(actual));
+    assertFalse(actual.addAll(create(right)));
+
+    expected = new TreeSet<ObjectID>(left);
+    expected.retainAll(right);
+    actual = create(left);
+    assertTrue(actual.retainAll(create(right)));
+    assertEquals(expected, new TreeSet<ObjectID>(actual));
+
+    expected = new TreeSet<ObjectID>(left);
+    expected.removeAll(right);
+    actual = create(left);
+    assertTrue(actual.removeAll(create(right)));
+    assertEquals(expected, new TreeSet<ObjectID>(actual));
+    assertEquals(expected.size(), actual.size());
+  }
+
+  @Test
+  public void testCopiesToAndFromTheOtherSets() {
+    ObjectIDSet set = create();
+    for (long i = -70000; i < 70000; i += 3) {
+      set.add(new ObjectID(i));
+    }
+    for (long i = 1000000; i < 1100000; i++) {
+      set.add(new ObjectID(i));
+    }
+    assertEquals(new TreeSet<ObjectID>(set), new TreeSet<ObjectID>(new BitSetObjectIDSet(set)));
+    assertEquals(new TreeSet<ObjectID>(set), new TreeSet<ObjectID>(create(new BitSetObjectIDSet(set))));
+    ObjectIDSet copy = create();
+    copy.addAll(new BitSetObjectIDSet(set));
+    assertEquals(set, copy);
+  }
+
+  @Test
+  public void testEditsOfRunsAndIteratorRemoveAcrossChunks() {
+    ObjectIDSet set = create();
+    set.addAll(new BitSetObjectIDSet(range(0, 200000)));
+    TreeSet<ObjectID> expected = new TreeSet<ObjectID>(range(0, 200000));
+    for (long i = 100; i < 200000; i += 1000) {
+      assertTrue(set.remove(new ObjectID(i)));
+      expected.remove(new ObjectID(i));
+    }
+    assertTrue(set.add(new ObjectID(100)));
+    expected.add(new ObjectID(100));
+    for (Iterator<ObjectID> i = set.iterator(); i.hasNext();) {
+      if (i.next().toLong() % 70000 < 10) {
+        i.remove();
+      }
+    }
+    for (Iterator<ObjectID> i = expected.iterator(); i.hasNext();) {
+      if (i.next().toLong() % 70000 < 10) {
+        i.remove();
+      }
+    }
+    assertEquals(expected, new TreeSet<ObjectID>(set));
+    assertEquals(expected.first(), set.first());
+    assertEquals(expected.last(), set.last());
+  }
+
+  private static TreeSet<ObjectID> range(long from, long to) {
+    TreeSet<ObjectID> ids = new TreeSet<ObjectID>();
+    for (long i = from; i < to; i++) {
+      ids.add(new ObjectID(i));
+    }
+    return ids;
+  }
+}
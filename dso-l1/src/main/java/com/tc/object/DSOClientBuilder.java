@@ -156,6 +156,8 @@ public interface DSOClientBuilder {
                                                           final DSOClientMessageChannel dsoChannel,
                                                           final SampledRateCounter transactionSizeCounter,
                                                           final SampledRateCounter transactionPerBatchCounter,
+                                                          final SampledRateCounter batchWindowCounter,
+                                                          final SampledRateCounter batchThroughputCounter,
                                                           final AbortableOperationManager abortableOperationManager,
                                                           final TaskRunner taskRunner);
 
@@ -511,13 +511,17 @@ public class DistributedObjectClient extends SEDA implements TCClient {
         .createCounter(sampledRateCounterConfig);
     final SampledRateCounter transactionsPerBatchCounter = (SampledRateCounter) this.counterManager
         .createCounter(sampledRateCounterConfig);
+    final SampledRateCounter batchWindowCounter = (SampledRateCounter) this.counterManager
+        .createCounter(sampledRateCounterConfig);
+    final SampledRateCounter batchThroughputCounter = (SampledRateCounter) this.counterManager
+        .createCounter(sampledRateCounterConfig);
 
     this.remoteTxnManager = this.dsoClientBuilder
         .createRemoteTransactionManager(this.channel.getClientIDProvider(), encoding,
                                         FoldingConfigHelper.createFromProperties(tcProperties),
                                         new TransactionIDGenerator(), sessionManager, this.channel,
-                                        transactionSizeCounter, transactionsPerBatchCounter, abortableOperationManager,
-                                        taskRunner);
+                                        transactionSizeCounter, transactionsPerBatchCounter, batchWindowCounter,
+                                        batchThroughputCounter, abortableOperationManager, taskRunner);
 
     this.dumpHandler.registerForDump(new CallbackDumpAdapter(this.remoteTxnManager));
     final RemoteObjectIDBatchSequenceProvider remoteIDProvider = new RemoteObjectIDBatchSequenceProvider(
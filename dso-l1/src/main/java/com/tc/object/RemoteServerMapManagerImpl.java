@@ -53,9 +53,21 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application threads and the stage delivering responses do not share a lock: outstanding requests live in a
+ * concurrent map and each thread waits on the monitor of its own request context. The manager's monitor only guards
+ * the lifecycle state. Concurrent misses on the same key join the request already in flight for it instead of sending
+ * another one.
+ */
 public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
 
   // TODO::Make its own property
@@ -75,13 +87,16 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   private final TCLogger                                                 logger;
   private final SessionManager                                           sessionManager;
   private final RemoteObjectManager                                      remoteObjectManager;
-  private final Map<ServerMapRequestID, AbstractServerMapRequestContext> outstandingRequests                       = new HashMap<ServerMapRequestID, AbstractServerMapRequestContext>();
+  private final ConcurrentMap<ServerMapRequestID, AbstractServerMapRequestContext> outstandingRequests             = new ConcurrentHashMap<ServerMapRequestID, AbstractServerMapRequestContext>();
+  // single key lookups waiting for their response, keyed by map and key
+  private final ConcurrentMap<KeyLookup, GetValueServerMapRequestContext> inflightLookups                           = new ConcurrentHashMap<KeyLookup, GetValueServerMapRequestContext>();
+  private final Queue<AbstractServerMapRequestContext>                   pendingRequests                           = new ConcurrentLinkedQueue<AbstractServerMapRequestContext>();
   private final TaskRunner                                               taskRunner;
   private final AbortableOperationManager                                abortableOperationManager;
 
   private volatile State                                                 state                                     = State.RUNNING;
-  private long                                                           requestIDCounter                          = 0;
-  private boolean                                                        pendingSendTaskScheduled                  = false;
+  private final AtomicLong                                               requestIDCounter                          = new AtomicLong();
+  private final AtomicBoolean                                            pendingSendTaskScheduled                  = new AtomicBoolean();
 
   // private final Sink ttiTTLEvitionSink;
   private final L1ServerMapLocalCacheManager                             globalLocalCacheManager;
@@ -114,7 +129,9 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   public synchronized void cleanup() {
     checkAndSetstate();
     outstandingRequests.clear();
-    pendingSendTaskScheduled = false;
+    inflightLookups.clear();
+    pendingRequests.clear();
+    pendingSendTaskScheduled.set(false);
     globalLocalCacheManager.cleanup();
     reInvalidateHandler.shutdown();
     reInvalidateHandler = new ReInvalidateHandler(globalLocalCacheManager, taskRunner);
@@ -125,6 +142,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
     state = State.REJOIN_IN_PROGRESS;
     globalLocalCacheManager.rejoinInProgress(true);
     notifyAll();
+    wakeUpWaiters();
   }
 
   private void throwExceptionIfNecessary(boolean throwExp) {
@@ -144,27 +162,44 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
    * @throws AbortedOperationException
    */
   @Override
-  public synchronized Object getMappingForKey(final ObjectID oid, final Object portableKey)
-      throws AbortedOperationException {
+  public Object getMappingForKey(final ObjectID oid, final Object portableKey) throws AbortedOperationException {
     assertSameGroupID(oid);
     waitUntilRunningAbortable();
 
-    final AbstractServerMapRequestContext context = createLookupValueRequestContext(oid,
-                                                                                    Collections.singleton(portableKey));
-    context.makeLookupRequest();
-    sendRequest(context);
+    final AbstractServerMapRequestContext context = joinOrSendLookupRequest(oid, portableKey);
     Map<Object, Object> result = waitForResult(context);
     return result.get(portableKey);
   }
 
+  private AbstractServerMapRequestContext joinOrSendLookupRequest(final ObjectID oid, final Object portableKey) {
+    final KeyLookup lookup = new KeyLookup(oid, portableKey);
+    while (true) {
+      GetValueServerMapRequestContext context = this.inflightLookups.get(lookup);
+      if (context != null) {
+        if (context.join()) { return context; }
+        // every thread waiting for it left already
+        this.inflightLookups.remove(lookup, context);
+        continue;
+      }
+      context = new GetValueServerMapRequestContext(getNextRequestID(), oid, Collections.singleton(portableKey),
+                                                    this.groupID, lookup);
+      if (this.inflightLookups.putIfAbsent(lookup, context) == null) {
+        this.outstandingRequests.put(context.getRequestID(), context);
+        context.makeLookupRequest();
+        sendRequest(context);
+        return context;
+      }
+    }
+  }
+
   @Override
-  public synchronized void getMappingForAllKeys(final Map<ObjectID, Set<Object>> mapIdToKeysMap, Map<Object, Object> rv)
+  public void getMappingForAllKeys(final Map<ObjectID, Set<Object>> mapIdToKeysMap, Map<Object, Object> rv)
       throws AbortedOperationException {
     Set<AbstractServerMapRequestContext> contextsToWaitFor = sendRequestForAllKeys(mapIdToKeysMap);
     waitForResults(contextsToWaitFor, rv);
   }
 
-  protected synchronized Set<AbstractServerMapRequestContext> sendRequestForAllKeys(final Map<ObjectID, Set<Object>> mapIdToKeysMap)
+  protected Set<AbstractServerMapRequestContext> sendRequestForAllKeys(final Map<ObjectID, Set<Object>> mapIdToKeysMap)
       throws AbortedOperationException {
     Set<AbstractServerMapRequestContext> contextsToWaitFor = new HashSet<AbstractServerMapRequestContext>();
     waitUntilRunningAbortable();
@@ -181,7 +216,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   }
 
   @Override
-  public synchronized Set getAllKeys(ObjectID mapID) throws AbortedOperationException {
+  public Set getAllKeys(ObjectID mapID) throws AbortedOperationException {
     assertSameGroupID(mapID);
     waitUntilRunningAbortable();
 
@@ -200,7 +235,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   }
 
   @Override
-  public synchronized long getAllSize(final ObjectID[] mapIDs) throws AbortedOperationException {
+  public long getAllSize(final ObjectID[] mapIDs) throws AbortedOperationException {
     for (ObjectID mapId : mapIDs) {
       assertSameGroupID(mapId);
     }
@@ -225,21 +260,21 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
       while (true) {
         if (isStopped()) { throw new TCNotRunningException(); }
         if (isRejoinInProgress()) { throw new PlatformRejoinException(); }
-        try {
-          wait(RESULT_WAIT_MAXTIME_MILLIS);
-        } catch (final InterruptedException e) {
-          checkIfAbortedAndRemoveContexts(context);
-          isInterrupted = true;
-        }
         if (context.isMissing()) {
-          removeRequestContext(context);
+          leaveRequestContext(context);
           throw new TCObjectNotFoundException(context.getMapID().toString());
         }
         Map<Object, Object> result = context.getResult();
         if (result != null) {
-          removeRequestContext(context);
+          leaveRequestContext(context);
           return result;
         }
+        try {
+          context.waitForResult(RESULT_WAIT_MAXTIME_MILLIS);
+        } catch (final InterruptedException e) {
+          checkIfAbortedAndRemoveContexts(context);
+          isInterrupted = true;
+        }
       }
     } finally {
       Util.selfInterruptIfNeeded(isInterrupted);
@@ -250,15 +285,16 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
    * Waits in quantums of {@link #RESULT_WAIT_MAXTIME_MILLIS} until results corresponding to contextsToWaitFor are
    * available from the server.
    */
-  protected synchronized void waitForResults(Set<AbstractServerMapRequestContext> contextsToWaitFor,
-                                             Map<Object, Object> rv) throws AbortedOperationException {
+  protected void waitForResults(Set<AbstractServerMapRequestContext> contextsToWaitFor, Map<Object, Object> rv)
+      throws AbortedOperationException {
     boolean isInterrupted = false;
     try {
       while (!allRequestsDone(contextsToWaitFor, rv)) {
         if (isStopped()) { throw new TCNotRunningException(); }
         if (isRejoinInProgress()) { throw new PlatformRejoinException(); }
         try {
-          wait(RESULT_WAIT_MAXTIME_MILLIS);
+          // all results are needed, so waiting on any one that is not there yet is as good as any other
+          contextsToWaitFor.iterator().next().waitForResult(RESULT_WAIT_MAXTIME_MILLIS);
         } catch (final InterruptedException e) {
           checkIfAbortedAndRemoveContexts(contextsToWaitFor);
           isInterrupted = true;
@@ -273,13 +309,13 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
     for (Iterator<AbstractServerMapRequestContext> iterator = contextsToWaitFor.iterator(); iterator.hasNext();) {
       AbstractServerMapRequestContext context = iterator.next();
       if (context.isMissing()) {
-        removeRequestContext(context);
+        leaveRequestContext(context);
         iterator.remove();
         throw new TCObjectNotFoundException(context.getMapID().toString());
       }
       Map<Object, Object> result = context.getResult();
       if (result != null) {
-        removeRequestContext(context);
+        leaveRequestContext(context);
         iterator.remove();
         synchronized (rv) {
           rv.putAll(result);
@@ -303,9 +339,9 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
 
   private void scheduleRequestForLater(final AbstractServerMapRequestContext context) {
     context.makePending();
-    if (!pendingSendTaskScheduled) {
+    pendingRequests.add(context);
+    if (pendingSendTaskScheduled.compareAndSet(false, true)) {
       requestsTimer.schedule(new SendPendingRequestsTask(), BATCH_LOOKUP_TIME_PERIOD, TimeUnit.MILLISECONDS);
-      pendingSendTaskScheduled = true;
     }
   }
 
@@ -326,9 +362,10 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   /**
    * Only GET_VALUE_FOR_KEY requests are batched, its a little ugly to assume that here. Needs some refactoring.
    */
-  public synchronized void sendPendingRequests() {
+  public void sendPendingRequests() {
     waitUntilRunning();
-    this.pendingSendTaskScheduled = false;
+    // cleared before draining, so a request queued after the drain started schedules another task
+    this.pendingSendTaskScheduled.set(false);
     final ServerMapRequestMessage msg = this.smmFactory
         .newServerMapRequestMessage(this.groupID, ServerMapRequestType.GET_VALUE_FOR_KEY);
     initializeMessageWithPendingRequests(msg);
@@ -338,8 +375,10 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   }
 
   private void initializeMessageWithPendingRequests(final ServerMapRequestMessage msg) {
-    for (final AbstractServerMapRequestContext context : this.outstandingRequests.values()) {
-      if (context.isPending()) {
+    AbstractServerMapRequestContext context;
+    while ((context = this.pendingRequests.poll()) != null) {
+      // aborted requests are no longer outstanding
+      if (context.isPending() && this.outstandingRequests.get(context.getRequestID()) == context) {
         if (context.getRequestType() != ServerMapRequestType.GET_VALUE_FOR_KEY) {
           // Only GET_VALUE_FOR_KEY Requests are batched here
           throw new AssertionError(context.getRequestType()
@@ -376,13 +415,38 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   private void removeRequestContext(final AbstractServerMapRequestContext context) {
     final Object old = this.outstandingRequests.remove(context.getRequestID());
     if (old != context) { throw new AssertionError("Removed wrong context. context = " + context + " old = " + old); }
+    removeInflightLookup(context);
+  }
+
+  /**
+   * @return true if the calling thread was the last one waiting for the context, which is then removed
+   */
+  private boolean leaveRequestContext(final AbstractServerMapRequestContext context) {
+    if (!context.leave()) { return false; }
+    removeRequestContext(context);
+    return true;
+  }
+
+  private void removeInflightLookup(final AbstractServerMapRequestContext context) {
+    if (context instanceof GetValueServerMapRequestContext) {
+      final KeyLookup lookup = ((GetValueServerMapRequestContext) context).lookup;
+      if (lookup != null) {
+        this.inflightLookups.remove(lookup, context);
+      }
+    }
+  }
+
+  private void wakeUpWaiters() {
+    for (final AbstractServerMapRequestContext context : this.outstandingRequests.values()) {
+      context.wakeUp();
+    }
   }
 
   private AbstractServerMapRequestContext createLookupValueRequestContext(final ObjectID oid,
                                                                           final Set<Object> portableKeys) {
     final ServerMapRequestID requestID = getNextRequestID();
     final GetValueServerMapRequestContext context = new GetValueServerMapRequestContext(requestID, oid, portableKeys,
-                                                                                        this.groupID);
+                                                                                        this.groupID, null);
     this.outstandingRequests.put(requestID, context);
     return context;
   }
@@ -400,7 +464,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   }
 
   @Override
-  public synchronized void addResponseForKeyValueMapping(final SessionID sessionID, final ObjectID mapID,
+  public void addResponseForKeyValueMapping(final SessionID sessionID, final ObjectID mapID,
                                                          final Collection<ServerMapGetValueResponse> responses,
                                                          final NodeID nodeID) {
     waitUntilRunning();
@@ -410,18 +474,16 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
       return;
     }
     for (final ServerMapGetValueResponse r : responses) {
-      setResultForRequest(sessionID, mapID, r.getRequestID(), r.getValues(), nodeID);
       addResponseToObjectManager(r.getValues());
-      if (getRequestContext(r.getRequestID()) == null) {
+      if (!setResultForRequest(sessionID, mapID, r.getRequestID(), r.getValues(), nodeID)) {
         // Request was aborted, so we need to clean up.
         cleanupObjectManagerOnAbort(r.getValues());
       }
     }
-    notifyAll();
   }
 
   @Override
-  public synchronized void addResponseForGetAllSize(final SessionID sessionID, final GroupID gID,
+  public void addResponseForGetAllSize(final SessionID sessionID, final GroupID gID,
                                                     final ServerMapRequestID requestID, final Long size,
                                                     final NodeID nodeID) {
     waitUntilRunning();
@@ -433,11 +495,10 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
     Map<Object, Object> sizeMap = new HashMap<Object, Object>();
     sizeMap.put(SIZE_KEY, size);
     setResultForRequest(sessionID, ObjectID.NULL_ID, requestID, sizeMap, nodeID);
-    notifyAll();
   }
 
   @Override
-  public synchronized void addResponseForGetAllKeys(final SessionID sessionID, final ObjectID mapID,
+  public void addResponseForGetAllKeys(final SessionID sessionID, final ObjectID mapID,
                                                     final ServerMapRequestID requestID, final Set keys,
                                                     final NodeID nodeID) {
     waitUntilRunning();
@@ -449,11 +510,10 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
     Map<Object, Object> allKeysMap = new HashMap<Object, Object>();
     allKeysMap.put(ALL_KEYS, keys);
     setResultForRequest(sessionID, mapID, requestID, allKeysMap, nodeID);
-    notifyAll();
   }
 
   @Override
-  public synchronized void objectNotFoundFor(final SessionID sessionID, final ObjectID mapID,
+  public void objectNotFoundFor(final SessionID sessionID, final ObjectID mapID,
                                              final ServerMapRequestID requestID, final NodeID nodeID) {
     waitUntilRunning();
     if (!this.sessionManager.isCurrentSession(nodeID, sessionID)) {
@@ -462,21 +522,30 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
       return;
     }
     final AbstractServerMapRequestContext context = this.outstandingRequests.get(requestID);
-    context.makeMissingObject();
-    notifyAll();
+    if (context != null) {
+      context.makeMissingObject();
+      removeInflightLookup(context);
+    }
   }
 
-  private void setResultForRequest(final SessionID sessionID, final ObjectID mapID, final ServerMapRequestID requestID,
-                                   final Map<Object, Object> rv, final NodeID nodeID) {
+  /**
+   * @return false if no one is waiting for the result anymore
+   */
+  private boolean setResultForRequest(final SessionID sessionID, final ObjectID mapID,
+                                      final ServerMapRequestID requestID, final Map<Object, Object> rv,
+                                      final NodeID nodeID) {
     final AbstractServerMapRequestContext context = getRequestContext(requestID);
     if (context != null) {
-      context.setResult(mapID, rv);
+      // later misses on the key must not join a request that already has its answer
+      removeInflightLookup(context);
+      return context.setResult(mapID, rv);
     } else {
       if (logger.isDebugEnabled()) {
         this.logger.debug("Server Map Request Context is null for " + mapID + " request ID : " + requestID
                           + " result : "
                        + rv);
       }
+      return false;
     }
   }
 
@@ -510,6 +579,13 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
    * To be used by methods which are called by the App thread.
    */
   private void waitUntilRunningAbortable() throws AbortedOperationException {
+    if (this.state == State.RUNNING) { return; }
+    synchronized (this) {
+      waitUntilRunningAbortableLocked();
+    }
+  }
+
+  private void waitUntilRunningAbortableLocked() throws AbortedOperationException {
     boolean isInterrupted = false;
     try {
       while (this.state != State.RUNNING) {
@@ -531,6 +607,13 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
    * To be used by methods which are directly called by the Stage thread.
    */
   private void waitUntilRunning() {
+    if (this.state == State.RUNNING) { return; }
+    synchronized (this) {
+      waitUntilRunningLocked();
+    }
+  }
+
+  private void waitUntilRunningLocked() {
     boolean isInterrupted = false;
     try {
       while (this.state != State.RUNNING) {
@@ -556,8 +639,9 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   private void checkIfAbortedAndRemoveContexts(AbstractServerMapRequestContext context)
       throws AbortedOperationException {
     if (isAborted()) {
-      removeRequestContext(context);
-      cleanupObjectManagerOnAbort(context.getResult());
+      if (leaveRequestContext(context)) {
+        cleanupObjectManagerOnAbort(context.getResult());
+      }
       AbortedOperationUtil.throwExceptionIfAborted(abortableOperationManager);
     }
   }
@@ -572,7 +656,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
       throws AbortedOperationException {
     if (isAborted()) {
       for (AbstractServerMapRequestContext context : contextsToWaitFor) {
-        removeRequestContext(context);
+        leaveRequestContext(context);
       }
       AbortedOperationUtil.throwExceptionIfAborted(abortableOperationManager);
     }
@@ -617,6 +701,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
         requestsTimer.cancel();
         notifyAll();
       }
+    wakeUpWaiters();
   }
 
   private boolean isStopped() {
@@ -642,7 +727,7 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   }
 
   private ServerMapRequestID getNextRequestID() {
-    return new ServerMapRequestID(this.requestIDCounter++);
+    return new ServerMapRequestID(this.requestIDCounter.getAndIncrement());
   }
 
   protected static abstract class AbstractServerMapRequestContext extends LookupStateTransitionAdaptor {
@@ -654,6 +739,9 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
     protected final ServerMapRequestID   requestID;
     protected final ServerMapRequestType requestType;
     protected Map<Object, Object>        result;
+    // threads waiting for the result, guarded by this context's monitor
+    private int                          waiters = 1;
+    private boolean                      closed;
 
     public AbstractServerMapRequestContext(final ServerMapRequestType requestType, final ServerMapRequestID requestID,
                                            final ObjectID mapID, final GroupID groupID) {
@@ -672,17 +760,78 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
       return this.requestType;
     }
 
-    public void setResult(final ObjectID mapID, final Map<Object, Object> rv) {
+    /**
+     * @return false if every thread waiting for the result has left already
+     */
+    public synchronized boolean setResult(final ObjectID mapID, final Map<Object, Object> rv) {
       if (!this.oid.equals(mapID)) { throw new AssertionError("Wrong request to response : this map id : " + this.oid
                                                               + " response is for : " + mapID + " type : "
                                                               + getRequestType()); }
+      if (this.closed) { return false; }
       this.result = rv;
+      notifyAll();
+      return true;
     }
 
-    public Map<Object, Object> getResult() {
+    public synchronized Map<Object, Object> getResult() {
       return this.result;
     }
 
+    /**
+     * Adds a thread waiting for the result, unless the last one left already.
+     */
+    synchronized boolean join() {
+      if (this.closed) { return false; }
+      this.waiters++;
+      return true;
+    }
+
+    /**
+     * @return true if this was the last thread waiting for the result
+     */
+    synchronized boolean leave() {
+      if (--this.waiters > 0) { return false; }
+      this.closed = true;
+      return true;
+    }
+
+    synchronized void waitForResult(final long timeoutMillis) throws InterruptedException {
+      if (this.result == null && !super.isMissing()) {
+        wait(timeoutMillis);
+      }
+    }
+
+    synchronized void wakeUp() {
+      notifyAll();
+    }
+
+    @Override
+    public synchronized boolean isMissing() {
+      return super.isMissing();
+    }
+
+    @Override
+    public synchronized boolean isPending() {
+      return super.isPending();
+    }
+
+    @Override
+    public synchronized LookupState makeMissingObject() {
+      final LookupState newState = super.makeMissingObject();
+      notifyAll();
+      return newState;
+    }
+
+    @Override
+    public synchronized LookupState makePending() {
+      return super.makePending();
+    }
+
+    @Override
+    public synchronized LookupState makeUnPending() {
+      return super.makeUnPending();
+    }
+
     @Override
     public int hashCode() {
       return this.requestID.hashCode();
@@ -708,11 +857,15 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   private class GetValueServerMapRequestContext extends AbstractServerMapRequestContext {
 
     private final Set<Object> portableKeys;
+    // set for single key lookups other misses on the key can join
+    private final KeyLookup   lookup;
 
     public GetValueServerMapRequestContext(final ServerMapRequestID requestID, final ObjectID mapID,
-                                           final Set<Object> portableKeys, final GroupID groupID) {
+                                           final Set<Object> portableKeys, final GroupID groupID,
+                                           final KeyLookup lookup) {
       super(ServerMapRequestType.GET_VALUE_FOR_KEY, requestID, mapID, groupID);
       this.portableKeys = portableKeys;
+      this.lookup = lookup;
     }
 
     @Override
@@ -768,6 +921,29 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
 
   }
 
+  private static final class KeyLookup {
+    private final ObjectID mapID;
+    private final Object   portableKey;
+
+    KeyLookup(final ObjectID mapID, final Object portableKey) {
+      this.mapID = mapID;
+      this.portableKey = portableKey;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.mapID.hashCode() + this.portableKey.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) { return true; }
+      if (!(o instanceof KeyLookup)) { return false; }
+      final KeyLookup other = (KeyLookup) o;
+      return this.mapID.equals(other.mapID) && this.portableKey.equals(other.portableKey);
+    }
+  }
+
   /**
    * Flush all entries for invalidated objectId's
    */
@@ -783,9 +959,10 @@ public class RemoteServerMapManagerImpl implements RemoteServerMapManager {
   }
 
   @Override
-  public synchronized PrettyPrinter prettyPrint(PrettyPrinter out) {
+  public PrettyPrinter prettyPrint(PrettyPrinter out) {
     out.print(this.getClass().getName()).print("Group Id: ").print(groupID).flush();
     out.indent().print("outstandingRequests count: ").print(Integer.valueOf(this.outstandingRequests.size())).flush();
+    out.indent().print("inflightLookups count: ").print(Integer.valueOf(this.inflightLookups.size())).flush();
     for (Entry<ServerMapRequestID, AbstractServerMapRequestContext> entry : outstandingRequests.entrySet()) {
       out.indent().print(entry.getKey()).print(entry.getValue());
     }
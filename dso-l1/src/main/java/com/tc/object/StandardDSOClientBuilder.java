@@ -225,6 +225,8 @@ public class StandardDSOClientBuilder implements DSOClientBuilder {
                                                                  final DSOClientMessageChannel dsoChannel,
                                                                  final SampledRateCounter transactionSizeCounter,
                                                                  final SampledRateCounter transactionsPerBatchCounter,
+                                                                 final SampledRateCounter batchWindowCounter,
+                                                                 final SampledRateCounter batchThroughputCounter,
                                                                  final AbortableOperationManager abortableOperationManager,
                                                                  final TaskRunner taskRunner) {
     final GroupID defaultGroups[] = dsoChannel.getGroupIDs();
@@ -244,6 +246,8 @@ public class StandardDSOClientBuilder implements DSOClientBuilder {
                                             dsoChannel,
                                             transactionSizeCounter,
                                             transactionsPerBatchCounter,
+                                            batchWindowCounter,
+                                            batchThroughputCounter,
                                             TCPropertiesImpl.getProperties()
                                                 .getLong(TCPropertiesConsts.L1_TRANSACTIONMANAGER_TIMEOUTFORACK_ONEXIT) * 1000,
                                             abortableOperationManager, taskRunner);
@@ -47,7 +47,6 @@ import com.tc.util.concurrent.Timer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -57,6 +56,8 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -64,7 +65,10 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
- * Sends off committed transactions
+ * Sends off committed transactions. Acknowledgements are processed without the manager's monitor: threads flushing a
+ * lock register a callback in a concurrent map and park on their own latch, and the ack that completes the last
+ * transaction under the lock fires exactly those callbacks. The monitor guards the lifecycle state and the sync write
+ * waits.
  */
 public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
 
@@ -88,7 +92,7 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
   private static final State                             STOPPED                     = new State("STOPPED");
 
   private final Object                                   lock                        = new Object();
-  private final HashMap<LockID, LockFlushCallback> lockFlushCallbacks          = new HashMap<LockID, LockFlushCallback>();
+  private final ConcurrentMap<LockID, PendingFlush>      pendingFlushes              = new ConcurrentHashMap<LockID, PendingFlush>();
 
   private final BatchManager                             batchManager;
   private final AtomicBoolean                            sending                     = new AtomicBoolean();
@@ -142,6 +146,8 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
                                       final SessionManager sessionManager, final DSOClientMessageChannel channel,
                                       final SampledRateCounter transactionSizeCounter,
                                       final SampledRateCounter transactionsPerBatchCounter,
+                                      final SampledRateCounter batchWindowCounter,
+                                      final SampledRateCounter batchThroughputCounter,
                                       final long ackOnExitTimeoutMs,
                                       final AbortableOperationManager abortableOperationManager,
                                       final TaskRunner taskRunner) {
@@ -154,7 +160,8 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
     this.lockAccounting = new LockAccounting(abortableOperationManager, this);
     this.sequencer = new TransactionSequencer(groupID, transactionIDGenerator, batchFactory, this.lockAccounting,
                                               transactionSizeCounter, transactionsPerBatchCounter,
-                                              abortableOperationManager, this);
+                                              batchWindowCounter, batchThroughputCounter, abortableOperationManager,
+                                              this);
     this.remoteTxManagerRunnable = new RemoteTransactionManagerTask();
     this.flusherTimer = taskRunner.newTimer("RemoteTransactionManager Flusher");
     this.flusherTimer.scheduleWithFixedDelay(this.remoteTxManagerRunnable, COMPLETED_ACK_FLUSH_TIMEOUT,
@@ -187,7 +194,7 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
     rejoinCleanupLock.writeLock().lock();
     try {
       synchronized (this.lock) {
-        lockFlushCallbacks.clear();
+        releasePendingFlushes();
         batchManager.clear();
         batchAccounting = new TransactionBatchAccounting();
         sequencer.cleanup();
@@ -366,22 +373,25 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
     long lastPrinted = 0;
     boolean isInterrupted = false;
     try {
-      Collection c;
-      synchronized (this.lock) {
-        while ((!(c = this.lockAccounting.getTransactionsFor(lockID)).isEmpty())) {
-          try {
-            this.lock.wait(FLUSH_WAIT_INTERVAL);
-            final long now = System.currentTimeMillis();
-            if ((now - start) > FLUSH_WAIT_INTERVAL && (now - lastPrinted) > FLUSH_WAIT_INTERVAL / 3) {
-              this.logger.info("Flush for " + lockID + " took longer than: " + (FLUSH_WAIT_INTERVAL / 1000)
-                               + " sec. Took : " + (now - start) + " ms. # Transactions not yet Acked = "
-                               + (c.size() + (c.size() < 50 ? (". " + c) : "")) + "\n");
-              lastPrinted = now;
-            }
-          } catch (final InterruptedException e) {
-            AbortedOperationUtil.throwExceptionIfAborted(abortableOperationManager);
-            isInterrupted = true;
-          }
+      final FlushWaiter waiter = new FlushWaiter();
+      while (!asyncFlush(lockID, waiter)) {
+        try {
+          if (waiter.await(FLUSH_WAIT_INTERVAL)) { return; }
+        } catch (final InterruptedException e) {
+          isInterrupted = true;
+          if (!withdrawFlush(lockID, waiter)) { return; }
+          AbortedOperationUtil.throwExceptionIfAborted(abortableOperationManager);
+          continue;
+        }
+        // fired while this thread stopped waiting
+        if (!withdrawFlush(lockID, waiter)) { return; }
+        final Collection c = this.lockAccounting.getTransactionsFor(lockID);
+        final long now = System.currentTimeMillis();
+        if ((now - start) > FLUSH_WAIT_INTERVAL && (now - lastPrinted) > FLUSH_WAIT_INTERVAL / 3) {
+          this.logger.info("Flush for " + lockID + " took longer than: " + (FLUSH_WAIT_INTERVAL / 1000)
+                           + " sec. Took : " + (now - start) + " ms. # Transactions not yet Acked = "
+                           + (c.size() + (c.size() < 50 ? (". " + c) : "")) + "\n");
+          lastPrinted = now;
         }
       }
     } finally {
@@ -435,43 +445,98 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
   /* This does not block unlike flush() */
   @Override
   public boolean asyncFlush(final LockID lockID, final LockFlushCallback callback) {
-    synchronized (this.lock) {
+    // All transactions are flushed !
+    if (this.lockAccounting.getTransactionsFor(lockID).isEmpty()) { return true; }
+    if (callback == null) { return false; }
 
-      if ((this.lockAccounting.getTransactionsFor(lockID)).isEmpty()) {
-        // All transactions are flushed !
-        return true;
-      } else {
-        // register for call back
-        if (callback != null) {
-          this.lockFlushCallbacks.put(lockID, chain(this.lockFlushCallbacks.get(lockID), callback));
+    // register for call back
+    while (true) {
+      PendingFlush flush = this.pendingFlushes.get(lockID);
+      if (flush == null) {
+        final PendingFlush created = new PendingFlush();
+        flush = this.pendingFlushes.putIfAbsent(lockID, created);
+        if (flush == null) {
+          flush = created;
         }
-        return false;
       }
+      if (flush.add(callback)) {
+        break;
+      }
+      // retired by an ack or a rejoin in the meantime
+      this.pendingFlushes.remove(lockID, flush);
     }
+
+    // the ack completing the lock may have taken the callbacks before this one was added
+    if (this.lockAccounting.getTransactionsFor(lockID).isEmpty() && withdrawFlush(lockID, callback)) { return true; }
+    return false;
   }
 
-  private static LockFlushCallback chain(final LockFlushCallback prior, final LockFlushCallback subsequent) {
-    if ( prior == null ) {
-      return subsequent;
-    } else if ( prior instanceof Collection ) {
-      ((Collection)prior).add(subsequent);
-      return prior;
-    } else {
-      return new ChainedCallback(prior, subsequent);
+  /**
+   * @return false if the callback was already taken to be fired
+   */
+  private boolean withdrawFlush(final LockID lockID, final LockFlushCallback callback) {
+    final PendingFlush flush = this.pendingFlushes.get(lockID);
+    if (flush == null) { return false; }
+    if (!flush.remove(callback)) { return false; }
+    if (flush.retireIfEmpty()) {
+      this.pendingFlushes.remove(lockID, flush);
     }
+    return true;
   }
-  
-  private static class ChainedCallback extends LinkedList<LockFlushCallback> implements LockFlushCallback {
-    public ChainedCallback(LockFlushCallback first, LockFlushCallback second) {
-      add(first);
-      add(second);
+
+  /**
+   * Callbacks for one lock, each fired once when the last transaction under the lock is acknowledged. Once retired no
+   * callbacks can be added to it and the adder retries with a new one.
+   */
+  private static final class PendingFlush {
+    private final List<LockFlushCallback> callbacks = new ArrayList<LockFlushCallback>(1);
+    private boolean                       retired;
+
+    synchronized boolean add(final LockFlushCallback callback) {
+      if (this.retired) { return false; }
+      this.callbacks.add(callback);
+      return true;
     }
-    
-  @Override
-    public void transactionsForLockFlushed(LockID id) {
-      for ( LockFlushCallback callback : this ) {
-        callback.transactionsForLockFlushed(id);
+
+    synchronized boolean remove(final LockFlushCallback callback) {
+      return !this.retired && this.callbacks.remove(callback);
+    }
+
+    synchronized boolean retireIfEmpty() {
+      if (this.callbacks.isEmpty()) {
+        this.retired = true;
       }
+      return this.retired;
+    }
+
+    synchronized List<LockFlushCallback> retire() {
+      this.retired = true;
+      return this.callbacks;
+    }
+
+    /**
+     * Retires this flush only if no transaction under the lock is left. Checked under this monitor, so every callback
+     * added before the check waited on transactions that are acknowledged by now, and any added after it goes to a new
+     * flush.
+     *
+     * @return the callbacks to fire, null if the lock still has transactions
+     */
+    synchronized List<LockFlushCallback> retireIfFlushed(final LockAccounting accounting, final LockID lockID) {
+      if (this.retired || !accounting.getTransactionsFor(lockID).isEmpty()) { return null; }
+      return retire();
+    }
+  }
+
+  private static final class FlushWaiter implements LockFlushCallback {
+    private final CountDownLatch flushed = new CountDownLatch(1);
+
+    @Override
+    public void transactionsForLockFlushed(final LockID id) {
+      this.flushed.countDown();
+    }
+
+    boolean await(final long millis) throws InterruptedException {
+      return this.flushed.await(millis, TimeUnit.MILLISECONDS);
     }
   }
 
@@ -515,6 +580,7 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
       if (this.status == STOP_INITIATED) {
         this.logger.debug("Received ACK for the last Transaction. Moving to STOPPED state.");
         this.status = STOPPED;
+        this.lock.notifyAll();
       }
     }
   }
@@ -603,9 +669,8 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
   }
 
   private boolean isStoppingOrStopped() {
-    synchronized (this.lock) {
-      return this.status == STOP_INITIATED || this.status == STOPPED;
-    }
+    final State current = this.status;
+    return current == STOP_INITIATED || current == STOPPED;
   }
 
   boolean isRejoinInProgress() {
@@ -616,33 +681,22 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
   // XXX:: Currently server always sends NULL BatchID
   @Override
   public void receivedBatchAcknowledgement(final TxnBatchID txnBatchID, final NodeID remoteNode) {
-    try {
-      if (status == STOPPED || status == PAUSED) {
-        this.logger.warn(this.status + " : Received ACK for batch = " + txnBatchID);
-        return;
-      }
-      if (this.logger.isDebugEnabled()) {
-        this.logger.debug(batchManager.toString());
-      }
-      batchManager.batchAcknowledged();
-      if ( !isStoppingOrStopped() ) {
-        sendBatches(false);
-      }
-    } finally {
-      synchronized (this.lock) {
-        lock.notifyAll();
-      }
+    if (status == STOPPED || status == PAUSED) {
+      this.logger.warn(this.status + " : Received ACK for batch = " + txnBatchID);
+      return;
+    }
+    if (this.logger.isDebugEnabled()) {
+      this.logger.debug(batchManager.toString());
+    }
+    batchManager.batchAcknowledged();
+    if ( !isStoppingOrStopped() ) {
+      sendBatches(false);
     }
   }
   
   private void processCallbacks(Collection<TransactionID> txID) {
-    Map<LockID, LockFlushCallback> callbacks;
-    synchronized (this.lock) {
-      final Set<LockID> completedLocks = this.lockAccounting.acknowledge(txID);
-      callbacks = getLockFlushCallbacks(completedLocks);
-      this.lock.notifyAll();
-    }
-    fireLockFlushCallbacks(callbacks);
+    final Set<LockID> completedLocks = this.lockAccounting.acknowledge(txID);
+    fireLockFlushCallbacks(completedLocks);
   }
   
   @Override
@@ -661,6 +715,7 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
       callBackTxnCompleteListeners(tb.getFoldedTransactionID(), tb.getTransactionCompleteListeners());
       if (this.batchAccounting.acknowledge(container, Collections.singleton(txID))) {
         batchManager.removeBatch(container);
+        batchManager.batchCompleted(container);
         if (isStoppingOrStopped() && batchManager.isEmpty()) {
           stopIfStopping();
         } else {
@@ -702,27 +757,39 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
   /*
    * Never fire callbacks while holding lock
    */
-  private void fireLockFlushCallbacks(final Map<LockID, LockFlushCallback> callbacks) {
-    if (callbacks.isEmpty()) { return; }
-    for (Entry<LockID, LockFlushCallback> element : callbacks.entrySet()) {
-      final LockID lid = element.getKey();
-      final LockFlushCallback callback = element.getValue();
-        callback.transactionsForLockFlushed(lid);
+  private void fireLockFlushCallbacks(final Set<LockID> completedLocks) {
+    if (completedLocks.isEmpty() || this.pendingFlushes.isEmpty()) { return; }
+    for (final LockID lid : completedLocks) {
+      final PendingFlush flush = this.pendingFlushes.get(lid);
+      if (flush == null) {
+        continue;
+      }
+      // a transaction may have been committed under the lock since the ack, with a callback waiting on it too
+      final List<LockFlushCallback> callbacks = flush.retireIfFlushed(this.lockAccounting, lid);
+      if (callbacks != null) {
+        this.pendingFlushes.remove(lid, flush);
+        for (final LockFlushCallback callback : callbacks) {
+          callback.transactionsForLockFlushed(lid);
+        }
       }
     }
+  }
 
-  private Map<LockID, LockFlushCallback> getLockFlushCallbacks(final Set<LockID> completedLocks) {
-    Map<LockID, LockFlushCallback> callbacks = new HashMap<LockID, LockFlushCallback>();
-    if (!completedLocks.isEmpty() && !this.lockFlushCallbacks.isEmpty()) {
-      for (final LockID lid : completedLocks) {
-        final LockFlushCallback callback = this.lockFlushCallbacks.remove(lid);
-        if (callback != null) {
-          callbacks.put(lid, callback);
+  /**
+   * Drops the flush callbacks on a rejoin, as the lock state they belong to is thrown away. Threads blocked in
+   * {@link #flush(LockID)} are woken up to find the cleared accounting.
+   */
+  private void releasePendingFlushes() {
+    for (final Entry<LockID, PendingFlush> entry : this.pendingFlushes.entrySet()) {
+      this.pendingFlushes.remove(entry.getKey(), entry.getValue());
+      for (final LockFlushCallback callback : entry.getValue().retire()) {
+        if (callback instanceof FlushWaiter) {
+          callback.transactionsForLockFlushed(entry.getKey());
         }
       }
     }
-    return callbacks;
   }
+
   // for tests
   void waitForPendings() {
     while ( !sequencer.isEmpty() ) {
@@ -735,6 +802,7 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
    * waits until the Transaction manager is in running state.
    */
   private void waitUntilRunning() {
+    if (this.status == RUNNING) { return; }
     boolean isInterrupted = false;
     synchronized (this.lock) {
       try {
@@ -760,6 +828,7 @@ public class RemoteTransactionManagerImpl implements RemoteTransactionManager {
    * @throws AbortedOperationException If the Operation is aborted.
    */
   private void waitUntilRunningAbortable() throws AbortedOperationException {
+    if (this.status == RUNNING) { return; }
     boolean isInterrupted = false;
     synchronized (this.lock) {
       try {
@@ -798,6 +867,7 @@ class BatchManager extends Semaphore {
     private SequenceID                                       lastsid;
     private int                                              restriction = 0;
     private final Map<TxnBatchID, ClientTransactionBatch>    incompleteBatches  = new ConcurrentHashMap<TxnBatchID, ClientTransactionBatch>();
+    private final Map<TxnBatchID, SentBatch>                 sentBatches        = new ConcurrentHashMap<TxnBatchID, SentBatch>();
     private   int                                            avgBatchSize = 1;
     private   int                                            txnCount = 0;
     private   int                                            batchCount = 0;
@@ -810,6 +880,7 @@ class BatchManager extends Semaphore {
       lastsid = null;
       reset();
       incompleteBatches.clear();
+      sentBatches.clear();
       sendList.clear();
       this.notify();
     }
@@ -876,6 +947,7 @@ class BatchManager extends Semaphore {
                     break;
                   }
                 }
+                sentBatches.put(next.getTransactionBatchID(), new SentBatch(next.byteSize(), System.nanoTime()));
                 next.send();
               } else if (setEmpty(sendList.isEmpty()) && stopping) {
                 return;
@@ -1037,6 +1109,16 @@ class BatchManager extends Semaphore {
       return incompleteBatches.remove(id);
     }
 
+    /**
+     * Feeds the round trip of a fully acknowledged batch to the sequencer. A resent batch counts from its last send.
+     */
+    void batchCompleted(TxnBatchID id) {
+      SentBatch sent = sentBatches.remove(id);
+      if (sent != null) {
+        sequencer.batchAcknowledged(sent.bytes, System.nanoTime() - sent.sentNanos);
+      }
+    }
+
     boolean isEmpty() {
       return incompleteBatches.isEmpty();
     }
@@ -1065,6 +1147,16 @@ class BatchManager extends Semaphore {
     }
   }
 
+  private static final class SentBatch {
+    private final int  bytes;
+    private final long sentNanos;
+
+    SentBatch(int bytes, long sentNanos) {
+      this.bytes = bytes;
+      this.sentNanos = sentNanos;
+    }
+  }
+
   private class RemoteTransactionManagerTask implements Runnable {
 
     private volatile TransactionID currentLWM = TransactionID.NULL_ID;
@@ -1126,6 +1218,9 @@ class BatchManager extends Semaphore {
   @Override
   public void throttleProcessing(boolean yes) {
     this.isThrottled = yes;
+    if (yes) {
+      this.sequencer.serverThrottled();
+    }
   }
 
 }
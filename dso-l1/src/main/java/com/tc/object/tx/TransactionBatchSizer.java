@@ -0,0 +1,108 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.object.tx;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Congestion control for the batches of one {@link TransactionSequencer}. It bounds the byte size of a batch and the
+ * window of batches allowed to pend before writers are throttled, from the round trip times of acknowledged batches
+ * and from server throttle messages. While the smoothed round trip stays within twice the lowest recent round trip
+ * both bounds grow by one step per window of acks. Queueing on the way to or in the server, or a throttle message,
+ * halves the window and cuts the batch size by a quarter, at most once per round trip. When disabled both bounds stay
+ * at their maximum. Not thread safe, the sequencer calls it under its own lock.
+ */
+class TransactionBatchSizer {
+  // the lowest round trip is forgotten after this long so the baseline can follow a changing cluster
+  private static final long MIN_RTT_LIFETIME_NANOS      = TimeUnit.SECONDS.toNanos(10);
+  // spacing of decreases before there is a round trip to go by
+  private static final long MIN_DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final boolean     enabled;
+  private final int         minBatchBytes;
+  private final int         maxBatchBytes;
+  private final int         minWindow;
+  private final int         maxWindow;
+  // read by writers checking whether to throttle without the sequencer lock
+  private volatile int      batchBytes;
+  private volatile int      window;
+  private long              smoothedRttNanos;
+  private long              minRttNanos;
+  private long              minRttStampNanos;
+  private long              lastDecreaseNanos;
+  private int               acksSinceIncrease;
+
+  TransactionBatchSizer(boolean enabled, int minBatchBytes, int maxBatchBytes, int minWindow, int maxWindow) {
+    this.enabled = enabled;
+    this.minBatchBytes = Math.min(minBatchBytes, maxBatchBytes);
+    this.maxBatchBytes = maxBatchBytes;
+    this.minWindow = Math.max(1, Math.min(minWindow, maxWindow));
+    this.maxWindow = maxWindow;
+    this.batchBytes = maxBatchBytes;
+    this.window = maxWindow;
+  }
+
+  int getMaxBatchBytes() {
+    return batchBytes;
+  }
+
+  int getWindow() {
+    return window;
+  }
+
+  long getSmoothedRttNanos() {
+    return smoothedRttNanos;
+  }
+
+  void batchAcknowledged(long rttNanos, long nowNanos) {
+    if (!enabled || rttNanos <= 0) { return; }
+    smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : smoothedRttNanos + (rttNanos - smoothedRttNanos) / 8;
+    if (minRttNanos == 0 || rttNanos < minRttNanos || nowNanos - minRttStampNanos > MIN_RTT_LIFETIME_NANOS) {
+      minRttNanos = rttNanos;
+      minRttStampNanos = nowNanos;
+    }
+
+    if (smoothedRttNanos > 2 * minRttNanos) {
+      decrease(nowNanos);
+    } else if (++acksSinceIncrease >= window) {
+      acksSinceIncrease = 0;
+      window = Math.min(maxWindow, window + 1);
+      batchBytes = Math.min(maxBatchBytes, batchBytes + minBatchBytes);
+    }
+  }
+
+  void serverThrottled(long nowNanos) {
+    if (!enabled) { return; }
+    decrease(nowNanos);
+  }
+
+  private void decrease(long nowNanos) {
+    long interval = Math.max(smoothedRttNanos, MIN_DECREASE_INTERVAL_NANOS);
+    if (lastDecreaseNanos != 0 && nowNanos - lastDecreaseNanos < interval) { return; }
+    lastDecreaseNanos = nowNanos;
+    acksSinceIncrease = 0;
+    window = Math.max(minWindow, window / 2);
+    batchBytes = Math.max(minBatchBytes, batchBytes - batchBytes / 4);
+  }
+
+  @Override
+  public String toString() {
+    return "batch bytes = " + batchBytes + " window = " + window + " smoothed rtt = "
+           + TimeUnit.NANOSECONDS.toMicros(smoothedRttNanos) + "us min rtt = "
+           + TimeUnit.NANOSECONDS.toMicros(minRttNanos) + "us";
+  }
+}
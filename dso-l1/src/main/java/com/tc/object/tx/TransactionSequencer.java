@@ -33,6 +33,7 @@ import com.tc.util.SequenceID;
 import com.tc.util.Util;
 
 import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
 
 public class TransactionSequencer implements ClearableCallback {
 
@@ -43,6 +44,9 @@ public class TransactionSequencer implements ClearableCallback {
   private static final int                                  MAX_BYTE_SIZE_FOR_BATCH;
   private static final int                                  MAX_PENDING_BATCHES;
   private static final long                                 MAX_SLEEP_TIME_BEFORE_HALT;
+  private static final boolean                              ADAPTIVE_ENABLED;
+  private static final int                                  MIN_BYTE_SIZE_FOR_BATCH;
+  private static final int                                  MIN_PENDING_BATCHES;
   private static final int                                  MIN_AVG_TRANSACTION_SIZE = 500;
 
   static {
@@ -55,6 +59,12 @@ public class TransactionSequencer implements ClearableCallback {
         .getInt(TCPropertiesConsts.L1_TRANSACTIONMANAGER_MAXPENDING_BATCHES);
     MAX_SLEEP_TIME_BEFORE_HALT = TCPropertiesImpl.getProperties()
         .getLong(TCPropertiesConsts.L1_TRANSACTIONMANAGER_MAXSLEEPTIME_BEFOREHALT);
+    ADAPTIVE_ENABLED = TCPropertiesImpl.getProperties()
+        .getBoolean(TCPropertiesConsts.L1_TRANSACTIONMANAGER_ADAPTIVE_ENABLED);
+    MIN_BYTE_SIZE_FOR_BATCH = TCPropertiesImpl.getProperties()
+        .getInt(TCPropertiesConsts.L1_TRANSACTIONMANAGER_ADAPTIVE_MINBATCHSIZE_INKILOBYTES) * 1024;
+    MIN_PENDING_BATCHES = TCPropertiesImpl.getProperties()
+        .getInt(TCPropertiesConsts.L1_TRANSACTIONMANAGER_ADAPTIVE_MINPENDING_BATCHES);
   }
 
   private SequenceGenerator                                 sequence       = new SequenceGenerator(1);
@@ -65,14 +75,15 @@ public class TransactionSequencer implements ClearableCallback {
   private ClientTransactionBatch                            currentBatch;
   private final Average                                           currentWritten = new Average();
 
-  private final int                                         slowDownStartsAt;
-  private final double                                      sleepTimeIncrements;
+  private final TransactionBatchSizer                       batchSizer;
   private int                                               txnsPerBatch   = 0;
   private volatile boolean                                  shutdown       = false;
 
   private final LockAccounting                              lockAccounting;
   private final SampledRateCounter                          transactionSizeCounter;
   private final SampledRateCounter                          transactionsPerBatchCounter;
+  private final SampledRateCounter                          batchWindowCounter;
+  private final SampledRateCounter                          batchThroughputCounter;
 
   private final GroupID                                     groupID;
   private final TransactionIDGenerator                      transactionIDGenerator;
@@ -83,6 +94,7 @@ public class TransactionSequencer implements ClearableCallback {
                               TransactionBatchFactory batchFactory, LockAccounting lockAccounting,
                               SampledRateCounter transactionSizeCounter,
                               SampledRateCounter transactionsPerBatchCounter,
+                              SampledRateCounter batchWindowCounter, SampledRateCounter batchThroughputCounter,
                               AbortableOperationManager abortableOperationManager,
                               RemoteTransactionManagerImpl remoteTxnMgrImpl) {
 
@@ -91,13 +103,15 @@ public class TransactionSequencer implements ClearableCallback {
     this.batchFactory = batchFactory;
     this.lockAccounting = lockAccounting;
     createNewBatch();
-    this.slowDownStartsAt = (int) (MAX_PENDING_BATCHES / 2);
-    this.sleepTimeIncrements = MAX_SLEEP_TIME_BEFORE_HALT / (MAX_PENDING_BATCHES - this.slowDownStartsAt);
+    this.batchSizer = new TransactionBatchSizer(ADAPTIVE_ENABLED, MIN_BYTE_SIZE_FOR_BATCH, MAX_BYTE_SIZE_FOR_BATCH,
+                                                MIN_PENDING_BATCHES, MAX_PENDING_BATCHES);
     if (LOGGING_ENABLED) {
       log_settings();
     }
     this.transactionSizeCounter = transactionSizeCounter;
     this.transactionsPerBatchCounter = transactionsPerBatchCounter;
+    this.batchWindowCounter = batchWindowCounter;
+    this.batchThroughputCounter = batchThroughputCounter;
     this.abortableOperationManager = abortableOperationManager;
     this.remoteTxnMgrImpl = remoteTxnMgrImpl;
   }
@@ -114,8 +128,9 @@ public class TransactionSequencer implements ClearableCallback {
   private void log_settings() {
     logger.info("Max Byte Size for Batches = " + MAX_BYTE_SIZE_FOR_BATCH + " Max Pending Batches = "
                 + MAX_PENDING_BATCHES);
-    logger.info("Max Sleep time = " + MAX_SLEEP_TIME_BEFORE_HALT + " Slow down starts at = " + this.slowDownStartsAt
-                + " sleep time increments = " + this.sleepTimeIncrements);
+    logger.info("Max Sleep time = " + MAX_SLEEP_TIME_BEFORE_HALT + " Adaptive = " + ADAPTIVE_ENABLED
+                + " Min Byte Size for Batches = " + MIN_BYTE_SIZE_FOR_BATCH + " Min Pending Batches = "
+                + MIN_PENDING_BATCHES);
   }
   
   int getMaxPendingSize() {
@@ -143,7 +158,7 @@ public class TransactionSequencer implements ClearableCallback {
   }
 
   public boolean throttleIfNecesary() throws AbortedOperationException {
-    int diff = this.pendingBatches.size() - this.slowDownStartsAt;
+    int diff = this.pendingBatches.size() - slowDownStartsAt(this.batchSizer.getWindow());
     if (diff >= 0) {
         waitIfNecessary();
         return true;
@@ -224,14 +239,21 @@ public class TransactionSequencer implements ClearableCallback {
     }
   }
 
+  /**
+   * Writers slow down once half the window of pending batches is used, sleeping longer the fuller it gets, and halt
+   * when it is full.
+   */
   private synchronized void waitIfNecessary() throws AbortedOperationException {
     boolean isInterrupted = false;
     try {
       do {
         if (remoteTxnMgrImpl.isRejoinInProgress()) { throw new PlatformRejoinException(); }
-        int diff = this.pendingBatches.size() - this.slowDownStartsAt;
+        int window = this.batchSizer.getWindow();
+        int slowDownStartsAt = slowDownStartsAt(window);
+        int diff = this.pendingBatches.size() - slowDownStartsAt;
         if (diff >= 0) {
-          long sleepTime = (long) (1 + diff * this.sleepTimeIncrements);
+          double sleepTimeIncrements = (double) MAX_SLEEP_TIME_BEFORE_HALT / (window - slowDownStartsAt);
+          long sleepTime = (long) (1 + diff * sleepTimeIncrements);
           try {
               waiters++;
               wait(sleepTime);
@@ -242,19 +264,56 @@ public class TransactionSequencer implements ClearableCallback {
             waiters--;            
           }
         }
-      } while (this.pendingBatches.size() >= MAX_PENDING_BATCHES);
+      } while (this.pendingBatches.size() >= this.batchSizer.getWindow());
     } finally {
       Util.selfInterruptIfNeeded(isInterrupted);
     }
   }
+
+  private static int slowDownStartsAt(int window) {
+    return window / 2;
+  }
+
+  /**
+   * Called once all transactions of a batch are acknowledged.
+   * 
+   * @param bytes size of the batch when it was sent
+   * @param rttNanos time from sending the batch to its last acknowledgement
+   */
+  public synchronized void batchAcknowledged(int bytes, long rttNanos) {
+    int window = this.batchSizer.getWindow();
+    this.batchSizer.batchAcknowledged(rttNanos, System.nanoTime());
+    publishWindow();
+    if (rttNanos > 0) {
+      // bytes per second of round trip
+      this.batchThroughputCounter.increment(bytes * 1000000L, Math.max(1, TimeUnit.NANOSECONDS.toMicros(rttNanos)));
+    }
+    if (this.batchSizer.getWindow() > window && waiters > 0) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * Called when the server asks clients to slow down.
+   */
+  public synchronized void serverThrottled() {
+    this.batchSizer.serverThrottled(System.nanoTime());
+    publishWindow();
+  }
+
+  private void publishWindow() {
+    // the sampled value is the average window over the sample period
+    this.batchWindowCounter.increment(this.batchSizer.getWindow(), 1);
+  }
   
   private void log_stats() {
     int size = this.pendingBatches.size();
-    if (size == MAX_PENDING_BATCHES) {
+    if (size == this.batchSizer.getWindow()) {
       logger.info("Max pending size reached !!! : Pending Batches size = " + size + " TxnsInBatch = "
                   + this.txnsPerBatch);
     } else if (size % 5 == 0) {
-      logger.info("Pending Batch Size : " + size + " TxnsInBatch = " + this.txnsPerBatch + " remote " + remoteTxnMgrImpl);
+      logger.info("Pending Batch Size : " + size + " TxnsInBatch = " + this.txnsPerBatch + " " + this.batchSizer
+                  + " remote " + remoteTxnMgrImpl);
     }
   }
 
@@ -313,7 +372,7 @@ public class TransactionSequencer implements ClearableCallback {
   }
   
   public int getAverageBatchSize() {
-    return MAX_BYTE_SIZE_FOR_BATCH / currentWritten.getAverage();
+    return this.batchSizer.getMaxBatchBytes() / currentWritten.getAverage();
   }
     
   private static class Average {
@@ -0,0 +1,146 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.object;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.tc.abortable.NullAbortableOperationManager;
+import com.tc.logging.NullTCLogger;
+import com.tc.net.ClientID;
+import com.tc.net.GroupID;
+import com.tc.net.NodeID;
+import com.tc.object.msg.GetValueServerMapRequestMessage;
+import com.tc.object.msg.ServerMapMessageFactory;
+import com.tc.object.servermap.localcache.L1ServerMapLocalCacheManager;
+import com.tc.object.session.SessionID;
+import com.tc.object.session.SessionManager;
+import com.tc.util.concurrent.Runners;
+import com.tc.util.concurrent.TaskRunner;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures get throughput of {@link RemoteServerMapManagerImpl} when every get misses the local cache, with a fake
+ * server answering each request after a fixed latency. The distinct key run shows how throughput scales with the
+ * number of application threads, the hot key run shows concurrent misses on the same keys sharing requests. Run with
+ * {@code java -cp <test classpath> com.tc.object.RemoteServerMapManagerBenchmark [gets per thread] [latency us]}.
+ */
+public class RemoteServerMapManagerBenchmark {
+  private static final GroupID  GROUP_ID  = new GroupID(0);
+  private static final ObjectID MAP_ID    = new ObjectID(1);
+  private static final NodeID   SERVER    = new ClientID(0);
+  private static final int      HOT_KEYS  = 16;
+  private static final int[]    THREADS   = { 1, 2, 4, 8, 16, 32 };
+
+  public static void main(String[] args) throws Exception {
+    int getsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    long latencyMicros = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+    System.out.println(String.format("%-10s %8s %12s %10s", "keys", "threads", "gets/s", "requests"));
+    for (boolean hot : new boolean[] { false, true }) {
+      for (int threads : THREADS) {
+        run(hot, threads, getsPerThread, latencyMicros);
+      }
+    }
+  }
+
+  private static void run(final boolean hot, final int threads, final int getsPerThread, final long latencyMicros)
+      throws Exception {
+    final ScheduledExecutorService server = Executors.newScheduledThreadPool(2);
+    final AtomicLong requests = new AtomicLong();
+    final RemoteServerMapManagerImpl[] manager = new RemoteServerMapManagerImpl[1];
+
+    GetValueServerMapRequestMessage message = mock(GetValueServerMapRequestMessage.class, withSettings().stubOnly());
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) {
+        final ServerMapRequestID requestID = (ServerMapRequestID) invocation.getArguments()[0];
+        final Set<?> keys = (Set<?>) invocation.getArguments()[2];
+        requests.incrementAndGet();
+        server.schedule(new Runnable() {
+          @Override
+          public void run() {
+            ServerMapGetValueResponse response = new ServerMapGetValueResponse(requestID);
+            for (Object key : keys) {
+              response.put(key, key);
+            }
+            manager[0].addResponseForKeyValueMapping(SessionID.NULL_ID, MAP_ID, Collections.singleton(response),
+                                                     SERVER);
+          }
+        }, latencyMicros, TimeUnit.MICROSECONDS);
+        return null;
+      }
+    }).when(message).addGetValueRequestTo(any(ServerMapRequestID.class), any(ObjectID.class), any(Set.class));
+    ServerMapMessageFactory factory = mock(ServerMapMessageFactory.class, withSettings().stubOnly());
+    when(factory.newServerMapRequestMessage(any(GroupID.class), any(ServerMapRequestType.class))).thenReturn(message);
+    SessionManager sessionManager = mock(SessionManager.class, withSettings().stubOnly());
+    when(sessionManager.isCurrentSession(any(NodeID.class), any(SessionID.class))).thenReturn(true);
+
+    TaskRunner taskRunner = Runners.newSingleThreadScheduledTaskRunner();
+    manager[0] = new RemoteServerMapManagerImpl(GROUP_ID, new NullTCLogger(), mock(RemoteObjectManager.class), factory,
+                                                sessionManager, mock(L1ServerMapLocalCacheManager.class),
+                                                new NullAbortableOperationManager(), taskRunner);
+
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      new Thread("get-" + t) {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            for (int i = 0; i < getsPerThread; i++) {
+              Object key = hot ? "hot-" + (i % HOT_KEYS) : "key-" + thread + "-" + i;
+              if (!key.equals(manager[0].getMappingForKey(MAP_ID, key))) { throw new AssertionError(key); }
+            }
+          } catch (Exception e) {
+            e.printStackTrace();
+          } finally {
+            done.countDown();
+          }
+        }
+      }.start();
+    }
+
+    long begin = System.nanoTime();
+    start.countDown();
+    done.await();
+    long elapsed = System.nanoTime() - begin;
+
+    long gets = (long) threads * getsPerThread;
+    System.out.println(String.format("%-10s %8d %12d %10d", hot ? "hot" : "distinct", threads,
+                                     gets * TimeUnit.SECONDS.toNanos(1) / elapsed, requests.get()));
+
+    manager[0].shutdown(false);
+    taskRunner.shutdown();
+    server.shutdownNow();
+  }
+}
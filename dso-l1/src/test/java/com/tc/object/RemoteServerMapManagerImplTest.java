@@ -0,0 +1,153 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.object;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.tc.abortable.NullAbortableOperationManager;
+import com.tc.logging.NullTCLogger;
+import com.tc.net.ClientID;
+import com.tc.net.GroupID;
+import com.tc.net.NodeID;
+import com.tc.object.msg.GetValueServerMapRequestMessage;
+import com.tc.object.msg.ServerMapMessageFactory;
+import com.tc.object.servermap.localcache.L1ServerMapLocalCacheManager;
+import com.tc.object.session.SessionID;
+import com.tc.object.session.SessionManager;
+import com.tc.test.TCTestCase;
+import com.tc.util.concurrent.Runners;
+import com.tc.util.concurrent.TaskRunner;
+import com.tc.util.concurrent.ThreadUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class RemoteServerMapManagerImplTest extends TCTestCase {
+  private static final GroupID            GROUP_ID   = new GroupID(0);
+  private static final ObjectID           MAP_ID     = new ObjectID(1);
+  private static final NodeID             SERVER     = new ClientID(0);
+
+  private final List<ServerMapRequestID>  requestIDs = new CopyOnWriteArrayList<ServerMapRequestID>();
+  private RemoteServerMapManagerImpl      manager;
+  private TaskRunner                      taskRunner;
+  private ExecutorService                 executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    GetValueServerMapRequestMessage message = mock(GetValueServerMapRequestMessage.class);
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) {
+        requestIDs.add((ServerMapRequestID) invocation.getArguments()[0]);
+        return null;
+      }
+    }).when(message).addGetValueRequestTo(any(ServerMapRequestID.class), any(ObjectID.class), any(Set.class));
+    ServerMapMessageFactory factory = mock(ServerMapMessageFactory.class);
+    when(factory.newServerMapRequestMessage(any(GroupID.class), any(ServerMapRequestType.class))).thenReturn(message);
+    SessionManager sessionManager = mock(SessionManager.class);
+    when(sessionManager.isCurrentSession(any(NodeID.class), any(SessionID.class))).thenReturn(true);
+
+    taskRunner = Runners.newSingleThreadScheduledTaskRunner();
+    manager = new RemoteServerMapManagerImpl(GROUP_ID, new NullTCLogger(), mock(RemoteObjectManager.class), factory,
+                                             sessionManager, mock(L1ServerMapLocalCacheManager.class),
+                                             new NullAbortableOperationManager(), taskRunner);
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdownNow();
+    manager.shutdown(false);
+    taskRunner.shutdown();
+    super.tearDown();
+  }
+
+  public void testConcurrentMissesOnTheSameKeyShareOneRequest() throws Exception {
+    List<Future<Object>> gets = new CopyOnWriteArrayList<Future<Object>>();
+    for (int i = 0; i < 8; i++) {
+      gets.add(executor.submit(new Get("key")));
+    }
+    waitForRequests(1);
+    // give the other threads time to join the request in flight
+    ThreadUtil.reallySleep(500);
+    assertEquals(1, requestIDs.size());
+
+    respond(requestIDs.get(0), "key", "value");
+    for (Future<Object> get : gets) {
+      assertEquals("value", get.get());
+    }
+
+    // the answered request is gone, so the next miss asks the server again
+    Future<Object> later = executor.submit(new Get("key"));
+    waitForRequests(2);
+    respond(requestIDs.get(1), "key", "value2");
+    assertEquals("value2", later.get());
+  }
+
+  public void testMissesOnDifferentKeysAreNotCoalesced() throws Exception {
+    Future<Object> first = executor.submit(new Get("key1"));
+    Future<Object> second = executor.submit(new Get("key2"));
+    waitForRequests(2);
+
+    // the requests may have gone out in either order, so both answers carry both keys
+    for (ServerMapRequestID requestID : requestIDs) {
+      respond(requestID, "key1", "value1", "key2", "value2");
+    }
+    assertEquals("value1", first.get());
+    assertEquals("value2", second.get());
+  }
+
+  private void respond(ServerMapRequestID requestID, Object... keysAndValues) {
+    ServerMapGetValueResponse response = new ServerMapGetValueResponse(requestID);
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      response.put(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    manager.addResponseForKeyValueMapping(SessionID.NULL_ID, MAP_ID, Collections.singleton(response), SERVER);
+  }
+
+  private void waitForRequests(int count) {
+    while (requestIDs.size() < count) {
+      ThreadUtil.reallySleep(10);
+    }
+  }
+
+  private class Get implements Callable<Object> {
+    private final Object key;
+
+    Get(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public Object call() throws Exception {
+      return manager.getMappingForKey(MAP_ID, key);
+    }
+  }
+}
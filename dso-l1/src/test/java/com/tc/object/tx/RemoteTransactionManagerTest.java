@@ -32,6 +32,7 @@ import com.tc.object.LogicalOperation;
 import com.tc.object.MockTCObject;
 import com.tc.object.ObjectID;
 import com.tc.object.dna.api.LogicalChangeID;
+import com.tc.object.locks.LockFlushCallback;
 import com.tc.object.locks.LockID;
 import com.tc.object.locks.StringLockID;
 import com.tc.object.net.MockChannel;
@@ -78,6 +79,7 @@ public class RemoteTransactionManagerTest extends TestCase {
   private TransactionBatchAccounting                batchAccounting;
   private CounterManager                            counterManager;
   private SampledRateCounter                        transactionsPerBatchCounter, transactionSizeCounter;
+  private SampledRateCounter                        batchWindowCounter, batchThroughputCounter;
 
   private final TCThreadGroup                       threadGroup = new TCThreadGroup(
                                                                                     new ThrowableHandlerImpl(
@@ -94,11 +96,16 @@ public class RemoteTransactionManagerTest extends TestCase {
         .createCounter(new SampledRateCounterConfig(1, 900, true));
     this.transactionsPerBatchCounter = (SampledRateCounter) this.counterManager
         .createCounter(new SampledRateCounterConfig(1, 900, true));
+    this.batchWindowCounter = (SampledRateCounter) this.counterManager
+        .createCounter(new SampledRateCounterConfig(1, 900, true));
+    this.batchThroughputCounter = (SampledRateCounter) this.counterManager
+        .createCounter(new SampledRateCounterConfig(1, 900, true));
 
     this.manager = new RemoteTransactionManagerImpl(GroupID.NULL_ID, logger, this.batchFactory,
                                                     new TransactionIDGenerator(), new NullSessionManager(),
                                                     new MockChannel(), this.transactionSizeCounter,
-                                                    this.transactionsPerBatchCounter, 0,
+                                                    this.transactionsPerBatchCounter, this.batchWindowCounter,
+                                                    this.batchThroughputCounter, 0,
                                                     new NullAbortableOperationManager(), taskRunner);
     this.manager.setFixedBatchSize(10);
     this.batchAccounting = this.manager.getBatchAccounting();
@@ -128,7 +135,8 @@ public class RemoteTransactionManagerTest extends TestCase {
     this.manager = new RemoteTransactionManagerImpl(GroupID.NULL_ID, logger, this.batchFactory,
                                                     new TransactionIDGenerator(), new NullSessionManager(),
                                                     new MockChannel(), this.transactionSizeCounter,
-                                                    this.transactionsPerBatchCounter, ackOnExitTimeout * 1000,
+                                                    this.transactionsPerBatchCounter, this.batchWindowCounter,
+                                                    this.batchThroughputCounter, ackOnExitTimeout * 1000,
                                                     new NullAbortableOperationManager(), taskRunner);
     this.batchAccounting = this.manager.getBatchAccounting();
 
@@ -164,7 +172,8 @@ public class RemoteTransactionManagerTest extends TestCase {
     this.manager = new RemoteTransactionManagerImpl(GroupID.NULL_ID, logger, this.batchFactory,
                                                     new TransactionIDGenerator(), new NullSessionManager(),
                                                     new MockChannel(), this.transactionSizeCounter,
-                                                    this.transactionsPerBatchCounter, ackOnExitTimeout * 1000,
+                                                    this.transactionsPerBatchCounter, this.batchWindowCounter,
+                                                    this.batchThroughputCounter, ackOnExitTimeout * 1000,
                                                     new NullAbortableOperationManager(), taskRunner);
     this.batchAccounting = this.manager.getBatchAccounting();
 
@@ -241,6 +250,41 @@ public class RemoteTransactionManagerTest extends TestCase {
     assertEquals(lockID1, flushCalls.take());
   }
 
+  public void testAsyncFlushCallbacksFireOnceOnTheLastAck() throws Exception {
+    final LockID lockID1 = new StringLockID("lock1");
+    TestClientTransaction tx1 = new TestClientTransaction();
+    tx1.lockID = lockID1;
+    tx1.allLockIDs.add(lockID1);
+    tx1.txnType = TxnType.NORMAL;
+    TestClientTransaction tx2 = new TestClientTransaction();
+    tx2.lockID = lockID1;
+    tx2.allLockIDs.add(lockID1);
+    tx2.txnType = TxnType.NORMAL;
+    this.manager.commit(tx1);
+    this.manager.commit(tx2);
+    this.manager.waitForPendings();
+
+    final AtomicInteger flushed = new AtomicInteger();
+    LockFlushCallback callback = new LockFlushCallback() {
+      @Override
+      public void transactionsForLockFlushed(LockID id) {
+        assertEquals(lockID1, id);
+        flushed.incrementAndGet();
+      }
+    };
+    assertFalse(this.manager.asyncFlush(lockID1, callback));
+    assertFalse(this.manager.asyncFlush(lockID1, callback));
+
+    this.manager.receivedAcknowledgement(SessionID.NULL_ID, tx1.getTransactionID(), GroupID.NULL_ID);
+    assertEquals(0, flushed.get());
+    this.manager.receivedAcknowledgement(SessionID.NULL_ID, tx2.getTransactionID(), GroupID.NULL_ID);
+    assertEquals(2, flushed.get());
+
+    // nothing left to flush, so no callback is registered
+    assertTrue(this.manager.asyncFlush(lockID1, callback));
+    assertEquals(2, flushed.get());
+  }
+
   public void testSendAckedGlobalTransactionIDs() throws Exception {
     assertTrue(this.batchSendQueue.isEmpty());
     ClientTransaction ctx = makeTransaction();
@@ -0,0 +1,69 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.object.tx;
+
+import com.tc.test.TCTestCase;
+
+public class TransactionBatchSizerTest extends TCTestCase {
+  private static final long MILLI = 1000000L;
+  private static final int  KB    = 1024;
+
+  public void testQueueingHalvesTheWindowOncePerRoundTrip() {
+    TransactionBatchSizer sizer = new TransactionBatchSizer(true, 8 * KB, 128 * KB, 4, 64);
+    assertEquals(64, sizer.getWindow());
+    assertEquals(128 * KB, sizer.getMaxBatchBytes());
+
+    long now = 0;
+    sizer.batchAcknowledged(MILLI, now += MILLI);
+    // round trips well above twice the baseline
+    for (int i = 0; i < 20; i++) {
+      sizer.batchAcknowledged(20 * MILLI, now += MILLI / 10);
+    }
+    // only one decrease while less than a smoothed round trip went by
+    assertEquals(32, sizer.getWindow());
+    assertEquals(96 * KB, sizer.getMaxBatchBytes());
+
+    for (int i = 0; i < 20; i++) {
+      sizer.batchAcknowledged(20 * MILLI, now += 20 * MILLI);
+    }
+    assertEquals(4, sizer.getWindow());
+    assertEquals(8 * KB, sizer.getMaxBatchBytes());
+  }
+
+  public void testGrowsOneStepPerWindowOfAcksWithoutQueueing() {
+    TransactionBatchSizer sizer = new TransactionBatchSizer(true, 8 * KB, 128 * KB, 4, 64);
+    sizer.serverThrottled(MILLI);
+    assertEquals(32, sizer.getWindow());
+    assertEquals(96 * KB, sizer.getMaxBatchBytes());
+
+    long now = MILLI;
+    for (int i = 0; i < 32; i++) {
+      sizer.batchAcknowledged(MILLI, now += MILLI);
+    }
+    assertEquals(33, sizer.getWindow());
+    assertEquals(104 * KB, sizer.getMaxBatchBytes());
+  }
+
+  public void testDisabledStaysAtMax() {
+    TransactionBatchSizer sizer = new TransactionBatchSizer(false, 8 * KB, 128 * KB, 4, 64);
+    sizer.serverThrottled(MILLI);
+    sizer.batchAcknowledged(MILLI, 2 * MILLI);
+    sizer.batchAcknowledged(50 * MILLI, 3 * MILLI);
+    assertEquals(64, sizer.getWindow());
+    assertEquals(128 * KB, sizer.getMaxBatchBytes());
+  }
+}
@@ -60,6 +60,8 @@ public class TransactionSequencerTest extends TestCase {
                                                  new TestLockAccounting(new NullAbortableOperationManager(), mockedRTMI),
                                                  new SampledRateCounterImpl(new SampledRateCounterConfig(1, 1, false)),
                                                  new SampledRateCounterImpl(new SampledRateCounterConfig(1, 1, false)),
+                                                 new SampledRateCounterImpl(new SampledRateCounterConfig(1, 1, false)),
+                                                 new SampledRateCounterImpl(new SampledRateCounterConfig(1, 1, false)),
                                                  new NullAbortableOperationManager(),
  mockedRTMI);
   }
@@ -16,19 +16,34 @@
  */
 package com.tc.l2.context;
 
-import com.tc.async.api.EventContext;
+import com.tc.async.api.MultiThreadedEventContext;
 import com.tc.net.NodeID;
 
-public class SyncObjectsRequest implements EventContext {
+/**
+ * Asks for the next batch of objects to sync to a passive. Consecutive requests for a passive carry different keys so
+ * the batches of its lanes are prepared on different threads of the request stage.
+ */
+public class SyncObjectsRequest implements MultiThreadedEventContext {
 
   private final NodeID nodeID;
+  private final int    requestNumber;
 
   public SyncObjectsRequest(NodeID nodeID) {
+    this(nodeID, 0);
+  }
+
+  public SyncObjectsRequest(NodeID nodeID, int requestNumber) {
     this.nodeID = nodeID;
+    this.requestNumber = requestNumber;
   }
   
   public NodeID getNodeID() {
     return nodeID;
   }
 
+  @Override
+  public Object getKey() {
+    return requestNumber;
+  }
+
 }
@@ -194,10 +194,12 @@ public class L2HACoordinator implements L2Coordinator, GroupEventsListener, Sequ
                              MAX_STAGE_SIZE).getSink();
 
     final L2ObjectSyncAckManager objectSyncAckManager = new L2ObjectSyncAckManagerImpl(transactionManager, groupManager);
+    final int objectSyncLanes = Math.max(1, TCPropertiesImpl.getProperties()
+        .getInt(TCPropertiesConsts.L2_OBJECTMANAGER_PASSIVE_SYNC_LANES, 1));
     final Sink objectsSyncRequestSink = stageManager.createStage(ServerConfigurationContext.OBJECTS_SYNC_REQUEST_STAGE,
                                                                  new L2ObjectSyncRequestHandler(this.sequenceGenerator,
-                                                                                                objectStateManager), 1,
-                                                                 MAX_STAGE_SIZE).getSink();
+                                                                                                objectStateManager),
+                                                                 objectSyncLanes, MAX_STAGE_SIZE).getSink();
     final Sink objectsSyncSink = stageManager.createStage(ServerConfigurationContext.OBJECTS_SYNC_STAGE,
                                                           new L2ObjectSyncHandler(serverTransactionFactory,
                                                                                   objectSyncAckManager, this.server
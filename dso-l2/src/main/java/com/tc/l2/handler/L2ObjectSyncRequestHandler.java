@@ -41,6 +41,7 @@ import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.BitSetObjectIDSet;
 import com.tc.util.ObjectIDSet;
+import com.tc.util.concurrent.ThreadUtil;
 import com.tc.util.sequence.SequenceGenerator;
 import com.tc.util.sequence.SequenceGenerator.SequenceGeneratorException;
 
@@ -57,6 +58,12 @@ public class L2ObjectSyncRequestHandler extends AbstractEventHandler {
                                                                          .getProperties()
                                                                          .getInt(TCPropertiesConsts.L2_OBJECTMANAGER_PASSIVE_SYNC_BATCH_SIZE);
 
+  private static final long          TIME_TO_THROTTLE_ON_OBJECT_SYNC = TCPropertiesImpl
+                                                                         .getProperties()
+                                                                         .getLong(TCPropertiesConsts.L2_OBJECTMANAGER_PASSIVE_SYNC_THROTTLE_TIME);
+  private static final int           OBJECT_SYNC_LANES               = Math.max(1, TCPropertiesImpl.getProperties()
+                                                                         .getInt(TCPropertiesConsts.L2_OBJECTMANAGER_PASSIVE_SYNC_LANES, 1));
+
   private static final int           MAX_L2_OBJECT_SYNC_BATCH_SIZE   = 5000;
   private static final int           MAX_L2_OBJECT_SYNC_MESSAGE_SIZE = 250 * 1024 * 1024;
 
@@ -99,6 +106,11 @@ public class L2ObjectSyncRequestHandler extends AbstractEventHandler {
 
   private void doSyncObjectsRequest(SyncObjectsRequest request) {
     NodeID nodeID = request.getNodeID();
+    if (TIME_TO_THROTTLE_ON_OBJECT_SYNC > 0) {
+      // throttled here rather than in the send stage, which also has to get transaction acks out. Each lane sleeps
+      // for its share so a passive still gets about one batch per throttle time, as it did with a single thread.
+      ThreadUtil.reallySleep(TIME_TO_THROTTLE_ON_OBJECT_SYNC * OBJECT_SYNC_LANES);
+    }
     ManagedObjectSyncContext mosc = l2ObjectStateMgr.getSomeObjectsToSyncContext(nodeID, L2_OBJECT_SYNC_BATCH_SIZE);
     if (mosc != null) {
       doSyncObjectsDehydrate(mosc);
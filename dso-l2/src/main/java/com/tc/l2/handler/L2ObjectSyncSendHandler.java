@@ -51,11 +51,6 @@ public class L2ObjectSyncSendHandler extends AbstractEventHandler {
   private static final int               MAX_SLEEP_SECS                       = TCPropertiesImpl
                                                                                   .getProperties()
                                                                                   .getInt(TCPropertiesConsts.L2_TRANSACTIONMANAGER_PASSIVE_THROTTLE_MAXSLEEPSECONDS);
-  private static final long              TIME_TO_THROTTLE_ON_OBJECT_SEND      = TCPropertiesImpl
-                                                                                  .getProperties()
-                                                                                  .getLong(TCPropertiesConsts.L2_OBJECTMANAGER_PASSIVE_SYNC_THROTTLE_TIME);
-
-  private final SyncLogger               syncLogger                           = new SyncLogger();
 
   private final ServerTransactionFactory serverTransactionFactory;
   private final L2ObjectStateManager     objectStateManager;
@@ -75,7 +70,6 @@ public class L2ObjectSyncSendHandler extends AbstractEventHandler {
       final ManagedObjectSyncContext mosc = (ManagedObjectSyncContext) context;
       if (sendObjects(mosc)) {
         if (mosc.hasMore()) {
-          throttleOnObjectSync();
           this.objectStateManager.syncMore(mosc.getNodeID());
         }
       }
@@ -87,16 +81,6 @@ public class L2ObjectSyncSendHandler extends AbstractEventHandler {
     }
   }
 
-  private synchronized void throttleOnObjectSync() {
-    if (TIME_TO_THROTTLE_ON_OBJECT_SEND > 0) {
-      try {
-        this.wait(TIME_TO_THROTTLE_ON_OBJECT_SEND);
-      } catch (final InterruptedException e) {
-        throw new AssertionError(e);
-      }
-    }
-  }
-
   private void sendAcks(final ServerTxnAckMessage ackMsg) {
     if (TXN_ACK_THROTTLING_ENABLED) {
       throttleOnTxnAck();
@@ -170,7 +154,6 @@ public class L2ObjectSyncSendHandler extends AbstractEventHandler {
       final ObjectSyncMessage msg = mosc.createObjectSyncMessage(sid);
       this.serverTxnMgr.objectsSynched(mosc.getNodeID(), sid);
       this.groupManager.sendTo(mosc.getNodeID(), msg);
-      this.syncLogger.logSynced(mosc);
       this.objectStateManager.close(mosc);
       return true;
     } catch (final GroupException e) {
@@ -191,21 +174,4 @@ public class L2ObjectSyncSendHandler extends AbstractEventHandler {
     this.groupManager = l2Coordinator.getGroupManager();
     replicatedTransactionManager = l2Coordinator.getReplicatedTransactionManager();
   }
-
-  private static class SyncLogger {
-
-    public void logSynced(final ManagedObjectSyncContext mosc) {
-      final int last = mosc.getTotalObjectsSynced();
-      final int current = last + mosc.getSynchedOids().size();
-      final int totalObjectsToSync = mosc.getTotalObjectsToSync();
-      final int lastPercent = (int) ((last * 100L) / totalObjectsToSync);
-      final int currentPercent = (int) ((current * 100L) / totalObjectsToSync);
-
-      if (currentPercent > lastPercent) {
-        logger.info("Sent " + current + " (" + currentPercent + "%) objects out of " + mosc.getTotalObjectsToSync()
-                    + " to " + mosc.getNodeID()
-                    + (mosc.getRootsMap().size() == 0 ? "" : " roots = " + mosc.getRootsMap().size()));
-      }
-    }
-  }
 }
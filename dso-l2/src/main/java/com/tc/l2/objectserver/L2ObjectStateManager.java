@@ -38,6 +38,11 @@ public interface L2ObjectStateManager {
 
   public void close(ManagedObjectSyncContext mosc);
 
+  /**
+   * @return how far the object sync of the passive has got, or null if it is not tracked
+   */
+  public ObjectSyncProgress getObjectSyncProgress(NodeID nodeID);
+
   public Collection getL2ObjectStates();
 
   public void registerForL2ObjectStateChangeEvents(L2ObjectStateListener listener);
@@ -26,7 +26,6 @@ import com.tc.objectserver.tx.ServerTransactionManager;
 import com.tc.objectserver.tx.TxnsInSystemCompletionListener;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
-import com.tc.util.Assert;
 import com.tc.util.BitSetObjectIDSet;
 import com.tc.util.ObjectIDSet;
 import com.tc.util.State;
@@ -35,8 +34,10 @@ import com.tc.util.concurrent.ThrottledTaskExecutor;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
@@ -49,6 +50,7 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
   private final ServerTransactionManager transactionManager;
   private final CopyOnWriteSequentialMap<NodeID, SyncExecutorContext> syncExecutorContextMap = new CopyOnWriteSequentialMap<NodeID, SyncExecutorContext>();
   private final int                      syncMaxPendingMsgs;
+  private final int                      syncLanes;
   private long                           currentSessionId       = 0;
 
   public L2ObjectStateManagerImpl(final ObjectManager objectManager, final ServerTransactionManager transactionManager) {
@@ -62,6 +64,8 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
                   + ")");
     }
     this.syncMaxPendingMsgs = (maxSyncPendingMsgs <= 0) ? Integer.MAX_VALUE : maxSyncPendingMsgs;
+    this.syncLanes = Math.max(1, TCPropertiesImpl.getProperties()
+        .getInt(TCPropertiesConsts.L2_OBJECTMANAGER_PASSIVE_SYNC_LANES, 1));
   }
 
   @Override
@@ -128,7 +132,12 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
   public ManagedObjectSyncContext getSomeObjectsToSyncContext(final NodeID nodeID, final int count) {
     final L2ObjectStateImpl l2State = this.nodes.get(nodeID);
     if (l2State != null) {
-      return l2State.getSomeObjectsToSyncContext(count);
+      final ManagedObjectSyncContext mosc = l2State.getSomeObjectsToSyncContext(count);
+      if (mosc == null) {
+        // the other lanes took what was left, nothing will be sent and acked for this request so give its slot back
+        ackSync(nodeID);
+      }
+      return mosc;
     } else {
       logger.warn("L2 State Object Not found for " + nodeID);
       return null;
@@ -145,6 +154,12 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
     }
   }
 
+  @Override
+  public ObjectSyncProgress getObjectSyncProgress(final NodeID nodeID) {
+    final L2ObjectStateImpl l2State = this.nodes.get(nodeID);
+    return l2State == null ? null : l2State.getObjectSyncProgress();
+  }
+
   @Override
   public Collection getL2ObjectStates() {
     return this.nodes.values();
@@ -158,7 +173,10 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
     if (o != null) {
       logger.warn("initiateSync: Passive Sync Context already available for " + nodeID);
     }
-    syncPassive(throttledTaskExecutor, syncRunnable);
+    // every lane keeps one batch being prepared or sent until the objects run out
+    for (int i = 0; i < syncLanes; i++) {
+      syncPassive(throttledTaskExecutor, syncRunnable);
+    }
   }
 
   @Override
@@ -227,10 +245,12 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
 
     private volatile State           state          = START;
 
-    private ManagedObjectSyncContext syncingContext = null;
+    private final Set<ManagedObjectSyncContext> syncingContexts = new HashSet<ManagedObjectSyncContext>();
 
     private int                      totalObjectsToSync;
     private int                      totalObjectsSynced;
+    private int                      lastLoggedPercent;
+    private long                     syncStartTime;
     private final long               sessionId;
 
     public L2ObjectStateImpl(final NodeID nodeID, final long currentSessionId) {
@@ -238,19 +258,19 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
       this.sessionId = currentSessionId;
     }
 
-    private void close(final ManagedObjectSyncContext mosc) {
+    private synchronized void close(final ManagedObjectSyncContext mosc) {
       if (this.sessionId != mosc.getSessionId()) {
         logger.warn("An old request for object sync for " + this.nodeID + " is being ignored");
         return;
       }
-      if (mosc != this.syncingContext) { throw new AssertionError("expected: " + this.syncingContext + " actual: "
-                                                                  + mosc); }
-      this.syncingContext = null;
+      if (!this.syncingContexts.remove(mosc)) { throw new AssertionError("expected one of: " + this.syncingContexts
+                                                                          + " actual: " + mosc); }
       // NotSynchedOids are picked up first as its a stored set and thus prefetching that happened is not a waste.
       missingOids.addAll(mosc.getNotSynchedOids());
       totalObjectsSynced += mosc.getSynchedOids().size();
       totalObjectsSynced += mosc.getDeletedOids().size();
-      if (this.missingOids.isEmpty()) {
+      logProgress();
+      if (this.missingOids.isEmpty() && this.syncingContexts.isEmpty()) {
         this.state = IN_SYNC_PENDING_NOTIFY;
         L2ObjectStateManagerImpl.this.transactionManager
             .callBackOnTxnsInSystemCompletion(new TxnsInSystemCompletionListener() {
@@ -262,16 +282,24 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
       }
     }
 
-    private ManagedObjectSyncContext getSomeObjectsToSyncContext(final int count) {
-      Assert.assertTrue(this.state == SYNC_STARTED);
-      Assert.assertNull(this.syncingContext);
+    /**
+     * @return the next batch of the lowest missing ObjectIDs, or null if the batches in flight hold all of them
+     */
+    private synchronized ManagedObjectSyncContext getSomeObjectsToSyncContext(final int count) {
+      if (this.state != SYNC_STARTED) {
+        // a lane can ask for more after the last batch was closed by another
+        return null;
+      }
       if (isRootsMissing()) { return getMissingRootsSynccontext(); }
+      if (this.missingOids.isEmpty()) { return null; }
       final ObjectIDSet oids = new BitSetObjectIDSet();
       addSomeMissingObjectIDsTo(oids, count);
-      this.syncingContext = new ManagedObjectSyncContext(this.nodeID, oids, !this.missingOids.isEmpty(),
-                                                         this.totalObjectsToSync, this.totalObjectsSynced,
-                                                         this.sessionId);
-      return this.syncingContext;
+      final ManagedObjectSyncContext mosc = new ManagedObjectSyncContext(this.nodeID, oids,
+                                                                         !this.missingOids.isEmpty(),
+                                                                         this.totalObjectsToSync,
+                                                                         this.totalObjectsSynced, this.sessionId);
+      this.syncingContexts.add(mosc);
+      return mosc;
     }
 
     private void addSomeMissingObjectIDsTo(final ObjectIDSet oids, int count) {
@@ -294,18 +322,35 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
         // Get some objects anyways
         addSomeMissingObjectIDsTo(oids, this.missingRoots.size());
       }
-      this.syncingContext = new ManagedObjectSyncContext(this.nodeID, new HashMap<String, ObjectID>(this.missingRoots), oids,
-                                                         !this.missingOids.isEmpty(), this.totalObjectsToSync,
-                                                         this.totalObjectsSynced, this.sessionId);
+      final ManagedObjectSyncContext mosc = new ManagedObjectSyncContext(this.nodeID,
+                                                                         new HashMap<String, ObjectID>(this.missingRoots),
+                                                                         oids, !this.missingOids.isEmpty(),
+                                                                         this.totalObjectsToSync,
+                                                                         this.totalObjectsSynced, this.sessionId);
+      this.syncingContexts.add(mosc);
       this.missingRoots.clear();
-      return this.syncingContext;
+      return mosc;
     }
 
     private boolean isRootsMissing() {
       return !this.missingRoots.isEmpty();
     }
 
-    private int computeDiff() {
+    private synchronized ObjectSyncProgress getObjectSyncProgress() {
+      final long elapsed = this.syncStartTime == 0 ? 0 : System.currentTimeMillis() - this.syncStartTime;
+      return new ObjectSyncProgress(this.nodeID, this.totalObjectsToSync, this.totalObjectsSynced,
+                                    this.syncingContexts.size(), elapsed);
+    }
+
+    private void logProgress() {
+      final ObjectSyncProgress progress = getObjectSyncProgress();
+      if (progress.getPercentComplete() > this.lastLoggedPercent) {
+        this.lastLoggedPercent = progress.getPercentComplete();
+        logger.info(progress);
+      }
+    }
+
+    private synchronized int computeDiff() {
       this.missingOids = L2ObjectStateManagerImpl.this.objectManager.getAllObjectIDs();
       this.missingRoots = L2ObjectStateManagerImpl.this.objectManager.getRootNamesToIDsMap();
       final int objectCount = this.missingOids.size();
@@ -313,6 +358,7 @@ public class L2ObjectStateManagerImpl implements L2ObjectStateManager {
       logger.info(this.nodeID + " : is missing " + this.missingOids.size() + " out of " + objectCount
                   + " objects of which missing roots = " + this.missingRoots.size());
       final int missingCount = this.missingOids.size();
+      this.syncStartTime = System.currentTimeMillis();
       if (missingCount == 0) {
         this.state = IN_SYNC;
       } else {
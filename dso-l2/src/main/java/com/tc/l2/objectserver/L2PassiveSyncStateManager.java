@@ -35,4 +35,9 @@ public interface L2PassiveSyncStateManager extends StateSyncManager {
 
   public boolean addL2(NodeID nodeID, State l2State);
 
+  /**
+   * @return how far the object sync of the passive has got, or null if it is not tracked
+   */
+  public ObjectSyncProgress getObjectSyncProgress(NodeID nodeID);
+
 }
\ No newline at end of file
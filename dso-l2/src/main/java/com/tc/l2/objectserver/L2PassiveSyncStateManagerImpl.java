@@ -49,6 +49,11 @@ public class L2PassiveSyncStateManagerImpl implements L2PassiveSyncStateManager
     return objectAddL2 && indexAddL2;
   }
 
+  @Override
+  public ObjectSyncProgress getObjectSyncProgress(NodeID nodeID) {
+    return this.objectStateManager.getObjectSyncProgress(nodeID);
+  }
+
   @Override
   public synchronized void removeL2(NodeID nodeID) {
     this.stateSyncManager.removeL2(nodeID);
@@ -0,0 +1,75 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.l2.objectserver;
+
+import com.tc.net.NodeID;
+
+/**
+ * How far the object sync of one passive has got, as of when it was asked for.
+ */
+public final class ObjectSyncProgress {
+
+  private final NodeID nodeID;
+  private final int    objectsToSync;
+  private final int    objectsSynced;
+  private final int    batchesInFlight;
+  private final long   elapsedMillis;
+
+  public ObjectSyncProgress(NodeID nodeID, int objectsToSync, int objectsSynced, int batchesInFlight,
+                            long elapsedMillis) {
+    this.nodeID = nodeID;
+    this.objectsToSync = objectsToSync;
+    this.objectsSynced = objectsSynced;
+    this.batchesInFlight = batchesInFlight;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public NodeID getNodeID() {
+    return nodeID;
+  }
+
+  public int getObjectsToSync() {
+    return objectsToSync;
+  }
+
+  public int getObjectsSynced() {
+    return objectsSynced;
+  }
+
+  public int getBatchesInFlight() {
+    return batchesInFlight;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public int getPercentComplete() {
+    return objectsToSync == 0 ? 100 : (int) ((objectsSynced * 100L) / objectsToSync);
+  }
+
+  public long getObjectsPerSecond() {
+    return elapsedMillis == 0 ? 0 : (objectsSynced * 1000L) / elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "ObjectSyncProgress [ " + nodeID + " ] : synced " + objectsSynced + " (" + getPercentComplete()
+           + "%) out of " + objectsToSync + " objects at " + getObjectsPerSecond() + " objects/sec, "
+           + batchesInFlight + " batches in flight";
+  }
+}
@@ -63,6 +63,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ReplicatedObjectManagerImpl implements ReplicatedObjectManager, GroupMessageListener,
     L2ObjectStateListener, L2IndexStateListener {
@@ -315,9 +316,11 @@ public class ReplicatedObjectManagerImpl implements ReplicatedObjectManager, Gro
       moveNodeToPassiveStandByIfPossible(nodeID);
     } else {
       final Runnable syncRunnable = new Runnable() {
+        private final AtomicInteger requests = new AtomicInteger();
+
         @Override
         public void run() {
-          objectsSyncRequestSink.add(new SyncObjectsRequest(nodeID));
+          objectsSyncRequestSink.add(new SyncObjectsRequest(nodeID, requests.getAndIncrement()));
         }
       };
       this.l2ObjectStateManager.initiateSync(nodeID, syncRunnable);
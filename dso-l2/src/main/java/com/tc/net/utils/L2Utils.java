@@ -57,6 +57,18 @@ public class L2Utils {
         Math.min(threadsCount, MAX_APPLY_STAGE_THREADS));
   }
 
+  /**
+   * Whether idle apply stage threads should take over transaction groupings queued for busy ones.
+   * {@code l2.seda.apply.stage.workStealing} configuration property overrides this value.
+   *
+   * @param usesDisk if uses disk then each transaction committing on its own costs more than the stealing gains
+   * @return true to create the apply stage with work stealing
+   */
+  public static boolean isApplyStageWorkStealing(boolean usesDisk) {
+    return TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_SEDA_APPLY_STAGE_WORK_STEALING,
+        !usesDisk);
+  }
+
   /**
    * Calculates the optimal number of worker threads based on the formula below:
    * <br> {@code N_threads = N_cpu * U_cpu * (1 + W/C)}, where
@@ -22,6 +22,8 @@ import com.tc.object.ServerMapGetValueRequest;
 import com.tc.object.ServerMapRequestID;
 import com.tc.objectserver.context.ServerMapGetAllSizeHelper;
 import com.tc.objectserver.core.api.ManagedObject;
+import com.tc.stats.counter.Counter;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounter;
 import com.tc.text.PrettyPrintable;
 
 import java.util.Collection;
@@ -39,4 +41,14 @@ public interface ServerMapRequestManager extends PrettyPrintable {
 
   public void requestValues(ClientID clientID, ObjectID mapID, Collection<ServerMapGetValueRequest> requests);
 
+  /**
+   * Counts the keys asked for by get value requests that were and were not found in their map.
+   */
+  public void setGetValueCounters(Counter hits, Counter misses);
+
+  /**
+   * Records how long get value requests take, from being handed to this manager until their values are gathered.
+   */
+  public void setGetValueLatencyCounter(SampledLatencyCounter latency);
+
 }
@@ -28,6 +28,7 @@ import java.util.Collection;
 public class ServerMapRequestValueContext extends ServerMapRequestContext {
 
   private final Collection<ServerMapGetValueRequest> getValueRequests;
+  private final long                                 receivedNanos = System.nanoTime();
 
   public ServerMapRequestValueContext(final ClientID clientID, final ObjectID mapID,
                                       final Collection<ServerMapGetValueRequest> getValueRequests,
@@ -40,6 +41,10 @@ public class ServerMapRequestValueContext extends ServerMapRequestContext {
     return this.getValueRequests;
   }
 
+  public long getReceivedNanos() {
+    return this.receivedNanos;
+  }
+
   @Override
   public String toString() {
     return super.toString() + " [ value requests : " + this.getValueRequests + "]";
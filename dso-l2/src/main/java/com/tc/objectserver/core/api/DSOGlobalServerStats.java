@@ -16,11 +16,15 @@
  */
 package com.tc.objectserver.core.api;
 
+import com.tc.async.api.StageLatencyStats;
 import com.tc.objectserver.api.ObjectManagerStats;
 import com.tc.stats.counter.sampled.SampledCounter;
 import com.tc.stats.counter.sampled.SampledCumulativeCounter;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounter;
 import com.tc.stats.counter.sampled.derived.SampledRateCounter;
 
+import java.util.Collection;
+
 public interface DSOGlobalServerStats {
 
   SampledCounter getReadOperationRateCounter();
@@ -48,4 +52,20 @@ public interface DSOGlobalServerStats {
   SampledCumulativeCounter getServerMapGetValueRequestsCounter();
 
   SampledCounter getOperationCounter();
+
+  SampledCumulativeCounter getObjectIndexHitCounter();
+
+  SampledCumulativeCounter getObjectIndexMissCounter();
+
+  SampledCumulativeCounter getServerEventsCoalescedCounter();
+
+  SampledCumulativeCounter getServerEventBytesSavedCounter();
+
+  SampledCumulativeCounter getServerMapGetValueHitCounter();
+
+  SampledCumulativeCounter getServerMapGetValueMissCounter();
+
+  SampledLatencyCounter getServerMapGetValueLatencyCounter();
+
+  Collection<StageLatencyStats> getStageLatencyStats();
 }
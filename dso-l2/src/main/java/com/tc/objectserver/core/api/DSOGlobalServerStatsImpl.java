@@ -16,12 +16,20 @@
  */
 package com.tc.objectserver.core.api;
 
+import com.tc.async.api.Stage;
+import com.tc.async.api.StageLatencyStats;
+import com.tc.async.api.StageManager;
 import com.tc.objectserver.api.ObjectManagerStats;
 import com.tc.objectserver.impl.ObjectManagerStatsImpl;
 import com.tc.stats.counter.sampled.SampledCounter;
 import com.tc.stats.counter.sampled.SampledCumulativeCounter;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounter;
 import com.tc.stats.counter.sampled.derived.SampledRateCounter;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public class DSOGlobalServerStatsImpl implements DSOGlobalServerStats {
 
   private final SampledCounter readCounter;
@@ -40,6 +48,14 @@ public class DSOGlobalServerStatsImpl implements DSOGlobalServerStats {
   private SampledCumulativeCounter serverMapGetSizeRequestsCounter;
   private SampledCumulativeCounter serverMapGetValueRequestsCounter;
   private SampledCumulativeCounter serverMapGetSnapshotRequestsCounter;
+  private SampledCumulativeCounter objectIndexHitCounter;
+  private SampledCumulativeCounter objectIndexMissCounter;
+  private SampledCumulativeCounter serverEventsCoalescedCounter;
+  private SampledCumulativeCounter serverEventBytesSavedCounter;
+  private SampledCumulativeCounter serverMapGetValueHitCounter;
+  private SampledCumulativeCounter serverMapGetValueMissCounter;
+  private SampledLatencyCounter    serverMapGetValueLatencyCounter;
+  private StageManager             stageManager;
 
   public DSOGlobalServerStatsImpl(SampledCounter readCounter, SampledCounter txnCounter,
                                   ObjectManagerStatsImpl objMgrStats, SampledCounter broadcastCounter,
@@ -84,6 +100,37 @@ public class DSOGlobalServerStatsImpl implements DSOGlobalServerStats {
     return this;
   }
 
+  public DSOGlobalServerStatsImpl objectIndexCounters(final SampledCumulativeCounter hitCounter,
+                                                      final SampledCumulativeCounter missCounter) {
+    this.objectIndexHitCounter = hitCounter;
+    this.objectIndexMissCounter = missCounter;
+    return this;
+  }
+
+  public DSOGlobalServerStatsImpl serverEventCoalescingCounters(final SampledCumulativeCounter coalescedCounter,
+                                                                final SampledCumulativeCounter bytesSavedCounter) {
+    this.serverEventsCoalescedCounter = coalescedCounter;
+    this.serverEventBytesSavedCounter = bytesSavedCounter;
+    return this;
+  }
+
+  public DSOGlobalServerStatsImpl serverMapGetValueCounters(final SampledCumulativeCounter hitCounter,
+                                                            final SampledCumulativeCounter missCounter) {
+    this.serverMapGetValueHitCounter = hitCounter;
+    this.serverMapGetValueMissCounter = missCounter;
+    return this;
+  }
+
+  public DSOGlobalServerStatsImpl serverMapGetValueLatencyCounter(final SampledLatencyCounter latencyCounter) {
+    this.serverMapGetValueLatencyCounter = latencyCounter;
+    return this;
+  }
+
+  public DSOGlobalServerStatsImpl stageManager(final StageManager manager) {
+    this.stageManager = manager;
+    return this;
+  }
+
   @Override
   public SampledCounter getReadOperationRateCounter() {
     return this.readCounter;
@@ -143,6 +190,52 @@ public class DSOGlobalServerStatsImpl implements DSOGlobalServerStats {
     return serverMapGetSnapshotRequestsCounter;
   }
 
+  @Override
+  public SampledCumulativeCounter getObjectIndexHitCounter() {
+    return objectIndexHitCounter;
+  }
+
+  @Override
+  public SampledCumulativeCounter getObjectIndexMissCounter() {
+    return objectIndexMissCounter;
+  }
+
+  @Override
+  public SampledCumulativeCounter getServerEventsCoalescedCounter() {
+    return serverEventsCoalescedCounter;
+  }
+
+  @Override
+  public SampledCumulativeCounter getServerEventBytesSavedCounter() {
+    return serverEventBytesSavedCounter;
+  }
+
+  @Override
+  public SampledCumulativeCounter getServerMapGetValueHitCounter() {
+    return serverMapGetValueHitCounter;
+  }
+
+  @Override
+  public SampledCumulativeCounter getServerMapGetValueMissCounter() {
+    return serverMapGetValueMissCounter;
+  }
+
+  @Override
+  public SampledLatencyCounter getServerMapGetValueLatencyCounter() {
+    return serverMapGetValueLatencyCounter;
+  }
+
+  @Override
+  public Collection<StageLatencyStats> getStageLatencyStats() {
+    List<StageLatencyStats> stats = new ArrayList<StageLatencyStats>();
+    if (stageManager != null) {
+      for (Stage stage : stageManager.getStages()) {
+        stats.add(stage.getLatencyStats());
+      }
+    }
+    return stats;
+  }
+
   @Override
   public SampledCounter getEvictionRateCounter() {
     return evictionRateCounter;
@@ -30,6 +30,8 @@ public interface GarbageCollectionInfoPublisher {
 
   public void fireGCMarkResultsEvent(GarbageCollectionInfo info);
 
+  public void fireGCMarkStatsEvent(GarbageCollectionInfo info, MarkStats stats);
+
   public void fireGCRescue1CompleteEvent(GarbageCollectionInfo info);
 
   public void fireGCPausingEvent(GarbageCollectionInfo info);
@@ -26,6 +26,8 @@ public interface GarbageCollectorEventListener {
 
   public void garbageCollectorMarkResults(GarbageCollectionInfo info);
 
+  public void garbageCollectorMarkStats(GarbageCollectionInfo info, MarkStats stats);
+
   public void garbageCollectorRescue1Complete(GarbageCollectionInfo info);
 
   public void garbageCollectorPausing(GarbageCollectionInfo info);
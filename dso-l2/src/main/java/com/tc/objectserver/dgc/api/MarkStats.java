@@ -0,0 +1,94 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.dgc.api;
+
+/**
+ * Timings of one mark pass of a DGC cycle, the initial mark or one of the rescues.
+ */
+public class MarkStats {
+  private final String phase;
+  private final int    parallelism;
+  private final long   visitedCount;
+  private final long   batchCount;
+  private final int    levelCount;
+  private final int    pauseCount;
+  private final long   pausedMillis;
+  private final long   elapsedMillis;
+
+  public MarkStats(String phase, int parallelism, long visitedCount, long batchCount, int levelCount, int pauseCount,
+                   long pausedMillis, long elapsedMillis) {
+    this.phase = phase;
+    this.parallelism = parallelism;
+    this.visitedCount = visitedCount;
+    this.batchCount = batchCount;
+    this.levelCount = levelCount;
+    this.pauseCount = pauseCount;
+    this.pausedMillis = pausedMillis;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public String getPhase() {
+    return phase;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Number of objects whose references were fetched.
+   */
+  public long getVisitedCount() {
+    return visitedCount;
+  }
+
+  /**
+   * Number of batched reference fetches.
+   */
+  public long getBatchCount() {
+    return batchCount;
+  }
+
+  /**
+   * Depth of the object graph walked, summed over all roots.
+   */
+  public int getLevelCount() {
+    return levelCount;
+  }
+
+  public int getPauseCount() {
+    return pauseCount;
+  }
+
+  public long getPausedMillis() {
+    return pausedMillis;
+  }
+
+  /**
+   * Wall clock time of the pass, including pauses.
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "MarkStats[" + phase + ": visited=" + visitedCount + ", batches=" + batchCount + ", levels=" + levelCount
+           + ", parallelism=" + parallelism + ", pauses=" + pauseCount + " (" + pausedMillis + " ms), elapsed="
+           + elapsedMillis + " ms]";
+  }
+}
@@ -20,9 +20,14 @@ import com.tc.object.ObjectID;
 import com.tc.objectserver.api.ObjectManager;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.util.BitSetObjectIDSet;
+import com.tc.util.ObjectIDSet;
 import com.tc.util.concurrent.ThreadUtil;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DGCRequestThrottler {
   private static final long     THROTTLE_GC_MILLIS    = TCPropertiesImpl
@@ -33,21 +38,74 @@ public class DGCRequestThrottler {
                                                           .getProperties()
                                                           .getLong(
                                                                    TCPropertiesConsts.L2_OBJECTMANAGER_DGC_REQUEST_PER_THROTTLE);
+  private static final boolean  INCREMENTAL_MARK      = TCPropertiesImpl
+                                                          .getProperties()
+                                                          .getBoolean(
+                                                                      TCPropertiesConsts.L2_OBJECTMANAGER_DGC_MARK_INCREMENTAL_ENABLED);
+  private static final long     MARK_STEP_NANOS       = TimeUnit.MILLISECONDS
+                                                          .toNanos(TCPropertiesImpl
+                                                              .getProperties()
+                                                              .getLong(
+                                                                       TCPropertiesConsts.L2_OBJECTMANAGER_DGC_MARK_INCREMENTAL_STEP_MILLIS));
+  private static final long     MARK_PAUSE_MILLIS     = TCPropertiesImpl
+                                                          .getProperties()
+                                                          .getLong(
+                                                                   TCPropertiesConsts.L2_OBJECTMANAGER_DGC_MARK_INCREMENTAL_PAUSE_MILLIS);
   protected final ObjectManager objectManager;
-  private long                  request_count         = 0;
+  // the mark fetches references from several threads
+  private final AtomicLong      request_count         = new AtomicLong();
+  // only touched by the DGC thread, between mark batches
+  private long                  markStepStartNanos    = System.nanoTime();
 
   public DGCRequestThrottler(ObjectManager objectManager) {
     this.objectManager = objectManager;
   }
 
   public Set<ObjectID> getObjectReferencesFrom(final ObjectID id, final boolean cacheOnly) {
-    throttleIfNecessary();
+    throttleIfNecessary(1);
     return objectManager.getObjectReferencesFrom(id, cacheOnly);
   }
 
-  private void throttleIfNecessary() {
-    if (THROTTLE_GC_MILLIS > 0 && ++this.request_count % REQUESTS_PER_THROTTLE == 0) {
-      ThreadUtil.reallySleep(THROTTLE_GC_MILLIS);
+  /**
+   * Union of the references from all the given objects, throttled once for the whole batch.
+   */
+  public ObjectIDSet getObjectReferencesFrom(final Collection<ObjectID> ids, final boolean cacheOnly) {
+    throttleIfNecessary(ids.size());
+    ObjectIDSet references = new BitSetObjectIDSet();
+    for (ObjectID id : ids) {
+      for (ObjectID reference : objectManager.getObjectReferencesFrom(id, cacheOnly)) {
+        if (reference == null) {
+          // see CDV-765
+          MarkAndSweepGarbageCollector.logger.error("null value returned from getObjectReferences() on " + id);
+          continue;
+        }
+        references.add(reference);
+      }
+    }
+    return references;
+  }
+
+  /**
+   * When the mark is incremental, pauses it once it ran for a step. The mark calls this between batches, with what is
+   * left to visit as the checkpoint it resumes from.
+   *
+   * @return the time paused in millis, 0 if the mark was not paused
+   */
+  public long pauseMarkIfStepElapsed() {
+    if (!INCREMENTAL_MARK || System.nanoTime() - markStepStartNanos < MARK_STEP_NANOS) { return 0; }
+    long start = System.nanoTime();
+    ThreadUtil.reallySleep(MARK_PAUSE_MILLIS);
+    markStepStartNanos = System.nanoTime();
+    return TimeUnit.NANOSECONDS.toMillis(markStepStartNanos - start);
+  }
+
+  private void throttleIfNecessary(int requests) {
+    if (THROTTLE_GC_MILLIS > 0) {
+      long before = this.request_count.getAndAdd(requests);
+      long throttles = (before + requests) / REQUESTS_PER_THROTTLE - before / REQUESTS_PER_THROTTLE;
+      if (throttles > 0) {
+        ThreadUtil.reallySleep(THROTTLE_GC_MILLIS * throttles);
+      }
     }
   }
 }
@@ -27,6 +27,7 @@ import com.tc.objectserver.l1.api.ClientStateManager;
 import com.tc.util.BitSetObjectIDSet;
 import com.tc.util.ObjectIDSet;
 
+import java.util.Collection;
 import java.util.Set;
 
 public class FullGCHook extends AbstractGCHook {
@@ -76,6 +77,11 @@ public class FullGCHook extends AbstractGCHook {
     return getObjectReferencesFrom(id, false);
   }
 
+  @Override
+  public ObjectIDSet getObjectReferencesFrom(Collection<ObjectID> ids) {
+    return getObjectReferencesFrom(ids, false);
+  }
+
   @Override
   public ObjectIDSet getRescueIDs() {
     ObjectIDSet rescueIds = new BitSetObjectIDSet();
@@ -22,6 +22,7 @@ import com.tc.objectserver.core.impl.GarbageCollectionID;
 import com.tc.objectserver.dgc.api.GarbageCollectionInfo;
 import com.tc.util.ObjectIDSet;
 
+import java.util.Collection;
 import java.util.Set;
 
 public interface GCHook {
@@ -46,6 +47,18 @@ public interface GCHook {
 
   public Set<ObjectID> getObjectReferencesFrom(ObjectID id);
 
+  /**
+   * Union of the references from all the given objects. Called concurrently by the mark.
+   */
+  public ObjectIDSet getObjectReferencesFrom(Collection<ObjectID> ids);
+
+  /**
+   * Called by the mark between batches, pauses it if it is incremental and ran long enough.
+   *
+   * @return the time paused in millis
+   */
+  public long pauseMarkIfStepElapsed();
+
   public ObjectIDSet getRescueIDs();
 
 }
\ No newline at end of file
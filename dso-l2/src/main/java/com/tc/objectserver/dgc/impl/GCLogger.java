@@ -19,6 +19,7 @@ package com.tc.objectserver.dgc.impl;
 import com.tc.logging.TCLogger;
 import com.tc.objectserver.core.impl.GarbageCollectionID;
 import com.tc.objectserver.dgc.api.GarbageCollectionInfo;
+import com.tc.objectserver.dgc.api.MarkStats;
 import com.tc.util.Assert;
 
 public class GCLogger {
@@ -50,6 +51,10 @@ public class GCLogger {
     if (verboseGC()) logGC(id, "pre-rescue DGC results: " + size);
   }
 
+  public void log_markStats(GarbageCollectionID id, MarkStats stats) {
+    if (verboseGC()) logGC(id, stats.toString());
+  }
+
   public void log_quiescing(GarbageCollectionID id) {
     if (verboseGC()) logGC(id, "quiescing...");
   }
@@ -17,6 +17,7 @@
 package com.tc.objectserver.dgc.impl;
 
 import com.tc.objectserver.dgc.api.GarbageCollectionInfo;
+import com.tc.objectserver.dgc.api.MarkStats;
 import com.tc.util.ObjectIDSet;
 
 public class GCLoggerEventPublisher extends GarbageCollectorEventListenerAdapter {
@@ -45,6 +46,12 @@ public class GCLoggerEventPublisher extends GarbageCollectorEventListenerAdapter
     gcLogger.log_markResults(info.getGarbageCollectionID(), info.getPreRescueCount());
   }
 
+  @Override
+  public void garbageCollectorMarkStats(GarbageCollectionInfo info, MarkStats stats) {
+    if (info.isInlineDGC()) { return; }
+    gcLogger.log_markStats(info.getGarbageCollectionID(), stats);
+  }
+
   @Override
   public void garbageCollectorRescue1Complete(GarbageCollectionInfo info) {
     if (info.isInlineDGC()) { return; }
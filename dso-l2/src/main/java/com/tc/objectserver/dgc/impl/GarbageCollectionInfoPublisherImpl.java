@@ -19,6 +19,7 @@ package com.tc.objectserver.dgc.impl;
 import com.tc.objectserver.dgc.api.GarbageCollectionInfo;
 import com.tc.objectserver.dgc.api.GarbageCollectionInfoPublisher;
 import com.tc.objectserver.dgc.api.GarbageCollectorEventListener;
+import com.tc.objectserver.dgc.api.MarkStats;
 import com.tc.util.ObjectIDSet;
 
 import java.util.Collections;
@@ -80,6 +81,14 @@ public class GarbageCollectionInfoPublisherImpl implements GarbageCollectionInfo
     }
   }
 
+  @Override
+  public void fireGCMarkStatsEvent(GarbageCollectionInfo info, MarkStats stats) {
+    for (Iterator iter = this.garbageCollectionEventListeners.iterator(); iter.hasNext();) {
+      GarbageCollectorEventListener listener = (GarbageCollectorEventListener) iter.next();
+      listener.garbageCollectorMarkStats(info, stats);
+    }
+  }
+
   @Override
   public void fireGCRescue1CompleteEvent(GarbageCollectionInfo info) {
     for (Iterator iter = this.garbageCollectionEventListeners.iterator(); iter.hasNext();) {
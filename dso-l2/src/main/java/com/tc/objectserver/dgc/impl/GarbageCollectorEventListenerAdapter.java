@@ -18,6 +18,7 @@ package com.tc.objectserver.dgc.impl;
 
 import com.tc.objectserver.dgc.api.GarbageCollectionInfo;
 import com.tc.objectserver.dgc.api.GarbageCollectorEventListener;
+import com.tc.objectserver.dgc.api.MarkStats;
 import com.tc.util.ObjectIDSet;
 
 import java.io.Serializable;
@@ -49,6 +50,11 @@ public abstract class GarbageCollectorEventListenerAdapter implements GarbageCol
     //
   }
 
+  @Override
+  public void garbageCollectorMarkStats(GarbageCollectionInfo info, MarkStats stats) {
+    //
+  }
+
   @Override
   public void garbageCollectorPaused(GarbageCollectionInfo info) {
     //
@@ -23,32 +23,58 @@ import com.tc.objectserver.core.impl.GarbageCollectionID;
 import com.tc.objectserver.dgc.api.GarbageCollectionInfo;
 import com.tc.objectserver.dgc.api.GarbageCollectionInfoPublisher;
 import com.tc.objectserver.dgc.api.GarbageCollector;
+import com.tc.objectserver.dgc.api.MarkStats;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.BitSetObjectIDSet;
 import com.tc.util.ObjectIDSet;
 import com.tc.util.TCCollections;
 import com.tc.util.UUID;
 import com.tc.util.concurrent.LifeCycleState;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 final class MarkAndSweepGCAlgorithm {
 
+  private static final int                     MARK_PARALLELISM = markParallelism();
+  private static final int                     MARK_BATCH_SIZE  = Math.max(1, TCPropertiesImpl.getProperties()
+                                                                    .getInt(TCPropertiesConsts.L2_OBJECTMANAGER_DGC_MARK_BATCH_SIZE));
+  // objects of a level handed to the pool at once, the mark can pause in between
+  private static final int                     MARK_SLICE_SIZE  = MARK_BATCH_SIZE * MARK_PARALLELISM * 4;
+
   private final GCHook                         gcHook;
   private final long                           gcIteration;
   private final GarbageCollector               collector;
   private final GarbageCollectionInfoPublisher gcPublisher;
   private final LifeCycleState                 gcState;
+  // owned by the collector, null when the mark runs on the DGC thread alone
+  private final ForkJoinPool                   markPool;
   private final String                         uuid = UUID.getUUID().toString();
 
   public MarkAndSweepGCAlgorithm(GarbageCollector collector, GCHook gcHook, GarbageCollectionInfoPublisher gcPublisher,
-                                 LifeCycleState gcState, long gcIteration) {
+                                 LifeCycleState gcState, long gcIteration, ForkJoinPool markPool) {
     this.collector = collector;
     this.gcHook = gcHook;
     this.gcPublisher = gcPublisher;
     this.gcState = gcState;
     this.gcIteration = gcIteration;
+    this.markPool = markPool;
+  }
+
+  /**
+   * @return a pool for the mark of every collection of a collector, or null if the mark is not parallel
+   */
+  static ForkJoinPool newMarkPool() {
+    return MARK_PARALLELISM > 1 ? new ForkJoinPool(MARK_PARALLELISM, new MarkThreadFactory(), null, false) : null;
   }
 
   void doGC() {
@@ -71,14 +97,15 @@ final class MarkAndSweepGCAlgorithm {
 
     if (gcState.isStopRequested()) { return; }
 
-    ObjectIDSet gcResults = collect(gcHook.getCollectCycleFilter(candidateIDs), rootIDs, candidateIDs, gcState);
+    ObjectIDSet gcResults = collect(gcInfo, "mark", gcHook.getCollectCycleFilter(candidateIDs), rootIDs, candidateIDs,
+                                    gcState);
     gcInfo.setPreRescueCount(gcResults.size());
     gcPublisher.fireGCMarkResultsEvent(gcInfo);
 
     if (gcState.isStopRequested()) { return; }
 
     long startRescue1 = System.currentTimeMillis();
-    gcResults = rescue(gcResults);
+    gcResults = rescue(gcInfo, "rescue 1", gcResults);
     long rescue1Time = System.currentTimeMillis() - startRescue1;
     gcInfo.setRescue1Time(rescue1Time);
     gcInfo.setRescue1Count(gcResults.size());
@@ -108,7 +135,8 @@ final class MarkAndSweepGCAlgorithm {
     gcInfo.setCandidateGarbageCount(gcResults.size());
     gcPublisher.fireGCRescue2StartEvent(gcInfo);
     long startRescue2 = System.currentTimeMillis();
-    ObjectIDSet toDelete = ObjectIDSet.unmodifiableObjectIDSet(rescue(new BitSetObjectIDSet(gcResults)));
+    ObjectIDSet toDelete = ObjectIDSet.unmodifiableObjectIDSet(rescue(gcInfo, "rescue 2",
+                                                                      new BitSetObjectIDSet(gcResults)));
     long rescue2Time = System.currentTimeMillis() - startRescue2;
     gcInfo.setRescue2Time(rescue2Time);
 
@@ -146,53 +174,36 @@ final class MarkAndSweepGCAlgorithm {
 
   public ObjectIDSet collect(Filter filter, Collection rootIds, ObjectIDSet managedObjectIds,
                              LifeCycleState lifeCycleState) {
+    return collect(null, "mark", filter, rootIds, managedObjectIds, lifeCycleState);
+  }
+
+  private ObjectIDSet collect(GarbageCollectionInfo gcInfo, String phase, Filter filter, Collection rootIds,
+                              ObjectIDSet managedObjectIds, LifeCycleState lifeCycleState) {
     long start = System.currentTimeMillis();
     logstart_collect(rootIds, managedObjectIds);
 
+    Marker marker = new Marker(filter, managedObjectIds, lifeCycleState);
     for (Iterator i = rootIds.iterator(); i.hasNext() && !managedObjectIds.isEmpty();) {
       ObjectID rootId = (ObjectID) i.next();
       managedObjectIds.remove(rootId);
       if (lifeCycleState.isStopRequested()) return TCCollections.EMPTY_OBJECT_ID_SET;
-      collectRoot(filter, rootId, managedObjectIds, lifeCycleState);
+      marker.markFrom(rootId);
     }
 
     profile_collect(start);
+    if (gcInfo != null) {
+      gcPublisher.fireGCMarkStatsEvent(gcInfo, marker.getStats(phase, System.currentTimeMillis() - start));
+    }
 
     return managedObjectIds;
   }
 
-  private void collectRoot(Filter filter, ObjectID rootId, Set managedObjectIds, LifeCycleState lifeCycleState) {
-    Set<ObjectID> toBeVisited = new BitSetObjectIDSet();
-    toBeVisited.add(rootId);
-
-    while (!toBeVisited.isEmpty() && !managedObjectIds.isEmpty()) {
-
-      for (Iterator i = new BitSetObjectIDSet(toBeVisited).iterator(); i.hasNext() && !managedObjectIds.isEmpty();) {
-        ObjectID id = (ObjectID) i.next();
-        if (lifeCycleState.isStopRequested()) return;
-        Set<ObjectID> references = gcHook.getObjectReferencesFrom(id);
-        toBeVisited.remove(id);
-
-        for (final ObjectID mid : references) {
-          if (mid == null) {
-            // see CDV-765
-            MarkAndSweepGarbageCollector.logger.error("null value returned from getObjectReferences() on " + id);
-            continue;
-          }
-          if (mid.isNull() || !managedObjectIds.contains(mid)) continue;
-          if (filter.shouldVisit(mid)) toBeVisited.add(mid);
-          managedObjectIds.remove(mid);
-        }
-      }
-    }
-  }
-
-  private ObjectIDSet rescue(final ObjectIDSet gcResults) {
+  private ObjectIDSet rescue(final GarbageCollectionInfo gcInfo, final String phase, final ObjectIDSet gcResults) {
     Set<ObjectID> rescueIds = gcHook.getRescueIDs();
     rescueIds.retainAll(gcResults);
 
     Filter rescueFilter = new SelectiveFilter(gcResults);
-    return collect(rescueFilter, rescueIds, gcResults, gcState);
+    return collect(gcInfo, phase, rescueFilter, rescueIds, gcResults, gcState);
   }
 
   private void logstart_collect(Collection rootIds, Set managedObjectIds) {
@@ -205,4 +216,136 @@ final class MarkAndSweepGCAlgorithm {
         .debug("collect: " + (System.currentTimeMillis() - start) + " ms.");
   }
 
+  private static int markParallelism() {
+    int parallelism = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_OBJECTMANAGER_DGC_MARK_PARALLELISM);
+    return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Walks the object graph breadth first, one level at a time. The references of a level are fetched in batches, on
+   * a fork join pool when the mark is parallel, while only the DGC thread touches the candidate set, so the set needs
+   * no locking. Levels are kept as plain arrays of ids and handed out in slices, between which an incremental mark may
+   * pause. What is left of the level and the next level found so far are all the mark needs to resume.
+   */
+  private final class Marker {
+    private final Filter         filter;
+    private final ObjectIDSet    managedObjectIds;
+    private final LifeCycleState lifeCycleState;
+    private final AtomicLong     batchCount = new AtomicLong();
+    private long                 visitedCount;
+    private int                  levelCount;
+    private int                  pauseCount;
+    private long                 pausedMillis;
+
+    Marker(Filter filter, ObjectIDSet managedObjectIds, LifeCycleState lifeCycleState) {
+      this.filter = filter;
+      this.managedObjectIds = managedObjectIds;
+      this.lifeCycleState = lifeCycleState;
+    }
+
+    void markFrom(ObjectID rootId) {
+      LongArray level = new LongArray();
+      level.add(rootId.toLong());
+
+      while (level.size > 0 && !managedObjectIds.isEmpty()) {
+        levelCount++;
+        LongArray next = new LongArray();
+        for (int from = 0; from < level.size && !managedObjectIds.isEmpty(); from += MARK_SLICE_SIZE) {
+          if (lifeCycleState.isStopRequested()) return;
+          int to = Math.min(level.size, from + MARK_SLICE_SIZE);
+          visitedCount += to - from;
+
+          for (ObjectID mid : fetchReferences(level.ids, from, to)) {
+            if (mid.isNull() || !managedObjectIds.contains(mid)) continue;
+            // the filter may look at the candidates, so ask it before marking
+            if (filter.shouldVisit(mid)) next.add(mid.toLong());
+            managedObjectIds.remove(mid);
+          }
+
+          long paused = gcHook.pauseMarkIfStepElapsed();
+          if (paused > 0) {
+            pauseCount++;
+            pausedMillis += paused;
+          }
+        }
+        level = next;
+      }
+    }
+
+    private ObjectIDSet fetchReferences(long[] ids, int from, int to) {
+      if (markPool != null) { return markPool.invoke(new FetchReferencesTask(this, ids, from, to)); }
+      ObjectIDSet references = new BitSetObjectIDSet();
+      for (int batch = from; batch < to; batch += MARK_BATCH_SIZE) {
+        references.addAll(fetchBatch(ids, batch, Math.min(to, batch + MARK_BATCH_SIZE)));
+      }
+      return references;
+    }
+
+    ObjectIDSet fetchBatch(long[] ids, int from, int to) {
+      if (lifeCycleState.isStopRequested()) { return new BitSetObjectIDSet(); }
+      List<ObjectID> batch = new ArrayList<ObjectID>(to - from);
+      for (int i = from; i < to; i++) {
+        batch.add(new ObjectID(ids[i]));
+      }
+      batchCount.incrementAndGet();
+      return gcHook.getObjectReferencesFrom(batch);
+    }
+
+    MarkStats getStats(String phase, long elapsedMillis) {
+      return new MarkStats(phase, MARK_PARALLELISM, visitedCount, batchCount.get(), levelCount, pauseCount,
+                           pausedMillis, elapsedMillis);
+    }
+  }
+
+  private static final class FetchReferencesTask extends RecursiveTask<ObjectIDSet> {
+    private final Marker marker;
+    private final long[] ids;
+    private final int    from;
+    private final int    to;
+
+    FetchReferencesTask(Marker marker, long[] ids, int from, int to) {
+      this.marker = marker;
+      this.ids = ids;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected ObjectIDSet compute() {
+      if (to - from <= MARK_BATCH_SIZE) { return marker.fetchBatch(ids, from, to); }
+      int middle = (from + to) >>> 1;
+      FetchReferencesTask left = new FetchReferencesTask(marker, ids, from, middle);
+      left.fork();
+      ObjectIDSet right = new FetchReferencesTask(marker, ids, middle, to).compute();
+      ObjectIDSet references = left.join();
+      if (references.size() < right.size()) {
+        right.addAll(references);
+        return right;
+      }
+      references.addAll(right);
+      return references;
+    }
+  }
+
+  private static final class MarkThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("DGC-Mark-" + thread.getPoolIndex());
+      return thread;
+    }
+  }
+
+  private static final class LongArray {
+    private long[] ids = new long[16];
+    private int    size;
+
+    void add(long id) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+  }
+
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import com.tc.util.sequence.DGCSequenceProvider;
 
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  */
@@ -49,6 +50,8 @@ public class MarkAndSweepGarbageCollector extends AbstractGarbageCollector {
   private volatile ChangeCollector             referenceCollector         = ChangeCollector.NULL_CHANGE_COLLECTOR;
   protected volatile boolean                   started                    = false;
   protected volatile LifeCycleState            gcState                    = NULL_LIFECYCLE_STATE;
+  // shared by the mark of every collection, created on first use and shut down with the collector
+  private ForkJoinPool                         markPool;
 
   public MarkAndSweepGarbageCollector(final ObjectManagerConfig objectManagerConfig, final ObjectManager objectMgr,
                                       final ClientStateManager stateManager,
@@ -73,7 +76,8 @@ public class MarkAndSweepGarbageCollector extends AbstractGarbageCollector {
         break;
     }
     final MarkAndSweepGCAlgorithm gcAlgo = new MarkAndSweepGCAlgorithm(this, hook, this.gcPublisher, this.gcState,
-                                                                       this.dgcSequenceProvider.getNextId());
+                                                                       this.dgcSequenceProvider.getNextId(),
+                                                                       getMarkPool());
     gcAlgo.doGC();
   }
 
@@ -121,7 +125,8 @@ public class MarkAndSweepGarbageCollector extends AbstractGarbageCollector {
   ObjectIDSet collect(final GCHook hook, final Filter traverser, final Collection roots,
                       final ObjectIDSet managedObjectIds, final LifeCycleState lstate) {
     final MarkAndSweepGCAlgorithm gcAlgo = new MarkAndSweepGCAlgorithm(this, hook, this.gcPublisher, this.gcState,
-                                                                       this.dgcSequenceProvider.getNextId());
+                                                                       this.dgcSequenceProvider.getNextId(),
+                                                                       getMarkPool());
     return gcAlgo.collect(traverser, roots, managedObjectIds, lstate);
   }
 
@@ -139,6 +144,20 @@ public class MarkAndSweepGarbageCollector extends AbstractGarbageCollector {
       count++;
       logger.warn("DGC Thread did not stop");
     }
+    synchronized (this) {
+      if (this.markPool != null) {
+        // a mark still running past the wait above sees its stop request before it hands the pool another slice
+        this.markPool.shutdown();
+        this.markPool = null;
+      }
+    }
+  }
+
+  private synchronized ForkJoinPool getMarkPool() {
+    if (this.markPool == null) {
+      this.markPool = MarkAndSweepGCAlgorithm.newMarkPool();
+    }
+    return this.markPool;
   }
 
   @Override
@@ -16,54 +16,139 @@
  */
 package com.tc.objectserver.event;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.tc.net.ClientID;
 import com.tc.object.gtx.GlobalTransactionID;
 import com.tc.server.ServerEvent;
+import com.tc.server.VersionedServerEvent;
+import com.tc.stats.counter.sampled.SampledCumulativeCounter;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Sends L2 cache events to all interested L1 clients within the same cluster.
+ * <p>
+ * Events are kept per transaction, ordered by global transaction id, so clearing below the low water mark drops the
+ * head of the map without looking at the transactions above it.
+ * <p>
+ * When coalescing, a key's event replaces an earlier one for the same clients in the same transaction. It also
+ * supersedes the key's event in the last earlier transaction with one, as long as that transaction is still waiting for
+ * its broadcast: a hot key updated faster than transactions are broadcast reaches its clients once per broadcast
+ * backlog rather than once per update. No event is held back to wait for later updates.
  *
  * @author Eugene Shelestovich
  */
 public class InClusterServerEventBuffer implements ServerEventBuffer {
 
-  private final static Multimap<ClientID, ServerEvent> EMPTY_MAP = ImmutableListMultimap.of();
-  private final ConcurrentMap<GlobalTransactionID, Multimap<ClientID, ServerEvent>> eventMap  = Maps.newConcurrentMap();
+  private final ConcurrentNavigableMap<Long, TransactionServerEvents> eventMap = new ConcurrentSkipListMap<Long, TransactionServerEvents>();
+  private final boolean                                               coalesce;
+  private final SampledCumulativeCounter                              coalescedCounter;
+  private final SampledCumulativeCounter                              bytesSavedCounter;
+  // the last transaction that stored an event for each cache key, only kept when coalescing
+  private final ConcurrentMap<List<Object>, Long>                     lastTransactionOfKey = new ConcurrentHashMap<List<Object>, Long>();
+
+  public InClusterServerEventBuffer() {
+    this(false, null, null);
+  }
+
+  /**
+   * @param coalesce deliver only the last event of a key among the events of one transaction and of the later
+   *        transactions stored before it is broadcast
+   * @param coalescedCounter counts the events dropped by coalescing, may be null
+   * @param bytesSavedCounter counts the value bytes of the events dropped by coalescing, may be null
+   */
+  public InClusterServerEventBuffer(final boolean coalesce, final SampledCumulativeCounter coalescedCounter,
+                                    final SampledCumulativeCounter bytesSavedCounter) {
+    this.coalesce = coalesce;
+    this.coalescedCounter = coalescedCounter;
+    this.bytesSavedCounter = bytesSavedCounter;
+  }
 
 
   @Override
   public final void storeEvent(final GlobalTransactionID gtxId, final ServerEvent serverEvent,
                                final Set<ClientID> clients) {
-    Multimap<ClientID,ServerEvent> multimap = eventMap.computeIfAbsent(gtxId, (g)->ArrayListMultimap.create(1,1));
+    long id = gtxId.toLong();
+    TransactionServerEvents events = eventMap.computeIfAbsent(id, (g)->new TransactionServerEvents());
+    dropped(events.add(serverEvent, clients, coalesce));
+    if (coalesce) {
+      List<Object> key = TransactionServerEvents.keyOf(serverEvent);
+      Long previous = advance(key, id);
+      if (previous != null) {
+        TransactionServerEvents earlier = eventMap.get(previous);
+        if (earlier != null) {
+          dropped(earlier.supersede(key, clients));
+        }
+      }
+    }
+  }
+
+  /**
+   * Records the transaction as the last one with an event for the key.
+   *
+   * @return the earlier transaction it takes over from, or null if there is none
+   */
+  private Long advance(final List<Object> key, final long id) {
+    while (true) {
+      Long previous = lastTransactionOfKey.putIfAbsent(key, id);
+      if (previous == null || previous >= id) { return null; }
+      if (lastTransactionOfKey.replace(key, previous, id)) { return previous; }
+    }
+  }
+
+  private void dropped(final ServerEvent event) {
+    if (event == null) { return; }
+    if (coalescedCounter != null) {
+      coalescedCounter.increment();
+    }
+    if (bytesSavedCounter != null && event instanceof VersionedServerEvent) {
+      byte[] value = ((VersionedServerEvent) event).getValue();
+      if (value != null) {
+        bytesSavedCounter.increment(value.length);
+      }
+    }
+  }
 
-    for (ClientID clientID : clients) {
-      multimap.put(clientID, serverEvent);
+  private void forget(final long id, final TransactionServerEvents events) {
+    for (List<Object> key : events.keys()) {
+      lastTransactionOfKey.remove(key, id);
     }
   }
 
 
   @Override
-  public Multimap<ClientID, ServerEvent> getServerEventsPerClient(GlobalTransactionID gtxId) {
-    final Multimap<ClientID, ServerEvent> eventsPerClient = eventMap.get(gtxId);
-    return (eventsPerClient == null) ? EMPTY_MAP : eventsPerClient;
+  public TransactionServerEvents getServerEventsPerClient(GlobalTransactionID gtxId) {
+    final TransactionServerEvents eventsPerClient = eventMap.get(gtxId.toLong());
+    return (eventsPerClient == null) ? TransactionServerEvents.EMPTY : eventsPerClient;
   }
 
 
   @Override
   public void removeEventsForTransaction(GlobalTransactionID globalTransactionID) {
-    eventMap.remove(globalTransactionID);
+    long id = globalTransactionID.toLong();
+    TransactionServerEvents removed = eventMap.remove(id);
+    if (coalesce && removed != null) {
+      forget(id, removed);
+    }
   }
 
 
   @Override
   public void clearEventBufferBelowLowWaterMark(final GlobalTransactionID lowWatermark) {
-    eventMap.keySet().removeIf(k->k.lessThan(lowWatermark));
+    ConcurrentNavigableMap<Long, TransactionServerEvents> head = eventMap.headMap(lowWatermark.toLong());
+    if (!coalesce) {
+      head.clear();
+      return;
+    }
+    for (Map.Entry<Long, TransactionServerEvents> e : head.entrySet()) {
+      if (head.remove(e.getKey(), e.getValue())) {
+        forget(e.getKey(), e.getValue());
+      }
+    }
   }
 }
@@ -16,7 +16,6 @@
  */
 package com.tc.objectserver.event;
 
-import com.google.common.collect.Multimap;
 import com.tc.net.ClientID;
 import com.tc.object.gtx.GlobalTransactionID;
 import com.tc.server.ServerEvent;
@@ -27,7 +26,7 @@ public interface ServerEventBuffer {
 
   void storeEvent(GlobalTransactionID gtxId, ServerEvent serverEvent, Set<ClientID> clients);
 
-  Multimap<ClientID, ServerEvent> getServerEventsPerClient(GlobalTransactionID gtxId);
+  TransactionServerEvents getServerEventsPerClient(GlobalTransactionID gtxId);
 
   /**
    * Used by Passive server to clear event buffer, on basis of low watermark from clients
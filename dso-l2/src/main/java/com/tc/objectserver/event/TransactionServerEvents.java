@@ -0,0 +1,164 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.event;
+
+import com.tc.net.ClientID;
+import com.tc.server.ServerEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The server events of one transaction and the clients each of them goes to. Every event is stored once with its
+ * recipients as a sorted array of client ids. Consecutive events for the same clients, the common case of one cache's
+ * listeners, share one array, so storing an event costs no per client allocation.
+ * <p>
+ * When coalescing, an event for a key that already has an event for the same clients in this transaction replaces
+ * that event in its place, so clients get only the last type and value of each key. Until this transaction is
+ * broadcast, a later transaction can also supersede the event it has for a key, the clients then get the later
+ * transaction's event only.
+ */
+public final class TransactionServerEvents {
+
+  public static final TransactionServerEvents EMPTY      = new TransactionServerEvents();
+
+  private ServerEvent[]                       events     = new ServerEvent[1];
+  private long[][]                            recipients = new long[1][];
+  private int                                 count;
+  private int                                 superseded;
+  // set once the events are read for the broadcast, they can no longer be superseded after that
+  private boolean                             sealed;
+  // position of the event of each cache key, only kept when coalescing
+  private Map<List<Object>, Integer>          positions;
+
+  /**
+   * @return the event that this one replaced, or null if it was added
+   */
+  synchronized ServerEvent add(ServerEvent event, Set<ClientID> clients, boolean coalesce) {
+    long[] ids = count > 0 && recipients[count - 1] != null && sameClients(recipients[count - 1], clients)
+        ? recipients[count - 1] : toIds(clients);
+    if (coalesce) {
+      if (positions == null) {
+        positions = new HashMap<List<Object>, Integer>();
+      }
+      List<Object> key = keyOf(event);
+      Integer position = positions.get(key);
+      if (position != null && Arrays.equals(recipients[position], ids)) {
+        ServerEvent replaced = events[position];
+        events[position] = event;
+        return replaced;
+      }
+      positions.put(key, count);
+    }
+    if (count == events.length) {
+      events = Arrays.copyOf(events, count * 2);
+      recipients = Arrays.copyOf(recipients, count * 2);
+    }
+    events[count] = event;
+    recipients[count] = ids;
+    count++;
+    return null;
+  }
+
+  /**
+   * Drops the event of the key if it goes to exactly the given clients and this transaction is not broadcast yet.
+   *
+   * @return the dropped event, or null if there was none to drop
+   */
+  synchronized ServerEvent supersede(List<Object> key, Set<ClientID> clients) {
+    if (sealed || positions == null) { return null; }
+    Integer position = positions.get(key);
+    if (position == null || !sameClients(recipients[position], clients)) { return null; }
+    positions.remove(key);
+    ServerEvent dropped = events[position];
+    events[position] = null;
+    recipients[position] = null;
+    superseded++;
+    return dropped;
+  }
+
+  /**
+   * @return the cache keys this transaction has an event for, only known when coalescing
+   */
+  synchronized List<List<Object>> keys() {
+    if (positions == null) { return Collections.emptyList(); }
+    return new ArrayList<List<Object>>(positions.keySet());
+  }
+
+  static List<Object> keyOf(ServerEvent event) {
+    return Arrays.<Object> asList(event.getCacheName(), event.getKey());
+  }
+
+  /**
+   * @return the events for the client in the order they were stored, empty if there are none
+   */
+  public synchronized List<ServerEvent> get(ClientID client) {
+    sealed = true;
+    long id = client.toLong();
+    List<ServerEvent> result = null;
+    for (int i = 0; i < count; i++) {
+      if (recipients[i] != null && Arrays.binarySearch(recipients[i], id) >= 0) {
+        if (result == null) {
+          result = new ArrayList<ServerEvent>(count - i);
+        }
+        result.add(events[i]);
+      }
+    }
+    return result == null ? Collections.<ServerEvent> emptyList() : result;
+  }
+
+  /**
+   * @return the number of event deliveries, counting an event once for every client it goes to
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (int i = 0; i < count; i++) {
+      if (recipients[i] != null) {
+        size += recipients[i].length;
+      }
+    }
+    return size;
+  }
+
+  public synchronized boolean isEmpty() {
+    return count == superseded;
+  }
+
+  private static boolean sameClients(long[] ids, Set<ClientID> clients) {
+    if (ids.length != clients.size()) { return false; }
+    for (ClientID client : clients) {
+      if (Arrays.binarySearch(ids, client.toLong()) < 0) { return false; }
+    }
+    return true;
+  }
+
+  // the set may be a live view of the registered listeners, so it is copied
+  private static long[] toIds(Set<ClientID> clients) {
+    long[] ids = new long[clients.size()];
+    int i = 0;
+    for (ClientID client : clients) {
+      ids[i++] = client.toLong();
+    }
+    Arrays.sort(ids);
+    return ids;
+  }
+}
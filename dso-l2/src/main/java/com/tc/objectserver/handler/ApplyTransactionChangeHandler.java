@@ -82,12 +82,30 @@ public class ApplyTransactionChangeHandler extends AbstractEventHandler {
   private GarbageCollectionManager         garbageCollectionManager;
   private final ServerEventBuffer          eventBuffer;
   private final ClientChannelMonitor       clientChannelMonitor;
+  private final boolean                    commitEachTransaction;
 
   public ApplyTransactionChangeHandler(final ObjectInstanceMonitor instanceMonitor,
                                        final GlobalTransactionManager gtxm, final ServerMapEvictionManager evictions,
                                        final TransactionProvider persistenceTransactionProvider,
                                        final TaskRunner taskRunner, final ServerEventBuffer eventBuffer,
                                        final ClientChannelMonitor clientChannelMonitor) {
+    this(instanceMonitor, gtxm, evictions, persistenceTransactionProvider, taskRunner, eventBuffer,
+         clientChannelMonitor, false);
+  }
+
+  /**
+   * @param commitEachTransaction true when the apply stage steals work. The transactions of a grouping are then
+   *        applied in order but not necessarily on the same thread, so rather than leaving them in the thread's
+   *        persistence transaction until the grouping is done, each one is committed and acknowledged as soon as it is
+   *        applied. The grouping's objects are still released only with its last transaction.
+   */
+  public ApplyTransactionChangeHandler(final ObjectInstanceMonitor instanceMonitor,
+                                       final GlobalTransactionManager gtxm, final ServerMapEvictionManager evictions,
+                                       final TransactionProvider persistenceTransactionProvider,
+                                       final TaskRunner taskRunner, final ServerEventBuffer eventBuffer,
+                                       final ClientChannelMonitor clientChannelMonitor,
+                                       final boolean commitEachTransaction) {
+    this.commitEachTransaction = commitEachTransaction;
     this.instanceMonitor = instanceMonitor;
     this.serverEvictions = evictions;
     this.persistenceTransactionProvider = persistenceTransactionProvider;
@@ -166,11 +184,11 @@ public class ApplyTransactionChangeHandler extends AbstractEventHandler {
   }
 
   private void commit(ApplyTransactionContext atc, ApplyTransactionInfo applyInfo) {
+    boolean done = applyInfo.isCommitNow() || commitEachTransaction;
     if (atc.needsApply()) {
-      commit(applyInfo.getObjectsToRelease(), atc.getTxn().getNewRoots(), atc.getTxn().getServerTransactionID(),
-             applyInfo.isCommitNow());
+      commit(applyInfo.getObjectsToRelease(), atc.getTxn().getNewRoots(), atc.getTxn().getServerTransactionID(), done);
     } else {
-      commit(applyInfo.getObjectsToRelease(), applyInfo.isCommitNow());
+      commit(applyInfo.getObjectsToRelease(), done);
     }
   }
 
@@ -16,7 +16,6 @@
  */
 package com.tc.objectserver.handler;
 
-import com.google.common.collect.Multimap;
 import com.tc.async.api.AbstractEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventContext;
@@ -40,6 +39,7 @@ import com.tc.object.tx.TransactionID;
 import com.tc.objectserver.context.BroadcastChangeContext;
 import com.tc.objectserver.context.ObjectRequestServerContextImpl;
 import com.tc.objectserver.core.api.ServerConfigurationContext;
+import com.tc.objectserver.event.TransactionServerEvents;
 import com.tc.objectserver.l1.api.ClientStateManager;
 import com.tc.objectserver.l1.api.InvalidateObjectManager;
 import com.tc.objectserver.mgmt.ObjectStatsRecorder;
@@ -51,7 +51,6 @@ import com.tc.stats.counter.sampled.SampledCounter;
 import com.tc.stats.counter.sampled.derived.SampledRateCounter;
 import com.tc.util.BitSetObjectIDSet;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -91,7 +90,7 @@ public class BroadcastChangeHandler extends AbstractEventHandler {
     final TransactionID txnID = bcc.getTransactionID();
     final MessageChannel[] channels = this.channelManager.getActiveChannels();
 
-    final Multimap<ClientID, ServerEvent> serverEventsPerClient = bcc.getApplyInfo()
+    final TransactionServerEvents serverEventsPerClient = bcc.getApplyInfo()
         .getServerEventBuffer().getServerEventsPerClient(bcc.getGlobalTransactionID());
 
     if (bcc.getApplyInfo().getApplyResultRecorder().needPersist()) {
@@ -124,10 +123,7 @@ public class BroadcastChangeHandler extends AbstractEventHandler {
           bcc.getApplyInfo().getApplyResultRecorder().getResults() :
           Collections.<LogicalChangeID, LogicalChangeResult>emptyMap());
 
-      Collection<ServerEvent> serverEvents = serverEventsPerClient.get(clientID);
-      if (serverEvents == null) {
-        serverEvents = Collections.emptyList();
-      }
+      final List<ServerEvent> serverEvents = serverEventsPerClient.get(clientID);
 
       if (!invalidateObjectIDs.isEmpty()) {
         invalidateObjMgr.invalidateObjectFor(clientID, invalidateObjectIDs);
@@ -266,6 +266,8 @@ import com.tc.stats.counter.sampled.SampledCounter;
 import com.tc.stats.counter.sampled.SampledCounterConfig;
 import com.tc.stats.counter.sampled.SampledCumulativeCounter;
 import com.tc.stats.counter.sampled.SampledCumulativeCounterConfig;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounter;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounterConfig;
 import com.tc.stats.counter.sampled.derived.SampledRateCounter;
 import com.tc.stats.counter.sampled.derived.SampledRateCounterConfig;
 import com.tc.util.Assert;
@@ -606,6 +608,7 @@ public class DistributedObjectServer implements TCDumper, LockInfoDumpHandler, S
     ClientStatePersistor clientStateStore = this.persistor.getClientStatePersistor();
 
     ManagedObjectStateFactory.createInstance(managedObjectChangeListenerProvider, persistor);
+    this.persistor.getManagedObjectPersistor().migrateObjects();
 
     final int stageWorkerThreadCount = L2Utils.getOptimalStageWorkerThreads();
 
@@ -754,12 +757,23 @@ public class DistributedObjectServer implements TCDumper, LockInfoDumpHandler, S
         .createCounter(sampledCumulativeCounterConfig);
     final SampledCumulativeCounter globalServerMapGetSnapshotRequestsCounter = (SampledCumulativeCounter) this.sampledCounterManager
         .createCounter(sampledCumulativeCounterConfig);
+    final SampledCumulativeCounter objectIndexHitCounter = (SampledCumulativeCounter) this.sampledCounterManager
+        .createCounter(sampledCumulativeCounterConfig);
+    final SampledCumulativeCounter objectIndexMissCounter = (SampledCumulativeCounter) this.sampledCounterManager
+        .createCounter(sampledCumulativeCounterConfig);
+    this.persistor.getManagedObjectPersistor().setObjectIndexCounters(objectIndexHitCounter, objectIndexMissCounter);
 
     final ServerTransactionFactory serverTransactionFactory = new ServerTransactionFactory(thisServerNodeID);
     toInit.add(serverTransactionFactory);
 
     // cache server event related objects
-    final InClusterServerEventBuffer serverEventbuffer = new InClusterServerEventBuffer();
+    final SampledCumulativeCounter serverEventsCoalescedCounter = (SampledCumulativeCounter) this.sampledCounterManager
+        .createCounter(sampledCumulativeCounterConfig);
+    final SampledCumulativeCounter serverEventBytesSavedCounter = (SampledCumulativeCounter) this.sampledCounterManager
+        .createCounter(sampledCumulativeCounterConfig);
+    final InClusterServerEventBuffer serverEventbuffer = new InClusterServerEventBuffer(
+        tcProperties.getBoolean(TCPropertiesConsts.L2_SERVER_EVENT_COALESCE_ENABLED, false),
+        serverEventsCoalescedCounter, serverEventBytesSavedCounter);
     final ClientChannelMonitorImpl clientChannelMonitorImpl = new ClientChannelMonitorImpl(channelManager,
                                                                                            serverTransactionFactory);
     toInit.add(clientChannelMonitorImpl);
@@ -866,6 +880,14 @@ public class DistributedObjectServer implements TCDumper, LockInfoDumpHandler, S
     this.serverMapRequestManager = this.serverBuilder
         .createServerMapRequestManager(this.objectManager, channelManager, respondToServerTCMapStage.getSink(),prefetchStage.getSink(),
                                         this.clientStateManager, channelStats);
+    final SampledCumulativeCounter serverMapGetValueHitCounter = (SampledCumulativeCounter) this.sampledCounterManager
+        .createCounter(sampledCumulativeCounterConfig);
+    final SampledCumulativeCounter serverMapGetValueMissCounter = (SampledCumulativeCounter) this.sampledCounterManager
+        .createCounter(sampledCumulativeCounterConfig);
+    this.serverMapRequestManager.setGetValueCounters(serverMapGetValueHitCounter, serverMapGetValueMissCounter);
+    final SampledLatencyCounter serverMapGetValueLatencyCounter = (SampledLatencyCounter) this.sampledCounterManager
+        .createCounter(new SampledLatencyCounterConfig(1, 300));
+    this.serverMapRequestManager.setGetValueLatencyCounter(serverMapGetValueLatencyCounter);
     this.dumpHandler.registerForDump(new CallbackDumpAdapter(this.serverMapRequestManager));
 
     resourceManager = new ResourceManagerImpl(channelManager, haConfig.getThisGroupID());
@@ -885,10 +907,13 @@ public class DistributedObjectServer implements TCDumper, LockInfoDumpHandler, S
     
     // Lookup stage should never be blocked trying to add to apply stage
     int applyStageThreads = L2Utils.getOptimalApplyStageWorkerThreads(restartable || hybrid);
+    // Transactions on the same objects share a grouping and so a key, idle apply threads take over other groupings
+    boolean applyWorkStealing = applyStageThreads > 1 && L2Utils.isApplyStageWorkStealing(restartable || hybrid);
     stageManager.createStage(ServerConfigurationContext.APPLY_CHANGES_STAGE,
                              new ApplyTransactionChangeHandler(instanceMonitor, this.transactionManager, this.serverMapEvictor,
-                             persistor.getPersistenceTransactionProvider(), taskRunner, serverEventbuffer, clientChannelMonitorImpl),
-                             applyStageThreads, 1, -1);
+                             persistor.getPersistenceTransactionProvider(), taskRunner, serverEventbuffer, clientChannelMonitorImpl,
+                             applyWorkStealing),
+                             applyStageThreads, 1, -1, applyWorkStealing);
 
     txnStageCoordinator.lookUpSinks();
     
@@ -1048,7 +1073,12 @@ public class DistributedObjectServer implements TCDumper, LockInfoDumpHandler, S
 
     serverStats.serverMapGetSizeRequestsCounter(globalServerMapGetSizeRequestsCounter)
         .serverMapGetValueRequestsCounter(globalServerMapGetValueRequestsCounter)
-        .serverMapGetSnapshotRequestsCounter(globalServerMapGetSnapshotRequestsCounter);
+        .serverMapGetSnapshotRequestsCounter(globalServerMapGetSnapshotRequestsCounter)
+        .objectIndexCounters(objectIndexHitCounter, objectIndexMissCounter)
+        .serverEventCoalescingCounters(serverEventsCoalescedCounter, serverEventBytesSavedCounter)
+        .serverMapGetValueCounters(serverMapGetValueHitCounter, serverMapGetValueMissCounter)
+        .serverMapGetValueLatencyCounter(serverMapGetValueLatencyCounter)
+        .stageManager(stageManager);
 
     this.context = this.serverBuilder.createServerConfigurationContext(stageManager, this.objectManager,
                                                                        this.objectRequestManager,
@@ -48,6 +48,11 @@ import com.tc.objectserver.managedobject.CDSMValue;
 import com.tc.objectserver.managedobject.ConcurrentDistributedServerMapManagedObjectState;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.stats.counter.Counter;
+import com.tc.stats.counter.CounterImpl;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounter;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounterConfig;
+import com.tc.stats.counter.sampled.derived.SampledLatencyCounterImpl;
 import com.tc.text.PrettyPrintable;
 import com.tc.text.PrettyPrinter;
 import com.tc.util.concurrent.TCConcurrentMultiMap;
@@ -68,6 +73,10 @@ public class ServerMapRequestManagerImpl implements ServerMapRequestManager {
   private final ClientStateManager    clientStateManager;
   // private final ChannelStats channelStats;
   private final boolean               enablePrefetch = TCPropertiesImpl.getProperties().getBoolean(TCPropertiesConsts.L2_OBJECTMANAGER_REQUEST_PREFETCH_ENABLED, true);
+  private volatile Counter            getValueHits   = new CounterImpl();
+  private volatile Counter            getValueMisses = new CounterImpl();
+  private volatile SampledLatencyCounter getValueLatency = new SampledLatencyCounterImpl(
+      new SampledLatencyCounterConfig(1, 1));
 
   public ServerMapRequestManagerImpl(final ObjectManager objectManager, final DSOChannelManager channelManager,
                                      final Sink respondToServerTCMapSink,
@@ -90,6 +99,19 @@ public class ServerMapRequestManagerImpl implements ServerMapRequestManager {
     processRequest(clientID, requestContext);
   }
 
+  @Override
+  public void setGetValueCounters(final Counter hits, final Counter misses) {
+    hits.increment(getValueHits.getValue());
+    misses.increment(getValueMisses.getValue());
+    this.getValueHits = hits;
+    this.getValueMisses = misses;
+  }
+
+  @Override
+  public void setGetValueLatencyCounter(final SampledLatencyCounter latency) {
+    this.getValueLatency = latency;
+  }
+
   @Override
   public void requestSize(final ServerMapRequestID requestID, final ClientID clientID, final ObjectID mapID,
                           ServerMapGetAllSizeHelper helper) {
@@ -149,6 +171,7 @@ public class ServerMapRequestManagerImpl implements ServerMapRequestManager {
             ServerMapRequestPrefetchObjectsContext responses = gatherResponseForGetValue(request.getClientID(), mapID, (ServerMapRequestValueContext)request, results.get(request.getClientID()),
                                                                      cdsmState);
             results.put(request.getClientID(), responses);
+            getValueLatency.record(System.nanoTime() - ((ServerMapRequestValueContext) request).getReceivedNanos());
             break;
           default:
             throw new AssertionError("Unknown request type : " + requestType);
@@ -231,8 +254,11 @@ public class ServerMapRequestManagerImpl implements ServerMapRequestManager {
         CDSMValue wrappedValue = cdsmState.getValueForKey(portableKey);
         
         if (wrappedValue == null) {
+          getValueMisses.increment();
           response.put(portableKey, ObjectID.NULL_ID);
         } else {
+          getValueHits.increment();
+          cdsmState.recordAccess(portableKey);
           ObjectID portableValue = wrappedValue.getObjectID();
           if ( logger.isDebugEnabled() ) {
             logger.debug("sending " + portableValue);
@@ -19,106 +19,96 @@ package com.tc.objectserver.locks;
 import com.tc.object.locks.LockID;
 import com.tc.util.Assert;
 
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * LockStore is used for storing all the locks present in the system. Access to any lock can be obtained by checking out
- * a lock and then by checking it in. Locks will be distributed into segments and the location of the lock will be
- * decided on the basis of the a hash function
+ * a lock and then by checking it in. Locks are kept in a concurrent map and each lock has a guard of its own, so a
+ * lookup takes no lock and only requests for the same LockID wait for each other.
+ * <p>
+ * A lock removed while checked out stays in the map until it is checked in. Threads waiting for it look it up again
+ * once they get its guard and find it removed.
  * <p>
  * Apart from this getNextLock (for scanning all the locks) has been provided which takes care of the checking out/in of
  * lock.
  */
 public class LockStore {
   private static final int                  DEFAULT_SEGMENTS = 32;
-  private final HashMap<LockID, ServerLock> segments[];
-  private final ReentrantLock[]             guards;
-  private final int                         segmentShift;
-  private final int                         segmentMask;
+  private final ConcurrentMap<LockID, Slot> locks;
   private final LockFactory                 lockFactory;
 
   public LockStore(LockFactory factory) {
     this(DEFAULT_SEGMENTS, factory);
   }
 
+  /**
+   * @param numberOfSegments expected number of threads updating the store concurrently
+   */
   public LockStore(int numberOfSegments, LockFactory factory) {
     if (numberOfSegments <= 0) throw new IllegalArgumentException();
 
     this.lockFactory = factory;
-    // Find power-of-two sizes best matching arguments
-    int sshift = 0;
-    int ssize = 1;
-    while (ssize < numberOfSegments) {
-      ++sshift;
-      ssize <<= 1;
-    }
-    segmentShift = 32 - sshift;
-    segmentMask = ssize - 1;
-    numberOfSegments = ssize;
-
-    segments = new HashMap[numberOfSegments];
-    guards = new ReentrantLock[numberOfSegments];
-
-    for (int i = 0; i < segments.length; i++) {
-      segments[i] = new HashMap();
-      guards[i] = new ReentrantLock();
-    }
+    this.locks = new ConcurrentHashMap<LockID, Slot>(16, 0.75f, numberOfSegments);
   }
 
   public ServerLock checkOut(LockID lockID) {
-    int index = indexFor(lockID);
-    guards[index].lock();
-    ServerLock lock = segments[index].get(lockID);
-    if (lock == null) {
-      lock = lockFactory.createLock(lockID);
-      segments[index].put(lockID, lock);
+    while (true) {
+      Slot slot = locks.get(lockID);
+      if (slot == null) {
+        Slot created = new Slot(lockFactory.createLock(lockID));
+        // held before it is published, so nobody else can get it in between
+        created.lock();
+        slot = locks.putIfAbsent(lockID, created);
+        if (slot == null) { return created.serverLock; }
+      }
+
+      slot.lock();
+      if (!slot.removed) { return slot.serverLock; }
+      if (slot.getHoldCount() > 1) {
+        // checked out again by the thread that removed it, which gets a new lock as if it was gone from the map
+        slot.serverLock = lockFactory.createLock(lockID);
+        slot.removed = false;
+        return slot.serverLock;
+      }
+      // removed by another thread and already gone from the map
+      slot.unlock();
     }
-    return lock;
   }
 
   // Assumption that the lock is already held i.e. checked out
   public ServerLock remove(LockID lockID) {
-    int index = indexFor(lockID);
-    Assert.assertTrue(guards[index].isHeldByCurrentThread());
-    ServerLock lock = segments[index].remove(lockID);
-    return lock;
+    Slot slot = locks.get(lockID);
+    Assert.assertTrue(slot != null && slot.isHeldByCurrentThread());
+    slot.removed = true;
+    return slot.serverLock;
   }
 
   public void checkIn(ServerLock lock) {
     LockID lockID = lock.getLockID();
-    int index = indexFor(lockID);
-    if (!guards[index].isHeldByCurrentThread()) { throw new AssertionError("Server Lock " + lock
-                                                                           + " was not checked out by the same thread"); }
-    guards[index].unlock();
-  }
-
-  private final int indexFor(Object o) {
-    int hash = hash(o);
-    return ((hash >>> segmentShift) & segmentMask);
-  }
-
-  /**
-   * Currently from CHM
-   */
-  private static int hash(Object x) {
-    int h = x.hashCode();
-    h += ~(h << 9);
-    h ^= (h >>> 14);
-    h += (h << 4);
-    h ^= (h >>> 10);
-    return h;
+    Slot slot = locks.get(lockID);
+    if (slot == null || !slot.isHeldByCurrentThread()) { throw new AssertionError("Server Lock " + lock
+                                                                                  + " was not checked out by the same thread"); }
+    if (slot.removed && slot.getHoldCount() == 1) {
+      locks.remove(lockID, slot);
+    }
+    slot.unlock();
   }
 
   public void clear() {
-    for (int i = 0; i < guards.length; i++) {
-      guards[i].lock();
+    for (Entry<LockID, Slot> entry : locks.entrySet()) {
+      Slot slot = entry.getValue();
+      slot.lock();
       try {
-        segments[i].clear();
+        if (!slot.removed) {
+          slot.removed = true;
+          locks.remove(entry.getKey(), slot);
+        }
       } finally {
-        guards[i].unlock();
+        slot.unlock();
       }
     }
   }
@@ -127,37 +117,55 @@ public class LockStore {
     return new LockIterator();
   }
 
+  /**
+   * The guard of one lock. Its fields are only read and written while it is held.
+   */
+  private static final class Slot extends ReentrantLock {
+    private ServerLock serverLock;
+    private boolean    removed;
+
+    Slot(ServerLock serverLock) {
+      this.serverLock = serverLock;
+    }
+  }
+
   public class LockIterator {
-    private Iterator<Entry<LockID, ServerLock>> currentIter;
-    private int                                 currentIndex = -1;
-    private ServerLock                          oldLock;
+    private final Iterator<Slot> slots = locks.values().iterator();
+    private ServerLock           oldLock;
 
     /**
      * This method basically fetches the next lock by checking it out and checks back in the oldLock (that was given
      * last by this method). This method is a replacement for iterator keeping in the check out/in logic. NOTE: If you
-     * do not complete the iteration then please check back in the lock. Otherwise it might result in a segment locked
+     * do not complete the iteration then please check back in the lock. Otherwise it might result in a lock held
      * forever.
      */
     public ServerLock getNextLock(ServerLock lock) {
       validateOldLock(lock);
-      while (currentIter == null || !currentIter.hasNext()) {
-        HashMap<LockID, ServerLock> nextSegment = fetchNextSegment();
-        if (nextSegment == null) { return null; }
-        currentIter = nextSegment.entrySet().iterator();
+      if (oldLock != null) {
+        LockStore.this.checkIn(oldLock);
+        oldLock = null;
       }
-      Assert.assertNotNull(currentIter);
-      oldLock = currentIter.next().getValue();
-      return oldLock;
+      while (slots.hasNext()) {
+        Slot slot = slots.next();
+        slot.lock();
+        if (!slot.removed) {
+          oldLock = slot.serverLock;
+          return oldLock;
+        }
+        slot.unlock();
+      }
+      return null;
     }
 
     public void remove() {
-      Assert.assertNotNull(currentIter);
-      currentIter.remove();
+      Assert.assertNotNull(oldLock);
+      LockStore.this.remove(oldLock.getLockID());
     }
 
     public void checkIn(ServerLock lock) {
       Assert.assertEquals(oldLock, lock);
       LockStore.this.checkIn(lock);
+      oldLock = null;
     }
 
     private void validateOldLock(ServerLock lock) {
@@ -168,16 +176,5 @@ public class LockStore {
       }
 
     }
-
-    private HashMap<LockID, ServerLock> fetchNextSegment() {
-      if (currentIndex >= 0 && currentIndex < segments.length) {
-        guards[currentIndex].unlock();
-      }
-      currentIndex++;
-      if (currentIndex >= segments.length) { return null; }
-
-      guards[currentIndex].lock();
-      return segments[currentIndex];
-    }
   }
-}
\ No newline at end of file
+}
@@ -44,13 +44,13 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 
 public class ConcurrentDistributedServerMapManagedObjectState extends PartialMapManagedObjectState implements
@@ -77,6 +77,8 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
   protected int                 dsoLockType;
 
   private static final double   OVERSHOOT                      = getOvershoot();
+  // eviction picks the coldest keys among this many times the keys asked for
+  private static final int      EVICTION_CANDIDATES_FACTOR     = 4;
 
   static {
     LOGGER.info("Eviction overshoot threshold is " + OVERSHOOT);
@@ -84,6 +86,8 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
 
   private SamplingType          samplingType                   = SamplingType.FOR_EVICTION;
   private Iterator<Object>      evictionIterator               = null;
+  // created on the first access, not persisted
+  private FrequencySketch       accessFrequencies;
 
   private boolean               invalidateOnChange;
   private int                   maxTTISeconds;
@@ -95,6 +99,9 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
   private boolean               compressionEnabled;
   private boolean               copyOnReadEnabled;
   private final SetMultimap<ServerEventType, ClientID> eventRegistry                  = HashMultimap.create();
+  // while a DNA is applied puts only note that capacity must be checked, the check runs once at the end of the DNA
+  private boolean               applyingDNA;
+  private boolean               capacityCheckPending;
 
   protected ConcurrentDistributedServerMapManagedObjectState(final ObjectInput in, PersistentObjectFactory factory)
       throws IOException {
@@ -174,33 +181,43 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
       throws IOException {
     boolean broadcast = false;
     int eventCount = 0;
-    while (cursor.next()) {
-      final Object action = cursor.getAction();
-      if (action instanceof PhysicalAction) {
-        applyPhysicalAction((PhysicalAction) action, objectID, applyInfo);
-      } else { // LogicalAction
-        eventCount++;
-
-        final LogicalAction logicalAction = (LogicalAction) action;
-        final LogicalOperation operation = logicalAction.getLogicalOperation();
-        final Object[] params = logicalAction.getParameters();
-        LogicalChangeResult result = applyLogicalAction(objectID, applyInfo, operation, params);
-        if (CAS_LOGGING && result == LogicalChangeResult.SUCCESS) {
-          LOGGER.info("SUCCESS returned for KEY: " + params[0] + "   for ServerTransactionID: "
-                      + applyInfo.getServerTransactionID() + "   ---   "
-                       + logicalAction.getLogicalChangeID());
-        }
-        applyInfo.getApplyResultRecorder().recordResult(logicalAction.getLogicalChangeID(), result);
-        // TODO: requires refactoring, we should call super.apply() instead
-        if (LogicalOperation.CLEAR.equals(operation)) {
-          // clear needs to be broadcasted so local caches can be cleared elsewhere
-          applyInfo.echoChangesFor(objectID); // Also echo the clear so that we don't need to clear local cache inline for
-                                              // quick clear (DEV-9793)
-          broadcast = true;
-        } else if (LogicalOperation.CLEAR_LOCAL_CACHE.equals(operation) || LogicalOperation.DESTROY.equals(operation) || LogicalOperation.SET_LAST_ACCESSED_TIME.equals(operation)) {
-          broadcast = true;
+    applyingDNA = true;
+    try {
+      while (cursor.next()) {
+        final Object action = cursor.getAction();
+        if (action instanceof PhysicalAction) {
+          applyPhysicalAction((PhysicalAction) action, objectID, applyInfo);
+        } else { // LogicalAction
+          eventCount++;
+
+          final LogicalAction logicalAction = (LogicalAction) action;
+          final LogicalOperation operation = logicalAction.getLogicalOperation();
+          final Object[] params = logicalAction.getParameters();
+          LogicalChangeResult result = applyLogicalAction(objectID, applyInfo, operation, params);
+          if (CAS_LOGGING && result == LogicalChangeResult.SUCCESS) {
+            LOGGER.info("SUCCESS returned for KEY: " + params[0] + "   for ServerTransactionID: "
+                        + applyInfo.getServerTransactionID() + "   ---   "
+                         + logicalAction.getLogicalChangeID());
+          }
+          applyInfo.getApplyResultRecorder().recordResult(logicalAction.getLogicalChangeID(), result);
+          // TODO: requires refactoring, we should call super.apply() instead
+          if (LogicalOperation.CLEAR.equals(operation)) {
+            // clear needs to be broadcasted so local caches can be cleared elsewhere
+            applyInfo.echoChangesFor(objectID); // Also echo the clear so that we don't need to clear local cache inline for
+                                                // quick clear (DEV-9793)
+            broadcast = true;
+          } else if (LogicalOperation.CLEAR_LOCAL_CACHE.equals(operation) || LogicalOperation.DESTROY.equals(operation) || LogicalOperation.SET_LAST_ACCESSED_TIME.equals(operation)) {
+            broadcast = true;
+          }
         }
       }
+    } finally {
+      applyingDNA = false;
+    }
+    if (capacityCheckPending) {
+      // a batched putAll ships all its puts for a segment in one DNA, so capacity is checked once per DNA
+      capacityCheckPending = false;
+      startCapacityEvictionIfNeccessary(applyInfo);
     }
     if (eventCount != 0) {
       getOperationEventBus().post(Events.writeOperationCountChangeEvent(applyInfo.getServerTransactionID()
@@ -422,7 +439,11 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
     removedReferences(applyInfo, old);
 
     addValue(applyInfo, oid, old != null);
-    startCapacityEvictionIfNeccessary(applyInfo);
+    if (applyingDNA) {
+      capacityCheckPending = true;
+    } else {
+      startCapacityEvictionIfNeccessary(applyInfo);
+    }
 
     // collect modifications for futher broadcasting
     applyInfo.getMutationEventPublisher().publishEvent(getRegisteredClients(ServerEventType.PUT), ServerEventType.PUT,
@@ -554,9 +575,20 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
     if (wrappedValue != null && value.equals(wrappedValue.getObjectID())) {
       wrappedValue.setLastAccessedTime(lastAccessedTime);
       references.put(key, wrappedValue);
+      recordAccess(key);
     }
   }
 
+  /**
+   * Counts an access to the key, so that eviction prefers keys that are accessed less often.
+   */
+  public void recordAccess(final Object key) {
+    if (accessFrequencies == null) {
+      accessFrequencies = new FrequencySketch(getSize());
+    }
+    accessFrequencies.increment(key);
+  }
+
   @Override
   protected void applyClear(final ApplyTransactionInfo applyInfo) {
     for (Object key : references.keySet()) {
@@ -721,12 +753,13 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
                                                       final ClientObjectReferenceSet clientObjectRefSet,
                                                       final SamplingType smpType) {
     this.samplingType = smpType;
-    final Map<Object, EvictableEntry> samples = new HashMap<Object, EvictableEntry>(count);
-    final Set<Object> ignored = new HashSet<Object>(count);
-    final Random r = new Random();
     final int size = getSize();
-    final int chance = count > size ? 100 : Math.max(10, (count / size) * 100);
-    for (int i = 0; samples.size() < count && i < size; i++) {
+    final boolean byFrequency = smpType == SamplingType.FOR_EVICTION && accessFrequencies != null;
+    final int wanted = byFrequency ? (int) Math.min((long) count * EVICTION_CANDIDATES_FACTOR, size) : count;
+    final List<Object> keys = new ArrayList<Object>(Math.min(wanted, size));
+    final List<CDSMValue> values = new ArrayList<CDSMValue>(Math.min(wanted, size));
+    // the walk resumes where the previous one stopped so that successive samples cover the whole map
+    for (int i = 0; keys.size() < wanted && i < size; i++) {
       if (evictionIterator == null || !evictionIterator.hasNext()) {
         evictionIterator = references.keySet().iterator();
         if (!evictionIterator.hasNext()) {
@@ -736,25 +769,31 @@ public class ConcurrentDistributedServerMapManagedObjectState extends PartialMap
       }
       final Object k = evictionIterator.next();
       if (k == null) { throw new AssertionError("key is not null"); }
-      if (r.nextInt(100) < chance) {
-        CDSMValue value = getValueForKey(k);
-        if (value == null || clientObjectRefSet.contains(value.getObjectID())) {
-          continue;
-        }
-        samples.put(k, value);
-      } else {
-        ignored.add(k);
+      CDSMValue value = getValueForKey(k);
+      if (value == null || clientObjectRefSet.contains(value.getObjectID())) {
+        continue;
       }
+      keys.add(k);
+      values.add(value);
     }
-    if (samples.size() < count) {
-      for (final Iterator<Object> i = ignored.iterator(); samples.size() < count && i.hasNext();) {
-        final Object k = i.next();
-        CDSMValue v = getValueForKey(k);
-        if (v == null || clientObjectRefSet.contains(v.getObjectID())) {
-          continue;
-        }
-        samples.put(k, v);
+
+    final Map<Object, EvictableEntry> samples = new HashMap<Object, EvictableEntry>(Math.min(count, keys.size()));
+    if (!byFrequency || keys.size() <= count) {
+      for (int i = 0; i < keys.size() && samples.size() < count; i++) {
+        samples.put(keys.get(i), values.get(i));
       }
+      return samples;
+    }
+    accessFrequencies.ensureCapacity(size);
+    // frequency in the high bits and position in the low ones, so sorting puts the coldest candidates first
+    final long[] coldest = new long[keys.size()];
+    for (int i = 0; i < coldest.length; i++) {
+      coldest[i] = ((long) accessFrequencies.frequency(keys.get(i)) << 32) | i;
+    }
+    Arrays.sort(coldest);
+    for (int i = 0; i < count; i++) {
+      int candidate = (int) coldest[i];
+      samples.put(keys.get(candidate), values.get(candidate));
     }
     return samples;
   }
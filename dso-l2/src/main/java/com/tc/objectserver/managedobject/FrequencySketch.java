@@ -0,0 +1,130 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.managedobject;
+
+/**
+ * Approximate access counts of the keys of a server map: a count-min sketch of 4 bit counters, sixteen to a long,
+ * with each key counted in four of them picked by different hashes. A key's frequency is the smallest of its four
+ * counters, so collisions can only make a key look hotter than it is. Once the map's size times ten accesses have been
+ * counted all counters are halved, so keys that were hot a while ago cool down.
+ * <p>
+ * The table is one long per expected key, capped at 64KB per map: past that, keys share counters and look hotter than
+ * they are, which still ranks them well enough to pick eviction victims.
+ * <p>
+ * Not thread safe, callers hold the map checked out.
+ */
+final class FrequencySketch {
+
+  private static final int    MAX_FREQUENCY = 15;
+  private static final int    MAX_TABLE     = 1 << 13;
+  private static final long   RESET_MASK    = 0x7777777777777777L;
+  private static final long   ONE_MASK      = 0x1111111111111111L;
+  private static final long[] SEEDS         = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L                  };
+
+  private long[]              table;
+  private int                 sampleSize;
+  private int                 additions;
+
+  FrequencySketch(int expectedKeys) {
+    ensureCapacity(expectedKeys);
+  }
+
+  /**
+   * Grows the sketch for a map of this many keys. A key's counters in the grown table are where its old ones were, or
+   * that many slots further along, so each slot starts as a copy of the one it grew from and no count is lost.
+   */
+  void ensureCapacity(int expectedKeys) {
+    int length = Math.min(MAX_TABLE, ceilingPowerOfTwo(Math.max(expectedKeys, 8)));
+    if (table != null && table.length >= length) { return; }
+    long[] grown = new long[length];
+    if (table != null) {
+      for (int i = 0; i < length; i++) {
+        grown[i] = table[i & (table.length - 1)];
+      }
+    }
+    table = grown;
+    sampleSize = 10 * Math.max(expectedKeys, 8);
+  }
+
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    // halving drops the odd ones, so take them off what the counters now hold, counters copied by a growth count twice
+    additions = Math.max(0, (additions >>> 1) - (odd >>> 2));
+  }
+
+  /**
+   * Used for Tests.
+   */
+  int tableLength() {
+    return table.length;
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return ((int) h) & (table.length - 1);
+  }
+
+  private static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private static int ceilingPowerOfTwo(int x) {
+    return 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+  }
+}
@@ -0,0 +1,285 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.object.ObjectID;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads what a {@link ByteBufferObjectOutput} wrote from a {@link ByteBuffer}.
+ */
+class ByteBufferObjectInput implements ObjectInput {
+  private final ByteBuffer buffer;
+
+  ByteBufferObjectInput(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  @Override
+  public Object readObject() throws ClassNotFoundException, IOException {
+    byte tag = readByte();
+    switch (tag) {
+      case ByteBufferObjectOutput.NULL:
+        return null;
+      case ByteBufferObjectOutput.OBJECT_ID:
+        return new ObjectID(readLong());
+      case ByteBufferObjectOutput.LONG:
+        return readLong();
+      case ByteBufferObjectOutput.INTEGER:
+        return readInt();
+      case ByteBufferObjectOutput.BOOLEAN:
+        return readBoolean();
+      case ByteBufferObjectOutput.STRING:
+        return readString();
+      case ByteBufferObjectOutput.BYTE_ARRAY: {
+        byte[] bytes = new byte[readInt()];
+        readFully(bytes);
+        return bytes;
+      }
+      case ByteBufferObjectOutput.LITERAL:
+        try {
+          return LiteralSerializer.INSTANCE.recover(buffer);
+        } catch (BufferUnderflowException e) {
+          throw eof(e);
+        }
+      case ByteBufferObjectOutput.SERIALIZED: {
+        byte[] bytes = new byte[readInt()];
+        readFully(bytes);
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+          return ois.readObject();
+        } finally {
+          ois.close();
+        }
+      }
+      default:
+        throw new IOException("Unknown object tag " + tag);
+    }
+  }
+
+  private String readString() throws IOException {
+    int length = readInt();
+    boolean latin1 = readBoolean();
+    char[] chars = new char[length];
+    try {
+      if (latin1) {
+        for (int i = 0; i < length; i++) {
+          chars[i] = (char) (buffer.get() & 0xFF);
+        }
+      } else {
+        for (int i = 0; i < length; i++) {
+          chars[i] = buffer.getChar();
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      throw eof(e);
+    }
+    return new String(chars);
+  }
+
+  @Override
+  public int read() {
+    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] b) {
+    return read(b, 0, b.length);
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buffer.hasRemaining()) {
+      return -1;
+    }
+    int n = Math.min(len, buffer.remaining());
+    buffer.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public long skip(long n) {
+    int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+    buffer.position(buffer.position() + skipped);
+    return skipped;
+  }
+
+  @Override
+  public int skipBytes(int n) {
+    return (int) skip(n);
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+
+  @Override
+  public void readFully(byte[] b) throws IOException {
+    readFully(b, 0, b.length);
+  }
+
+  @Override
+  public void readFully(byte[] b, int off, int len) throws IOException {
+    if (buffer.remaining() < len) {
+      throw new EOFException();
+    }
+    buffer.get(b, off, len);
+  }
+
+  @Override
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  @Override
+  public byte readByte() throws IOException {
+    try {
+      return buffer.get();
+    } catch (BufferUnderflowException e) {
+      throw eof(e);
+    }
+  }
+
+  @Override
+  public int readUnsignedByte() throws IOException {
+    return readByte() & 0xFF;
+  }
+
+  @Override
+  public short readShort() throws IOException {
+    try {
+      return buffer.getShort();
+    } catch (BufferUnderflowException e) {
+      throw eof(e);
+    }
+  }
+
+  @Override
+  public int readUnsignedShort() throws IOException {
+    return readShort() & 0xFFFF;
+  }
+
+  @Override
+  public char readChar() throws IOException {
+    try {
+      return buffer.getChar();
+    } catch (BufferUnderflowException e) {
+      throw eof(e);
+    }
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    try {
+      return buffer.getInt();
+    } catch (BufferUnderflowException e) {
+      throw eof(e);
+    }
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    try {
+      return buffer.getLong();
+    } catch (BufferUnderflowException e) {
+      throw eof(e);
+    }
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  @Override
+  public String readLine() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String readUTF() throws IOException {
+    int utfLength = readUnsignedShort();
+    if (buffer.remaining() < utfLength) {
+      throw new EOFException();
+    }
+    char[] chars = new char[utfLength];
+    int count = 0;
+    int end = buffer.position() + utfLength;
+    while (buffer.position() < end) {
+      int c = buffer.get() & 0xFF;
+      switch (c >> 4) {
+        case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+          chars[count++] = (char) c;
+          break;
+        case 12: case 13: {
+          if (buffer.position() + 1 > end) {
+            throw new UTFDataFormatException("malformed input: partial character at end");
+          }
+          int c2 = buffer.get();
+          if ((c2 & 0xC0) != 0x80) {
+            throw new UTFDataFormatException("malformed input around byte " + buffer.position());
+          }
+          chars[count++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+          break;
+        }
+        case 14: {
+          if (buffer.position() + 2 > end) {
+            throw new UTFDataFormatException("malformed input: partial character at end");
+          }
+          int c2 = buffer.get();
+          int c3 = buffer.get();
+          if (((c2 & 0xC0) != 0x80) || ((c3 & 0xC0) != 0x80)) {
+            throw new UTFDataFormatException("malformed input around byte " + buffer.position());
+          }
+          chars[count++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+          break;
+        }
+        default:
+          throw new UTFDataFormatException("malformed input around byte " + buffer.position());
+      }
+    }
+    return new String(chars, 0, count);
+  }
+
+  @Override
+  public void close() {
+    //
+  }
+
+  private static EOFException eof(BufferUnderflowException cause) {
+    EOFException e = new EOFException();
+    e.initCause(cause);
+    return e;
+  }
+}
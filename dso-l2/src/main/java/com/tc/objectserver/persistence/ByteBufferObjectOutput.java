@@ -0,0 +1,254 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.object.ObjectID;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link ObjectOutput} writing into a reusable, growable {@link ByteBuffer}. The primitive writes follow the
+ * {@link java.io.DataOutput} contract, {@link #writeObject(Object)} writes the types found in managed object state
+ * with a one byte tag and falls back to Java serialization for anything else.
+ */
+class ByteBufferObjectOutput implements ObjectOutput {
+  static final byte  NULL           = 0x00;
+  static final byte  OBJECT_ID      = 0x01;
+  static final byte  LONG           = 0x02;
+  static final byte  INTEGER        = 0x03;
+  static final byte  BOOLEAN        = 0x04;
+  static final byte  STRING         = 0x05;
+  static final byte  BYTE_ARRAY     = 0x06;
+  static final byte  LITERAL        = 0x07;
+  static final byte  SERIALIZED     = 0x08;
+
+  private final int  initialCapacity;
+  private final int  retainedCapacity;
+  private ByteBuffer buffer;
+
+  /**
+   * @param initialCapacity size of the buffer to start with
+   * @param retainedCapacity buffers grown beyond this size are dropped again on {@link #reset()}
+   */
+  ByteBufferObjectOutput(int initialCapacity, int retainedCapacity) {
+    this.initialCapacity = initialCapacity;
+    this.retainedCapacity = retainedCapacity;
+    this.buffer = ByteBuffer.allocate(initialCapacity);
+  }
+
+  void reset() {
+    if (buffer.capacity() > retainedCapacity) {
+      buffer = ByteBuffer.allocate(initialCapacity);
+    } else {
+      buffer.clear();
+    }
+  }
+
+  byte[] toByteArray() {
+    byte[] bytes = new byte[buffer.position()];
+    System.arraycopy(buffer.array(), buffer.arrayOffset(), bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  private ByteBuffer ensure(int bytes) {
+    if (buffer.remaining() < bytes) {
+      int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+      ByteBuffer grown = ByteBuffer.allocate(capacity);
+      buffer.flip();
+      grown.put(buffer);
+      buffer = grown;
+    }
+    return buffer;
+  }
+
+  @Override
+  public void writeObject(Object obj) throws IOException {
+    if (obj == null) {
+      writeByte(NULL);
+    } else if (obj instanceof ObjectID) {
+      ensure(9).put(OBJECT_ID).putLong(((ObjectID) obj).toLong());
+    } else if (obj instanceof Long) {
+      ensure(9).put(LONG).putLong((Long) obj);
+    } else if (obj instanceof Integer) {
+      ensure(5).put(INTEGER).putInt((Integer) obj);
+    } else if (obj instanceof Boolean) {
+      ensure(2).put(BOOLEAN).put(((Boolean) obj) ? (byte) 1 : (byte) 0);
+    } else if (obj instanceof String) {
+      writeByte(STRING);
+      writeString((String) obj);
+    } else if (obj instanceof byte[]) {
+      byte[] bytes = (byte[]) obj;
+      ensure(5 + bytes.length).put(BYTE_ARRAY).putInt(bytes.length).put(bytes);
+    } else if (LiteralSerializer.INSTANCE.isLiteral(obj)) {
+      ByteBuffer literal = LiteralSerializer.INSTANCE.transform(obj);
+      ensure(1 + literal.remaining()).put(LITERAL).put(literal);
+    } else {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bytes);
+      try {
+        oos.writeObject(obj);
+      } finally {
+        oos.close();
+      }
+      ensure(5 + bytes.size()).put(SERIALIZED).putInt(bytes.size()).put(bytes.toByteArray());
+    }
+  }
+
+  /**
+   * Strings of any length, unlike {@link #writeUTF(String)}: a char count followed by the chars, with a one byte
+   * per char fast path when the string is all Latin-1.
+   */
+  private void writeString(String s) {
+    int length = s.length();
+    boolean latin1 = true;
+    for (int i = 0; i < length && latin1; i++) {
+      latin1 = s.charAt(i) <= 0xFF;
+    }
+    if (latin1) {
+      ByteBuffer b = ensure(5 + length).putInt(length).put((byte) 1);
+      for (int i = 0; i < length; i++) {
+        b.put((byte) s.charAt(i));
+      }
+    } else {
+      ByteBuffer b = ensure(5 + length * 2).putInt(length).put((byte) 0);
+      for (int i = 0; i < length; i++) {
+        b.putChar(s.charAt(i));
+      }
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    ensure(1).put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b) {
+    write(b, 0, b.length);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensure(len).put(b, off, len);
+  }
+
+  @Override
+  public void writeBoolean(boolean v) {
+    ensure(1).put(v ? (byte) 1 : (byte) 0);
+  }
+
+  @Override
+  public void writeByte(int v) {
+    ensure(1).put((byte) v);
+  }
+
+  @Override
+  public void writeShort(int v) {
+    ensure(2).putShort((short) v);
+  }
+
+  @Override
+  public void writeChar(int v) {
+    ensure(2).putChar((char) v);
+  }
+
+  @Override
+  public void writeInt(int v) {
+    ensure(4).putInt(v);
+  }
+
+  @Override
+  public void writeLong(long v) {
+    ensure(8).putLong(v);
+  }
+
+  @Override
+  public void writeFloat(float v) {
+    ensure(4).putFloat(v);
+  }
+
+  @Override
+  public void writeDouble(double v) {
+    ensure(8).putDouble(v);
+  }
+
+  @Override
+  public void writeBytes(String s) {
+    int length = s.length();
+    ByteBuffer b = ensure(length);
+    for (int i = 0; i < length; i++) {
+      b.put((byte) s.charAt(i));
+    }
+  }
+
+  @Override
+  public void writeChars(String s) {
+    int length = s.length();
+    ByteBuffer b = ensure(length * 2);
+    for (int i = 0; i < length; i++) {
+      b.putChar(s.charAt(i));
+    }
+  }
+
+  @Override
+  public void writeUTF(String s) throws IOException {
+    int length = s.length();
+    int utfLength = 0;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x0001 && c <= 0x007F) {
+        utfLength++;
+      } else if (c > 0x07FF) {
+        utfLength += 3;
+      } else {
+        utfLength += 2;
+      }
+    }
+    if (utfLength > 65535) {
+      throw new UTFDataFormatException("encoded string too long: " + utfLength + " bytes");
+    }
+    ByteBuffer b = ensure(2 + utfLength).putShort((short) utfLength);
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x0001 && c <= 0x007F) {
+        b.put((byte) c);
+      } else if (c > 0x07FF) {
+        b.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+        b.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        b.put((byte) (0x80 | (c & 0x3F)));
+      } else {
+        b.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+        b.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    //
+  }
+
+  @Override
+  public void close() {
+    //
+  }
+}
@@ -0,0 +1,121 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.objectserver.core.api.ManagedObject;
+import com.tc.objectserver.managedobject.ManagedObjectSerializer;
+import com.tc.objectserver.managedobject.ManagedObjectStateSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary format of the managed objects in the object stores: a two byte header (magic, format version) followed by
+ * the object as written by {@link ManagedObject#serializeTo} into a per thread {@link ByteBufferObjectOutput}.
+ * <p>
+ * Records written by the old Java serialization path start with the serialization stream magic and are still
+ * readable, see {@link #isLegacy(byte[])}.
+ */
+class ManagedObjectCodec {
+  static final byte                                MAGIC             = 0x4D;
+  static final byte                                VERSION           = 1;
+
+  private static final int                         HEADER_SIZE       = 2;
+  private static final int                         INITIAL_CAPACITY  = 1024;
+  private static final int                         RETAINED_CAPACITY = 64 * 1024;
+
+  private final ManagedObjectSerializer            serializer;
+  private final ManagedObjectStateSerializer       stateSerializer;
+  private final ThreadLocal<ByteBufferObjectOutput> outputs          = new ThreadLocal<ByteBufferObjectOutput>() {
+                                                                       @Override
+                                                                       protected ByteBufferObjectOutput initialValue() {
+                                                                         return new ByteBufferObjectOutput(INITIAL_CAPACITY,
+                                                                                                           RETAINED_CAPACITY);
+                                                                       }
+                                                                     };
+
+  ManagedObjectCodec(ManagedObjectPersistor persistor) {
+    this.stateSerializer = new ManagedObjectStateSerializer();
+    this.serializer = new ManagedObjectSerializer(stateSerializer, persistor);
+  }
+
+  byte[] encode(ManagedObject managedObject) {
+    ByteBufferObjectOutput out = outputs.get();
+    try {
+      out.writeByte(MAGIC);
+      out.writeByte(VERSION);
+      managedObject.serializeTo(out, stateSerializer);
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    } finally {
+      out.reset();
+    }
+  }
+
+  ManagedObject decode(byte[] data) throws IOException {
+    if (isLegacy(data)) {
+      return decodeLegacy(data);
+    }
+    if (data.length < HEADER_SIZE || data[0] != MAGIC) {
+      throw new IOException("Unknown managed object format");
+    }
+    if (data[1] != VERSION) {
+      throw new IOException("Unsupported managed object format version " + data[1]);
+    }
+    ObjectInput in = new ByteBufferObjectInput(ByteBuffer.wrap(data, HEADER_SIZE, data.length - HEADER_SIZE));
+    return (ManagedObject) serializer.deserializeFrom(in);
+  }
+
+  /**
+   * Records written with Java serialization before the binary format existed.
+   */
+  static boolean isLegacy(byte[] data) {
+    return data.length >= 2 && data[0] == (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8)
+           && data[1] == (byte) ObjectStreamConstants.STREAM_MAGIC;
+  }
+
+  ManagedObject decodeLegacy(byte[] data) throws IOException {
+    ObjectInput oi = new ObjectInputStream(new ByteArrayInputStream(data));
+    return (ManagedObject) serializer.deserializeFrom(oi);
+  }
+
+  /**
+   * The old Java serialization format, only kept to compare against.
+   */
+  byte[] encodeLegacy(ManagedObject managedObject) {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    try {
+      ObjectOutput oo = new ObjectOutputStream(byteArrayOutputStream);
+      try {
+        serializer.serializeTo(managedObject, oo);
+      } finally {
+        oo.close();
+      }
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return byteArrayOutputStream.toByteArray();
+  }
+}
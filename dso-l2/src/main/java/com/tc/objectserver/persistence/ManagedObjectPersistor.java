@@ -24,6 +24,7 @@ import org.terracotta.corestorage.StorageManager;
 import com.tc.object.ObjectID;
 import com.tc.objectserver.api.Transaction;
 import com.tc.objectserver.core.api.ManagedObject;
+import com.tc.stats.counter.Counter;
 import com.tc.util.ObjectIDSet;
 import com.tc.util.sequence.ObjectIDSequence;
 
@@ -43,7 +44,7 @@ public class ManagedObjectPersistor  {
 
 
   private final KeyValueStorage<String, ObjectID> rootMap;
-  private final KeyValueStorage<ObjectID, ManagedObject> objectMap;
+  private final ObjectMap objectMap;
   private final ObjectIDSequence objectIDSequence;
 
   private final ObjectIDSetMaintainer oidSetMaintainer;
@@ -51,7 +52,7 @@ public class ManagedObjectPersistor  {
   public ManagedObjectPersistor(StorageManager storageManager, SequenceManager sequenceManager, final ObjectIDSetMaintainer oidSetMaintainer) {
     this.rootMap = storageManager.getKeyValueStorage(ROOT_DB, String.class, ObjectID.class);
     this.oidSetMaintainer = oidSetMaintainer;
-    this.objectMap = new ObjectMap(this, storageManager);
+    this.objectMap = new ObjectMap(this, storageManager, oidSetMaintainer);
     this.objectIDSequence = new ObjectIDSequenceImpl(sequenceManager.getSequence(OBJECT_ID_SEQUENCE));
   }
 
@@ -63,6 +64,20 @@ public class ManagedObjectPersistor  {
     ObjectMap.addConfigTo(configs, objectIDSetMaintainer, storageManagerFactory);
   }
 
+  /**
+   * Brings objects stored in an older format up to date, see {@link ObjectMap#migrate()}.
+   */
+  public void migrateObjects() {
+    objectMap.migrate();
+  }
+
+  /**
+   * Counts the object lookups the leaf/node index could and could not route to a single object store.
+   */
+  public void setObjectIndexCounters(Counter hits, Counter misses) {
+    objectMap.setIndexCounters(hits, misses);
+  }
+
   public void close() {
     //
   }
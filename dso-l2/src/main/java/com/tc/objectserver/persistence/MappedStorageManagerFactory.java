@@ -0,0 +1,90 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import org.terracotta.corestorage.ImmutableKeyValueStorageConfig;
+import org.terracotta.corestorage.KeyValueStorageConfig;
+import org.terracotta.corestorage.StorageManager;
+import org.terracotta.corestorage.TransformerLookup;
+
+import com.tc.objectserver.persistence.mapped.MappedStorageConfig;
+import com.tc.objectserver.persistence.mapped.MappedStorageManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Restartable storage: the data lives in the storage managers of the wrapped factory (heap or offheap) and every
+ * mutation is also written to an append-only log of memory-mapped segment files that is replayed on restart.
+ */
+public class MappedStorageManagerFactory implements StorageManagerFactory {
+  private final StorageManagerFactory              delegate;
+  private final MappedStorageConfig                config;
+  private final List<MappedStorageManager>         storageManagers = new CopyOnWriteArrayList<MappedStorageManager>();
+
+  private volatile KeyValueStorageConfig<?, ?>     mapConfig;
+
+  public MappedStorageManagerFactory(final StorageManagerFactory delegate, final MappedStorageConfig config) {
+    this.delegate = delegate;
+    this.config = config;
+  }
+
+  @Override
+  public StorageManager createStorageManager(final Map<String, KeyValueStorageConfig<?, ?>> configMap,
+                                             final TransformerLookup transformerLookup) throws IOException {
+    MappedStorageManager storageManager = new MappedStorageManager(delegate.createStorageManager(configMap,
+                                                                                                 transformerLookup),
+                                                                   config);
+    storageManager.setDynamicStorageConfig(mapConfig);
+    storageManagers.add(storageManager);
+    return storageManager;
+  }
+
+  @Override
+  public <K, V> KeyValueStorageConfig<K, V> wrapObjectDBConfig(final KeyValueStorageConfig<K, V> baseConfig, final Type nt) {
+    return delegate.wrapObjectDBConfig(baseConfig, nt);
+  }
+
+  @Override
+  public <K, V> KeyValueStorageConfig<K, V> wrapObjectDBConfig(final ImmutableKeyValueStorageConfig.Builder<K, V> builder, final Type nt) {
+    return delegate.wrapObjectDBConfig(builder, nt);
+  }
+
+  @Override
+  public <K, V> KeyValueStorageConfig<K, V> wrapMapConfig(final KeyValueStorageConfig<K, V> baseConfig) {
+    return rememberMapConfig(delegate.wrapMapConfig(baseConfig));
+  }
+
+  @Override
+  public <K, V> KeyValueStorageConfig<K, V> wrapMapConfig(final ImmutableKeyValueStorageConfig.Builder<K, V> builder) {
+    return rememberMapConfig(delegate.wrapMapConfig(builder));
+  }
+
+  /**
+   * Map storages are created on the fly by the {@link PersistentObjectFactory}, the storage managers need their
+   * configuration to recreate them when the log is replayed.
+   */
+  private <K, V> KeyValueStorageConfig<K, V> rememberMapConfig(final KeyValueStorageConfig<K, V> wrapped) {
+    mapConfig = wrapped;
+    for (MappedStorageManager storageManager : storageManagers) {
+      storageManager.setDynamicStorageConfig(wrapped);
+    }
+    return wrapped;
+  }
+}
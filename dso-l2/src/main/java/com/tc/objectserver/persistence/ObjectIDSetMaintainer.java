@@ -25,18 +25,29 @@ import com.tc.object.ObjectID;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.BitSetObjectIDSet;
+import com.tc.util.CompressedObjectIDSet;
 import com.tc.util.ExpandingBitSetObjectIDSet;
 import com.tc.util.ObjectIDSet;
 import com.tc.util.TCCollections;
 
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * @author tim
  */
 public class ObjectIDSetMaintainer implements KeyValueStorageMutationListener<Long, byte[]> {
   private static enum ObjectIDSetType {
-    BITSET_BASED_SET, EXPANDING_BITSET_BASED_SET
+    BITSET_BASED_SET, EXPANDING_BITSET_BASED_SET, COMPRESSED_SET
+  }
+
+  /**
+   * Which object store an object lives in, leaf objects are exactly the objects without references.
+   */
+  static enum StorageKind {
+    LEAF, NODE, UNKNOWN
   }
 
   private static final TCLogger logger = TCLogging.getLogger(ObjectIDSetMaintainer.class);
@@ -44,6 +55,7 @@ public class ObjectIDSetMaintainer implements KeyValueStorageMutationListener<Lo
   private final ObjectIDSet evictableObjectIDSet = new BitSetObjectIDSet();
   private final ObjectIDSet noReferencesObjectIDSet;
   private final ObjectIDSet referencesObjectIDSet = new BitSetObjectIDSet();
+  private final KindIndex kindIndex = new KindIndex();
 
   public ObjectIDSetMaintainer() {
     noReferencesObjectIDSet = create(TCCollections.EMPTY_OBJECT_ID_SET);
@@ -71,6 +83,8 @@ public class ObjectIDSetMaintainer implements KeyValueStorageMutationListener<Lo
         return new BitSetObjectIDSet(clone);
       case EXPANDING_BITSET_BASED_SET:
         return new ExpandingBitSetObjectIDSet(clone);
+      case COMPRESSED_SET:
+        return new CompressedObjectIDSet(clone);
     }
     throw new UnsupportedOperationException("Unsupported ObjectIDSet type " + getObjectIDSetType());
   }
@@ -79,8 +93,15 @@ public class ObjectIDSetMaintainer implements KeyValueStorageMutationListener<Lo
     return new BitSetObjectIDSet(evictableObjectIDSet);
   }
 
-  public synchronized boolean hasNoReferences(ObjectID id) {
-    return noReferencesObjectIDSet.contains(id);
+  public boolean hasNoReferences(ObjectID id) {
+    return kindIndex.get(id.toLong()) == StorageKind.LEAF;
+  }
+
+  /**
+   * Lock free, this is on the path of every object lookup.
+   */
+  StorageKind storageKindOf(ObjectID id) {
+    return kindIndex.get(id.toLong());
   }
 
   @Override
@@ -91,8 +112,10 @@ public class ObjectIDSetMaintainer implements KeyValueStorageMutationListener<Lo
     }
     if (PersistentCollectionsUtil.isNoReferenceObjectType(metadata)) {
       noReferencesObjectIDSet.add(k);
+      kindIndex.set(k.toLong(), StorageKind.LEAF);
     } else {
       referencesObjectIDSet.add(k);
+      kindIndex.set(k.toLong(), StorageKind.NODE);
     }
   }
 
@@ -103,5 +126,68 @@ public class ObjectIDSetMaintainer implements KeyValueStorageMutationListener<Lo
     if (!noReferencesObjectIDSet.remove(oid)) {
       referencesObjectIDSet.remove(oid);
     }
+    kindIndex.set(oid.toLong(), StorageKind.UNKNOWN);
+  }
+
+  /**
+   * The {@link StorageKind} of every known object, two bits per object id in pages of 64K ids. Only written under the
+   * maintainer's monitor, read without any lock.
+   */
+  private static final class KindIndex {
+    private static final int                PAGE_SHIFT   = 16;
+    private static final int                PAGE_MASK    = (1 << PAGE_SHIFT) - 1;
+    private static final int                IDS_PER_WORD = Long.SIZE / 2;
+    private static final long               LEAF         = 1;
+    private static final long               NODE         = 2;
+
+    private final ConcurrentMap<Long, Page> pages        = new ConcurrentHashMap<Long, Page>();
+
+    StorageKind get(long id) {
+      if (id < 0) { return StorageKind.UNKNOWN; }
+      Page page = pages.get(id >>> PAGE_SHIFT);
+      if (page == null) { return StorageKind.UNKNOWN; }
+      int offset = (int) (id & PAGE_MASK);
+      long kind = (page.words.get(offset / IDS_PER_WORD) >>> shift(offset)) & 3;
+      if (kind == LEAF) {
+        return StorageKind.LEAF;
+      } else if (kind == NODE) {
+        return StorageKind.NODE;
+      } else {
+        return StorageKind.UNKNOWN;
+      }
+    }
+
+    void set(long id, StorageKind kind) {
+      if (id < 0) { return; }
+      Long pageIndex = id >>> PAGE_SHIFT;
+      Page page = pages.get(pageIndex);
+      if (page == null) {
+        if (kind == StorageKind.UNKNOWN) { return; }
+        page = new Page();
+        pages.put(pageIndex, page);
+      }
+      int offset = (int) (id & PAGE_MASK);
+      int word = offset / IDS_PER_WORD;
+      int shift = shift(offset);
+      long bits = page.words.get(word);
+      long old = (bits >>> shift) & 3;
+      long value = kind == StorageKind.LEAF ? LEAF : kind == StorageKind.NODE ? NODE : 0;
+      page.words.set(word, (bits & ~(3L << shift)) | (value << shift));
+      if (old == 0 && value != 0) {
+        page.live++;
+      } else if (old != 0 && value == 0 && --page.live == 0) {
+        pages.remove(pageIndex);
+      }
+    }
+
+    private static int shift(int offset) {
+      return (offset % IDS_PER_WORD) * 2;
+    }
+
+    private static final class Page {
+      private final AtomicLongArray words = new AtomicLongArray((PAGE_MASK + 1) / IDS_PER_WORD);
+      // known objects in the page
+      private int                   live;
+    }
   }
 }
@@ -22,19 +22,15 @@ import org.terracotta.corestorage.KeyValueStorageConfig;
 import org.terracotta.corestorage.KeyValueStorageMutationListener;
 import org.terracotta.corestorage.StorageManager;
 
+import com.tc.logging.TCLogger;
+import com.tc.logging.TCLogging;
 import com.tc.object.ObjectID;
 import com.tc.objectserver.core.api.ManagedObject;
-import com.tc.objectserver.managedobject.ManagedObjectSerializer;
-import com.tc.objectserver.managedobject.ManagedObjectStateSerializer;
 import com.tc.objectserver.managedobject.SerializedClusterObjectState;
+import com.tc.stats.counter.Counter;
+import com.tc.stats.counter.CounterImpl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
@@ -43,17 +39,71 @@ import java.util.Set;
  * @author tim
  */
 class ObjectMap implements KeyValueStorage<ObjectID, ManagedObject> {
+  private static final TCLogger logger = TCLogging.getLogger(ObjectMap.class);
+
   private static final String NODE_OBJECT_DB = "node_object_db";
   private static final String LEAF_OBJECT_DB = "leaf_object_db";
+  private static final String FORMAT_VERSION_PROPERTY = "objectmap.format.version";
 
   private final KeyValueStorage<Long, byte[]> nodeObjects;
   private final KeyValueStorage<Long, byte[]> leafObjects;
-  private final ManagedObjectSerializer serializer;
+  private final ManagedObjectCodec codec;
+  private final Map<String, String> properties;
+  private final ObjectIDSetMaintainer oidSetMaintainer;
+
+  private volatile Counter indexHits = new CounterImpl();
+  private volatile Counter indexMisses = new CounterImpl();
 
-  ObjectMap(ManagedObjectPersistor persistor, StorageManager storageManager) {
+  ObjectMap(ManagedObjectPersistor persistor, StorageManager storageManager, ObjectIDSetMaintainer oidSetMaintainer) {
     this.nodeObjects = storageManager.getKeyValueStorage(NODE_OBJECT_DB, Long.class, byte[].class);
     this.leafObjects = storageManager.getKeyValueStorage(LEAF_OBJECT_DB, Long.class, byte[].class);
-    this.serializer = new ManagedObjectSerializer(new ManagedObjectStateSerializer(), persistor);
+    this.codec = new ManagedObjectCodec(persistor);
+    this.properties = storageManager.getProperties();
+    this.oidSetMaintainer = oidSetMaintainer;
+  }
+
+  void setIndexCounters(Counter hits, Counter misses) {
+    hits.increment(indexHits.getValue());
+    misses.increment(indexMisses.getValue());
+    this.indexHits = hits;
+    this.indexMisses = misses;
+  }
+
+  /**
+   * Rewrites the objects still stored in the Java serialization format. Those are readable as they are, rewriting
+   * them once up front means the old decoding path is never hit again. Decoding needs the managed object state
+   * factory, so this can only run once that exists.
+   */
+  void migrate() {
+    String current = Byte.toString(ManagedObjectCodec.VERSION);
+    if (current.equals(properties.get(FORMAT_VERSION_PROPERTY))) {
+      return;
+    }
+    if (size() > 0) {
+      int migrated = migrate(nodeObjects) + migrate(leafObjects);
+      logger.info("Migrated " + migrated + " managed objects to format version " + current);
+    }
+    properties.put(FORMAT_VERSION_PROPERTY, current);
+  }
+
+  private int migrate(KeyValueStorage<Long, byte[]> storage) {
+    int migrated = 0;
+    for (Long key : storage.keySet()) {
+      byte[] data = storage.get(key);
+      if (data == null || !ManagedObjectCodec.isLegacy(data)) {
+        continue;
+      }
+      try {
+        ManagedObject managedObject = codec.decodeLegacy(data);
+        storage.put(key, codec.encode(managedObject), managedObject.getManagedObjectState().getType());
+        migrated++;
+      } catch (ObjectNotFoundException e) {
+        storage.remove(key);
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+    return migrated;
   }
 
   public static void addConfigTo(Map<String, KeyValueStorageConfig<?, ?>> configMap, KeyValueStorageMutationListener<Long, byte[]> listener,
@@ -81,51 +131,60 @@ class ObjectMap implements KeyValueStorage<ObjectID, ManagedObject> {
 
   @Override
   public void put(final ObjectID key, final ManagedObject value) {
-    put(key, value, (byte) 0);
+    // the state type is what the ObjectIDSetMaintainer indexes the object by
+    put(key, value, value.getManagedObjectState().getType());
   }
 
   @Override
   public void put(final ObjectID key, final ManagedObject value, byte metadata) {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    try {
-      ObjectOutput oo = new ObjectOutputStream(byteArrayOutputStream);
-      try {
-        serializer.serializeTo(value, oo);
-      } finally {
-        oo.close();
-      }
-    } catch (IOException e) {
-      throw new AssertionError(e);
-    }
+    byte[] data = codec.encode(value);
     if ( value.getManagedObjectState() instanceof SerializedClusterObjectState  ) {
-        leafObjects.put(key.toLong(), byteArrayOutputStream.toByteArray(), metadata);
+        leafObjects.put(key.toLong(), data, metadata);
     } else {
-        nodeObjects.put(key.toLong(), byteArrayOutputStream.toByteArray(), metadata);
+        nodeObjects.put(key.toLong(), data, metadata);
+  }
   }
+
+  /**
+   * The store the object lives in according to the index kept by the {@link ObjectIDSetMaintainer}, or null when the
+   * index does not know the object and both stores have to be probed.
+   */
+  private KeyValueStorage<Long, byte[]> storageFor(final ObjectID key) {
+    switch (oidSetMaintainer.storageKindOf(key)) {
+      case LEAF:
+        indexHits.increment();
+        return leafObjects;
+      case NODE:
+        indexHits.increment();
+        return nodeObjects;
+      default:
+        indexMisses.increment();
+        return null;
+    }
   }
 
   @Override
   public ManagedObject get(final ObjectID key) {
-    boolean leaf = true;
-    byte[] data = leafObjects.get(key.toLong());
-    
-    if (data == null) {
-      data = nodeObjects.get(key.toLong());
-      leaf = false;
+    KeyValueStorage<Long, byte[]> storage = storageFor(key);
+    byte[] data;
+    if (storage != null) {
+      data = storage.get(key.toLong());
+    } else {
+      storage = leafObjects;
+      data = leafObjects.get(key.toLong());
+      if (data == null) {
+        storage = nodeObjects;
+        data = nodeObjects.get(key.toLong());
+      }
     }
     if ( data == null ) {
       return null;
     }
     try {
-      ObjectInput oi = new ObjectInputStream(new ByteArrayInputStream(data));
-      return (ManagedObject)serializer.deserializeFrom(oi);
+      return codec.decode(data);
     } catch (ObjectNotFoundException e) {
       // Clean up the backing map if the object winds up missing (see MNK-5031)
-      if ( leaf ) {
-        leafObjects.remove(key.toLong());
-      } else {
-        nodeObjects.remove(key.toLong());
-      }
+      storage.remove(key.toLong());
       return null;
     } catch (IOException e) {
       throw new AssertionError(e);
@@ -134,6 +193,10 @@ class ObjectMap implements KeyValueStorage<ObjectID, ManagedObject> {
 
     @Override
     public boolean remove(final ObjectID key) {
+        KeyValueStorage<Long, byte[]> storage = storageFor(key);
+        if ( storage != null ) {
+            return storage.remove(key.toLong());
+        }
         if ( !leafObjects.remove(key.toLong()) ) {
             return nodeObjects.remove(key.toLong());
     }
@@ -149,6 +212,10 @@ class ObjectMap implements KeyValueStorage<ObjectID, ManagedObject> {
 
     @Override
     public boolean containsKey(final ObjectID key) {
+        KeyValueStorage<Long, byte[]> storage = storageFor(key);
+        if ( storage != null ) {
+            return storage.containsKey(key.toLong());
+        }
         if ( !leafObjects.containsKey(key.toLong()) ) {
             return nodeObjects.containsKey(key.toLong());
     }
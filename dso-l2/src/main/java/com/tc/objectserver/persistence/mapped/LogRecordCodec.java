@@ -0,0 +1,177 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import com.tc.net.protocol.tcm.ChannelID;
+import com.tc.objectserver.persistence.LiteralSerializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Encodes the operations and the keys/values of the append-only storage log. Every encoded value is prefixed by a type
+ * tag so that it can be recovered without knowing the configuration of the storage it belongs to.
+ * <p>
+ * Every record starts with its operation, the id of the storage transaction it was logged in and the alias of the
+ * storage it applies to. The records of a transaction only take effect on replay once its {@link #COMMIT} record is
+ * found.
+ */
+final class LogRecordCodec {
+  static final byte            PUT        = 1;
+  static final byte            REMOVE     = 2;
+  static final byte            CLEAR      = 3;
+  static final byte            CREATE     = 4;
+  static final byte            DESTROY    = 5;
+  static final byte            BIND       = 6;
+  static final byte            COMMIT     = 7;
+
+  /**
+   * Transaction id of the records logged outside of any storage transaction, they count as soon as they are logged.
+   */
+  static final long            NO_TXN     = 0;
+
+  private static final byte    BYTES      = 0;
+  private static final byte    LONG       = 1;
+  private static final byte    STRING     = 2;
+  private static final byte    CHANNEL_ID = 3;
+  private static final byte    LITERAL    = 4;
+
+  private static final Charset UTF8       = Charset.forName("UTF-8");
+
+  private static final byte[]  NO_ALIAS   = new byte[0];
+
+  private LogRecordCodec() {
+    // static helpers only
+  }
+
+  static ByteBuffer header(byte op, long transaction, byte[] alias) {
+    ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + alias.length);
+    buffer.put(op).putLong(transaction).putInt(alias.length).put(alias).flip();
+    return buffer;
+  }
+
+  static ByteBuffer commit(long transaction) {
+    return header(COMMIT, transaction, NO_ALIAS);
+  }
+
+  static byte[] aliasBytes(String alias) {
+    return alias.getBytes(UTF8);
+  }
+
+  static ByteBuffer metadata(byte metadata) {
+    ByteBuffer buffer = ByteBuffer.allocate(1);
+    buffer.put(metadata).flip();
+    return buffer;
+  }
+
+  static ByteBuffer encodeString(String s) {
+    byte[] bytes = s.getBytes(UTF8);
+    ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length);
+    buffer.putInt(bytes.length).put(bytes).flip();
+    return buffer;
+  }
+
+  static String decodeString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, UTF8);
+  }
+
+  static ByteBuffer encode(Object o) {
+    if (o == null) {
+      throw new IllegalArgumentException("Logging a null is not supported.");
+    }
+    if (o instanceof byte[]) {
+      byte[] bytes = (byte[]) o;
+      ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + bytes.length);
+      buffer.put(BYTES).putInt(bytes.length).put(bytes).flip();
+      return buffer;
+    } else if (o instanceof Long) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 + 8);
+      buffer.put(LONG).putLong((Long) o).flip();
+      return buffer;
+    } else if (o instanceof String) {
+      byte[] bytes = ((String) o).getBytes(UTF8);
+      ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + bytes.length);
+      buffer.put(STRING).putInt(bytes.length).put(bytes).flip();
+      return buffer;
+    } else if (o instanceof ChannelID) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 + 8);
+      buffer.put(CHANNEL_ID).putLong(((ChannelID) o).toLong()).flip();
+      return buffer;
+    } else {
+      ByteBuffer literal = LiteralSerializer.INSTANCE.transform(o);
+      ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + literal.remaining());
+      buffer.put(LITERAL).putInt(literal.remaining()).put(literal).flip();
+      return buffer;
+    }
+  }
+
+  static Object decode(ByteBuffer buffer) {
+    byte type = buffer.get();
+    switch (type) {
+      case BYTES: {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return bytes;
+      }
+      case LONG:
+        return buffer.getLong();
+      case STRING: {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+      }
+      case CHANNEL_ID:
+        return new ChannelID(buffer.getLong());
+      case LITERAL: {
+        int length = buffer.getInt();
+        ByteBuffer literal = buffer.slice();
+        literal.limit(length);
+        buffer.position(buffer.position() + length);
+        return LiteralSerializer.INSTANCE.recover(literal);
+      }
+      default:
+        throw new IllegalStateException("Unknown log value type " + type);
+    }
+  }
+
+  /**
+   * Skips over an encoded value, returning a view of its encoded form.
+   */
+  static ByteBuffer skip(ByteBuffer buffer) {
+    int start = buffer.position();
+    byte type = buffer.get();
+    switch (type) {
+      case LONG:
+      case CHANNEL_ID:
+        buffer.position(buffer.position() + 8);
+        break;
+      case BYTES:
+      case STRING:
+      case LITERAL:
+        int length = buffer.getInt();
+        buffer.position(buffer.position() + length);
+        break;
+      default:
+        throw new IllegalStateException("Unknown log value type " + type);
+    }
+    ByteBuffer encoded = buffer.duplicate();
+    encoded.limit(buffer.position()).position(start);
+    return encoded.slice();
+  }
+}
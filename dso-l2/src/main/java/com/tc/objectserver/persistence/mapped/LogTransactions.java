@@ -0,0 +1,137 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the storage transaction ({@code begin()} to {@code commit()}) open on each thread, so that the records logged
+ * inside of it can be tagged with its id and its commit record can be written when it ends.
+ */
+final class LogTransactions {
+  private final SegmentedLog              log;
+  private final AtomicLong                nextId  = new AtomicLong(LogRecordCodec.NO_TXN + 1);
+  private final ThreadLocal<Transaction>  current = new ThreadLocal<Transaction>();
+
+  LogTransactions(SegmentedLog log) {
+    this.log = log;
+  }
+
+  void begin() {
+    Transaction transaction = current.get();
+    if (transaction == null) {
+      current.set(new Transaction(nextId.getAndIncrement()));
+    } else {
+      transaction.depth++;
+    }
+  }
+
+  void commit() {
+    Transaction transaction = current.get();
+    if (transaction == null) {
+      return;
+    }
+    if (transaction.depth > 0) {
+      transaction.depth--;
+      return;
+    }
+    current.remove();
+    transaction.commit(log);
+  }
+
+  /**
+   * @return the transaction open on the calling thread, or null outside of a transaction
+   */
+  Transaction current() {
+    return current.get();
+  }
+
+  /**
+   * Makes sure no id found in the log is handed out again, the records of a transaction that never committed may
+   * still be there.
+   */
+  void recovered(long maxId) {
+    long next;
+    do {
+      next = nextId.get();
+    } while (next <= maxId && !nextId.compareAndSet(next, maxId + 1));
+  }
+
+  static final class Transaction {
+    private final long                                            id;
+    private final Map<LoggedKeyValueStorage<?, ?>, List<Object>> touched = new IdentityHashMap<LoggedKeyValueStorage<?, ?>, List<Object>>();
+    private int                                                   depth;
+    private boolean                                               logged;
+    private boolean                                               committed;
+
+    private Transaction(long id) {
+      this.id = id;
+    }
+
+    long id() {
+      return id;
+    }
+
+    /**
+     * Called by the owning thread whenever it logs a record tagged with this transaction.
+     */
+    void logged() {
+      logged = true;
+    }
+
+    /**
+     * Called by the owning thread the first time this transaction changes the given key of the given storage.
+     */
+    void touched(LoggedKeyValueStorage<?, ?> storage, Object key) {
+      List<Object> keys = touched.get(storage);
+      if (keys == null) {
+        keys = new ArrayList<Object>();
+        touched.put(storage, keys);
+      }
+      keys.add(key);
+    }
+
+    /**
+     * Whether the commit record is in the log. The compactor holds this transaction's monitor while it copies one of
+     * its records forward, so that the copy never lands after the commit record.
+     */
+    synchronized boolean isCommitted() {
+      return committed;
+    }
+
+    private void commit(SegmentedLog log) {
+      synchronized (this) {
+        if (logged) {
+          log.append(LogRecordCodec.commit(id));
+        }
+        committed = true;
+      }
+      for (Map.Entry<LoggedKeyValueStorage<?, ?>, List<Object>> e : touched.entrySet()) {
+        e.getKey().committed(this, e.getValue());
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "Transaction[" + id + "]";
+    }
+  }
+}
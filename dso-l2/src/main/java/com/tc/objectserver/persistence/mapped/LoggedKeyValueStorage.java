@@ -0,0 +1,300 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import org.terracotta.corestorage.KeyValueStorage;
+
+import com.tc.objectserver.persistence.mapped.LogTransactions.Transaction;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link KeyValueStorage} that records every mutation of the storage it wraps in a {@link SegmentedLog}.
+ * <p>
+ * Mutations of a key are applied and logged under a striped lock so that the order of the records in the log always
+ * matches the order in which the mutations were applied, the compactor takes the same lock before it copies a record
+ * forward.
+ * <p>
+ * A mutation made inside a storage transaction is visible right away but only committed once the transaction is. Until
+ * then the value the key had before the transaction is kept aside, the compactor has to carry that value forward rather
+ * than the current one, which a crash would roll back.
+ */
+class LoggedKeyValueStorage<K, V> implements KeyValueStorage<K, V> {
+  private static final int                       STRIPES   = 64;
+
+  private final String                           alias;
+  private final byte[]                           aliasBytes;
+  private final Class<?>                         keyClass;
+  private final Class<?>                         valueClass;
+  private final KeyValueStorage<K, V>            delegate;
+  private final SegmentedLog                     log;
+  private final LogTransactions                  transactions;
+  private final ReentrantLock[]                  locks           = new ReentrantLock[STRIPES];
+  private final ConcurrentMap<Object, PreImage>  preImages       = new ConcurrentHashMap<Object, PreImage>();
+  private final Set<Object>                      preImagesCopied = Collections
+                                                                     .newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+  LoggedKeyValueStorage(String alias, Class<?> keyClass, Class<?> valueClass, KeyValueStorage<K, V> delegate,
+                        SegmentedLog log, LogTransactions transactions) {
+    this.alias = alias;
+    this.aliasBytes = LogRecordCodec.aliasBytes(alias);
+    this.keyClass = keyClass;
+    this.valueClass = valueClass;
+    this.delegate = delegate;
+    this.log = log;
+    this.transactions = transactions;
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Records the key and value types of this storage, replay needs them before it can touch the storage.
+   */
+  void bind() {
+    log.append(bindRecord());
+  }
+
+  ByteBuffer[] bindRecord() {
+    return new ByteBuffer[] { LogRecordCodec.header(LogRecordCodec.BIND, LogRecordCodec.NO_TXN, aliasBytes),
+        LogRecordCodec.encodeString(keyClass.getName()), LogRecordCodec.encodeString(valueClass.getName()) };
+  }
+
+  /**
+   * Copies a put or remove record from a segment being compacted if it is still needed: a put that holds the committed
+   * value of its key, or a record of a transaction that is yet to commit and that holds the current state of its key.
+   *
+   * @param encodedValue the value of a put, null for a remove
+   */
+  boolean copyForward(byte op, long transaction, Object key, ByteBuffer encodedKey, ByteBuffer encodedValue,
+                      byte metadata) {
+    ReentrantLock lock = lockFor(key);
+    lock.lock();
+    try {
+      PreImage preImage = preImages.get(key);
+      if (preImage != null) {
+        synchronized (preImage.owner) {
+          if (!preImage.owner.isCommitted()) {
+            if (op == LogRecordCodec.PUT && preImage.value != null
+                && LogRecordCodec.encode(preImage.value).equals(encodedValue)) {
+              append(op, LogRecordCodec.NO_TXN, encodedKey, encodedValue, metadata);
+              preImagesCopied.add(key);
+              return true;
+            }
+            if (transaction == preImage.owner.id() && isCurrent(op, key, encodedValue)) {
+              // the commit record of the owner comes after this copy, the owner's monitor is held until it is in
+              append(op, transaction, encodedKey, encodedValue, metadata);
+              return true;
+            }
+            return false;
+          }
+        }
+      }
+      if (op == LogRecordCodec.PUT && isCurrent(op, key, encodedValue)) {
+        append(op, LogRecordCodec.NO_TXN, encodedKey, encodedValue, metadata);
+        return true;
+      }
+      if (op == LogRecordCodec.REMOVE && preImagesCopied.contains(key) && isCurrent(op, key, null)) {
+        // the owner committed its remove after this pass copied the value it replaced
+        append(op, LogRecordCodec.NO_TXN, encodedKey, null, metadata);
+        return true;
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Forgets the keys whose committed value the finished compaction pass copied on behalf of an open transaction.
+   */
+  void compactionCompleted() {
+    preImagesCopied.clear();
+  }
+
+  /**
+   * Drops the values kept aside for the given keys now that the transaction which changed them is committed.
+   */
+  void committed(Transaction transaction, List<Object> keys) {
+    for (Object key : keys) {
+      PreImage preImage = preImages.get(key);
+      if (preImage != null && preImage.owner == transaction) {
+        preImages.remove(key, preImage);
+      }
+    }
+  }
+
+  private boolean isCurrent(byte op, Object key, ByteBuffer encodedValue) {
+    V current = delegate.get((K) key);
+    if (op == LogRecordCodec.PUT) {
+      return current != null && LogRecordCodec.encode(current).equals(encodedValue);
+    } else {
+      return current == null;
+    }
+  }
+
+  private void append(byte op, long transaction, ByteBuffer encodedKey, ByteBuffer encodedValue, byte metadata) {
+    if (op == LogRecordCodec.PUT) {
+      log.append(LogRecordCodec.header(op, transaction, aliasBytes), encodedKey, encodedValue,
+                 LogRecordCodec.metadata(metadata));
+    } else {
+      log.append(LogRecordCodec.header(op, transaction, aliasBytes), encodedKey);
+    }
+  }
+
+  /**
+   * Keeps the committed value of the key aside the first time the given transaction changes it.
+   */
+  private void touch(Transaction transaction, K key) {
+    if (transaction == null) {
+      return;
+    }
+    PreImage preImage = preImages.get(key);
+    // the value kept for a transaction that has committed but not yet let go of it is stale
+    if (preImage == null || (preImage.owner != transaction && preImage.owner.isCommitted())) {
+      preImages.put(key, new PreImage(transaction, delegate.get(key)));
+      transaction.touched(this, key);
+    }
+  }
+
+  private static long idOf(Transaction transaction) {
+    if (transaction == null) {
+      return LogRecordCodec.NO_TXN;
+    }
+    transaction.logged();
+    return transaction.id();
+  }
+
+  KeyValueStorage<K, V> delegate() {
+    return delegate;
+  }
+
+  @Override
+  public Set<K> keySet() {
+    return delegate.keySet();
+  }
+
+  @Override
+  public Collection<V> values() {
+    return delegate.values();
+  }
+
+  @Override
+  public long size() {
+    return delegate.size();
+  }
+
+  @Override
+  public void put(K key, V value) {
+    put(key, value, (byte) 0);
+  }
+
+  @Override
+  public void put(K key, V value, byte metadata) {
+    ByteBuffer encodedKey = LogRecordCodec.encode(key);
+    ByteBuffer encodedValue = LogRecordCodec.encode(value);
+    Transaction transaction = transactions.current();
+    ReentrantLock lock = lockFor(key);
+    lock.lock();
+    try {
+      touch(transaction, key);
+      delegate.put(key, value, metadata);
+      append(LogRecordCodec.PUT, idOf(transaction), encodedKey, encodedValue, metadata);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public V get(K key) {
+    return delegate.get(key);
+  }
+
+  @Override
+  public boolean remove(K key) {
+    ByteBuffer encodedKey = LogRecordCodec.encode(key);
+    Transaction transaction = transactions.current();
+    ReentrantLock lock = lockFor(key);
+    lock.lock();
+    try {
+      touch(transaction, key);
+      boolean removed = delegate.remove(key);
+      if (removed) {
+        append(LogRecordCodec.REMOVE, idOf(transaction), encodedKey, null, (byte) 0);
+      }
+      return removed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void removeAll(Collection<K> keys) {
+    for (K key : keys) {
+      remove(key);
+    }
+  }
+
+  @Override
+  public boolean containsKey(K key) {
+    return delegate.containsKey(key);
+  }
+
+  @Override
+  public void clear() {
+    for (ReentrantLock lock : locks) {
+      lock.lock();
+    }
+    try {
+      delegate.clear();
+      log.append(LogRecordCodec.header(LogRecordCodec.CLEAR, idOf(transactions.current()), aliasBytes));
+    } finally {
+      for (ReentrantLock lock : locks) {
+        lock.unlock();
+      }
+    }
+  }
+
+  private ReentrantLock lockFor(Object key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return locks[h & (STRIPES - 1)];
+  }
+
+  @Override
+  public String toString() {
+    return "LoggedKeyValueStorage[" + alias + "]";
+  }
+
+  private static final class PreImage {
+    private final Transaction owner;
+    // null if the key was absent
+    private final Object      value;
+
+    PreImage(Transaction owner, Object value) {
+      this.owner = owner;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import org.terracotta.corestorage.monitoring.MonitoredResource;
+
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Reports the disk footprint of a {@link SegmentedLog} as a {@link Type#DATA} resource. Used is the number of bytes
+ * written to the live segments, reserved and total are the size of the mapped segment files, the log has no cap of
+ * its own and grows a segment at a time.
+ * <p>
+ * Only the compaction of the log watches this resource, it is not handed out with the monitored resources of the
+ * storage manager since evicting against it could only make the log grow.
+ */
+public class MappedLogMonitoredResource implements MonitoredResource {
+  private final SegmentedLog                  log;
+
+  private final NavigableMap<Long, Runnable>  usedRising        = new ConcurrentSkipListMap<Long, Runnable>();
+  private final NavigableMap<Long, Runnable>  usedFalling       = new ConcurrentSkipListMap<Long, Runnable>();
+  private final NavigableMap<Long, Runnable>  reservedRising    = new ConcurrentSkipListMap<Long, Runnable>();
+  private final NavigableMap<Long, Runnable>  reservedFalling   = new ConcurrentSkipListMap<Long, Runnable>();
+
+  public MappedLogMonitoredResource(SegmentedLog log) {
+    this.log = log;
+    log.setMonitoredResource(this);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.DATA;
+  }
+
+  @Override
+  public long getTotal() {
+    return log.reservedBytes();
+  }
+
+  @Override
+  public long getVital() {
+    // nothing in the log can be dropped short of a compaction
+    return log.usedBytes();
+  }
+
+  @Override
+  public long getUsed() {
+    return log.usedBytes();
+  }
+
+  @Override
+  public long getReserved() {
+    return log.reservedBytes();
+  }
+
+  @Override
+  public Runnable addUsedThreshold(Direction direction, long value, Runnable action) {
+    return thresholds(direction, usedRising, usedFalling).put(value, action);
+  }
+
+  @Override
+  public Runnable removeUsedThreshold(Direction direction, long value) {
+    return thresholds(direction, usedRising, usedFalling).remove(value);
+  }
+
+  @Override
+  public Runnable addReservedThreshold(Direction direction, long value, Runnable action) {
+    return thresholds(direction, reservedRising, reservedFalling).put(value, action);
+  }
+
+  @Override
+  public Runnable removeReservedThreshold(Direction direction, long value) {
+    return thresholds(direction, reservedRising, reservedFalling).remove(value);
+  }
+
+  void usedChanged(long before, long after) {
+    fire(usedRising, usedFalling, before, after);
+  }
+
+  void reservedChanged(long before, long after) {
+    fire(reservedRising, reservedFalling, before, after);
+  }
+
+  private static NavigableMap<Long, Runnable> thresholds(Direction direction, NavigableMap<Long, Runnable> rising,
+                                                         NavigableMap<Long, Runnable> falling) {
+    return direction == Direction.RISING ? rising : falling;
+  }
+
+  private static void fire(NavigableMap<Long, Runnable> rising, NavigableMap<Long, Runnable> falling, long before,
+                           long after) {
+    if (after > before) {
+      for (Runnable action : rising.subMap(before, false, after, true).values()) {
+        action.run();
+      }
+    } else if (after < before) {
+      for (Runnable action : falling.subMap(after, true, before, false).descendingMap().values()) {
+        action.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import com.tc.exception.TCRuntimeException;
+import com.tc.logging.TCLogger;
+import com.tc.logging.TCLogging;
+import com.tc.properties.TCProperties;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
+import com.tc.util.Conversion;
+
+import java.io.File;
+
+/**
+ * Settings of the restartable memory-mapped storage.
+ */
+public class MappedStorageConfig {
+  private static final TCLogger logger                = TCLogging.getLogger(MappedStorageConfig.class);
+
+  private static final String   STORAGE_DIRECTORY     = "mapped-storage";
+
+  private final File            directory;
+  private final int             segmentSize;
+  private final boolean         syncOnCommit;
+  private final float           compactionRatio;
+  private final long            compactionMinSize;
+
+  /**
+   * @param dataPath the L2 data directory, the log lives in a sub directory of it
+   */
+  public MappedStorageConfig(File dataPath) {
+    TCProperties props = TCPropertiesImpl.getProperties();
+    try {
+      this.directory = new File(dataPath, STORAGE_DIRECTORY);
+      this.segmentSize = Conversion.memorySizeAsIntBytes(props
+          .getProperty(TCPropertiesConsts.L2_PERSISTENCE_MAPPED_SEGMENT_SIZE, false));
+      this.syncOnCommit = props.getBoolean(TCPropertiesConsts.L2_PERSISTENCE_MAPPED_SYNC_ON_COMMIT, false);
+      this.compactionRatio = props.getFloat(TCPropertiesConsts.L2_PERSISTENCE_MAPPED_COMPACTION_RATIO);
+      this.compactionMinSize = Conversion.memorySizeAsLongBytes(props
+          .getProperty(TCPropertiesConsts.L2_PERSISTENCE_MAPPED_COMPACTION_MIN_SIZE, false));
+    } catch (Conversion.MetricsFormatException e) {
+      throw new TCRuntimeException("Problem building mapped storage config: ", e);
+    }
+    logger.info(toString());
+  }
+
+  public MappedStorageConfig(File directory, int segmentSize, boolean syncOnCommit, float compactionRatio,
+                             long compactionMinSize) {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.syncOnCommit = syncOnCommit;
+    this.compactionRatio = compactionRatio;
+    this.compactionMinSize = compactionMinSize;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  public boolean isSyncOnCommit() {
+    return syncOnCommit;
+  }
+
+  /**
+   * A compaction starts once the log has grown to this multiple of the size it had after the previous one.
+   */
+  public float getCompactionRatio() {
+    return compactionRatio;
+  }
+
+  /**
+   * The log is never compacted below this size.
+   */
+  public long getCompactionMinSize() {
+    return compactionMinSize;
+  }
+
+  @Override
+  public String toString() {
+    return "MappedStorageConfig [directory=" + directory + ", segmentSize=" + segmentSize + ", syncOnCommit="
+           + syncOnCommit + ", compactionRatio=" + compactionRatio
+           + ", compactionMinSize=" + compactionMinSize + "]";
+  }
+}
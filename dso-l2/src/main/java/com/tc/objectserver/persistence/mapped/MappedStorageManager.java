@@ -0,0 +1,439 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import org.terracotta.corestorage.KeyValueStorage;
+import org.terracotta.corestorage.KeyValueStorageConfig;
+import org.terracotta.corestorage.StorageManager;
+import org.terracotta.corestorage.monitoring.MonitoredResource;
+
+import com.tc.logging.TCLogger;
+import com.tc.logging.TCLogging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A restartable {@link StorageManager}. All data is served by the wrapped (heap or offheap) storage manager, every
+ * mutation is also appended to a {@link SegmentedLog} of memory-mapped segment files. On start the log is replayed
+ * into the wrapped storage manager, and while running the log is compacted in the background whenever it has grown by
+ * the configured ratio since the last compaction.
+ * <p>
+ * {@link #commit()} logs a commit record for the transaction begun on the calling thread, the records of a transaction
+ * that has no commit record in the log (because the server went down half way through it) are dropped on replay.
+ */
+public class MappedStorageManager implements StorageManager {
+  private static final TCLogger                                      logger          = TCLogging
+                                                                                         .getLogger(MappedStorageManager.class);
+
+  private static final String                                        PROPERTIES_FILE = "storage.properties";
+
+  private final StorageManager                                        delegate;
+  private final MappedStorageConfig                                   config;
+  private final SegmentedLog                                          log;
+  private final MappedLogMonitoredResource                            resource;
+  private final LogTransactions                                       transactions;
+  private final ConcurrentMap<String, LoggedKeyValueStorage<?, ?>>    storages       = new ConcurrentHashMap<String, LoggedKeyValueStorage<?, ?>>();
+  private final Set<String>                                           dynamicAliases = new HashSet<String>();
+  private final Object                                                lifecycleLock  = new Object();
+  private final Object                                                compactionLock = new Object();
+  private final Compactor                                             compactor      = new Compactor();
+
+  private final PersistentProperties                                  properties;
+
+  private volatile KeyValueStorageConfig<?, ?>                        dynamicStorageConfig;
+  private volatile Runnable                                           compactionTrigger;
+  private volatile long                                               compactionThreshold;
+
+  public MappedStorageManager(StorageManager delegate, MappedStorageConfig config) {
+    this.delegate = delegate;
+    this.config = config;
+    this.log = new SegmentedLog(config.getDirectory(), config.getSegmentSize());
+    this.resource = new MappedLogMonitoredResource(log);
+    this.transactions = new LogTransactions(log);
+    this.properties = new PersistentProperties(new File(config.getDirectory(), PROPERTIES_FILE));
+  }
+
+  /**
+   * The configuration used to recreate the storages that were created on the fly (through
+   * {@link #createKeyValueStorage(String, KeyValueStorageConfig)}) when the log is replayed.
+   */
+  public void setDynamicStorageConfig(KeyValueStorageConfig<?, ?> dynamicStorageConfig) {
+    this.dynamicStorageConfig = dynamicStorageConfig;
+  }
+
+  @Override
+  public Map<String, String> getProperties() {
+    return properties;
+  }
+
+  @Override
+  public <K, V> KeyValueStorage<K, V> getKeyValueStorage(String alias, Class<K> keyClass, Class<V> valueClass) {
+    LoggedKeyValueStorage<?, ?> storage = storages.get(alias);
+    if (storage != null) {
+      return (KeyValueStorage<K, V>) storage;
+    }
+    synchronized (lifecycleLock) {
+      storage = storages.get(alias);
+      if (storage == null) {
+        KeyValueStorage<K, V> raw = delegate.getKeyValueStorage(alias, keyClass, valueClass);
+        if (raw == null) {
+          return null;
+        }
+        LoggedKeyValueStorage<K, V> logged = new LoggedKeyValueStorage<K, V>(alias, keyClass, valueClass, raw, log,
+                                                                               transactions);
+        logged.bind();
+        storages.put(alias, logged);
+        storage = logged;
+      }
+      return (KeyValueStorage<K, V>) storage;
+    }
+  }
+
+  @Override
+  public <K, V> KeyValueStorage<K, V> createKeyValueStorage(String alias, KeyValueStorageConfig<K, V> storageConfig) {
+    synchronized (lifecycleLock) {
+      KeyValueStorage<K, V> raw = delegate.createKeyValueStorage(alias, storageConfig);
+      dynamicAliases.add(alias);
+      log.append(LogRecordCodec.header(LogRecordCodec.CREATE, LogRecordCodec.NO_TXN,
+                                       LogRecordCodec.aliasBytes(alias)));
+      // storages created on the fly are always looked up untyped
+      LoggedKeyValueStorage<K, V> logged = new LoggedKeyValueStorage<K, V>(alias, Object.class, Object.class, raw, log,
+                                                                           transactions);
+      logged.bind();
+      storages.put(alias, logged);
+      return logged;
+    }
+  }
+
+  @Override
+  public void destroyKeyValueStorage(String alias) {
+    synchronized (lifecycleLock) {
+      delegate.destroyKeyValueStorage(alias);
+      storages.remove(alias);
+      dynamicAliases.remove(alias);
+      log.append(LogRecordCodec.header(LogRecordCodec.DESTROY, LogRecordCodec.NO_TXN,
+                                       LogRecordCodec.aliasBytes(alias)));
+    }
+  }
+
+  @Override
+  public void begin() {
+    delegate.begin();
+    transactions.begin();
+  }
+
+  @Override
+  public void commit() {
+    transactions.commit();
+    delegate.commit();
+    if (config.isSyncOnCommit()) {
+      log.force();
+    }
+  }
+
+  @Override
+  public Future<?> start() {
+    FutureTask<Void> task = new FutureTask<Void>(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        delegate.start().get();
+        Replayer replayer = new Replayer();
+        log.open(replayer);
+        logger.info("Replayed " + replayer.records + " records (" + log.usedBytes() + " bytes in "
+                    + log.segmentCount() + " segments) from " + config.getDirectory().getAbsolutePath());
+        if (replayer.orphans > 0) {
+          logger.info("Skipped " + replayer.orphans + " records of destroyed storages.");
+        }
+        if (!replayer.uncommitted.isEmpty()) {
+          logger.warn("Dropped the records of " + replayer.uncommitted.size()
+                      + " storage transactions that never committed.");
+        }
+        transactions.recovered(replayer.maxTransaction);
+        scheduleCompaction();
+        compactor.start();
+        return null;
+      }
+    });
+    task.run();
+    return task;
+  }
+
+  @Override
+  public void close() {
+    compactor.shutdown();
+    try {
+      compactor.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    log.close();
+    delegate.close();
+  }
+
+  /**
+   * The resources of the wrapped storage manager only. The log is not offered as a resource to evict against, evicting
+   * appends remove records to it and so makes it grow until the next compaction.
+   */
+  @Override
+  public Collection<MonitoredResource> getMonitoredResources() {
+    return delegate.getMonitoredResources();
+  }
+
+  /**
+   * Copies the live records of the log into fresh segments and drops the old ones. One compaction runs at a time, a
+   * second one would copy the records the first is still copying and retire segments the first already dropped.
+   */
+  void compact() throws IOException {
+    synchronized (compactionLock) {
+      long before = log.usedBytes();
+      List<SegmentedLog.Segment> obsolete;
+      synchronized (lifecycleLock) {
+        // the bindings open the new segment, replay would drop the records of a storage it has not seen bound yet
+        List<ByteBuffer[]> preamble = new ArrayList<ByteBuffer[]>();
+        for (String alias : dynamicAliases) {
+          preamble.add(new ByteBuffer[] { LogRecordCodec.header(LogRecordCodec.CREATE, LogRecordCodec.NO_TXN,
+                                                                LogRecordCodec.aliasBytes(alias)) });
+        }
+        for (LoggedKeyValueStorage<?, ?> storage : storages.values()) {
+          preamble.add(storage.bindRecord());
+        }
+        obsolete = log.sealForCompaction(preamble);
+      }
+      Copier copier = new Copier();
+      for (SegmentedLog.Segment segment : obsolete) {
+        segment.visit(copier);
+      }
+      log.completeCompaction(obsolete);
+      for (LoggedKeyValueStorage<?, ?> storage : storages.values()) {
+        storage.compactionCompleted();
+      }
+      logger.info("Compacted storage log from " + before + " to " + log.usedBytes() + " bytes, " + copier.copied
+                  + " records copied.");
+      scheduleCompaction();
+    }
+  }
+
+  private void scheduleCompaction() {
+    if (compactionTrigger != null) {
+      resource.removeUsedThreshold(MonitoredResource.Direction.RISING, compactionThreshold);
+    }
+    compactionThreshold = Math.max(config.getCompactionMinSize(),
+                                   (long) (log.usedBytes() * config.getCompactionRatio()));
+    compactionTrigger = new Runnable() {
+      @Override
+      public void run() {
+        compactor.request();
+      }
+    };
+    resource.addUsedThreshold(MonitoredResource.Direction.RISING, compactionThreshold, compactionTrigger);
+  }
+
+  /**
+   * Applies the records read from the log directly to the wrapped storages, the records of a transaction are held back
+   * until its commit record is read.
+   */
+  private final class Replayer implements SegmentedLog.RecordVisitor {
+    private final Map<Long, List<ByteBuffer>> uncommitted = new HashMap<Long, List<ByteBuffer>>();
+    private long                              records;
+    private long                              orphans;
+    private long                              maxTransaction;
+
+    @Override
+    public void visit(ByteBuffer payload) {
+      records++;
+      byte op = payload.get(payload.position());
+      long transaction = payload.getLong(payload.position() + 1);
+      maxTransaction = Math.max(maxTransaction, transaction);
+      if (op == LogRecordCodec.COMMIT) {
+        List<ByteBuffer> committed = uncommitted.remove(transaction);
+        if (committed != null) {
+          for (ByteBuffer record : committed) {
+            apply(record);
+          }
+        }
+      } else if (transaction == LogRecordCodec.NO_TXN) {
+        apply(payload);
+      } else {
+        List<ByteBuffer> pending = uncommitted.get(transaction);
+        if (pending == null) {
+          pending = new ArrayList<ByteBuffer>();
+          uncommitted.put(transaction, pending);
+        }
+        pending.add(payload);
+      }
+    }
+
+    private void apply(ByteBuffer payload) {
+      byte op = payload.get();
+      payload.getLong();
+      String alias = LogRecordCodec.decodeString(payload);
+      switch (op) {
+        case LogRecordCodec.PUT:
+        case LogRecordCodec.REMOVE:
+        case LogRecordCodec.CLEAR:
+          LoggedKeyValueStorage<?, ?> storage = storages.get(alias);
+          if (storage == null) {
+            // a record the compactor copied forward while its storage was being destroyed
+            orphans++;
+            return;
+          }
+          apply(op, (KeyValueStorage<Object, Object>) storage.delegate(), payload);
+          break;
+        case LogRecordCodec.CREATE:
+          if (dynamicAliases.add(alias)) {
+            KeyValueStorageConfig<?, ?> dynamicConfig = dynamicStorageConfig;
+            if (dynamicConfig == null) {
+              throw new IllegalStateException("No configuration to recreate storage " + alias);
+            }
+            delegate.createKeyValueStorage(alias, dynamicConfig);
+          }
+          break;
+        case LogRecordCodec.DESTROY:
+          if (dynamicAliases.remove(alias)) {
+            delegate.destroyKeyValueStorage(alias);
+          }
+          storages.remove(alias);
+          break;
+        case LogRecordCodec.BIND:
+          bind(alias, loadClass(LogRecordCodec.decodeString(payload)), loadClass(LogRecordCodec.decodeString(payload)));
+          break;
+        default:
+          throw new IllegalStateException("Unknown log record type " + op);
+      }
+    }
+
+    private void apply(byte op, KeyValueStorage<Object, Object> storage, ByteBuffer payload) {
+      if (op == LogRecordCodec.PUT) {
+        storage.put(LogRecordCodec.decode(payload), LogRecordCodec.decode(payload), payload.get());
+      } else if (op == LogRecordCodec.REMOVE) {
+        storage.remove(LogRecordCodec.decode(payload));
+      } else {
+        storage.clear();
+      }
+    }
+
+    private <K, V> void bind(String alias, Class<K> keyClass, Class<V> valueClass) {
+      if (storages.containsKey(alias)) {
+        return;
+      }
+      KeyValueStorage<K, V> raw = delegate.getKeyValueStorage(alias, keyClass, valueClass);
+      if (raw == null) {
+        throw new IllegalStateException("Log refers to unknown storage " + alias);
+      }
+      storages.put(alias, new LoggedKeyValueStorage<K, V>(alias, keyClass, valueClass, raw, log, transactions));
+    }
+
+    private Class<?> loadClass(String name) {
+      try {
+        return Class.forName(name, false, MappedStorageManager.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        throw new IllegalStateException("Log refers to unknown class " + name, e);
+      }
+    }
+  }
+
+  /**
+   * Copies the put and remove records that are still needed (see
+   * {@link LoggedKeyValueStorage#copyForward(byte, long, Object, ByteBuffer, ByteBuffer, byte)}) into the live end of
+   * the log.
+   */
+  private final class Copier implements SegmentedLog.RecordVisitor {
+    private long copied;
+
+    @Override
+    public void visit(ByteBuffer payload) {
+      byte op = payload.get();
+      if (op != LogRecordCodec.PUT && op != LogRecordCodec.REMOVE) {
+        // everything else is either re-established up front or superseded by the current state
+        return;
+      }
+      long transaction = payload.getLong();
+      LoggedKeyValueStorage<?, ?> storage = storages.get(LogRecordCodec.decodeString(payload));
+      if (storage == null) {
+        return;
+      }
+      ByteBuffer encodedKey = LogRecordCodec.skip(payload);
+      Object key = LogRecordCodec.decode(encodedKey.duplicate());
+      ByteBuffer encodedValue = null;
+      byte metadata = 0;
+      if (op == LogRecordCodec.PUT) {
+        encodedValue = LogRecordCodec.skip(payload);
+        metadata = payload.get();
+      }
+      if (storage.copyForward(op, transaction, key, encodedKey, encodedValue, metadata)) {
+        copied++;
+      }
+    }
+  }
+
+  private final class Compactor extends Thread {
+    private boolean requested;
+    private boolean stopped;
+
+    Compactor() {
+      super("Mapped Storage Compactor");
+      setDaemon(true);
+    }
+
+    synchronized void request() {
+      requested = true;
+      notifyAll();
+    }
+
+    synchronized void shutdown() {
+      stopped = true;
+      notifyAll();
+    }
+
+    private synchronized boolean awaitRequest() throws InterruptedException {
+      while (!requested && !stopped) {
+        wait();
+      }
+      requested = false;
+      return !stopped;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (awaitRequest()) {
+          try {
+            compact();
+          } catch (IOException e) {
+            logger.error("Storage log compaction failed", e);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
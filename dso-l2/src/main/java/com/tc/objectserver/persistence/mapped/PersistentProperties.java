@@ -0,0 +1,124 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import com.tc.exception.TCRuntimeException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The storage manager properties, kept in a small file of their own next to the log. They are read by the
+ * {@link com.tc.objectserver.persistence.ClusterStatePersistor} before the storage is started (and so before the log
+ * is replayed), and change rarely, so the whole file is rewritten atomically on every change.
+ */
+class PersistentProperties extends AbstractMap<String, String> {
+  private final File                file;
+  private final Map<String, String> map = new HashMap<String, String>();
+
+  PersistentProperties(File file) {
+    this.file = file;
+    if (file.exists()) {
+      Properties props = new Properties();
+      try {
+        FileInputStream in = new FileInputStream(file);
+        try {
+          props.load(in);
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        throw new TCRuntimeException(e);
+      }
+      for (String key : props.stringPropertyNames()) {
+        map.put(key, props.getProperty(key));
+      }
+    }
+  }
+
+  @Override
+  public synchronized String put(String key, String value) {
+    String old = map.put(key, value);
+    if (!value.equals(old)) {
+      store();
+    }
+    return old;
+  }
+
+  @Override
+  public synchronized String remove(Object key) {
+    if (!map.containsKey(key)) {
+      return null;
+    }
+    String old = map.remove(key);
+    store();
+    return old;
+  }
+
+  @Override
+  public synchronized void clear() {
+    map.clear();
+    store();
+  }
+
+  @Override
+  public synchronized String get(Object key) {
+    return map.get(key);
+  }
+
+  @Override
+  public synchronized boolean containsKey(Object key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public synchronized Set<Entry<String, String>> entrySet() {
+    return Collections.unmodifiableMap(new HashMap<String, String>(map)).entrySet();
+  }
+
+  private void store() {
+    File parent = file.getParentFile();
+    if (!parent.isDirectory() && !parent.mkdirs()) {
+      throw new TCRuntimeException("Unable to create directory " + parent.getAbsolutePath());
+    }
+    Properties props = new Properties();
+    props.putAll(map);
+    File tmp = new File(parent, file.getName() + ".tmp");
+    try {
+      FileOutputStream out = new FileOutputStream(tmp);
+      try {
+        props.store(out, null);
+        out.getFD().sync();
+      } finally {
+        out.close();
+      }
+      if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+        throw new IOException("Unable to write " + file.getAbsolutePath());
+      }
+    } catch (IOException e) {
+      throw new TCRuntimeException(e);
+    }
+  }
+}
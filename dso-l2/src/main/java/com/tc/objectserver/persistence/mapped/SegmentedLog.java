@@ -0,0 +1,589 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import com.tc.exception.TCRuntimeException;
+import com.tc.logging.TCLogger;
+import com.tc.logging.TCLogging;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only record log split over fixed size memory-mapped segment files.
+ * <p>
+ * Every record is framed as {@code [int length][int crc32][payload]}. Segments are zero filled when mapped, so a zero
+ * length marks the end of the written data; a short or corrupt record (torn write) ends the replay and is overwritten
+ * by the next append.
+ * <p>
+ * Appends do not serialize on the log: a writer claims the bytes of its record in the active segment with a CAS, fills
+ * them in without holding any lock and then publishes them, in claim order, so that the published part of a segment
+ * never has a gap. Only rolling over to a new segment, forcing and compaction take the log's monitor.
+ * <p>
+ * Compaction copies the live records into fresh segments and then atomically moves the checkpoint past the old ones,
+ * so a crash at any point during a compaction leaves a log that still replays to the same state.
+ */
+public class SegmentedLog {
+  private static final TCLogger logger              = TCLogging.getLogger(SegmentedLog.class);
+
+  static final int              SEGMENT_MAGIC       = 0x54434C47;
+  static final int              FORMAT_VERSION      = 2;
+  static final int              SEGMENT_HEADER_SIZE = 8;
+  static final int              RECORD_HEADER_SIZE  = 8;
+
+  private static final String   SEGMENT_PREFIX      = "segment-";
+  private static final String   SEGMENT_SUFFIX      = ".log";
+  private static final String   CHECKPOINT_FILE     = "checkpoint";
+  private static final Charset  ASCII               = Charset.forName("US-ASCII");
+
+  private static final ThreadLocal<CRC32> CRC       = new ThreadLocal<CRC32>() {
+                                                      @Override
+                                                      protected CRC32 initialValue() {
+                                                        return new CRC32();
+                                                      }
+                                                    };
+
+  public interface RecordVisitor {
+    void visit(ByteBuffer payload);
+  }
+
+  private final File                directory;
+  private final int                 segmentSize;
+  private final List<Segment>       segments = new ArrayList<Segment>();
+  // sealed segments that have not been forced since they were sealed
+  private final List<Segment>       unforced = new ArrayList<Segment>();
+  private final AtomicLong          used     = new AtomicLong();
+  private volatile MappedLogMonitoredResource resource;
+  private volatile Segment          current;
+  private volatile long             reservedBytes;
+  private volatile boolean          open;
+  private long                      nextSegmentId;
+
+  public SegmentedLog(File directory, int segmentSize) {
+    if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("Segment size " + segmentSize + " is too small.");
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+  }
+
+  void setMonitoredResource(MappedLogMonitoredResource resource) {
+    this.resource = resource;
+  }
+
+  /**
+   * Maps every live segment and hands each intact record to the visitor, in the order they were appended.
+   */
+  public synchronized void open(RecordVisitor visitor) throws IOException {
+    if (open) {
+      throw new IllegalStateException("Log is already open.");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create log directory " + directory.getAbsolutePath());
+    }
+    long checkpoint = readCheckpoint();
+    List<Long> ids = listSegmentIds();
+    nextSegmentId = checkpoint;
+    boolean truncated = false;
+    for (Long id : ids) {
+      File file = segmentFile(id);
+      nextSegmentId = Math.max(nextSegmentId, id + 1);
+      if (id < checkpoint || truncated) {
+        logger.info("Discarding obsolete log segment " + file.getName());
+        delete(file);
+        continue;
+      }
+      Segment segment = Segment.open(file, id);
+      if (!segment.replay(visitor, CRC.get())) {
+        logger.warn("Log segment " + file.getName() + " ends with a torn record, discarding everything after it.");
+        truncated = true;
+      }
+      segments.add(segment);
+      reservedBytes += segment.capacity();
+    }
+    if (segments.isEmpty()) {
+      roll(0, Collections.<ByteBuffer[]> emptyList());
+    } else {
+      for (Segment segment : segments) {
+        used.addAndGet(segment.position());
+      }
+      current = segments.get(segments.size() - 1);
+      for (Segment segment : segments) {
+        if (segment != current) {
+          segment.seal();
+        }
+      }
+    }
+    open = true;
+  }
+
+  /**
+   * Appends one record made of the remaining bytes of the given parts.
+   */
+  public void append(ByteBuffer... parts) {
+    checkOpen();
+    int length = lengthOf(parts);
+    int checksum = checksumOf(parts);
+    int size = RECORD_HEADER_SIZE + length;
+    Segment segment;
+    int offset;
+    while (true) {
+      segment = current;
+      offset = segment == null ? -1 : segment.claim(size);
+      if (offset >= 0) {
+        break;
+      }
+      rollFrom(segment, length);
+    }
+    try {
+      segment.write(offset, length, checksum, parts);
+    } finally {
+      segment.publish(offset, offset + size);
+    }
+    long after = used.addAndGet(size);
+    MappedLogMonitoredResource rsrc = resource;
+    if (rsrc != null) {
+      rsrc.usedChanged(after - size, after);
+    }
+  }
+
+  /**
+   * Forces every record appended so far to the storage device.
+   */
+  public synchronized void force() {
+    if (open) {
+      for (Segment segment : unforced) {
+        segment.force();
+      }
+      unforced.clear();
+      current.force();
+    }
+  }
+
+  /**
+   * Seals the active segment and returns the segments that make up the log up to this point. Records appended after
+   * this call are not part of the returned snapshot.
+   *
+   * @param preamble records that go first into the new segment, ahead of any record appended concurrently
+   */
+  synchronized List<Segment> sealForCompaction(List<ByteBuffer[]> preamble) {
+    checkOpen();
+    List<Segment> sealed = new ArrayList<Segment>(segments);
+    roll(0, preamble);
+    return Collections.unmodifiableList(sealed);
+  }
+
+  /**
+   * Drops the given (previously sealed) segments once the live records they contained have been copied forward.
+   */
+  void completeCompaction(List<Segment> obsolete) throws IOException {
+    long before;
+    long after;
+    long reservedBefore;
+    long reservedAfter;
+    synchronized (this) {
+      checkOpen();
+      reservedBefore = reservedBytes;
+      // every record still needed is now in a later segment, make sure it is durable before moving the checkpoint
+      for (Segment segment : segments) {
+        if (!obsolete.contains(segment)) {
+          segment.force();
+        }
+      }
+      writeCheckpoint(segments.get(obsolete.size()).id);
+      long released = 0;
+      for (Segment segment : obsolete) {
+        segments.remove(segment);
+        unforced.remove(segment);
+        released += segment.position();
+        reservedBytes -= segment.capacity();
+        segment.close();
+        delete(segment.file);
+      }
+      after = used.addAndGet(-released);
+      before = after + released;
+      reservedAfter = reservedBytes;
+    }
+    MappedLogMonitoredResource rsrc = resource;
+    if (rsrc != null) {
+      rsrc.usedChanged(before, after);
+      rsrc.reservedChanged(reservedBefore, reservedAfter);
+    }
+  }
+
+  public long usedBytes() {
+    return used.get();
+  }
+
+  public long reservedBytes() {
+    return reservedBytes;
+  }
+
+  public synchronized int segmentCount() {
+    return segments.size();
+  }
+
+  public synchronized void close() {
+    if (!open) {
+      return;
+    }
+    open = false;
+    // lets the appends already in progress finish, any later one fails to claim space and finds the log closed
+    current.seal();
+    for (Segment segment : segments) {
+      segment.force();
+      segment.close();
+    }
+    segments.clear();
+    unforced.clear();
+    current = null;
+    used.set(0);
+    reservedBytes = 0;
+  }
+
+  /**
+   * Moves the log on to a new segment, unless another writer already did since the given segment filled up.
+   */
+  private void rollFrom(Segment full, int recordLength) {
+    long reservedBefore;
+    long reservedAfter;
+    long usedAfter;
+    synchronized (this) {
+      checkOpen();
+      if (current != full) {
+        return;
+      }
+      reservedBefore = reservedBytes;
+      roll(recordLength, Collections.<ByteBuffer[]> emptyList());
+      reservedAfter = reservedBytes;
+      usedAfter = used.get();
+    }
+    MappedLogMonitoredResource rsrc = resource;
+    if (rsrc != null) {
+      rsrc.usedChanged(usedAfter - SEGMENT_HEADER_SIZE, usedAfter);
+      rsrc.reservedChanged(reservedBefore, reservedAfter);
+    }
+  }
+
+  private void roll(int recordLength, List<ByteBuffer[]> preamble) {
+    if (current != null) {
+      current.seal();
+      unforced.add(current);
+    }
+    long id = nextSegmentId++;
+    int preambleSize = 0;
+    for (ByteBuffer[] parts : preamble) {
+      preambleSize += RECORD_HEADER_SIZE + lengthOf(parts);
+    }
+    // an oversized record gets a segment of its own
+    int size = Math.max(segmentSize, SEGMENT_HEADER_SIZE + preambleSize + RECORD_HEADER_SIZE + recordLength + 4);
+    Segment next;
+    try {
+      next = Segment.create(segmentFile(id), id, size);
+    } catch (IOException e) {
+      throw new TCRuntimeException(e);
+    }
+    // written before the segment is made current, so no concurrent append can get ahead of them
+    for (ByteBuffer[] parts : preamble) {
+      int length = lengthOf(parts);
+      int offset = next.claim(RECORD_HEADER_SIZE + length);
+      next.write(offset, length, checksumOf(parts), parts);
+      next.publish(offset, offset + RECORD_HEADER_SIZE + length);
+    }
+    current = next;
+    segments.add(current);
+    reservedBytes += current.capacity();
+    used.addAndGet(SEGMENT_HEADER_SIZE + preambleSize);
+  }
+
+  private static int lengthOf(ByteBuffer[] parts) {
+    int length = 0;
+    for (ByteBuffer part : parts) {
+      length += part.remaining();
+    }
+    return length;
+  }
+
+  private static int checksumOf(ByteBuffer[] parts) {
+    CRC32 crc = CRC.get();
+    crc.reset();
+    for (ByteBuffer part : parts) {
+      crc.update(part.duplicate());
+    }
+    return (int) crc.getValue();
+  }
+
+  private void checkOpen() {
+    if (!open) {
+      throw new IllegalStateException("Log is not open.");
+    }
+  }
+
+  private File segmentFile(long id) {
+    return new File(directory, String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+  }
+
+  private List<Long> listSegmentIds() {
+    List<Long> ids = new ArrayList<Long>();
+    String[] names = directory.list();
+    if (names != null) {
+      for (String name : names) {
+        if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+          try {
+            ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+          } catch (NumberFormatException e) {
+            logger.warn("Ignoring unexpected file " + name + " in " + directory);
+          }
+        }
+      }
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private long readCheckpoint() throws IOException {
+    File file = new File(directory, CHECKPOINT_FILE);
+    if (!file.exists()) {
+      return 0;
+    }
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      byte[] data = new byte[(int) raf.length()];
+      raf.readFully(data);
+      return Long.parseLong(new String(data, ASCII).trim());
+    } catch (NumberFormatException e) {
+      throw new IOException("Corrupt log checkpoint " + file.getAbsolutePath(), e);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private void writeCheckpoint(long id) throws IOException {
+    File tmp = new File(directory, CHECKPOINT_FILE + ".tmp");
+    FileOutputStream out = new FileOutputStream(tmp);
+    try {
+      out.write(String.valueOf(id).getBytes(ASCII));
+      out.getFD().sync();
+    } finally {
+      out.close();
+    }
+    File file = new File(directory, CHECKPOINT_FILE);
+    if (!tmp.renameTo(file)) {
+      // renameTo does not replace on every platform
+      delete(file);
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Unable to write log checkpoint " + file.getAbsolutePath());
+      }
+    }
+  }
+
+  private static void delete(File file) {
+    if (file.exists() && !file.delete()) {
+      logger.warn("Unable to delete " + file.getAbsolutePath());
+    }
+  }
+
+  static final class Segment {
+    private final long             id;
+    private final File             file;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    // end of the claimed bytes, negative once the segment is sealed
+    private final AtomicInteger    claimed   = new AtomicInteger();
+    // end of the bytes written without a gap
+    private final AtomicInteger    published = new AtomicInteger();
+
+    private Segment(File file, long id, RandomAccessFile raf, MappedByteBuffer buffer) {
+      this.file = file;
+      this.id = id;
+      this.raf = raf;
+      this.buffer = buffer;
+      claimed.set(buffer.position());
+      published.set(buffer.position());
+    }
+
+    static Segment create(File file, long id, int size) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(SEGMENT_MAGIC).putInt(FORMAT_VERSION);
+      return new Segment(file, id, raf, buffer);
+    }
+
+    static Segment open(File file, long id) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      long length = raf.length();
+      if (length < SEGMENT_HEADER_SIZE || length > Integer.MAX_VALUE) {
+        raf.close();
+        throw new IOException("Invalid log segment size " + length + " for " + file.getAbsolutePath());
+      }
+      MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+      if (buffer.getInt() != SEGMENT_MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        raf.close();
+        throw new IOException("Unrecognized log segment " + file.getAbsolutePath());
+      }
+      return new Segment(file, id, raf, buffer);
+    }
+
+    /**
+     * Visits the records of this segment, leaving the write position just after the last intact one.
+     *
+     * @return false if the segment ended with a torn or corrupt record
+     */
+    boolean replay(RecordVisitor visitor, CRC32 crc) {
+      return visit(visitor, crc, buffer.limit(), true);
+    }
+
+    /**
+     * Visits the records of this (sealed) segment without moving its write position.
+     */
+    void visit(RecordVisitor visitor) {
+      visit(visitor, new CRC32(), position(), false);
+    }
+
+    private boolean visit(RecordVisitor visitor, CRC32 crc, int limit, boolean recover) {
+      ByteBuffer view = buffer.duplicate();
+      view.limit(limit);
+      view.position(SEGMENT_HEADER_SIZE);
+      boolean intact = true;
+      while (view.remaining() >= RECORD_HEADER_SIZE) {
+        int recordStart = view.position();
+        int length = view.getInt();
+        int checksum = view.getInt();
+        if (length == 0) {
+          view.position(recordStart);
+          break;
+        }
+        if (length < 0 || length > view.remaining()) {
+          view.position(recordStart);
+          intact = false;
+          break;
+        }
+        ByteBuffer payload = view.slice();
+        payload.limit(length);
+        crc.reset();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+          view.position(recordStart);
+          intact = false;
+          break;
+        }
+        visitor.visit(payload.asReadOnlyBuffer());
+        view.position(recordStart + RECORD_HEADER_SIZE + length);
+      }
+      if (recover) {
+        int end = view.position();
+        if (!intact) {
+          // wipe the partial record so that a shorter append cannot expose its tail
+          for (int i = end; i < buffer.limit(); i++) {
+            buffer.put(i, (byte) 0);
+          }
+        }
+        claimed.set(end);
+        published.set(end);
+      }
+      return intact;
+    }
+
+    /**
+     * Claims room for a record of the given size.
+     *
+     * @return the offset to write the record at, or -1 if the segment is sealed or too full
+     */
+    int claim(int size) {
+      while (true) {
+        int offset = claimed.get();
+        if (offset < 0 || buffer.capacity() - offset < size) {
+          return -1;
+        }
+        if (claimed.compareAndSet(offset, offset + size)) {
+          return offset;
+        }
+      }
+    }
+
+    void write(int offset, int length, int checksum, ByteBuffer[] parts) {
+      ByteBuffer view = buffer.duplicate();
+      view.position(offset);
+      view.putInt(length).putInt(checksum);
+      for (ByteBuffer part : parts) {
+        view.put(part.duplicate());
+      }
+    }
+
+    /**
+     * Publishes a written record once every record claimed ahead of it has been published.
+     */
+    void publish(int offset, int end) {
+      while (published.get() != offset) {
+        // the writer ahead is copying its record in, it is never long
+        Thread.yield();
+      }
+      published.set(end);
+    }
+
+    /**
+     * Stops any further claim and waits for the records already claimed to be published.
+     */
+    void seal() {
+      int end;
+      do {
+        end = claimed.get();
+      } while (end >= 0 && !claimed.compareAndSet(end, -1));
+      if (end >= 0) {
+        while (published.get() != end) {
+          Thread.yield();
+        }
+      }
+    }
+
+    int position() {
+      return published.get();
+    }
+
+    int capacity() {
+      return buffer.capacity();
+    }
+
+    long id() {
+      return id;
+    }
+
+    void force() {
+      buffer.force();
+    }
+
+    void close() {
+      try {
+        raf.close();
+      } catch (IOException e) {
+        logger.warn("Error closing log segment " + file.getAbsolutePath(), e);
+      }
+    }
+  }
+}
@@ -529,6 +529,46 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
     return getStats().getWriteOperationRate();
   }
 
+  @Override
+  public long getObjectIndexHitCount() {
+    return getStats().getObjectIndexHitCount();
+  }
+
+  @Override
+  public long getObjectIndexMissCount() {
+    return getStats().getObjectIndexMissCount();
+  }
+
+  @Override
+  public long getServerMapGetValueHitCount() {
+    return getStats().getServerMapGetValueHitCount();
+  }
+
+  @Override
+  public long getServerMapGetValueMissCount() {
+    return getStats().getServerMapGetValueMissCount();
+  }
+
+  @Override
+  public long getServerMapGetValueLatency() {
+    return getStats().getServerMapGetValueLatency();
+  }
+
+  @Override
+  public long getServerMapGetValueLatency99thPercentile() {
+    return getStats().getServerMapGetValueLatency99thPercentile();
+  }
+
+  @Override
+  public long getServerMapGetValueLatencyMax() {
+    return getStats().getServerMapGetValueLatencyMax();
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getStageLatencies() {
+    return getStats().getStageLatencies();
+  }
+
   @Override
   public Map<ObjectName, Long> getServerMapGetSizeRequestsCount() {
     Map<ObjectName, Long> result = new HashMap<ObjectName, Long>();
@@ -16,6 +16,7 @@
  */
 package com.tc.stats;
 
+import com.tc.async.api.StageLatencyStats;
 import com.tc.objectserver.core.api.DSOGlobalServerStats;
 import com.tc.objectserver.core.impl.ServerManagementContext;
 import com.tc.stats.api.DSOStats;
@@ -23,6 +24,9 @@ import com.tc.stats.counter.sampled.SampledCounter;
 import com.tc.stats.counter.sampled.derived.SampledRateCounter;
 
 import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * This is the root interface to the global DSO Server statistics.
@@ -126,4 +130,61 @@ public class DSOStatsImpl implements DSOStats {
   public long getWriteOperationRate() {
     return serverStats.getOperationCounter().getMostRecentSample().getCounterValue();
   }
+
+  @Override
+  public long getObjectIndexHitCount() {
+    return serverStats.getObjectIndexHitCounter().getCumulativeValue();
+  }
+
+  @Override
+  public long getObjectIndexMissCount() {
+    return serverStats.getObjectIndexMissCounter().getCumulativeValue();
+  }
+
+  @Override
+  public long getServerMapGetValueHitCount() {
+    return serverStats.getServerMapGetValueHitCounter().getCumulativeValue();
+  }
+
+  @Override
+  public long getServerMapGetValueMissCount() {
+    return serverStats.getServerMapGetValueMissCounter().getCumulativeValue();
+  }
+
+  @Override
+  public long getServerMapGetValueLatency() {
+    return serverStats.getServerMapGetValueLatencyCounter().getMostRecentSample().getCounterValue();
+  }
+
+  @Override
+  public long getServerMapGetValueLatency99thPercentile() {
+    return serverStats.getServerMapGetValueLatencyCounter().getMostRecent99thPercentile();
+  }
+
+  @Override
+  public long getServerMapGetValueLatencyMax() {
+    return serverStats.getServerMapGetValueLatencyCounter().getMostRecentMax();
+  }
+
+  @Override
+  public Map<String, Map<String, Long>> getStageLatencies() {
+    Map<String, Map<String, Long>> result = new TreeMap<String, Map<String, Long>>();
+    long[] buckets = new long[LatencyHistogram.BUCKETS];
+    for (StageLatencyStats stats : serverStats.getStageLatencyStats()) {
+      Map<String, Long> latencies = new LinkedHashMap<String, Long>();
+      putLatencies(latencies, "Wait", stats.getWaitHistogram(), buckets);
+      putLatencies(latencies, "Service", stats.getServiceHistogram(), buckets);
+      result.put(stats.getName(), latencies);
+    }
+    return result;
+  }
+
+  private static void putLatencies(Map<String, Long> latencies, String prefix, LatencyHistogram histogram,
+                                   long[] buckets) {
+    long count = histogram.copyInto(buckets, false);
+    latencies.put(prefix + "Count", count);
+    latencies.put(prefix + "Median", LatencyHistogram.percentile(buckets, count, 0.5));
+    latencies.put(prefix + "99thPercentile", LatencyHistogram.percentile(buckets, count, 0.99));
+    latencies.put(prefix + "Max", LatencyHistogram.percentile(buckets, count, 1.0));
+  }
 }
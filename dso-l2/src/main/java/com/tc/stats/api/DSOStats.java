@@ -16,6 +16,8 @@
  */
 package com.tc.stats.api;
 
+import java.util.Map;
+
 public interface DSOStats {
 
   Number[] getStatistics(String[] names);
@@ -44,4 +46,27 @@ public interface DSOStats {
 
   long getWriteOperationRate();
 
+  long getObjectIndexHitCount();
+
+  long getObjectIndexMissCount();
+
+  long getServerMapGetValueHitCount();
+
+  long getServerMapGetValueMissCount();
+
+  /**
+   * Mean, 99th percentile and maximum in nanoseconds of the server map get value requests of the last second.
+   */
+  long getServerMapGetValueLatency();
+
+  long getServerMapGetValueLatency99thPercentile();
+
+  long getServerMapGetValueLatencyMax();
+
+  /**
+   * Sampled queue wait and handler time of every stage since the server started, in nanoseconds, by stage name: the
+   * number of samples, median, 99th percentile and maximum of each.
+   */
+  Map<String, Map<String, Long>> getStageLatencies();
+
 }
@@ -0,0 +1,150 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.l2.objectserver;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.l2.context.ManagedObjectSyncContext;
+import com.tc.net.NodeID;
+import com.tc.net.ServerID;
+import com.tc.object.ObjectID;
+import com.tc.objectserver.api.ObjectManager;
+import com.tc.objectserver.tx.ServerTransactionManager;
+import com.tc.objectserver.tx.TxnsInSystemCompletionListener;
+import com.tc.test.TCTestCase;
+import com.tc.util.BitSetObjectIDSet;
+import com.tc.util.ObjectIDSet;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class L2ObjectStateManagerImplTest extends TCTestCase {
+
+  private final NodeID         passive       = new ServerID("passive", new byte[] { 1 });
+  private final AtomicInteger  syncRequests  = new AtomicInteger();
+  private final AtomicInteger  syncCompleted = new AtomicInteger();
+  private L2ObjectStateManagerImpl manager;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    ObjectManager objectManager = mock(ObjectManager.class);
+    ObjectIDSet oids = new BitSetObjectIDSet();
+    for (long i = 0; i < 10; i++) {
+      oids.add(new ObjectID(i));
+    }
+    when(objectManager.getAllObjectIDs()).thenReturn(oids);
+    when(objectManager.getRootNamesToIDsMap()).thenReturn(Collections.emptyMap());
+
+    ServerTransactionManager transactionManager = mock(ServerTransactionManager.class);
+    Answer<Void> completeListener = new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((TxnsInSystemCompletionListener) invocation.getArguments()[0]).onCompletion();
+        return null;
+      }
+    };
+    doAnswer(completeListener).when(transactionManager)
+        .callBackOnResentTxnsInSystemCompletion(any(TxnsInSystemCompletionListener.class));
+    doAnswer(completeListener).when(transactionManager)
+        .callBackOnTxnsInSystemCompletion(any(TxnsInSystemCompletionListener.class));
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((Runnable) invocation.getArguments()[0]).run();
+        return null;
+      }
+    }).when(transactionManager).callbackOnLowWaterMarkInSystemCompletion(any(Runnable.class));
+
+    manager = new L2ObjectStateManagerImpl(objectManager, transactionManager);
+    manager.registerForL2ObjectStateChangeEvents(new L2ObjectStateListener() {
+      @Override
+      public void missingObjectsFor(NodeID nodeID, int missingObjects) {
+        //
+      }
+
+      @Override
+      public void objectSyncCompleteFor(NodeID nodeID) {
+        syncCompleted.incrementAndGet();
+      }
+    });
+    manager.addL2(passive);
+  }
+
+  public void testBatchesOfAllLanesAreInFlightTogether() {
+    manager.initiateSync(passive, new Runnable() {
+      @Override
+      public void run() {
+        syncRequests.incrementAndGet();
+      }
+    });
+    assertTrue(syncRequests.get() > 1);
+
+    ManagedObjectSyncContext first = manager.getSomeObjectsToSyncContext(passive, 4);
+    ManagedObjectSyncContext second = manager.getSomeObjectsToSyncContext(passive, 4);
+    ManagedObjectSyncContext third = manager.getSomeObjectsToSyncContext(passive, 4);
+    assertEquals(range(0, 4), first.getRequestedObjectIDs());
+    assertEquals(range(4, 8), second.getRequestedObjectIDs());
+    assertEquals(range(8, 10), third.getRequestedObjectIDs());
+    assertFalse(third.hasMore());
+    assertNull(manager.getSomeObjectsToSyncContext(passive, 4));
+    assertEquals(3, manager.getObjectSyncProgress(passive).getBatchesInFlight());
+
+    // the last object of the second batch did not fit in its message and goes back to the missing objects
+    dehydrate(second, range(4, 7), range(7, 8));
+    manager.close(second);
+    dehydrate(third, range(8, 10), new BitSetObjectIDSet());
+    manager.close(third);
+    assertTrue(second.hasMore());
+    ManagedObjectSyncContext resent = manager.getSomeObjectsToSyncContext(passive, 4);
+    assertEquals(range(7, 8), resent.getRequestedObjectIDs());
+
+    dehydrate(resent, range(7, 8), new BitSetObjectIDSet());
+    manager.close(resent);
+    assertEquals(0, syncCompleted.get());
+
+    dehydrate(first, range(0, 4), new BitSetObjectIDSet());
+    manager.close(first);
+    assertEquals(1, syncCompleted.get());
+
+    ObjectSyncProgress progress = manager.getObjectSyncProgress(passive);
+    assertEquals(10, progress.getObjectsToSync());
+    assertEquals(10, progress.getObjectsSynced());
+    assertEquals(100, progress.getPercentComplete());
+    assertEquals(0, progress.getBatchesInFlight());
+    assertNull(manager.getSomeObjectsToSyncContext(passive, 4));
+  }
+
+  private static void dehydrate(ManagedObjectSyncContext mosc, ObjectIDSet synced, ObjectIDSet notSynced) {
+    mosc.setDehydratedBytes(synced, notSynced, new TCByteBuffer[0], synced.size(), null, new BitSetObjectIDSet());
+  }
+
+  private static ObjectIDSet range(long from, long to) {
+    ObjectIDSet oids = new BitSetObjectIDSet();
+    for (long i = from; i < to; i++) {
+      oids.add(new ObjectID(i));
+    }
+    return oids;
+  }
+}
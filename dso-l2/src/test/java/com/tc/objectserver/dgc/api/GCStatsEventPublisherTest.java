@@ -35,6 +35,7 @@ import com.tc.util.ObjectIDSet;
 import com.tc.util.sequence.DGCSequenceProvider;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -60,8 +61,9 @@ public class GCStatsEventPublisherTest extends TestCase {
   @Override
   protected void setUp() throws Exception {
     super.setUp();
-    this.lookedUp = new HashSet<ObjectID>();
-    this.released = new HashSet<ObjectID>();
+    // the mark fetches references from several threads
+    this.lookedUp = Collections.synchronizedSet(new HashSet<ObjectID>());
+    this.released = Collections.synchronizedSet(new HashSet<ObjectID>());
     this.objectManager = new GCTestObjectManager(this.lookedUp, this.released, this.transactionProvider);
     this.garbageCollectionManager = mock(GarbageCollectionManager.class);
     GarbageCollectionInfoPublisher gcPublisher = new GarbageCollectionInfoPublisherImpl();
@@ -111,6 +113,8 @@ public class GCStatsEventPublisherTest extends TestCase {
     assertEquals(1, listener.startList.size());
     assertEquals(1, listener.markList.size());
     assertEquals(1, listener.markResultsList.size());
+    // the mark and both rescues
+    assertEquals(3, listener.markStatsList.size());
     assertEquals(1, listener.rescue1CompleteList.size());
     assertEquals(1, listener.pausingList.size());
     assertEquals(1, listener.pausedList.size());
@@ -131,6 +135,7 @@ public class GCStatsEventPublisherTest extends TestCase {
     assertEquals(1, listener.startList.size());
     assertEquals(1, listener.markList.size());
     assertEquals(1, listener.markResultsList.size());
+    assertEquals(2, listener.markStatsList.size());
     assertEquals(1, listener.rescue1CompleteList.size());
     assertEquals(1, listener.completedList.size());
     assertEquals(1, listener.cycleCompletedList.size());
@@ -212,6 +217,8 @@ public class GCStatsEventPublisherTest extends TestCase {
 
     protected List<GarbageCollectionInfo> markResultsList     = new ArrayList<GarbageCollectionInfo>();
 
+    protected List<MarkStats>             markStatsList       = new ArrayList<MarkStats>();
+
     protected List<GarbageCollectionInfo> rescue1CompleteList = new ArrayList<GarbageCollectionInfo>();
 
     protected List<GarbageCollectionInfo> pausingList         = new ArrayList<GarbageCollectionInfo>();
@@ -243,6 +250,11 @@ public class GCStatsEventPublisherTest extends TestCase {
       this.markResultsList.add(info);
     }
 
+    @Override
+    public void garbageCollectorMarkStats(GarbageCollectionInfo info, MarkStats stats) {
+      this.markStatsList.add(stats);
+    }
+
     @Override
     public void garbageCollectorRescue1Complete(GarbageCollectionInfo info) {
       this.rescue1CompleteList.add(info);
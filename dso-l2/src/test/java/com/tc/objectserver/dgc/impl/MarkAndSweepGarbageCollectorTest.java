@@ -31,7 +31,9 @@ import com.tc.objectserver.persistence.impl.TestMutableSequence;
 import com.tc.util.sequence.DGCSequenceProvider;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import junit.framework.TestCase;
@@ -63,8 +65,9 @@ public class MarkAndSweepGarbageCollectorTest extends TestCase {
   @Override
   protected void setUp() throws Exception {
     super.setUp();
-    this.lookedUp = new HashSet<ObjectID>();
-    this.released = new HashSet<ObjectID>();
+    // the mark fetches references from several threads
+    this.lookedUp = Collections.synchronizedSet(new HashSet<ObjectID>());
+    this.released = Collections.synchronizedSet(new HashSet<ObjectID>());
     this.objectManager = new GCTestObjectManager(this.lookedUp, this.released, this.transactionProvider);
     this.stateManager = new TestClientStateManager();
     this.garbageCollectionManager = mock(GarbageCollectionManager.class);
@@ -194,6 +197,36 @@ public class MarkAndSweepGarbageCollectorTest extends TestCase {
     assertTrue(this.lookedUp.equals(this.released));
   }
 
+  public void testLargeGraphSpanningSeveralBatches() {
+    // a tree wide enough for its levels to be fetched in several batches
+    List<TestManagedObject> level = new ArrayList<TestManagedObject>();
+    level.add(this.root1);
+    int live = 0;
+    while (live < 5000) {
+      List<TestManagedObject> next = new ArrayList<TestManagedObject>();
+      for (TestManagedObject parent : level) {
+        for (int i = 0; i < 3; i++) {
+          TestManagedObject child = createObject(3);
+          parent.setReference(i, child.getID());
+          next.add(child);
+        }
+      }
+      live += next.size();
+      level = next;
+    }
+    // the last level also points back at the root
+    level.get(0).setReference(0, this.root1.getID());
+    for (int i = 0; i < 10; i++) {
+      createObject(3);
+    }
+
+    Set toDelete = this.collector.collect(new FullGCHook(this.collector, this.objectManager, this.stateManager, false),
+                                          this.filter, this.objectManager.getRootIDs(),
+                                          this.objectManager.getAllObjectIDs());
+    assertEquals(10, toDelete.size());
+    assertEquals(this.lookedUp, this.released);
+  }
+
   public void testIsInGCPause() throws Exception {
     assertFalse(this.collector.isPausingOrPaused());
     this.collector.requestGCPause();
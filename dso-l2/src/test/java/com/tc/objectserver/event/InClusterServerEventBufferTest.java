@@ -25,13 +25,17 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.tc.net.ClientID;
 import com.tc.object.gtx.GlobalTransactionID;
 import com.tc.server.BasicServerEvent;
 import com.tc.server.ServerEvent;
+import com.tc.stats.counter.sampled.SampledCounterConfig;
+import com.tc.stats.counter.sampled.SampledCumulativeCounter;
+import com.tc.stats.counter.sampled.SampledCumulativeCounterImpl;
 import com.tc.util.concurrent.ThreadUtil;
+
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -67,16 +71,16 @@ public class InClusterServerEventBufferTest {
   @Test
   public void testStoreEvent() throws Exception {
     
-    Multimap<ClientID, ServerEvent> eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
+    TransactionServerEvents eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
     Assert.assertTrue(eventsForGtxId1.size() == 1);
     Assert.assertTrue(eventsForGtxId1.get(clientId1).equals(Lists.newArrayList(event1)));
     
-    Multimap<ClientID, ServerEvent> eventsForGtxId2 = buffer.getServerEventsPerClient(gtxId2);
+    TransactionServerEvents eventsForGtxId2 = buffer.getServerEventsPerClient(gtxId2);
     Assert.assertTrue(eventsForGtxId2.size() == 2);
     Assert.assertTrue(eventsForGtxId2.get(clientId2).equals(Lists.newArrayList(event2)));
     Assert.assertTrue(eventsForGtxId2.get(clientId3).equals(Lists.newArrayList(event2)));
     
-    Multimap<ClientID, ServerEvent> eventsForGtxId3 = buffer.getServerEventsPerClient(gtxId3);
+    TransactionServerEvents eventsForGtxId3 = buffer.getServerEventsPerClient(gtxId3);
     Assert.assertTrue(eventsForGtxId3.size() == 3);
     Assert.assertTrue(eventsForGtxId3.get(clientId1).equals(Lists.newArrayList(event3)));
     Assert.assertTrue(eventsForGtxId3.get(clientId3).equals(Lists.newArrayList(event3, event33)));
@@ -86,16 +90,16 @@ public class InClusterServerEventBufferTest {
   public void testRemoveEventsForTransaction() throws Exception {
     buffer.removeEventsForTransaction(gtxId3);
 
-    Multimap<ClientID, ServerEvent> eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
+    TransactionServerEvents eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
     Assert.assertTrue(eventsForGtxId1.size() == 1);
     Assert.assertTrue(eventsForGtxId1.get(clientId1).equals(Lists.newArrayList(event1)));
 
-    Multimap<ClientID, ServerEvent> eventsForGtxId2 = buffer.getServerEventsPerClient(gtxId2);
+    TransactionServerEvents eventsForGtxId2 = buffer.getServerEventsPerClient(gtxId2);
     Assert.assertTrue(eventsForGtxId2.size() == 2);
     Assert.assertTrue(eventsForGtxId2.get(clientId2).equals(Lists.newArrayList(event2)));
     Assert.assertTrue(eventsForGtxId2.get(clientId3).equals(Lists.newArrayList(event2)));
 
-    Multimap<ClientID, ServerEvent> eventsForGtxId3 = buffer.getServerEventsPerClient(gtxId3);
+    TransactionServerEvents eventsForGtxId3 = buffer.getServerEventsPerClient(gtxId3);
     Assert.assertTrue(eventsForGtxId3.size() == 0);
   }
 
@@ -103,18 +107,100 @@ public class InClusterServerEventBufferTest {
   public void testClearEventBufferBelowLowWaterMark() throws Exception {
     buffer.clearEventBufferBelowLowWaterMark(gtxId3);
 
-    Multimap<ClientID, ServerEvent> eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
+    TransactionServerEvents eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
     Assert.assertTrue(eventsForGtxId1.size() == 0);
 
-    Multimap<ClientID, ServerEvent> eventsForGtxId2 = buffer.getServerEventsPerClient(gtxId2);
+    TransactionServerEvents eventsForGtxId2 = buffer.getServerEventsPerClient(gtxId2);
     Assert.assertTrue(eventsForGtxId2.size() == 0);
 
-    Multimap<ClientID, ServerEvent> eventsForGtxId3 = buffer.getServerEventsPerClient(gtxId3);
+    TransactionServerEvents eventsForGtxId3 = buffer.getServerEventsPerClient(gtxId3);
     Assert.assertTrue(eventsForGtxId3.size() == 3);
     Assert.assertTrue(eventsForGtxId3.get(clientId1).equals(Lists.newArrayList(event3)));
     Assert.assertTrue(eventsForGtxId3.get(clientId3).equals(Lists.newArrayList(event3, event33)));
   }
 
+  @Test
+  public void testRecipientsAreCopiedWhenStored() throws Exception {
+    GlobalTransactionID gtxId4 = new GlobalTransactionID(4);
+    Set<ClientID> listeners = Sets.newHashSet(clientId1, clientId2);
+    buffer.storeEvent(gtxId4, event1, listeners);
+    listeners.add(clientId3);
+    buffer.storeEvent(gtxId4, event2, listeners);
+    listeners.remove(clientId1);
+
+    TransactionServerEvents eventsForGtxId4 = buffer.getServerEventsPerClient(gtxId4);
+    Assert.assertEquals(5, eventsForGtxId4.size());
+    Assert.assertEquals(Lists.newArrayList(event1, event2), eventsForGtxId4.get(clientId1));
+    Assert.assertEquals(Lists.newArrayList(event1, event2), eventsForGtxId4.get(clientId2));
+    Assert.assertEquals(Lists.newArrayList(event2), eventsForGtxId4.get(clientId3));
+    Assert.assertTrue(eventsForGtxId4.get(new ClientID(4L)).isEmpty());
+  }
+
+  @Test
+  public void testCoalescesEventsOfAKeyForTheSameClients() throws Exception {
+    buffer = new InClusterServerEventBuffer(true, null, null);
+    ServerEvent put = new BasicServerEvent(PUT, 1, "cache1");
+    ServerEvent otherKey = new BasicServerEvent(PUT, 2, "cache1");
+    ServerEvent otherCache = new BasicServerEvent(PUT, 1, "cache2");
+    ServerEvent remove = new BasicServerEvent(REMOVE, 1, "cache1");
+    buffer.storeEvent(gtxId1, put, Sets.newHashSet(clientId1, clientId2));
+    buffer.storeEvent(gtxId1, otherKey, Sets.newHashSet(clientId1, clientId2));
+    buffer.storeEvent(gtxId1, otherCache, Sets.newHashSet(clientId1, clientId2));
+    buffer.storeEvent(gtxId1, remove, Sets.newHashSet(clientId1, clientId2));
+
+    TransactionServerEvents eventsForGtxId1 = buffer.getServerEventsPerClient(gtxId1);
+    Assert.assertEquals(6, eventsForGtxId1.size());
+    Assert.assertEquals(Lists.newArrayList(remove, otherKey, otherCache), eventsForGtxId1.get(clientId1));
+    Assert.assertEquals(Lists.newArrayList(remove, otherKey, otherCache), eventsForGtxId1.get(clientId2));
+
+    // a client that did not get the first event must still see both
+    ServerEvent evict = new BasicServerEvent(EVICT, 1, "cache1");
+    buffer.storeEvent(gtxId1, evict, Sets.newHashSet(clientId1, clientId2, clientId3));
+    Assert.assertEquals(Lists.newArrayList(remove, otherKey, otherCache, evict), eventsForGtxId1.get(clientId1));
+    Assert.assertEquals(Lists.newArrayList(evict), eventsForGtxId1.get(clientId3));
+
+    // a later transaction's event for other clients supersedes nothing
+    buffer.storeEvent(gtxId2, put, Sets.newHashSet(clientId1));
+    Assert.assertEquals(Lists.newArrayList(put), buffer.getServerEventsPerClient(gtxId2).get(clientId1));
+    Assert.assertEquals(Lists.newArrayList(evict), eventsForGtxId1.get(clientId3));
+  }
+
+  @Test
+  public void testCoalescesEventsOfAKeyAcrossTransactionsWaitingForBroadcast() throws Exception {
+    SampledCumulativeCounter coalesced = new SampledCumulativeCounterImpl(new SampledCounterConfig(1, 1, true, 0L));
+    buffer = new InClusterServerEventBuffer(true, coalesced, null);
+    Set<ClientID> clients = Sets.newHashSet(clientId1, clientId2);
+    ServerEvent hot1 = new BasicServerEvent(PUT, 1, "cache1");
+    ServerEvent cold = new BasicServerEvent(PUT, 2, "cache1");
+    ServerEvent hot2 = new BasicServerEvent(PUT, 1, "cache1");
+    ServerEvent hot3 = new BasicServerEvent(REMOVE, 1, "cache1");
+
+    // three updates of a hot key applied before the first of them is broadcast
+    buffer.storeEvent(gtxId1, hot1, clients);
+    buffer.storeEvent(gtxId1, cold, clients);
+    buffer.storeEvent(gtxId2, hot2, clients);
+    buffer.storeEvent(gtxId3, hot3, clients);
+
+    Assert.assertEquals(Lists.newArrayList(cold), buffer.getServerEventsPerClient(gtxId1).get(clientId1));
+    Assert.assertTrue(buffer.getServerEventsPerClient(gtxId2).isEmpty());
+    Assert.assertEquals(Lists.newArrayList(hot3), buffer.getServerEventsPerClient(gtxId3).get(clientId2));
+    Assert.assertEquals(2, coalesced.getCumulativeValue());
+
+    // once a transaction is broadcast its events stay as they were sent
+    GlobalTransactionID gtxId4 = new GlobalTransactionID(4);
+    buffer.storeEvent(gtxId4, hot1, clients);
+    Assert.assertEquals(Lists.newArrayList(hot3), buffer.getServerEventsPerClient(gtxId3).get(clientId1));
+    Assert.assertEquals(Lists.newArrayList(hot1), buffer.getServerEventsPerClient(gtxId4).get(clientId1));
+    Assert.assertEquals(2, coalesced.getCumulativeValue());
+
+    // nor does a transaction that is already gone
+    buffer.clearEventBufferBelowLowWaterMark(new GlobalTransactionID(5));
+    buffer.storeEvent(new GlobalTransactionID(5), hot2, clients);
+    Assert.assertEquals(Lists.newArrayList(hot2),
+                        buffer.getServerEventsPerClient(new GlobalTransactionID(5)).get(clientId1));
+    Assert.assertEquals(2, coalesced.getCumulativeValue());
+  }
+
   @Test
   public void testConcurrentStoreGC() throws Exception {
     buffer.clearEventBufferBelowLowWaterMark(gtxId3);
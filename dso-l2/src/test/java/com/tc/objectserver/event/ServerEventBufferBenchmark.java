@@ -0,0 +1,102 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.event;
+
+import static com.tc.server.ServerEventType.PUT;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.tc.net.ClientID;
+import com.tc.object.gtx.GlobalTransactionID;
+import com.tc.server.BasicServerEvent;
+import com.tc.server.ServerEvent;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Goes through the life of the server events of one transaction in {@link InClusterServerEventBuffer}: the apply
+ * stores every event for all listening clients, the broadcast looks up each client's events, and the low water mark
+ * trailing a window of transactions behind clears what was broadcast. Run with
+ * {@code java -cp <test classpath> com.tc.objectserver.event.ServerEventBufferBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerEventBufferBenchmark {
+
+  private static final int           WATERMARK_LAG = 64;
+
+  @Param({ "1", "16", "128" })
+  private int                        listeners;
+
+  @Param({ "1", "8" })
+  private int                        eventsPerTransaction;
+
+  private InClusterServerEventBuffer buffer;
+  private Set<ClientID>              clients;
+  private ServerEvent[]              events;
+  private long                       gtx;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    buffer = new InClusterServerEventBuffer();
+    clients = new HashSet<ClientID>();
+    for (int i = 0; i < listeners; i++) {
+      clients.add(new ClientID(i));
+    }
+    events = new ServerEvent[eventsPerTransaction];
+    for (int i = 0; i < events.length; i++) {
+      events[i] = new BasicServerEvent(PUT, "key-" + i, "cache");
+    }
+  }
+
+  @Benchmark
+  public void storeBroadcastAndClear(Blackhole blackhole) {
+    GlobalTransactionID gtxId = new GlobalTransactionID(++gtx);
+    for (ServerEvent event : events) {
+      buffer.storeEvent(gtxId, event, clients);
+    }
+    TransactionServerEvents eventsPerClient = buffer.getServerEventsPerClient(gtxId);
+    for (ClientID client : clients) {
+      blackhole.consume(eventsPerClient.get(client));
+    }
+    buffer.clearEventBufferBelowLowWaterMark(new GlobalTransactionID(gtx - WATERMARK_LAG));
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(ServerEventBufferBenchmark.class.getSimpleName()).build()).run();
+  }
+}
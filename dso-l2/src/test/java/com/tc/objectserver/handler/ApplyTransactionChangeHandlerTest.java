@@ -17,10 +17,13 @@
 package com.tc.objectserver.handler;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -47,6 +50,7 @@ import com.tc.objectserver.api.Transaction;
 import com.tc.objectserver.api.TransactionProvider;
 import com.tc.objectserver.context.ApplyTransactionContext;
 import com.tc.objectserver.context.BroadcastChangeContext;
+import com.tc.objectserver.core.api.ManagedObject;
 import com.tc.objectserver.core.api.ServerConfigurationContext;
 import com.tc.objectserver.core.impl.TestServerConfigurationContext;
 import com.tc.objectserver.event.ClientChannelMonitor;
@@ -80,6 +84,9 @@ public class ApplyTransactionChangeHandlerTest extends TestCase {
   private ArgumentCaptor<NotifiedWaiters> notifiedWaitersArgumentCaptor;
   private ServerEventBuffer               serverEventBuffer;
   private ClientChannelMonitor            clientChannelMonitor;
+  private TransactionProvider             persistenceTransactionProvider;
+  private Transaction                     persistenceTransaction;
+  private ServerTransactionManager        transactionManager;
 
   @Override
   public void setUp() throws Exception {
@@ -87,27 +94,33 @@ public class ApplyTransactionChangeHandlerTest extends TestCase {
     this.serverEventBuffer = mock(ServerEventBuffer.class);
     this.clientChannelMonitor = mock(ClientChannelMonitor.class);
     this.notifiedWaitersArgumentCaptor = ArgumentCaptor.forClass(NotifiedWaiters.class);
-    TransactionProvider persistenceTransactionProvider = mock(TransactionProvider.class);
-    Transaction persistenceTransaction = mock(Transaction.class);
+    this.persistenceTransactionProvider = mock(TransactionProvider.class);
+    this.persistenceTransaction = mock(Transaction.class);
     when(persistenceTransactionProvider.newTransaction()).thenReturn(persistenceTransaction);
+    this.transactionManager = mock(ServerTransactionManager.class);
 
-    this.handler = new ApplyTransactionChangeHandler(new ObjectInstanceMonitorImpl(),
+    this.handler = createHandler(false);
+  }
+
+  private ApplyTransactionChangeHandler createHandler(boolean commitEachTransaction) {
+    ApplyTransactionChangeHandler applyHandler = new ApplyTransactionChangeHandler(new ObjectInstanceMonitorImpl(),
         mock(ServerGlobalTransactionManager.class),mock(ServerMapEvictionManager.class),
         persistenceTransactionProvider, Runners.newSingleThreadScheduledTaskRunner(),
-        serverEventBuffer, clientChannelMonitor);
+        serverEventBuffer, clientChannelMonitor, commitEachTransaction);
 
     this.broadcastSink = mock(Sink.class);
     Stage broadcastStage = mock(Stage.class);
     when(broadcastStage.getSink()).thenReturn(broadcastSink);
     TestServerConfigurationContext context = new TestServerConfigurationContext();
-    context.transactionManager = mock(ServerTransactionManager.class);
+    context.transactionManager = this.transactionManager;
     context.txnObjectManager = mock(TransactionalObjectManager.class);
     context.addStage(ServerConfigurationContext.BROADCAST_CHANGES_STAGE, broadcastStage);
     context.addStage(ServerConfigurationContext.COMMIT_CHANGES_STAGE, mock(Stage.class));
     context.garbageCollectionManager = mock(GarbageCollectionManager.class);
     context.lockManager = this.lockManager;
 
-    this.handler.initializeContext(context);
+    applyHandler.initializeContext(context);
+    return applyHandler;
   }
 
   public void testLockManagerNotifyOnNoApply() throws Exception {
@@ -124,6 +137,24 @@ public class ApplyTransactionChangeHandlerTest extends TestCase {
     verifyNotifies(tx);
   }
 
+  public void testCommitWaitsForGroupingToBeDone() throws Exception {
+    ServerTransaction tx = createServerTransaction();
+    TxnObjectGrouping grouping = new TxnObjectGrouping(tx.getServerTransactionID());
+    this.handler.handleEvent(new ApplyTransactionContext(tx, grouping, true, Collections.EMPTY_SET));
+    verify(persistenceTransaction, never()).commit();
+    verify(transactionManager, never()).commit(anyCollection(), anyMap(), anyCollection());
+  }
+
+  public void testCommitEachTransactionWhenWorkStealing() throws Exception {
+    ApplyTransactionChangeHandler stealingHandler = createHandler(true);
+    ServerTransaction tx = createServerTransaction();
+    TxnObjectGrouping grouping = new TxnObjectGrouping(tx.getServerTransactionID());
+    stealingHandler.handleEvent(new ApplyTransactionContext(tx, grouping, true, Collections.EMPTY_SET));
+    verify(persistenceTransaction).commit();
+    verify(transactionManager).commit(eq(Collections.<ManagedObject> emptyList()), anyMap(),
+                                      eq(Collections.singleton(tx.getServerTransactionID())));
+  }
+
   private void verifyNotifies(ServerTransaction tx) {
     verify(lockManager, times(tx.getNumApplicationTxn())).notify(any(LockID.class), any(ClientID.class), any(ThreadID.class),
         any(ServerLock.NotifyAction.class), any(NotifiedWaiters.class));
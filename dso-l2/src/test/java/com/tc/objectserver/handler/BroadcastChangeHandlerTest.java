@@ -23,7 +23,6 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.tc.async.impl.MockStage;
 import com.tc.net.ClientID;
@@ -44,6 +43,7 @@ import com.tc.objectserver.core.api.ServerConfigurationContext;
 import com.tc.objectserver.core.api.TestDNA;
 import com.tc.objectserver.event.ClientChannelMonitor;
 import com.tc.objectserver.event.ServerEventBuffer;
+import com.tc.objectserver.event.TransactionServerEvents;
 import com.tc.objectserver.l1.api.ClientStateManager;
 import com.tc.objectserver.l1.api.InvalidateObjectManager;
 import com.tc.objectserver.l1.impl.ClientStateManagerImpl;
@@ -54,7 +54,6 @@ import com.tc.objectserver.tx.ServerTransaction;
 import com.tc.objectserver.tx.ServerTransactionManager;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
-import com.tc.server.ServerEvent;
 import com.tc.stats.counter.sampled.SampledCounterConfig;
 import com.tc.stats.counter.sampled.SampledCounterImpl;
 import com.tc.stats.counter.sampled.derived.SampledRateCounterConfig;
@@ -162,7 +161,7 @@ public class BroadcastChangeHandlerTest extends TCTestCase {
     GlobalTransactionID gid = new GlobalTransactionID(1);
     when(txn.getServerTransactionID()).thenReturn(new ServerTransactionID(new ServerID("1234", new byte[20]), new TransactionID(1)));
     ServerEventBuffer serverEventBuffer = when(mock(ServerEventBuffer.class).getServerEventsPerClient(gid)).thenReturn(
-        HashMultimap.<ClientID, ServerEvent>create()).getMock();
+        TransactionServerEvents.EMPTY).getMock();
 
     applyTransactionInfo = new ApplyTransactionInfo(true, txn.getServerTransactionID(), gid, false,
         true, serverEventBuffer, mock(ClientChannelMonitor.class));
@@ -0,0 +1,120 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.locks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.tc.async.api.Sink;
+import com.tc.net.ClientID;
+import com.tc.object.locks.LockID;
+import com.tc.object.locks.ServerLockLevel;
+import com.tc.object.locks.StringLockID;
+import com.tc.object.locks.ThreadID;
+import com.tc.objectserver.locks.factory.NonGreedyLockPolicyFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives {@link LockManagerImpl} from many threads, each acting as its own client on its own fine grained keys, the
+ * way cache key locks are used. Requests on different keys should not wait for each other, so throughput should grow
+ * with the number of threads. {@code queryHotLock} has all threads on one key for comparison. Run with
+ * {@code java -cp <test classpath> com.tc.objectserver.locks.LockManagerBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class LockManagerBenchmark {
+
+  private static final LockID HOT_LOCK = new StringLockID("hot");
+
+  private LockManagerImpl     lockManager;
+  private final AtomicInteger clients  = new AtomicInteger();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // stub only, so the lock responses are not kept around
+    Sink sink = mock(Sink.class, withSettings().stubOnly());
+    lockManager = new LockManagerImpl(sink, new NullChannelManager(), new NonGreedyLockPolicyFactory());
+    lockManager.start();
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+    @Param({ "1", "1000" })
+    private int      keysPerClient;
+
+    private ClientID clientID;
+    private ThreadID threadID;
+    private LockID[] keys;
+    private int      next;
+
+    @Setup(Level.Trial)
+    public void setUp(LockManagerBenchmark benchmark) {
+      int client = benchmark.clients.incrementAndGet();
+      clientID = new ClientID(client);
+      threadID = new ThreadID(1);
+      keys = new LockID[keysPerClient];
+      for (int i = 0; i < keys.length; i++) {
+        keys[i] = new StringLockID("client-" + client + "-key-" + i);
+      }
+    }
+
+    LockID nextKey() {
+      LockID key = keys[next];
+      next = (next + 1) % keys.length;
+      return key;
+    }
+  }
+
+  @Benchmark
+  public void lockUnlock(Client client) {
+    LockID key = client.nextKey();
+    lockManager.lock(key, client.clientID, client.threadID, ServerLockLevel.WRITE);
+    lockManager.unlock(key, client.clientID, client.threadID);
+  }
+
+  @Benchmark
+  public void queryHotLock(Client client) {
+    lockManager.queryLock(HOT_LOCK, client.clientID, client.threadID);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(LockManagerBenchmark.class.getSimpleName()).build()).run();
+  }
+}
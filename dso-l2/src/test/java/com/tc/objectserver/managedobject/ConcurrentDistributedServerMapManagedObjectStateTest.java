@@ -364,6 +364,26 @@ public class ConcurrentDistributedServerMapManagedObjectStateTest extends TCTest
                                                 new CDSMValue(ObjectID.NULL_ID), null);
   }
 
+  public void testEvictionSamplesTheLeastAccessedKeys() throws Exception {
+    Set<Object> keys = new HashSet<Object>();
+    for (int i = 0; i < 10; i++) {
+      String key = "key-" + i;
+      keys.add(key);
+      when(keyValueStorage.get(key)).thenReturn(new CDSMValue(new ObjectID(100 + i), 1, 1, 1, 1, 1));
+    }
+    when(keyValueStorage.size()).thenReturn(10L);
+    when(keyValueStorage.keySet()).thenReturn(keys);
+    for (int i = 3; i < 10; i++) {
+      for (int access = 0; access < 5; access++) {
+        state.recordAccess("key-" + i);
+      }
+    }
+
+    Set<Object> sampled = state.getRandomSamples(3, mock(ClientObjectReferenceSet.class), SamplingType.FOR_EVICTION)
+        .keySet();
+    assertEquals(ImmutableSet.of("key-0", "key-1", "key-2"), sampled);
+  }
+
   public static final class OperationCountChangeEventListener {
     private int count;
 
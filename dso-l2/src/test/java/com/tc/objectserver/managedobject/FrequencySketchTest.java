@@ -0,0 +1,87 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.managedobject;
+
+import com.tc.test.TCTestCase;
+
+public class FrequencySketchTest extends TCTestCase {
+
+  public void testNeverUndercounts() {
+    FrequencySketch sketch = new FrequencySketch(1000);
+    for (int i = 0; i < 1000; i++) {
+      for (int access = 0; access < i % 8; access++) {
+        sketch.increment(i);
+      }
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(sketch.frequency(i) >= i % 8);
+    }
+  }
+
+  public void testSaturatesAtFifteen() {
+    FrequencySketch sketch = new FrequencySketch(100);
+    for (int access = 0; access < 100; access++) {
+      sketch.increment("hot");
+    }
+    assertEquals(15, sketch.frequency("hot"));
+  }
+
+  public void testCountsAreHalvedAfterEnoughAccesses() {
+    FrequencySketch sketch = new FrequencySketch(8);
+    for (int access = 0; access < 10; access++) {
+      sketch.increment("once hot");
+    }
+    assertEquals(10, sketch.frequency("once hot"));
+    // ten times the expected keys in additions ages every counter
+    for (int i = 0; i < 80; i++) {
+      sketch.increment("other-" + i);
+    }
+    assertTrue(sketch.frequency("once hot") <= 5);
+  }
+
+  public void testGrowingKeepsCounts() {
+    FrequencySketch sketch = new FrequencySketch(8);
+    for (int i = 0; i < 8; i++) {
+      for (int access = 0; access <= i; access++) {
+        sketch.increment(i);
+      }
+    }
+    int[] before = new int[8];
+    for (int i = 0; i < 8; i++) {
+      before[i] = sketch.frequency(i);
+    }
+    sketch.ensureCapacity(4);
+    sketch.ensureCapacity(1024);
+    for (int i = 0; i < 8; i++) {
+      assertEquals(before[i], sketch.frequency(i));
+    }
+    // keys that shared counters in the small table drift apart once counted in the grown one
+    sketch.increment(7);
+    assertEquals(Math.min(15, before[7] + 1), sketch.frequency(7));
+  }
+
+  public void testTableIsCapped() {
+    FrequencySketch sketch = new FrequencySketch(Integer.MAX_VALUE / 16);
+    assertEquals(1 << 13, sketch.tableLength());
+    for (int i = 0; i < 100; i++) {
+      sketch.increment(i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertTrue(sketch.frequency(i) >= 1);
+    }
+  }
+}
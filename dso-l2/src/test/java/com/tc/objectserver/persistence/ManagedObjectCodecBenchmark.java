@@ -0,0 +1,110 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.tc.objectserver.core.api.ManagedObject;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the binary managed object codec with the Java serialization path it replaced, for node objects and leaf
+ * ({@link com.tc.objectserver.managedobject.SerializedClusterObjectState}) objects. Run with
+ * {@code java -cp <test classpath> com.tc.objectserver.persistence.ManagedObjectCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagedObjectCodecBenchmark {
+
+  @Param({ "node", "leaf" })
+  private String                 kind;
+
+  @Param({ "1024" })
+  private int                    leafSize;
+
+  private ManagedObjectFixtures  fixtures;
+  private ManagedObjectCodec     codec;
+  private ManagedObject          object;
+  private byte[]                 encoded;
+  private byte[]                 legacyEncoded;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    fixtures = new ManagedObjectFixtures();
+    fixtures.setUp();
+    codec = fixtures.codec();
+    if ("leaf".equals(kind)) {
+      byte[] value = new byte[leafSize];
+      Arrays.fill(value, (byte) 42);
+      object = fixtures.newLeafObject(1, value);
+    } else {
+      object = fixtures.newNodeObject(1);
+    }
+    encoded = codec.encode(object);
+    legacyEncoded = codec.encodeLegacy(object);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    fixtures.tearDown();
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return codec.encode(object);
+  }
+
+  @Benchmark
+  public byte[] encodeJavaSerialization() {
+    return codec.encodeLegacy(object);
+  }
+
+  @Benchmark
+  public ManagedObject decode() throws IOException {
+    return codec.decode(encoded);
+  }
+
+  @Benchmark
+  public ManagedObject decodeJavaSerialization() throws IOException {
+    return codec.decodeLegacy(legacyEncoded);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(ManagedObjectCodecBenchmark.class.getSimpleName()).build()).run();
+  }
+}
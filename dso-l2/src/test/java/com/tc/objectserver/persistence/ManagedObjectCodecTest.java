@@ -0,0 +1,75 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.objectserver.core.api.ManagedObject;
+import com.tc.test.TCTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ManagedObjectCodecTest extends TCTestCase {
+  private final ManagedObjectFixtures fixtures = new ManagedObjectFixtures();
+  private ManagedObjectCodec          codec;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    fixtures.setUp();
+    codec = fixtures.codec();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    fixtures.tearDown();
+    super.tearDown();
+  }
+
+  public void testNodeObjectRoundTrip() throws Exception {
+    ManagedObject mo = fixtures.newNodeObject(1);
+    byte[] data = codec.encode(mo);
+    assertEquals(ManagedObjectCodec.MAGIC, data[0]);
+    assertFalse(ManagedObjectCodec.isLegacy(data));
+    assertTrue(mo.isEqual(codec.decode(data)));
+    assertTrue(data.length < codec.encodeLegacy(mo).length);
+  }
+
+  public void testLeafObjectRoundTrip() throws Exception {
+    byte[] value = new byte[4096];
+    Arrays.fill(value, (byte) 7);
+    ManagedObject mo = fixtures.newLeafObject(2, value);
+    assertTrue(mo.isEqual(codec.decode(codec.encode(mo))));
+  }
+
+  public void testLegacyFormatIsReadable() throws Exception {
+    ManagedObject mo = fixtures.newNodeObject(3);
+    byte[] legacy = codec.encodeLegacy(mo);
+    assertTrue(ManagedObjectCodec.isLegacy(legacy));
+    assertTrue(mo.isEqual(codec.decode(legacy)));
+  }
+
+  public void testUnknownVersionIsRejected() throws Exception {
+    byte[] data = codec.encode(fixtures.newNodeObject(4));
+    data[1] = ManagedObjectCodec.VERSION + 1;
+    try {
+      codec.decode(data);
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.object.LogicalOperation;
+import com.tc.object.ObjectID;
+import com.tc.object.TestDNACursor;
+import com.tc.object.tx.TransactionID;
+import com.tc.objectserver.core.api.ManagedObject;
+import com.tc.objectserver.core.api.TestDNA;
+import com.tc.objectserver.impl.ObjectInstanceMonitorImpl;
+import com.tc.objectserver.managedobject.ApplyTransactionInfo;
+import com.tc.objectserver.managedobject.ManagedObjectImpl;
+import com.tc.objectserver.managedobject.ManagedObjectStateFactory;
+import com.tc.objectserver.managedobject.ManagedObjectStateStaticConfig;
+import com.tc.objectserver.managedobject.NullManagedObjectChangeListenerProvider;
+
+/**
+ * A heap backed {@link Persistor} with the managed object state factory bound to it, and builders for the node and
+ * leaf objects the codec and persistor tests store in it.
+ */
+class ManagedObjectFixtures {
+  private Persistor          persistor;
+  private ManagedObjectCodec codec;
+
+  void setUp() {
+    ManagedObjectStateFactory.disableSingleton(true);
+    persistor = new Persistor(HeapStorageManagerFactory.INSTANCE);
+    persistor.start();
+    ManagedObjectStateFactory.createInstance(new NullManagedObjectChangeListenerProvider(), persistor);
+    codec = new ManagedObjectCodec(persistor.getManagedObjectPersistor());
+  }
+
+  void tearDown() {
+    persistor.close();
+    ManagedObjectStateFactory.disableSingleton(false);
+  }
+
+  Persistor persistor() {
+    return persistor;
+  }
+
+  ManagedObjectCodec codec() {
+    return codec;
+  }
+
+  ManagedObject newNodeObject(long id) {
+    TestDNACursor cursor = new TestDNACursor();
+    cursor.addArrayAction(new Object[] { new ObjectID(5000) });
+    cursor.addLogicalAction(LogicalOperation.PUT, new Object[] { "refField", new ObjectID(1) });
+    cursor.addLogicalAction(LogicalOperation.PUT, new Object[] { "booleanField", Boolean.TRUE });
+    cursor.addLogicalAction(LogicalOperation.PUT, new Object[] { "byteField", Byte.valueOf((byte) 1) });
+    cursor.addLogicalAction(LogicalOperation.PUT, new Object[] { "doubleField", Double.valueOf(100.001d) });
+    cursor.addLogicalAction(LogicalOperation.PUT, new Object[] { "longField", Long.valueOf(100) });
+    cursor.addLogicalAction(LogicalOperation.PUT, new Object[] { "stringField", "Some nice string field \u00e9\u4e2d" });
+    return apply(id, new TestDNA(cursor, "com.terracotta.toolkit.object.ToolkitObjectStripeImpl"));
+  }
+
+  ManagedObject newLeafObject(long id, byte[] value) {
+    TestDNACursor cursor = new TestDNACursor();
+    cursor.addEntireArray(value);
+    return apply(id, new TestDNA(cursor, ManagedObjectStateStaticConfig.SERIALIZED_CLUSTER_OBJECT.getClientClassName()));
+  }
+
+  private ManagedObject apply(long id, TestDNA dna) {
+    ManagedObjectImpl mo = new ManagedObjectImpl(new ObjectID(id), persistor.getManagedObjectPersistor());
+    mo.apply(dna, new TransactionID(1), new ApplyTransactionInfo(), new ObjectInstanceMonitorImpl(), false);
+    mo.setIsDirty(false);
+    return mo;
+  }
+}
@@ -0,0 +1,194 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.tc.object.ObjectID;
+import com.tc.util.BitSetObjectIDSet;
+import com.tc.util.CompressedObjectIDSet;
+import com.tc.util.ExpandingBitSetObjectIDSet;
+import com.tc.util.ObjectIDSet;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ObjectIDSet implementations on what DGC and the object id snapshot do with them: building a set,
+ * looking ids up, walking it, and the union, intersection and difference of two sets. Ids are either allocated in
+ * sequence with a few deleted, or scattered. Before the throughput runs, {@link #main} prints the heap each
+ * implementation takes for the same ids. Run with
+ * {@code java -cp <test classpath> com.tc.objectserver.persistence.ObjectIDSetBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectIDSetBenchmark {
+
+  private static final String[] TYPES   = { "bitset", "expanding", "compressed" };
+  private static final String[] LAYOUTS = { "sequential", "scattered" };
+
+  @Param({ "bitset", "expanding", "compressed" })
+  private String                type;
+
+  @Param({ "sequential", "scattered" })
+  private String                layout;
+
+  @Param({ "1000000" })
+  private int                   size;
+
+  private long[]                ids;
+  private ObjectIDSet           set;
+  private ObjectIDSet           other;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ids = ids(layout, size, 1);
+    set = fill(create(type), ids);
+    other = fill(create(type), ids(layout, size, 2));
+  }
+
+  @Benchmark
+  public ObjectIDSet build() {
+    return fill(create(type), ids);
+  }
+
+  @Benchmark
+  public int contains() {
+    int found = 0;
+    for (long id : ids) {
+      if (set.contains(new ObjectID(id + 1))) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (ObjectID id : set) {
+      sum += id.toLong();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public ObjectIDSet union() {
+    ObjectIDSet result = copy(type, set);
+    result.addAll(other);
+    return result;
+  }
+
+  @Benchmark
+  public ObjectIDSet intersection() {
+    ObjectIDSet result = copy(type, set);
+    result.retainAll(other);
+    return result;
+  }
+
+  @Benchmark
+  public ObjectIDSet difference() {
+    ObjectIDSet result = copy(type, set);
+    result.removeAll(other);
+    return result;
+  }
+
+  private static ObjectIDSet create(String type) {
+    if ("bitset".equals(type)) {
+      return new BitSetObjectIDSet();
+    } else if ("expanding".equals(type)) {
+      return new ExpandingBitSetObjectIDSet();
+    } else {
+      return new CompressedObjectIDSet();
+    }
+  }
+
+  private static ObjectIDSet copy(String type, ObjectIDSet set) {
+    if ("bitset".equals(type)) {
+      return new BitSetObjectIDSet(set);
+    } else if ("expanding".equals(type)) {
+      return new ExpandingBitSetObjectIDSet(set);
+    } else {
+      return new CompressedObjectIDSet(set);
+    }
+  }
+
+  private static ObjectIDSet fill(ObjectIDSet set, long[] ids) {
+    for (long id : ids) {
+      set.add(new ObjectID(id));
+    }
+    return set;
+  }
+
+  // sequential ids skip one in ten at random, as if deleted; scattered ids spread over a hundred times the range
+  private static long[] ids(String layout, int size, long seed) {
+    Random random = new Random(seed);
+    long[] ids = new long[size];
+    long next = 0;
+    for (int i = 0; i < size; i++) {
+      if ("sequential".equals(layout)) {
+        next += random.nextInt(10) == 0 ? 2 : 1;
+        ids[i] = next;
+      } else {
+        ids[i] = (long) (random.nextDouble() * size * 100);
+      }
+    }
+    return ids;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void printFootprints(int size) {
+    for (String layout : LAYOUTS) {
+      long[] ids = ids(layout, size, 1);
+      for (String type : TYPES) {
+        long before = usedHeap();
+        ObjectIDSet set = fill(create(type), ids);
+        long after = usedHeap();
+        System.out.println(type + " " + layout + " : " + set.size() + " ids in " + ((after - before) / 1024) + " KB");
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    printFootprints(1000000);
+    new Runner(new OptionsBuilder().include(ObjectIDSetBenchmark.class.getSimpleName()).build()).run();
+  }
+}
@@ -0,0 +1,84 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.object.ObjectID;
+import com.tc.objectserver.core.api.ManagedObject;
+import com.tc.stats.counter.Counter;
+import com.tc.stats.counter.CounterImpl;
+import com.tc.test.TCTestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class ObjectMapTest extends TCTestCase {
+  private final ManagedObjectFixtures fixtures = new ManagedObjectFixtures();
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    fixtures.setUp();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    fixtures.tearDown();
+    super.tearDown();
+  }
+
+  public void testLookupsAreRoutedByIndex() throws Exception {
+    ManagedObjectPersistor managedObjectPersistor = fixtures.persistor().getManagedObjectPersistor();
+    Counter hits = new CounterImpl();
+    Counter misses = new CounterImpl();
+    managedObjectPersistor.setObjectIndexCounters(hits, misses);
+
+    ManagedObject node = fixtures.newNodeObject(1);
+    ManagedObject leaf = fixtures.newLeafObject(2, new byte[] { 1, 2, 3 });
+    managedObjectPersistor.saveObject(null, node);
+    managedObjectPersistor.saveObject(null, leaf);
+
+    assertTrue(node.isEqual(managedObjectPersistor.loadObjectByID(new ObjectID(1))));
+    assertTrue(leaf.isEqual(managedObjectPersistor.loadObjectByID(new ObjectID(2))));
+    assertEquals(2, hits.getValue());
+    assertEquals(0, misses.getValue());
+
+    assertNull(managedObjectPersistor.loadObjectByID(new ObjectID(3)));
+    assertEquals(1, misses.getValue());
+  }
+
+  public void testIndexFollowsAddsAndRemoves() throws Exception {
+    ManagedObjectPersistor managedObjectPersistor = fixtures.persistor().getManagedObjectPersistor();
+    // far enough apart to land in different pages of the index
+    long[] ids = { 5, 70000, 1L << 33 };
+    for (long id : ids) {
+      managedObjectPersistor.saveObject(null, fixtures.newNodeObject(id));
+      managedObjectPersistor.saveObject(null, fixtures.newLeafObject(id + 1, new byte[] { 1 }));
+    }
+    for (long id : ids) {
+      assertFalse(managedObjectPersistor.hasNoReferences(new ObjectID(id)));
+      assertTrue(managedObjectPersistor.hasNoReferences(new ObjectID(id + 1)));
+    }
+
+    Set<ObjectID> deleted = new HashSet<ObjectID>();
+    deleted.add(new ObjectID(70000));
+    deleted.add(new ObjectID(70001));
+    managedObjectPersistor.deleteAllObjects(deleted);
+    assertFalse(managedObjectPersistor.hasNoReferences(new ObjectID(70001)));
+    assertNull(managedObjectPersistor.loadObjectByID(new ObjectID(70000)));
+    assertTrue(managedObjectPersistor.hasNoReferences(new ObjectID(6)));
+  }
+}
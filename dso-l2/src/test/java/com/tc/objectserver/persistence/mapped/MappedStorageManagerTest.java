@@ -0,0 +1,306 @@
+/* 
+ * The contents of this file are subject to the Terracotta Public License Version
+ * 2.0 (the "License"); You may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at 
+ *
+ *      http://terracotta.org/legal/terracotta-public-license.
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ * the specific language governing rights and limitations under the License.
+ *
+ * The Covered Software is Terracotta Platform.
+ *
+ * The Initial Developer of the Covered Software is 
+ *      Terracotta, Inc., a Software AG company
+ */
+package com.tc.objectserver.persistence.mapped;
+
+import org.terracotta.corestorage.ImmutableKeyValueStorageConfig;
+import org.terracotta.corestorage.KeyValueStorage;
+import org.terracotta.corestorage.KeyValueStorageConfig;
+import org.terracotta.corestorage.heap.HeapStorageManager;
+import org.terracotta.corestorage.monitoring.MonitoredResource;
+
+import com.tc.test.TCTestCase;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MappedStorageManagerTest extends TCTestCase {
+  private static final String STATE = "state";
+
+  private File                directory;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    directory = getTempDirectory();
+  }
+
+  public void testLogReplay() throws Exception {
+    SegmentedLog log = new SegmentedLog(directory, 1024);
+    log.open(new CollectingVisitor());
+    for (int i = 0; i < 100; i++) {
+      log.append(LogRecordCodec.encode("record-" + i));
+    }
+    assertTrue(log.segmentCount() > 1);
+    log.close();
+
+    CollectingVisitor visitor = new CollectingVisitor();
+    log = new SegmentedLog(directory, 1024);
+    log.open(visitor);
+    assertEquals(100, visitor.records.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals("record-" + i, visitor.records.get(i));
+    }
+    log.close();
+  }
+
+  public void testConcurrentAppends() throws Exception {
+    final SegmentedLog log = new SegmentedLog(directory, 1024);
+    log.open(new CollectingVisitor());
+    final int threads = 4;
+    final int records = 500;
+    Thread[] writers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final String prefix = "writer-" + t + "-";
+      writers[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < records; i++) {
+            log.append(LogRecordCodec.encode(prefix + i));
+          }
+        }
+      };
+      writers[t].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    long used = log.usedBytes();
+    log.close();
+
+    CollectingVisitor visitor = new CollectingVisitor();
+    log = new SegmentedLog(directory, 1024);
+    log.open(visitor);
+    assertEquals(threads * records, visitor.records.size());
+    assertEquals(used, log.usedBytes());
+    // every writer's records come back in the order it appended them
+    int[] next = new int[threads];
+    for (Object record : visitor.records) {
+      String[] parts = ((String) record).split("-");
+      int writer = Integer.parseInt(parts[1]);
+      assertEquals(next[writer]++, Integer.parseInt(parts[2]));
+    }
+    log.close();
+  }
+
+  public void testTornRecordIsTruncated() throws Exception {
+    SegmentedLog log = new SegmentedLog(directory, 4096);
+    log.open(new CollectingVisitor());
+    log.append(LogRecordCodec.encode("first"));
+    log.append(LogRecordCodec.encode("second"));
+    log.close();
+
+    // flip a byte at the end of the second record to fail its checksum
+    File segment = new File(directory, String.format("segment-%016d.log", 0));
+    RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+    try {
+      long end = findEndOfLastRecord(raf, "second");
+      raf.seek(end - 1);
+      raf.write(raf.read() ^ 0xFF);
+    } finally {
+      raf.close();
+    }
+
+    CollectingVisitor visitor = new CollectingVisitor();
+    log = new SegmentedLog(directory, 4096);
+    log.open(visitor);
+    assertEquals(1, visitor.records.size());
+    assertEquals("first", visitor.records.get(0));
+    log.append(LogRecordCodec.encode("third"));
+    log.close();
+
+    visitor = new CollectingVisitor();
+    log = new SegmentedLog(directory, 4096);
+    log.open(visitor);
+    assertEquals(2, visitor.records.size());
+    assertEquals("third", visitor.records.get(1));
+    log.close();
+  }
+
+  public void testRestart() throws Exception {
+    MappedStorageManager storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    KeyValueStorage<Long, String> state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    for (long i = 0; i < 100; i++) {
+      state.put(i, "value-" + i);
+    }
+    state.remove(7L);
+    KeyValueStorage<Object, Object> map = storageManager.createKeyValueStorage("map", mapConfig());
+    map.put("foo", "bar");
+    storageManager.getProperties().put("prop", "value");
+    storageManager.close();
+
+    storageManager = newStorageManager(4096);
+    assertEquals("value", storageManager.getProperties().get("prop"));
+    storageManager.start().get();
+    state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    assertEquals(99, state.size());
+    assertNull(state.get(7L));
+    assertEquals("value-42", state.get(42L));
+    assertEquals("bar", storageManager.getKeyValueStorage("map", Object.class, Object.class).get("foo"));
+    storageManager.close();
+  }
+
+  public void testUncommittedTransactionIsDropped() throws Exception {
+    MappedStorageManager storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    KeyValueStorage<Long, String> state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    storageManager.begin();
+    state.put(1L, "one");
+    state.put(2L, "two");
+    storageManager.commit();
+    storageManager.begin();
+    state.put(1L, "uno");
+    state.remove(2L);
+    state.put(3L, "tres");
+    // goes down before the transaction commits
+    storageManager.close();
+
+    storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    assertEquals(2, state.size());
+    assertEquals("one", state.get(1L));
+    assertEquals("two", state.get(2L));
+    storageManager.close();
+  }
+
+  public void testCompactionDuringTransaction() throws Exception {
+    MappedStorageManager storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    KeyValueStorage<Long, String> state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    for (long i = 0; i < 50; i++) {
+      state.put(i, "value-" + i);
+    }
+    storageManager.begin();
+    state.put(1L, "changed");
+    state.remove(2L);
+    storageManager.compact();
+    // the committed values are all that survive a crash
+    storageManager.close();
+
+    storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    assertEquals(50, state.size());
+    assertEquals("value-1", state.get(1L));
+    assertEquals("value-2", state.get(2L));
+    storageManager.begin();
+    state.put(1L, "changed");
+    state.remove(2L);
+    storageManager.compact();
+    storageManager.commit();
+    storageManager.close();
+
+    // once committed the changes copied forward by the compaction count
+    storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    assertEquals(49, state.size());
+    assertEquals("changed", state.get(1L));
+    assertNull(state.get(2L));
+    storageManager.close();
+  }
+
+  public void testLogIsNotEvictedAgainst() throws Exception {
+    MappedStorageManager storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    for (MonitoredResource resource : storageManager.getMonitoredResources()) {
+      assertFalse(resource instanceof MappedLogMonitoredResource);
+    }
+    storageManager.close();
+  }
+
+  public void testCompaction() throws Exception {
+    MappedStorageManager storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    KeyValueStorage<Long, String> state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    for (int round = 0; round < 20; round++) {
+      for (long i = 0; i < 50; i++) {
+        state.put(i, "value-" + round + "-" + i);
+      }
+    }
+    storageManager.createKeyValueStorage("doomed", mapConfig()).put("foo", "bar");
+    storageManager.destroyKeyValueStorage("doomed");
+    long before = logSize();
+    storageManager.compact();
+    storageManager.close();
+
+    storageManager = newStorageManager(4096);
+    storageManager.start().get();
+    state = storageManager.getKeyValueStorage(STATE, Long.class, String.class);
+    assertEquals(50, state.size());
+    assertEquals("value-19-13", state.get(13L));
+    assertNull(storageManager.getKeyValueStorage("doomed", Object.class, Object.class));
+    assertTrue(logSize() < before);
+    storageManager.close();
+  }
+
+  private MappedStorageManager newStorageManager(int segmentSize) {
+    Map<String, KeyValueStorageConfig<?, ?>> configMap = new HashMap<String, KeyValueStorageConfig<?, ?>>();
+    configMap.put(STATE, ImmutableKeyValueStorageConfig.builder(Long.class, String.class).build());
+    MappedStorageManager storageManager = new MappedStorageManager(new HeapStorageManager(configMap),
+                                                                   new MappedStorageConfig(directory, segmentSize,
+                                                                                           false, 2.0f,
+                                                                                           Long.MAX_VALUE));
+    storageManager.setDynamicStorageConfig(mapConfig());
+    return storageManager;
+  }
+
+  private long logSize() {
+    long size = 0;
+    for (File f : directory.listFiles()) {
+      if (f.getName().endsWith(".log")) {
+        size += f.length();
+      }
+    }
+    return size;
+  }
+
+  private static KeyValueStorageConfig<Object, Object> mapConfig() {
+    return ImmutableKeyValueStorageConfig.builder(Object.class, Object.class).build();
+  }
+
+  private static long findEndOfLastRecord(RandomAccessFile raf, String value) throws Exception {
+    byte[] content = new byte[(int) raf.length()];
+    raf.readFully(content);
+    byte[] needle = value.getBytes("UTF-8");
+    for (int i = content.length - needle.length; i >= 0; i--) {
+      boolean match = true;
+      for (int j = 0; j < needle.length && match; j++) {
+        match = content[i + j] == needle[j];
+      }
+      if (match) {
+        return i + needle.length;
+      }
+    }
+    throw new AssertionError(value + " not found");
+  }
+
+  private static class CollectingVisitor implements SegmentedLog.RecordVisitor {
+    private final List<Object> records = new ArrayList<Object>();
+
+    @Override
+    public void visit(ByteBuffer payload) {
+      records.add(LogRecordCodec.decode(payload));
+    }
+  }
+}
@@ -80,7 +80,7 @@ public class ServerManagementServiceV2 implements L1MBeansSource {
 
   private static final String[] SERVER_STATS_ATTRIBUTE_NAMES = new String[] { "LiveObjectCount",
       "ReadOperationRate", "WriteOperationRate", "OffheapMaxSize", "OffheapReservedSize", "OffheapUsedSize",
-      "EvictionRate", "ExpirationRate", "StorageStats" };
+      "EvictionRate", "ExpirationRate", "StorageStats", "StageLatencies" };
 
 
   private final LocalManagementSource localManagementSource;
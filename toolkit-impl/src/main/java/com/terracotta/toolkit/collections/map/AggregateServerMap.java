@@ -126,13 +126,21 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 public class AggregateServerMap<K, V> implements DistributedToolkitType<InternalToolkitMap<K, V>>,
     ToolkitCacheInternal<K,V>, ToolkitStore<K,V>, ConfigChangeListener, ValuesResolver<K, V>, SearchableEntity,
@@ -144,6 +152,8 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
 
   private static final String                                              EHCACHE_GETALL_BATCH_SIZE_PROPERTY = "ehcache.getAll.batchSize";
   private static final int                                                 DEFAULT_GETALL_BATCH_SIZE          = 1000;
+  private static final String                                              ASYNC_BATCH_THREADS_PROPERTY       = "toolkit.async.batch.threads";
+  private static final String                                              EXPLICIT_LOCK_ASYNC_MSG            = "Explicit locks are not supported for async bulk operations";
   private final static String                                              SNAPSHOT_TXN_LOCK_ID               = "snapshot_txn_lock";
   private final static List<ToolkitObjectType>                             VALID_TYPES                        = Arrays
                                                                                                                   .asList(ToolkitObjectType.STORE,
@@ -178,6 +188,9 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
   private final ToolkitLock                                                concurrentLock;
   private final TaskRunner                                                 taskRunner;
   private final Timer timer;
+  // guarded by this, created by the first async bulk operation
+  private ExecutorService                                                  asyncBatchExecutor;
+  private boolean                                                          asyncBatchExecutorShutdown;
 
   protected int getTerracottaProperty(String propName, int defaultValue) {
     try {
@@ -600,6 +613,7 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
 
   @Override
   public void destroy() {
+    shutdownAsyncBatchExecutor();
     // Wait due to search index destroy working globally across all segments only once,
     // therefore allowing for races between pending txns and index destroy
     if (attributeExtractor != null) waitForAllCurrentTransactionsToComplete();
@@ -615,6 +629,7 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
 
   @Override
   public void disposeLocally() {
+    shutdownAsyncBatchExecutor();
     // Need to wait for all transactions to complete since there could still be in-flight transactions dependent on the
     // local cache.
     try {
@@ -671,18 +686,7 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
     if (getAnyServerMap().isEventual()) {
       Multimap<Integer, Entry> batchsForServerMap = createBatchsForServerMap(map);
       for (Entry<Integer, Collection<Entry>> batch : batchsForServerMap.asMap().entrySet()) {
-        concurrentLock.lock();
-        try {
-          // for single serverMap
-          for (Entry e : batch.getValue()) {
-            serverMaps[batch.getKey()].unlockedPutNoReturn((K) e.getKey(), (V) e.getValue(), timeSource.nowInSeconds(),
-                ToolkitConfigFields.DEFAULT_MAX_TTI_SECONDS,
-                ToolkitConfigFields.DEFAULT_MAX_TTL_SECONDS);
-          }
-        } finally {
-          concurrentLock.unlock();
-        }
-
+        putBatch(batch.getKey(), batch.getValue());
       }
     } else {
       for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
@@ -691,11 +695,296 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
     }
   }
 
+  /**
+   * Puts entries that all belong to the server map at the given index.
+   */
+  private void putBatch(int serverMapIndex, Collection<Entry> entries) {
+    if (getAnyServerMap().isEventual()) {
+      final int now = timeSource.nowInSeconds();
+      applyUnlockedBatch(serverMapIndex, entries, new BatchMutation<Entry>() {
+        @Override
+        public void apply(InternalToolkitMap serverMap, Entry e) {
+          serverMap.unlockedPutNoReturn((K) e.getKey(), (V) e.getValue(), now,
+              ToolkitConfigFields.DEFAULT_MAX_TTI_SECONDS,
+              ToolkitConfigFields.DEFAULT_MAX_TTL_SECONDS);
+        }
+      });
+    } else {
+      for (Entry e : entries) {
+        putNoReturn((K) e.getKey(), (V) e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Puts all versioned values. On an eventual map the entries of each server map go out in a single transaction.
+   */
+  public void putAllVersioned(Map<? extends K, ? extends VersionedValue<V>> map) {
+    if (map == null || map.isEmpty()) { return; }
+    if (getAnyServerMap().isEventual()) {
+      final int now = timeSource.nowInSeconds();
+      for (Entry<Integer, Collection<Entry>> batch : createBatchsForServerMap(map).asMap().entrySet()) {
+        applyUnlockedBatch(batch.getKey(), batch.getValue(), new BatchMutation<Entry>() {
+          @Override
+          public void apply(InternalToolkitMap serverMap, Entry e) {
+            VersionedValue<V> value = (VersionedValue<V>) e.getValue();
+            serverMap.unlockedPutNoReturnVersioned((K) e.getKey(), value.getValue(), value.getVersion(), now,
+                ToolkitConfigFields.NO_MAX_TTI_SECONDS, ToolkitConfigFields.NO_MAX_TTL_SECONDS);
+          }
+        });
+      }
+    } else {
+      for (Map.Entry<? extends K, ? extends VersionedValue<V>> entry : map.entrySet()) {
+        putVersioned(entry.getKey(), entry.getValue().getValue(), entry.getValue().getVersion());
+      }
+    }
+  }
+
+  /**
+   * Removes all keys at the given versions. On an eventual map the removes of each server map go out in a single
+   * transaction.
+   */
+  public void removeAllVersioned(Map<? extends K, Long> keysAndVersions) {
+    if (keysAndVersions == null || keysAndVersions.isEmpty()) { return; }
+    if (getAnyServerMap().isEventual()) {
+      for (Entry<Integer, Collection<Entry>> batch : createBatchsForServerMap(keysAndVersions).asMap().entrySet()) {
+        applyUnlockedBatch(batch.getKey(), batch.getValue(), new BatchMutation<Entry>() {
+          @Override
+          public void apply(InternalToolkitMap serverMap, Entry e) {
+            // non literal keys cannot be in the map, same as removeVersioned
+            if (LiteralValues.isLiteralInstance(e.getKey())) {
+              serverMap.unlockedRemoveNoReturnVersioned(e.getKey(), (Long) e.getValue());
+            }
+          }
+        });
+      }
+    } else {
+      for (Map.Entry<? extends K, Long> entry : keysAndVersions.entrySet()) {
+        removeVersioned(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Applies the mutation to each item of a batch that all belongs to the server map at the given index. The batch is
+   * done under the concurrent lock, so it is shipped as one transaction instead of one transaction per item.
+   */
+  private <T> void applyUnlockedBatch(int serverMapIndex, Collection<T> items, BatchMutation<T> mutation) {
+    InternalToolkitMap<K, V> serverMap = serverMaps[serverMapIndex];
+    concurrentLock.lock();
+    try {
+      for (T item : items) {
+        mutation.apply(serverMap, item);
+      }
+    } finally {
+      concurrentLock.unlock();
+    }
+  }
+
+  private interface BatchMutation<T> {
+    void apply(InternalToolkitMap serverMap, T item);
+  }
+
+  /**
+   * Non blocking {@link #putAll(Map)}: the entries of each server map are put on the async batch executor, all
+   * server maps in parallel. The returned future completes once every entry is put, or exceptionally with the first failure, in
+   * which case some of the entries may have been put.
+   */
+  public CompletableFuture<Void> putAllAsync(final Map<? extends K, ? extends V> map) {
+    if (map == null || map.isEmpty()) { return CompletableFuture.completedFuture(null); }
+    // explicit locks belong to the calling thread, the batches run on others
+    if (isExplicitLocked()) { throw new UnsupportedOperationException(EXPLICIT_LOCK_ASYNC_MSG); }
+
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    List<Runnable> batches = new ArrayList<Runnable>();
+    for (final Entry<Integer, Collection<Entry>> batch : createBatchsForServerMap(map).asMap().entrySet()) {
+      batches.add(new Runnable() {
+        @Override
+        public void run() {
+          putBatch(batch.getKey(), batch.getValue());
+        }
+      });
+    }
+    executeBatches(batches, result, new Runnable() {
+      @Override
+      public void run() {
+        result.complete(null);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Non blocking {@link #getAll(Collection)}.
+   *
+   * @see #getAllAsync(Collection, boolean, Consumer)
+   */
+  public CompletableFuture<Map<K, V>> getAllAsync(final Collection<? extends K> keys) {
+    return getAllAsync(keys, false, null);
+  }
+
+  /**
+   * Non blocking {@link #getAll(Collection)} or {@link #getAllQuiet(Collection)}. The keys are split per server map,
+   * in batches of at most {@code ehcache.getAll.batchSize} keys, and all batches are fetched in parallel on the async
+   * batch executor. Each batch's results are handed to {@code batchListener}, if there is one, as soon as they arrive,
+   * on the thread that fetched them. The returned future completes with the results for all keys, or exceptionally with
+   * the first failure.
+   */
+  public CompletableFuture<Map<K, V>> getAllAsync(final Collection<? extends K> keys, final boolean quiet,
+                                                  final Consumer<? super Map<K, V>> batchListener) {
+    if (keys == null || keys.isEmpty()) { return CompletableFuture.completedFuture(Collections.<K, V> emptyMap()); }
+    if (isExplicitLocked()) { throw new UnsupportedOperationException(EXPLICIT_LOCK_ASYNC_MSG); }
+
+    final CompletableFuture<Map<K, V>> result = new CompletableFuture<Map<K, V>>();
+    // guarded by itself until the future completes
+    final Map<K, V> rv = new HashMap<K, V>(keys.size());
+    List<Runnable> batches = new ArrayList<Runnable>();
+    for (final Set<K> batch : createGetAllBatches(keys)) {
+      batches.add(new Runnable() {
+        @Override
+        public void run() {
+          Map<K, V> batchResult = getBatch(batch, quiet);
+          if (batchListener != null) {
+            batchListener.accept(Collections.unmodifiableMap(batchResult));
+          }
+          synchronized (rv) {
+            rv.putAll(batchResult);
+          }
+        }
+      });
+    }
+    executeBatches(batches, result, new Runnable() {
+      @Override
+      public void run() {
+        synchronized (rv) {
+          result.complete(rv);
+        }
+      }
+    });
+    return result;
+  }
+
+  private Collection<Set<K>> createGetAllBatches(Collection<? extends K> keys) {
+    List<Set<K>> batches = new ArrayList<Set<K>>();
+    Map<Integer, Set<K>> openBatches = new HashMap<Integer, Set<K>>();
+    for (K key : keys) {
+      Integer serverMapIndex = getServerMapIndexForKey(key);
+      Set<K> batch = openBatches.get(serverMapIndex);
+      if (batch == null || batch.size() == getAllBatchSize) {
+        batch = new HashSet<K>();
+        openBatches.put(serverMapIndex, batch);
+        batches.add(batch);
+      }
+      batch.add(key);
+    }
+    return batches;
+  }
+
+  private Map<K, V> getBatch(Set<K> keys, boolean quiet) {
+    switch (consistency) {
+      case STRONG:
+      case SYNCHRONOUS_STRONG:
+        Map<K, V> rv = new HashMap<K, V>();
+        for (K key : keys) {
+          rv.put(key, quiet ? getQuiet(key) : get(key));
+        }
+        return rv;
+      case EVENTUAL:
+        return getAllInternal(keys, quiet);
+    }
+    throw new UnsupportedOperationException("Unknown consistency - " + consistency);
+  }
+
+  /**
+   * Runs every batch on the async batch executor. The first batch to fail completes {@code result} exceptionally and
+   * batches that have not started yet are skipped, otherwise {@code whenAllDone} runs after the last batch.
+   */
+  private void executeBatches(List<Runnable> batches, final CompletableFuture<?> result, final Runnable whenAllDone) {
+    final AtomicInteger remaining = new AtomicInteger(batches.size());
+    for (final Runnable batch : batches) {
+      try {
+        getAsyncBatchExecutor().execute(new Runnable() {
+          @Override
+          public void run() {
+            if (result.isDone()) { return; }
+            try {
+              batch.run();
+              if (remaining.decrementAndGet() == 0) {
+                whenAllDone.run();
+              }
+            } catch (Throwable t) {
+              result.completeExceptionally(t);
+            }
+          }
+        });
+      } catch (RuntimeException e) {
+        result.completeExceptionally(e);
+        return;
+      }
+    }
+  }
+
+  /**
+   * The batches of the async bulk operations block until their stripe answers. They must not run on the client's
+   * task runner: the server map manager sends the requests it could not send right away from a task on that same
+   * runner, so enough batches in flight would park every runner thread and no request would ever go out. Each map gets
+   * a bounded pool of its own instead, so one map's slow batches do not queue ahead of another's. The pool is created on
+   * first use, its idle threads go away, and it is shut down when the map is destroyed or disposed.
+   */
+  private synchronized ExecutorService getAsyncBatchExecutor() {
+    if (asyncBatchExecutorShutdown) { throw new RejectedExecutionException("Map " + name + " is destroyed or disposed"); }
+    if (asyncBatchExecutor == null) {
+      int threads = getTerracottaProperty(ASYNC_BATCH_THREADS_PROPERTY,
+                                          Math.max(4, Runtime.getRuntime().availableProcessors()));
+      ThreadFactory daemonThreadFactory = new ThreadFactory() {
+        private final AtomicInteger threadID = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "AggregateServerMapAsyncBatch_" + name + "_"
+                                               + threadID.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                           new LinkedBlockingQueue<Runnable>(), daemonThreadFactory);
+      executor.allowCoreThreadTimeOut(true);
+      asyncBatchExecutor = executor;
+    }
+    return asyncBatchExecutor;
+  }
+
+  private synchronized void shutdownAsyncBatchExecutor() {
+    asyncBatchExecutorShutdown = true;
+    if (asyncBatchExecutor != null) {
+      asyncBatchExecutor.shutdown();
+    }
+  }
+
   @Override
   public void removeAll(Set<K> keys) {
     if (keys == null || keys.isEmpty()) { return; }
-    for (K key : keys) {
-      removeNoReturn(key);
+    if (getAnyServerMap().isEventual()) {
+      Multimap<Integer, Object> batches = ArrayListMultimap.create();
+      for (K key : keys) {
+        // non literal keys cannot be in the map, same as removeNoReturn
+        if (LiteralValues.isLiteralInstance(key)) {
+          batches.put(getServerMapIndexForKey(key), key);
+        }
+      }
+      for (Entry<Integer, Collection<Object>> batch : batches.asMap().entrySet()) {
+        applyUnlockedBatch(batch.getKey(), batch.getValue(), new BatchMutation<Object>() {
+          @Override
+          public void apply(InternalToolkitMap serverMap, Object key) {
+            serverMap.unlockedRemoveNoReturn(key);
+          }
+        });
+      }
+    } else {
+      for (K key : keys) {
+        removeNoReturn(key);
+      }
     }
   }
 
@@ -721,7 +1010,7 @@ public class AggregateServerMap<K, V> implements DistributedToolkitType<Internal
 
   private Map<K, V> doGetAll(final Collection<? extends K> keys, boolean quiet) {
     if (keys == null || keys.isEmpty()) { return Collections.emptyMap(); }
-    if (isExplicitLocked()) { throw new UnsupportedOperationException(); }
+    if (isExplicitLocked()) { throw new UnsupportedOperationException(EXPLICIT_LOCK_ASYNC_MSG); }
     switch (consistency) {
       case STRONG:
       case SYNCHRONOUS_STRONG:
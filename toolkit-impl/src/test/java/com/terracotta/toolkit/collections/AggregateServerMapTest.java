@@ -29,6 +29,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.terracotta.toolkit.ToolkitObjectType;
 import org.terracotta.toolkit.builder.ToolkitCacheConfigBuilder;
 import org.terracotta.toolkit.cache.ToolkitCacheListener;
@@ -68,19 +70,30 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyMap;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -210,6 +223,150 @@ public class AggregateServerMapTest {
     assertThat(result, is(expectedResult));
   }
 
+  @Test
+  public void testGetAllAsync() throws Exception {
+    final List<ServerMap> serverMapList = mockServerMaps(2);
+    AggregateServerMap<String, String> asm = createAsmForGetAll(serverMapList);
+    TCObjectServerMap tcObject = (TCObjectServerMap) serverMapList.get(0).__tc_managed();
+    when(tcObject.getAllValuesUnlocked(any(SetMultimap.class))).thenAnswer(new Answer<Map<Object, Object>>() {
+      @Override
+      public Map<Object, Object> answer(InvocationOnMock invocation) {
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        for (Object key : ((SetMultimap<?, ?>) invocation.getArguments()[0]).values()) {
+          values.put(key, "value-" + key);
+        }
+        return values;
+      }
+    });
+
+    final List<Map<String, String>> batches = new CopyOnWriteArrayList<Map<String, String>>();
+    final List<String> batchThreads = new CopyOnWriteArrayList<String>();
+    // "foo".hashCode() is even, "bar".hashCode() is odd, so each goes to its own server map
+    Map<String, String> result = asm.getAllAsync(Arrays.asList("foo", "bar"), false, new Consumer<Map<String, String>>() {
+      @Override
+      public void accept(Map<String, String> batch) {
+        batches.add(batch);
+        batchThreads.add(Thread.currentThread().getName());
+      }
+    }).get();
+
+    assertThat(batches.size(), is(2));
+    // not on the task runner, which the server map manager needs free to send the requests
+    for (String batchThread : batchThreads) {
+      assertThat(batchThread.startsWith("AggregateServerMapAsyncBatch_"), is(true));
+    }
+    Map<String, String> expected = new HashMap<String, String>();
+    expected.put("foo", "value-foo");
+    expected.put("bar", "value-bar");
+    assertThat(result, is(expected));
+  }
+
+  @Test
+  public void testGetAllAsyncFailure() throws Exception {
+    final List<ServerMap> serverMapList = mockServerMaps(2);
+    AggregateServerMap<String, String> asm = createAsmForGetAll(serverMapList);
+    when(((TCObjectServerMap) serverMapList.get(0).__tc_managed()).getAllValuesUnlocked(any(SetMultimap.class)))
+        .thenThrow(new TCNotRunningException());
+
+    CompletableFuture<Map<String, String>> result = asm.getAllAsync(Arrays.asList("foo", "bar"));
+    try {
+      result.get();
+      Assert.fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause() instanceof TCNotRunningException, is(true));
+    }
+  }
+
+  @Test
+  public void testGetAllAsyncAfterDispose() throws Exception {
+    final List<ServerMap> serverMapList = mockServerMaps(2);
+    AggregateServerMap<String, String> asm = createAsmForGetAll(serverMapList);
+
+    asm.disposeLocally();
+    try {
+      asm.getAllAsync(Arrays.asList("foo", "bar")).get();
+      Assert.fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause() instanceof RejectedExecutionException, is(true));
+    }
+  }
+
+  @Test
+  public void testEventualRemoveAllShipsOneTransactionPerServerMap() throws Exception {
+    final List<ServerMap> serverMapList = mockServerMaps(2);
+    when(serverMapList.get(0).isEventual()).thenReturn(true);
+    AggregateServerMap<String, String> asm = createAsmForGetAll(serverMapList);
+
+    // "foo" goes to the first server map, "bar" and "baz" to the second
+    asm.removeAll(new HashSet<String>(Arrays.asList("foo", "bar", "baz")));
+
+    verify(serverMapList.get(0)).unlockedRemoveNoReturn("foo");
+    verify(serverMapList.get(1)).unlockedRemoveNoReturn("bar");
+    verify(serverMapList.get(1)).unlockedRemoveNoReturn("baz");
+    verify(serverMapList.get(1), never()).removeNoReturn(any());
+    verify(platformService, times(2)).beginLock(any(), any());
+  }
+
+  @Test
+  public void testEventualVersionedBulkShipsOneTransactionPerServerMap() throws Exception {
+    final List<ServerMap> serverMapList = mockServerMaps(2);
+    when(serverMapList.get(0).isEventual()).thenReturn(true);
+    AggregateServerMap<String, String> asm = createAsmForGetAll(serverMapList);
+
+    // "foo" goes to the first server map, "bar" and "baz" to the second
+    Map<String, VersionedValue<String>> puts = new HashMap<String, VersionedValue<String>>();
+    puts.put("foo", new VersionedValueImpl<String>("v1", 1));
+    puts.put("bar", new VersionedValueImpl<String>("v2", 2));
+    puts.put("baz", new VersionedValueImpl<String>("v3", 3));
+    asm.putAllVersioned(puts);
+
+    verify(serverMapList.get(0)).unlockedPutNoReturnVersioned(eq("foo"), eq("v1"), eq(1L), anyInt(),
+        eq(ToolkitConfigFields.NO_MAX_TTI_SECONDS), eq(ToolkitConfigFields.NO_MAX_TTL_SECONDS));
+    verify(serverMapList.get(1)).unlockedPutNoReturnVersioned(eq("bar"), eq("v2"), eq(2L), anyInt(),
+        eq(ToolkitConfigFields.NO_MAX_TTI_SECONDS), eq(ToolkitConfigFields.NO_MAX_TTL_SECONDS));
+    verify(serverMapList.get(1)).unlockedPutNoReturnVersioned(eq("baz"), eq("v3"), eq(3L), anyInt(),
+        eq(ToolkitConfigFields.NO_MAX_TTI_SECONDS), eq(ToolkitConfigFields.NO_MAX_TTL_SECONDS));
+    verify(platformService, times(2)).beginLock(any(), any());
+
+    Map<String, Long> removes = new HashMap<String, Long>();
+    removes.put("foo", 4L);
+    removes.put("bar", 5L);
+    removes.put("baz", 6L);
+    asm.removeAllVersioned(removes);
+
+    verify(serverMapList.get(0)).unlockedRemoveNoReturnVersioned("foo", 4L);
+    verify(serverMapList.get(1)).unlockedRemoveNoReturnVersioned("bar", 5L);
+    verify(serverMapList.get(1)).unlockedRemoveNoReturnVersioned("baz", 6L);
+    verify(serverMapList.get(1), never()).removeNoReturnVersioned(any(), anyLong());
+    verify(platformService, times(4)).beginLock(any(), any());
+  }
+
+  private AggregateServerMap<String, String> createAsmForGetAll(final List<ServerMap> serverMapList) {
+    ToolkitObjectStripe[] stripeObjects = createObjectStripes(configuration, serverMapList, 1);
+    for (ServerMap serverMap : serverMapList) {
+      when(serverMap.checkAndGetNonExpiredValue(any(), any(), any(ServerMap.GetType.class), anyBoolean()))
+          .thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+              return invocation.getArguments()[1];
+            }
+          });
+    }
+    return new AggregateServerMap<String, String>(ToolkitObjectType.CACHE, mock(SearchFactory.class),
+        mock(DistributedClusteredObjectLookup.class), "foo", stripeObjects, configuration,
+        mock(Callable.class), serverMapLocalStoreFactory, platformService, mock(ToolkitLock.class)) {
+      @Override
+      protected TCObjectServerMap getAnyTCObjectServerMap() {
+        return (TCObjectServerMap) serverMapList.get(0).__tc_managed();
+      }
+
+      @Override
+      protected InternalToolkitMap<String, String> getAnyServerMap() {
+        return serverMapList.get(0);
+      }
+    };
+  }
+
   private List<ServerMap> mockServerMaps(int number) {
     List<ServerMap> serverMaps = new ArrayList<ServerMap>();
     for (int i = 0; i < number; i++) {